@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.fop.afp.fonts.CharacterSet;
+import org.apache.fop.afp.fonts.FopCharacterSet;
+import org.apache.fop.fonts.base14.Helvetica;
+
+/**
+ * Measures the encoding of AFP text by character sets shared by concurrent renderings:
+ * <ul>
+ * <li><code>synchronizedEncoder</code>: one JDK encoder per character set, locked for every
+ * text run, as <code>CharactersetEncoder</code> did before the code page tables</li>
+ * <li><code>codePageTable</code>: {@link CharacterSet#encodeChars(CharSequence)}, which
+ * looks the characters up in the shared code page table</li>
+ * <li><code>codePageTableBuffer</code>: the same with a buffer reused by the thread, as
+ * done by the AFP painter</li>
+ * </ul>
+ * Single byte text is encoded with code page 500 and double byte (Traditional Chinese) text
+ * with code page 937. The benchmarks run on four threads sharing the character set; use
+ * <code>-t</code> to change the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class AFPTextEncodingBenchmark {
+
+    private static final String SBCS_TEXT = "Dear customer, your invoice no. 4711 of 12/03 amounts"
+            + " to 1,234.56 EUR (r\u00e9sum\u00e9, Stra\u00dfe, na\u00efve, \u00e0 la carte).";
+
+    private static final String DBCS_TEXT = "\u4e2d\u6587\u5370\u5237\u6e2c\u8a66\uff1a\u6bcf\u4e00"
+            + "\u9801\u90fd\u6709\u5ba2\u6236\u7684\u59d3\u540d\u3001"
+            + "\u5730\u5740\u548c\u5e33\u55ae\u91d1\u984d\u3002";
+
+    /** The kind of character set: <code>sbcs</code> or <code>dbcs</code>. */
+    @Param({"sbcs", "dbcs"})
+    public String charset;
+
+    private String text;
+    private CharacterSet characterSet;
+    private CharsetEncoder sharedEncoder;
+
+    /** Creates the character set and the shared JDK encoder. */
+    @Setup
+    public void setUp() {
+        String encoding;
+        if ("dbcs".equals(charset)) {
+            text = DBCS_TEXT;
+            encoding = "Cp937";
+            characterSet = new FopCharacterSet("T1120937", encoding, "CZT0", new Helvetica(),
+                    null, null);
+        } else {
+            text = SBCS_TEXT;
+            encoding = CharacterSet.DEFAULT_ENCODING;
+            characterSet = new FopCharacterSet(CharacterSet.DEFAULT_CODEPAGE, encoding, "C0H200",
+                    new Helvetica(), null);
+        }
+        sharedEncoder = Charset.forName(encoding).newEncoder();
+        sharedEncoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /** The encoding buffer of a thread. */
+    @State(Scope.Thread)
+    public static class Buffer {
+
+        private byte[] bytes;
+
+        /**
+         * Creates a buffer large enough for the text.
+         * @param benchmark the benchmark state
+         */
+        @Setup
+        public void setUp(AFPTextEncodingBenchmark benchmark) {
+            bytes = new byte[CharacterSet.getEncodingBufferSize(benchmark.text.length())];
+        }
+    }
+
+    /**
+     * Encodes the text with the JDK encoder shared by all threads.
+     * @return the number of bytes
+     * @throws CharacterCodingException if the text can't be encoded
+     */
+    @Benchmark
+    public int synchronizedEncoder() throws CharacterCodingException {
+        ByteBuffer bb;
+        synchronized (sharedEncoder) {
+            bb = sharedEncoder.encode(CharBuffer.wrap(text));
+        }
+        return bb.limit();
+    }
+
+    /**
+     * Encodes the text with the code page table.
+     * @return the number of bytes
+     * @throws CharacterCodingException if the text can't be encoded
+     */
+    @Benchmark
+    public int codePageTable() throws CharacterCodingException {
+        return characterSet.encodeChars(text).getLength();
+    }
+
+    /**
+     * Encodes the text with the code page table into the thread's buffer.
+     * @param buffer the thread's buffer
+     * @return the number of bytes
+     * @throws CharacterCodingException if the text can't be encoded
+     */
+    @Benchmark
+    public int codePageTableBuffer(Buffer buffer) throws CharacterCodingException {
+        return characterSet.encodeChars(text, buffer.bytes).getLength();
+    }
+}
@@ -0,0 +1,501 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.xml.sax.SAXException;
+
+import org.apache.fop.apps.FOPException;
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.events.Event;
+import org.apache.fop.events.EventFilter;
+import org.apache.fop.events.EventListener;
+import org.apache.fop.events.model.EventSeverity;
+
+/**
+ * Generates the synthetic documents and the FOP configuration shared by the benchmarks.
+ * <p>
+ * Font files are resolved against the current directory which is expected to be the
+ * <code>fop</code> directory of the source tree (where the test fonts live). This is the
+ * working directory used by <code>mvn exec:exec</code>; it can be overridden with the
+ * <code>fop.benchmarks.basedir</code> system property. No CJK font is bundled with FOP, so
+ * the CJK document falls back to the Latin test font unless a font file is given with the
+ * <code>fop.benchmarks.cjkfont</code> system property.</p>
+ */
+public final class BenchmarkDocuments {
+
+    /** Paragraphs of justified, hyphenated running text. */
+    public static final String LONG_TEXT = "long-text";
+    /** A table with a repeated header and cell borders. */
+    public static final String LARGE_TABLE = "large-table";
+    /** A large number of bitmap images, every one of them referenced several times. */
+    public static final String MANY_IMAGES = "many-images";
+    /** Paragraphs of CJK ideographs. */
+    public static final String CJK = "cjk";
+    /** Blocks with words too long for a line, each of them reported as an overflow event. */
+    public static final String EVENTS = "events";
+
+    /** The font family of the Latin text. */
+    public static final String FONT_FAMILY = "DejaVu";
+    /** The font family of the CJK text. */
+    public static final String CJK_FONT_FAMILY = "CJK";
+
+    /** The Latin test font, relative to the base directory. */
+    public static final String FONT_FILE = "test/resources/fonts/ttf/DejaVuLGCSerif.ttf";
+    /** An OpenType (CFF) test font, relative to the base directory. */
+    public static final String OTF_FONT_FILE = "test/resources/fonts/otf/SourceSansProBold.otf";
+
+    private static final String[] WORDS = {
+        "the", "formatting", "objects", "processor", "reads", "a", "document", "and", "breaks",
+        "its", "content", "into", "lines", "pages", "of", "justified", "text", "with",
+        "hyphenation", "tables", "images", "footnotes", "markers", "containers", "is",
+        "rendered", "to", "several", "output", "formats", "including", "portable", "printer",
+        "language", "intermediate", "representation", "typography", "internationalization"
+    };
+
+    private static final int IMAGE_COUNT = 20;
+
+    private static final EventListener IGNORE_EVENTS = new EventListener() {
+        public void processEvent(Event event) {
+            //nop
+        }
+    };
+
+    /** Tells the broadcaster not to produce INFO and WARN events in the first place. */
+    private static final class IgnoreMinorEvents implements EventListener, EventFilter {
+
+        public void processEvent(Event event) {
+            //nop
+        }
+
+        public boolean isEventOfInterest(String eventID, EventSeverity severity) {
+            return severity != EventSeverity.INFO && severity != EventSeverity.WARN;
+        }
+    }
+
+    private static final EventListener IGNORE_MINOR_EVENTS = new IgnoreMinorEvents();
+
+    private static File imageDir;
+
+    private BenchmarkDocuments() {
+    }
+
+    /**
+     * Returns the directory the test resources are resolved against.
+     * @return the base directory
+     */
+    public static File getBaseDir() {
+        return new File(System.getProperty("fop.benchmarks.basedir", "."));
+    }
+
+    /**
+     * Creates a factory with the benchmark fonts configured for the PDF, PostScript and AFP
+     * output formats.
+     * @return the factory
+     * @throws IOException if the configuration cannot be read
+     * @throws SAXException if the configuration cannot be parsed
+     */
+    public static FopFactory createFopFactory() throws IOException, SAXException {
+        return createFopFactory("");
+    }
+
+    /**
+     * Creates a factory with the benchmark fonts configured for the PDF, PostScript and AFP
+     * output formats and additional PDF renderer settings.
+     * @param pdfConfig the additional children of the PDF renderer configuration
+     * @return the factory
+     * @throws IOException if the configuration cannot be read
+     * @throws SAXException if the configuration cannot be parsed
+     */
+    public static FopFactory createFopFactory(String pdfConfig) throws IOException, SAXException {
+        File baseDir = getBaseDir();
+        File font = new File(baseDir, FONT_FILE);
+        String cjkFont = System.getProperty("fop.benchmarks.cjkfont", font.getPath());
+        String fonts = "<fonts>"
+                + createFontConfig(font.toURI().toString(), FONT_FAMILY)
+                + createFontConfig(new File(cjkFont).toURI().toString(), CJK_FONT_FAMILY)
+                + "</fonts>";
+        StringBuilder conf = new StringBuilder("<fop version=\"1.0\"><renderers>");
+        String[] mimes = {MimeConstants.MIME_PDF, MimeConstants.MIME_POSTSCRIPT, MimeConstants.MIME_AFP};
+        for (String mime : mimes) {
+            conf.append("<renderer mime=\"").append(mime).append("\">").append(fonts);
+            if (MimeConstants.MIME_PDF.equals(mime)) {
+                conf.append(pdfConfig);
+            }
+            conf.append("</renderer>");
+        }
+        conf.append("</renderers></fop>");
+        return FopFactory.newInstance(baseDir.toURI(),
+                new ByteArrayInputStream(conf.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String createFontConfig(String uri, String family) {
+        return "<font kerning=\"yes\" embed-url=\"" + uri + "\">"
+                + "<font-triplet name=\"" + family + "\" style=\"normal\" weight=\"normal\"/>"
+                + "<font-triplet name=\"" + family + "\" style=\"normal\" weight=\"bold\"/>"
+                + "</font>";
+    }
+
+    /**
+     * Generates one of the synthetic documents.
+     * @param name the document name, one of the constants of this class
+     * @param size the approximate number of pages
+     * @return the FO document
+     * @throws IOException if the images cannot be written
+     */
+    public static String createDocument(String name, int size) throws IOException {
+        Random random = new Random(size);
+        StringBuilder sb = new StringBuilder(startDocument(CJK.equals(name) ? "zh" : "en"));
+        if (LONG_TEXT.equals(name)) {
+            appendLongText(sb, random, size);
+        } else if (LARGE_TABLE.equals(name)) {
+            appendLargeTable(sb, random, size);
+        } else if (MANY_IMAGES.equals(name)) {
+            appendManyImages(sb, random, size);
+        } else if (CJK.equals(name)) {
+            appendCJK(sb, random, size);
+        } else if (EVENTS.equals(name)) {
+            appendEvents(sb, random, size);
+        } else {
+            throw new IllegalArgumentException("Unknown document: " + name);
+        }
+        return sb.append(endDocument()).toString();
+    }
+
+    /**
+     * Returns a document citing the given number of footnotes in a single page sequence.
+     * The footnote bodies vary from a line to a few paragraphs, so some of them have to be
+     * split or deferred to the following pages.
+     * @param footnotes the number of footnotes
+     * @return the FO document
+     */
+    public static String createFootnoteDocument(int footnotes) {
+        Random random = new Random(footnotes);
+        StringBuilder sb = new StringBuilder(startDocument("en"));
+        int footnote = 0;
+        while (footnote < footnotes) {
+            sb.append("<fo:block text-align=\"justify\" space-before=\"6pt\">");
+            for (int i = 0, n = 1 + random.nextInt(4); i < n && footnote < footnotes; i++) {
+                appendWords(sb, random, 10 + random.nextInt(20));
+                footnote++;
+                sb.append("<fo:footnote><fo:inline baseline-shift=\"super\" font-size=\"7pt\">")
+                        .append(footnote).append("</fo:inline><fo:footnote-body>"
+                        + "<fo:block font-size=\"8pt\">").append(footnote).append(". ");
+                appendWords(sb, random, random.nextInt(10) == 0 ? 200 + random.nextInt(400)
+                        : 5 + random.nextInt(30));
+                sb.append("</fo:block></fo:footnote-body></fo:footnote> ");
+            }
+            sb.append("</fo:block>");
+        }
+        return sb.append(endDocument()).toString();
+    }
+
+    /**
+     * Returns a three-column document with the given number of sections. Each section
+     * starts with a heading spanning all columns, so the columns of the previous section
+     * have to be balanced.
+     * @param sections the number of sections
+     * @return the FO document
+     */
+    public static String createBalancedColumnsDocument(int sections) {
+        Random random = new Random(sections);
+        StringBuilder sb = new StringBuilder("<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">"
+                + "<fo:layout-master-set><fo:simple-page-master master-name=\"A4\""
+                + " page-width=\"210mm\" page-height=\"297mm\" margin=\"20mm\">"
+                + "<fo:region-body column-count=\"3\" column-gap=\"6mm\"/>"
+                + "</fo:simple-page-master></fo:layout-master-set>"
+                + "<fo:page-sequence master-reference=\"A4\">"
+                + "<fo:flow flow-name=\"xsl-region-body\" font-family=\"" + FONT_FAMILY + "\" font-size=\"9pt\">");
+        for (int i = 0; i < sections; i++) {
+            sb.append("<fo:block span=\"all\" font-weight=\"bold\" font-size=\"12pt\" space-before=\"6pt\">"
+                    + "Section ").append(i + 1).append("</fo:block>");
+            for (int j = 0, n = 2 + random.nextInt(7); j < n; j++) {
+                sb.append("<fo:block text-align=\"justify\" space-before=\"3pt\">");
+                appendWords(sb, random, 20 + random.nextInt(100));
+                sb.append("</fo:block>");
+            }
+        }
+        return sb.append("</fo:flow></fo:page-sequence></fo:root>").toString();
+    }
+
+    /**
+     * Returns an XML document with the given number of orders, each with a customer and a
+     * few items, to be transformed into FO with {@link #createOrderStylesheet()}.
+     * @param orders the number of orders
+     * @return the XML document
+     */
+    public static String createOrderData(int orders) {
+        Random random = new Random(orders);
+        StringBuilder sb = new StringBuilder("<orders>");
+        for (int i = 0; i < orders; i++) {
+            sb.append("<order id=\"").append(100000 + i).append("\"><customer>Customer ")
+                    .append(i).append("</customer><note>");
+            appendWords(sb, random, 20 + random.nextInt(40));
+            sb.append("</note>");
+            for (int j = 0, n = 3 + random.nextInt(12); j < n; j++) {
+                sb.append("<item quantity=\"").append(1 + random.nextInt(20)).append("\" price=\"")
+                        .append(random.nextInt(10000) / 100.0).append("\">");
+                appendWords(sb, random, 2 + random.nextInt(4));
+                sb.append("</item>");
+            }
+            sb.append("</order>");
+        }
+        return sb.append("</orders>").toString();
+    }
+
+    /**
+     * Returns a stylesheet transforming the data of {@link #createOrderData(int)} into an FO
+     * document with a page-sequence per order, listing its items in a table with computed
+     * line totals sorted by value and the number of items ordered.
+     * @return the XSLT stylesheet
+     */
+    public static String createOrderStylesheet() {
+        return "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\""
+                + " xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">"
+                + "<xsl:template match=\"/orders\">"
+                + "<fo:root xml:lang=\"en\"><fo:layout-master-set><fo:simple-page-master master-name=\"A4\""
+                + " page-width=\"210mm\" page-height=\"297mm\" margin=\"20mm\"><fo:region-body/>"
+                + "</fo:simple-page-master></fo:layout-master-set>"
+                + "<xsl:apply-templates select=\"order\"/></fo:root></xsl:template>"
+                + "<xsl:template match=\"order\">"
+                + "<fo:page-sequence master-reference=\"A4\"><fo:flow flow-name=\"xsl-region-body\""
+                + " font-family=\"" + FONT_FAMILY + "\" font-size=\"10pt\">"
+                + "<fo:block font-weight=\"bold\" font-size=\"14pt\">Order <xsl:value-of select=\"@id\"/>"
+                + "</fo:block><fo:block space-before=\"6pt\">Dear <xsl:value-of select=\"customer\"/>,"
+                + "</fo:block><fo:block space-before=\"6pt\" text-align=\"justify\">"
+                + "<xsl:value-of select=\"note\"/></fo:block>"
+                + "<fo:table table-layout=\"fixed\" width=\"100%\" space-before=\"12pt\">"
+                + "<fo:table-column column-width=\"proportional-column-width(4)\"/>"
+                + "<fo:table-column column-width=\"proportional-column-width(1)\"/>"
+                + "<fo:table-column column-width=\"proportional-column-width(1)\"/>"
+                + "<fo:table-column column-width=\"proportional-column-width(1)\"/>"
+                + "<fo:table-body><xsl:for-each select=\"item\"><xsl:sort select=\"@price * @quantity\""
+                + " data-type=\"number\" order=\"descending\"/><fo:table-row>"
+                + "<fo:table-cell border=\"0.5pt solid black\" padding=\"2pt\"><fo:block>"
+                + "<xsl:value-of select=\".\"/></fo:block></fo:table-cell>"
+                + "<fo:table-cell border=\"0.5pt solid black\" padding=\"2pt\"><fo:block text-align=\"end\">"
+                + "<xsl:value-of select=\"@quantity\"/></fo:block></fo:table-cell>"
+                + "<fo:table-cell border=\"0.5pt solid black\" padding=\"2pt\"><fo:block text-align=\"end\">"
+                + "<xsl:value-of select=\"format-number(@price, '0.00')\"/></fo:block></fo:table-cell>"
+                + "<fo:table-cell border=\"0.5pt solid black\" padding=\"2pt\"><fo:block text-align=\"end\">"
+                + "<xsl:value-of select=\"format-number(@price * @quantity, '0.00')\"/></fo:block>"
+                + "</fo:table-cell></fo:table-row></xsl:for-each></fo:table-body></fo:table>"
+                + "<fo:block space-before=\"6pt\" text-align=\"end\" font-weight=\"bold\">Items: "
+                + "<xsl:value-of select=\"sum(item/@quantity)\"/></fo:block>"
+                + "</fo:flow></fo:page-sequence></xsl:template></xsl:stylesheet>";
+    }
+
+    private static String startDocument(String language) {
+        return "<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\" xml:lang=\"" + language + "\">"
+                + "<fo:layout-master-set><fo:simple-page-master master-name=\"A4\""
+                + " page-width=\"210mm\" page-height=\"297mm\" margin=\"20mm\">"
+                + "<fo:region-body margin-bottom=\"15mm\"/><fo:region-after extent=\"10mm\"/>"
+                + "</fo:simple-page-master></fo:layout-master-set>"
+                + "<fo:page-sequence master-reference=\"A4\">"
+                + "<fo:static-content flow-name=\"xsl-region-after\">"
+                + "<fo:block text-align=\"center\" font-family=\"" + FONT_FAMILY + "\">Page <fo:page-number/>"
+                + " of <fo:page-number-citation-last ref-id=\"end\"/></fo:block></fo:static-content>"
+                + "<fo:flow flow-name=\"xsl-region-body\" font-family=\"" + FONT_FAMILY + "\" font-size=\"10pt\">";
+    }
+
+    private static String endDocument() {
+        return "<fo:block id=\"end\"/></fo:flow></fo:page-sequence></fo:root>";
+    }
+
+    private static void appendWords(StringBuilder sb, Random random, int count) {
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+    }
+
+    private static void appendLongText(StringBuilder sb, Random random, int pages) {
+        for (int i = 0; i < pages * 6; i++) {
+            if (i % 12 == 0) {
+                sb.append("<fo:block font-weight=\"bold\" font-size=\"14pt\" keep-with-next=\"always\""
+                        + " space-before=\"12pt\">Section ").append(i / 12 + 1).append("</fo:block>");
+            }
+            sb.append("<fo:block text-align=\"justify\" hyphenate=\"true\" space-before=\"6pt\">");
+            appendWords(sb, random, 60 + random.nextInt(60));
+            sb.append("</fo:block>");
+        }
+    }
+
+    private static void appendLargeTable(StringBuilder sb, Random random, int pages) {
+        sb.append("<fo:table table-layout=\"fixed\" width=\"100%\" border-collapse=\"separate\">");
+        for (int col = 0; col < 5; col++) {
+            sb.append("<fo:table-column column-width=\"proportional-column-width(1)\"/>");
+        }
+        sb.append("<fo:table-header><fo:table-row font-weight=\"bold\">");
+        for (int col = 0; col < 5; col++) {
+            sb.append("<fo:table-cell border=\"0.5pt solid black\" padding=\"2pt\">"
+                    + "<fo:block>Column ").append(col + 1).append("</fo:block></fo:table-cell>");
+        }
+        sb.append("</fo:table-row></fo:table-header><fo:table-body>");
+        for (int row = 0; row < pages * 40; row++) {
+            sb.append("<fo:table-row>");
+            for (int col = 0; col < 5; col++) {
+                sb.append("<fo:table-cell border=\"0.5pt solid black\" padding=\"2pt\"><fo:block>");
+                if (col == 0) {
+                    sb.append(row + 1);
+                } else {
+                    appendWords(sb, random, 1 + random.nextInt(3));
+                }
+                sb.append("</fo:block></fo:table-cell>");
+            }
+            sb.append("</fo:table-row>");
+        }
+        sb.append("</fo:table-body></fo:table>");
+    }
+
+    private static void appendManyImages(StringBuilder sb, Random random, int pages) throws IOException {
+        File dir = getImageDir();
+        for (int i = 0; i < pages * 8; i++) {
+            int image = random.nextInt(IMAGE_COUNT);
+            String ext = (image % 2 == 0) ? ".png" : ".jpg";
+            sb.append("<fo:block space-before=\"6pt\"><fo:external-graphic src=\"")
+                    .append(new File(dir, "image" + image + ext).toURI())
+                    .append("\" content-width=\"40mm\"/> ");
+            appendWords(sb, random, 10);
+            sb.append("</fo:block>");
+        }
+    }
+
+    private static synchronized File getImageDir() throws IOException {
+        if (imageDir == null) {
+            File dir = File.createTempFile("fop-benchmarks", "");
+            if (!dir.delete() || !dir.mkdir()) {
+                throw new IOException("Cannot create the image directory " + dir);
+            }
+            dir.deleteOnExit();
+            for (int i = 0; i < IMAGE_COUNT; i++) {
+                boolean png = i % 2 == 0;
+                BufferedImage image = new BufferedImage(400, 300,
+                        png ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+                Graphics2D g2d = image.createGraphics();
+                g2d.setPaint(Color.WHITE);
+                g2d.fillRect(0, 0, 400, 300);
+                for (int j = 0; j < 30; j++) {
+                    g2d.setColor(new Color(Color.HSBtoRGB((i * 30 + j) / 600f, 0.8f, 0.9f)));
+                    g2d.fillOval(j * 12, (j * 37 + i * 11) % 250, 50 + i, 40 + j);
+                }
+                g2d.dispose();
+                File file = new File(dir, "image" + i + (png ? ".png" : ".jpg"));
+                ImageIO.write(image, png ? "png" : "jpeg", file);
+                file.deleteOnExit();
+            }
+            imageDir = dir;
+        }
+        return imageDir;
+    }
+
+    private static void appendCJK(StringBuilder sb, Random random, int pages) {
+        for (int i = 0; i < pages * 5; i++) {
+            sb.append("<fo:block font-family=\"" + CJK_FONT_FAMILY + "\" space-before=\"6pt\""
+                    + " text-align=\"justify\">");
+            for (int j = 0, n = 300 + random.nextInt(200); j < n; j++) {
+                sb.append((char) (0x4E00 + random.nextInt(3000)));
+                if (j % 37 == 36) {
+                    sb.append('\u3002');
+                }
+            }
+            sb.append("</fo:block>");
+        }
+    }
+
+    private static void appendEvents(StringBuilder sb, Random random, int pages) {
+        for (int i = 0; i < pages * 15; i++) {
+            sb.append("<fo:block space-before=\"6pt\">");
+            appendWords(sb, random, 8);
+            sb.append(' ');
+            for (int j = 0; j < 12; j++) {
+                sb.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            sb.append("</fo:block>");
+        }
+    }
+
+    /**
+     * Returns a source for the given document.
+     * @param document the FO document
+     * @return the source
+     */
+    public static Source toSource(String document) {
+        return new StreamSource(new StringReader(document));
+    }
+
+    /**
+     * Renders an FO document.
+     * @param fop the FOP instance
+     * @param document the FO document
+     * @throws TransformerException if an error occurs while rendering
+     * @throws FOPException if the FOP instance cannot provide its handler
+     */
+    public static void render(Fop fop, String document) throws TransformerException, FOPException {
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.transform(toSource(document), new SAXResult(fop.getDefaultHandler()));
+    }
+
+    /**
+     * Creates a user agent that discards the events of the benchmark documents. The events
+     * are still produced but not logged, so logging doesn't distort the measurements.
+     * @param fopFactory the factory
+     * @return the user agent
+     */
+    public static FOUserAgent createUserAgent(FopFactory fopFactory) {
+        return createUserAgent(fopFactory, false);
+    }
+
+    /**
+     * Creates a user agent that discards the events of the benchmark documents. With
+     * filtering, the listener is also an {@link EventFilter} rejecting INFO and WARN events,
+     * so these aren't even produced.
+     * @param fopFactory the factory
+     * @param filterEvents true to filter out INFO and WARN events before they are produced
+     * @return the user agent
+     */
+    public static FOUserAgent createUserAgent(FopFactory fopFactory, boolean filterEvents) {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        userAgent.getEventBroadcaster().addEventListener(filterEvents ? IGNORE_MINOR_EVENTS : IGNORE_EVENTS);
+        return userAgent;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.fop.fo.Constants;
+import org.apache.fop.layoutmgr.BlockKnuthSequence;
+import org.apache.fop.layoutmgr.BreakingAlgorithm;
+import org.apache.fop.layoutmgr.KnuthBox;
+import org.apache.fop.layoutmgr.KnuthGlue;
+import org.apache.fop.layoutmgr.KnuthPenalty;
+import org.apache.fop.layoutmgr.KnuthSequence;
+
+/**
+ * Measures the total-fit line breaking of {@link BreakingAlgorithm} on synthetic paragraphs,
+ * without the cost of building the element lists. Page breaking and the element generation
+ * of the text layout manager are covered by {@link DocumentBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BreakingAlgorithmBenchmark {
+
+    private static final int SPACE = 2500;
+    private static final int HYPHEN = 3330;
+
+    /** The number of words of the paragraph. */
+    @Param({"100", "1000", "10000"})
+    public int words;
+
+    /** Whether there are hyphenation points inside the words. */
+    @Param({"false", "true"})
+    public boolean hyphenate;
+
+    /** The maximum number of active nodes per line, 0 for the exact total-fit algorithm. */
+    @Param({"0", "16"})
+    public int activeNodeLimit;
+
+    private KnuthSequence paragraph;
+
+    private ParagraphBreaker reusedBreaker;
+
+    private static class ParagraphBreaker extends BreakingAlgorithm {
+
+        private int lines;
+
+        ParagraphBreaker() {
+            super(Constants.EN_JUSTIFY, Constants.EN_START, true, true, 2);
+        }
+
+        @Override
+        public void updateData1(int total, double demerits) {
+            lines = total;
+        }
+
+        @Override
+        public void updateData2(KnuthNode bestActiveNode, KnuthSequence sequence, int total) {
+            //nop
+        }
+
+        @Override
+        protected int filterActiveNodes() {
+            return 0;
+        }
+    }
+
+    /** Builds the paragraph: words separated by stretchable spaces. */
+    @Setup
+    public void setUp() {
+        Random random = new Random(words);
+        paragraph = new BlockKnuthSequence();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                paragraph.add(new KnuthGlue(SPACE, SPACE / 2, SPACE / 3, null, false));
+            }
+            int syllables = 1 + random.nextInt(4);
+            for (int j = 0; j < syllables; j++) {
+                if (j > 0 && hyphenate) {
+                    paragraph.add(new KnuthPenalty(HYPHEN, 50, true, null, false));
+                }
+                paragraph.add(new KnuthBox(8000 + random.nextInt(12000), null, false));
+            }
+        }
+        paragraph.add(new KnuthPenalty(0, KnuthPenalty.INFINITE, false, null, false));
+        paragraph.add(new KnuthGlue(0, Integer.MAX_VALUE, 0, null, false));
+        paragraph.add(new KnuthPenalty(0, -KnuthPenalty.INFINITE, false, null, false));
+        reusedBreaker = createBreaker();
+    }
+
+    private ParagraphBreaker createBreaker() {
+        ParagraphBreaker breaker = new ParagraphBreaker();
+        breaker.setConstantLineWidth(450000);
+        breaker.setActiveNodeLimit(activeNodeLimit);
+        return breaker;
+    }
+
+    /**
+     * Breaks the paragraph into lines.
+     * @return the number of lines
+     */
+    @Benchmark
+    public int breakLines() {
+        ParagraphBreaker breaker = createBreaker();
+        breaker.findBreakingPoints(paragraph, 1, true, BreakingAlgorithm.ALL_BREAKS);
+        return breaker.lines;
+    }
+
+    /**
+     * Breaks the paragraph into lines with the same instance every time, as the line layout
+     * manager does when it retries with a higher threshold, so the storage of the active
+     * nodes is recycled.
+     * @return the number of lines
+     */
+    @Benchmark
+    public int breakLinesReusingBreaker() {
+        reusedBreaker.findBreakingPoints(paragraph, 1, true, BreakingAlgorithm.ALL_BREAKS);
+        return reusedBreaker.lines;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+
+/**
+ * Measures the conversion of a document of thousands of pages whose footers cite the last
+ * page, so no page can be rendered before the end of the document and all of them are held
+ * by the area tree model:
+ * <ul>
+ * <li><code>default</code>: the pages are kept in memory</li>
+ * <li><code>conserve-memory</code>: the pages are serialized to temporary files</li>
+ * <li><code>conserve-memory-buffered</code>: the pages are serialized to a memory buffer
+ * large enough to hold all of them</li>
+ * </ul>
+ * The document is converted to the intermediate format, so the figures are dominated by the
+ * layout engine and the serialization of the pages. Run with <code>-prof gc</code> to compare
+ * the allocation; the default policy needs a heap of a few gigabytes for 10000 pages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ConserveMemoryBenchmark {
+
+    /** The approximate number of pages. */
+    @Param("10000")
+    public int pages;
+
+    /** The memory policy. */
+    @Param({"default", "conserve-memory", "conserve-memory-buffered"})
+    public String policy;
+
+    private FopFactory fopFactory;
+    private String fo;
+
+    /**
+     * Creates the factory and the document.
+     * @throws Exception if the factory cannot be configured or the document generated
+     */
+    @Setup
+    public void setUp() throws Exception {
+        fopFactory = BenchmarkDocuments.createFopFactory();
+        fo = BenchmarkDocuments.createDocument(BenchmarkDocuments.LONG_TEXT, pages);
+    }
+
+    /**
+     * Converts the document.
+     * @return the size of the output in bytes
+     * @throws Exception if an error occurs while converting
+     */
+    @Benchmark
+    public long convert() throws Exception {
+        FOUserAgent userAgent = BenchmarkDocuments.createUserAgent(fopFactory);
+        if (policy.startsWith("conserve-memory")) {
+            userAgent.setConserveMemoryPolicy(true);
+            if (policy.endsWith("buffered")) {
+                userAgent.setConserveMemoryBufferSize(Long.MAX_VALUE);
+            }
+        }
+        CountingOutputStream out = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_FOP_IF, userAgent, out);
+        BenchmarkDocuments.render(fop, fo);
+        return out.getByteCount();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+
+/**
+ * Measures the complete FO processing of the synthetic documents, from parsing to the
+ * output format. The <code>if</code> format stops after layout (writing the intermediate
+ * format), so it isolates the layout engine: the element lists of the text layout manager
+ * and the line and page breaking algorithms.
+ * <p>
+ * The factory is shared by all threads, so running with <code>-t</code> measures the
+ * throughput of concurrent conversions.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DocumentBenchmark {
+
+    /** The synthetic document. */
+    @Param({BenchmarkDocuments.LONG_TEXT, BenchmarkDocuments.LARGE_TABLE, BenchmarkDocuments.MANY_IMAGES,
+            BenchmarkDocuments.CJK, BenchmarkDocuments.EVENTS})
+    public String document;
+
+    /** The output format. */
+    @Param({"if", "pdf", "afp", "ps"})
+    public String format;
+
+    /** The approximate number of pages. */
+    @Param("20")
+    public int pages;
+
+    /** Whether the event listener filters out INFO and WARN events before they are produced. */
+    @Param({"false", "true"})
+    public boolean filterEvents;
+
+    private FopFactory fopFactory;
+    private String mime;
+    private String fo;
+
+    /**
+     * Creates the factory and the document.
+     * @throws Exception if the factory cannot be configured or the document generated
+     */
+    @Setup
+    public void setUp() throws Exception {
+        fopFactory = BenchmarkDocuments.createFopFactory();
+        fo = BenchmarkDocuments.createDocument(document, pages);
+        mime = getMimeType(format);
+    }
+
+    static String getMimeType(String format) {
+        if ("if".equals(format)) {
+            return MimeConstants.MIME_FOP_IF;
+        } else if ("pdf".equals(format)) {
+            return MimeConstants.MIME_PDF;
+        } else if ("afp".equals(format)) {
+            return MimeConstants.MIME_AFP;
+        } else if ("ps".equals(format)) {
+            return MimeConstants.MIME_POSTSCRIPT;
+        }
+        throw new IllegalArgumentException("Unknown format: " + format);
+    }
+
+    /**
+     * Converts the document.
+     * @return the size of the output in bytes
+     * @throws Exception if an error occurs while converting
+     */
+    @Benchmark
+    public long convert() throws Exception {
+        CountingOutputStream out = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+        Fop fop = fopFactory.newFop(mime, BenchmarkDocuments.createUserAgent(fopFactory, filterEvents),
+                out);
+        BenchmarkDocuments.render(fop, fo);
+        return out.getByteCount();
+    }
+}
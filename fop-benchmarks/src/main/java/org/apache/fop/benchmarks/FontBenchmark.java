@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.apps.io.ResourceResolverFactory;
+import org.apache.fop.fonts.MultiByteFont;
+import org.apache.fop.fonts.truetype.FontFileReader;
+import org.apache.fop.fonts.truetype.OFFontLoader;
+import org.apache.fop.fonts.truetype.OTFSubSetFile;
+import org.apache.fop.fonts.truetype.TTFFile;
+import org.apache.fop.fonts.truetype.TTFSubSetFile;
+
+/**
+ * Measures glyph lookup, shaping and subsetting of TrueType and OpenType (CFF) fonts, as well
+ * as parsing a font file read into the heap compared to a shared memory-mapped one.
+ * <p>
+ * Shaping is measured for Arabic, Devanagari and Latin text with ligatures. No Arabic or
+ * Devanagari font is bundled with FOP; font files with GSUB and GPOS tables for these scripts
+ * (e.g. Noto Naskh Arabic and Noto Sans Devanagari) are given with the
+ * <code>fop.benchmarks.arabicfont</code> and <code>fop.benchmarks.devanagarifont</code> system
+ * properties (passed to the benchmark JVM with <code>-jvmArgs</code>). Without them the Latin
+ * test font is used, which only exercises the script processors.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FontBenchmark {
+
+    private static final String TEXT = "The quick brown fox jumps over the lazy dog. Waltz, bad nymph,"
+            + " for quick jigs vex! ffi ffl AVAVA To Ta 0123456789 \u00e9\u00e8\u00ea\u00fc\u00df";
+
+    /** Arabic text with joining forms, lam-alef ligatures and vowel marks. */
+    private static final String ARABIC_TEXT = "\u0628\u0633\u0645 \u0627\u0644\u0644\u0647"
+            + " \u0627\u0644\u0631\u062d\u0645\u0646 \u0627\u0644\u0631\u062d\u064a\u0645."
+            + " \u0644\u0627 \u0625\u0644\u0647 \u0625\u0644\u0627 \u0647\u0648."
+            + " \u0645\u064e\u0631\u0652\u062d\u064e\u0628\u064b\u0627 \u0628\u0650\u0627\u0644\u0652"
+            + "\u0639\u064e\u0627\u0644\u064e\u0645\u0650 \u0643\u064e\u062a\u064e\u0628\u064e"
+            + " \u0627\u0644\u0637\u0651\u064e\u0627\u0644\u0650\u0628\u064f \u0627\u0644\u062f\u0651"
+            + "\u064e\u0631\u0652\u0633\u064e";
+
+    /** Devanagari text with conjuncts, reph and pre-base vowel signs. */
+    private static final String DEVANAGARI_TEXT = "\u0928\u092e\u0938\u094d\u0924\u0947"
+            + " \u0926\u0941\u0928\u093f\u092f\u093e\u0964 \u0915\u094d\u0937\u0924\u094d\u0930"
+            + "\u093f\u092f \u0905\u0930\u094d\u0915 \u0936\u094d\u0930\u0940 \u0939\u093f\u0928"
+            + "\u094d\u0926\u0940 \u0935\u093f\u0926\u094d\u092f\u093e\u0930\u094d\u0925\u0940"
+            + " \u0926\u094d\u0935\u093e\u0930 \u0915\u0943\u092a\u092f\u093e \u0930\u093e\u0937"
+            + "\u094d\u091f\u094d\u0930\u0940\u092f \u0938\u0902\u0917\u0940\u0924\u0964";
+
+    /** Latin text with many ligature and kerning candidates. */
+    private static final String LATIN_TEXT = TEXT + " The office staff affirmed the fluffy waffles"
+            + " were flawless; efficient Wave Yacht AWAY fjord ff fi fl ffi ffl.";
+
+    /** The fonts and the sample text shaped by {@link FontBenchmark#shaping(Shaping)}. */
+    @State(Scope.Thread)
+    public static class Shaping {
+
+        /** The OpenType script tag of the sample text. */
+        @Param({"arab", "deva", "latn"})
+        public String script;
+
+        private MultiByteFont[] fonts;
+        private String text;
+
+        /**
+         * Loads the fonts for the script.
+         * @throws IOException if a font cannot be loaded
+         */
+        @Setup
+        public void setUp() throws IOException {
+            File baseDir = BenchmarkDocuments.getBaseDir();
+            InternalResourceResolver resolver
+                    = ResourceResolverFactory.createDefaultInternalResourceResolver(baseDir.toURI());
+            File latinFont = new File(baseDir, BenchmarkDocuments.FONT_FILE);
+            String[] files;
+            if ("arab".equals(script)) {
+                files = new String[] {System.getProperty("fop.benchmarks.arabicfont", latinFont.getPath())};
+                text = ARABIC_TEXT;
+            } else if ("deva".equals(script)) {
+                files = new String[] {System.getProperty("fop.benchmarks.devanagarifont",
+                        latinFont.getPath())};
+                text = DEVANAGARI_TEXT;
+            } else if ("latn".equals(script)) {
+                files = new String[] {latinFont.getPath(),
+                        new File(baseDir, BenchmarkDocuments.OTF_FONT_FILE).getPath()};
+                text = LATIN_TEXT;
+            } else {
+                throw new IllegalArgumentException("Unknown script: " + script);
+            }
+            fonts = new MultiByteFont[files.length];
+            for (int i = 0; i < files.length; i++) {
+                fonts[i] = (MultiByteFont) new OFFontLoader(new File(files[i]).toURI(), resolver).getFont();
+            }
+        }
+    }
+
+    private InternalResourceResolver resolver;
+    private URI ttfURI;
+    private URI otfURI;
+    private MultiByteFont ttf;
+    private MultiByteFont otf;
+
+    /**
+     * Loads the fonts and maps the characters of the sample text so the subsets aren't empty.
+     * @throws IOException if a font cannot be loaded
+     */
+    @Setup
+    public void setUp() throws IOException {
+        File baseDir = BenchmarkDocuments.getBaseDir();
+        resolver = ResourceResolverFactory.createDefaultInternalResourceResolver(baseDir.toURI());
+        ttfURI = new File(baseDir, BenchmarkDocuments.FONT_FILE).toURI();
+        otfURI = new File(baseDir, BenchmarkDocuments.OTF_FONT_FILE).toURI();
+        ttf = (MultiByteFont) new OFFontLoader(ttfURI, resolver).getFont();
+        otf = (MultiByteFont) new OFFontLoader(otfURI, resolver).getFont();
+        glyphLookup();
+    }
+
+    /**
+     * Maps every character of the sample text to its glyph.
+     * @return the sum of the glyph indexes
+     */
+    @Benchmark
+    public int glyphLookup() {
+        int sum = 0;
+        for (int i = 0; i < TEXT.length(); i++) {
+            sum += ttf.mapChar(TEXT.charAt(i));
+            sum += otf.mapChar(TEXT.charAt(i));
+        }
+        return sum;
+    }
+
+    /**
+     * Applies the glyph substitutions and positioning of the fonts to the sample text of a script.
+     * @param shaping the fonts and the sample text
+     * @return the number of glyphs
+     */
+    @Benchmark
+    public int shaping(Shaping shaping) {
+        int count = 0;
+        for (MultiByteFont font : shaping.fonts) {
+            count += shape(font, shaping.text, shaping.script);
+        }
+        return count;
+    }
+
+    private int shape(MultiByteFont font, String text, String script) {
+        CharSequence glyphs = text;
+        if (font.performsSubstitution()) {
+            glyphs = font.performSubstitution(text, script, "dflt", null, false);
+        }
+        if (font.performsPositioning()) {
+            font.performPositioning(glyphs, script, "dflt", 10000);
+        }
+        return glyphs.length();
+    }
+
+    /**
+     * Creates the subset of the TrueType font embedded in the output.
+     * @return the subset
+     * @throws IOException if the font cannot be read
+     */
+    @Benchmark
+    public byte[] subsetTrueType() throws IOException {
+        FontFileReader reader = ttf.getFontFileReader();
+        TTFSubSetFile subset = new TTFSubSetFile();
+        subset.readFont(reader, ttf.getTTCName(), OFFontLoader.readHeader(reader), ttf.getUsedGlyphs());
+        return subset.getFontSubset();
+    }
+
+    /**
+     * Creates the subset of the OpenType (CFF) font embedded in the output.
+     * @return the subset
+     * @throws IOException if the font cannot be read
+     */
+    @Benchmark
+    public byte[] subsetOpenType() throws IOException {
+        OTFSubSetFile subset = new OTFSubSetFile();
+        subset.readFont(otf.getFontFileReader(), otf.getEmbedFontName(), otf);
+        return subset.getFontSubset();
+    }
+
+    /**
+     * Parses the TrueType font after reading the whole file into the heap.
+     * @return the parsed font
+     * @throws IOException if the font cannot be read
+     */
+    @Benchmark
+    public TTFFile parseFromHeap() throws IOException {
+        InputStream in = new FileInputStream(new File(ttfURI));
+        try {
+            return parse(new FontFileReader(in));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Parses the TrueType font from the shared memory-mapped file.
+     * @return the parsed font
+     * @throws IOException if the font cannot be read
+     */
+    @Benchmark
+    public TTFFile parseFromMappedFile() throws IOException {
+        return parse(FontFileReader.create(resolver, ttfURI));
+    }
+
+    private TTFFile parse(FontFileReader reader) throws IOException {
+        TTFFile font = new TTFFile(true, true);
+        font.readFont(reader, OFFontLoader.readHeader(reader));
+        return font;
+    }
+}
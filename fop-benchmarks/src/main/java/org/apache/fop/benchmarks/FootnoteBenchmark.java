@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+
+/**
+ * Measures the layout of a footnote-dense document: a single page sequence citing
+ * thousands of footnotes, all of which stay pending for the page breaking algorithm of
+ * the sequence. The document is converted to the intermediate format, so the figures are
+ * dominated by the layout engine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FootnoteBenchmark {
+
+    /** The number of footnotes. */
+    @Param("5000")
+    public int footnotes;
+
+    private FopFactory fopFactory;
+    private String fo;
+
+    /**
+     * Creates the factory and the document.
+     * @throws Exception if the factory cannot be configured
+     */
+    @Setup
+    public void setUp() throws Exception {
+        fopFactory = BenchmarkDocuments.createFopFactory();
+        fo = BenchmarkDocuments.createFootnoteDocument(footnotes);
+    }
+
+    /**
+     * Converts the document.
+     * @return the size of the output in bytes
+     * @throws Exception if an error occurs while converting
+     */
+    @Benchmark
+    public long convert() throws Exception {
+        CountingOutputStream out = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_FOP_IF, BenchmarkDocuments.createUserAgent(fopFactory), out);
+        BenchmarkDocuments.render(fop, fo);
+        return out.getByteCount();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.render.intermediate.IFDocumentHandler;
+import org.apache.fop.render.intermediate.IFParser;
+import org.apache.fop.render.intermediate.IFUtil;
+
+/**
+ * Measures parsing a document in the intermediate format and rendering it to the final
+ * output format, i.e. the second half of a conversion that went through the intermediate
+ * format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class IFParserBenchmark {
+
+    /** The synthetic document. */
+    @Param({BenchmarkDocuments.LONG_TEXT, BenchmarkDocuments.LARGE_TABLE})
+    public String document;
+
+    /** The output format. */
+    @Param({"pdf", "ps"})
+    public String format;
+
+    /** The approximate number of pages. */
+    @Param("20")
+    public int pages;
+
+    private FopFactory fopFactory;
+    private byte[] intermediate;
+
+    /**
+     * Lays out the document to the intermediate format.
+     * @throws Exception if the document cannot be laid out
+     */
+    @Setup
+    public void setUp() throws Exception {
+        fopFactory = BenchmarkDocuments.createFopFactory();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FOUserAgent userAgent = BenchmarkDocuments.createUserAgent(fopFactory);
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_FOP_IF, userAgent, out);
+        BenchmarkDocuments.render(fop, BenchmarkDocuments.createDocument(document, pages));
+        intermediate = out.toByteArray();
+    }
+
+    /**
+     * Parses the intermediate format and renders it.
+     * @return the size of the output in bytes
+     * @throws Exception if an error occurs while rendering
+     */
+    @Benchmark
+    public long parse() throws Exception {
+        CountingOutputStream out = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+        FOUserAgent userAgent = BenchmarkDocuments.createUserAgent(fopFactory);
+        IFDocumentHandler documentHandler = userAgent.getRendererFactory().createDocumentHandler(
+                userAgent, DocumentBenchmark.getMimeType(format));
+        documentHandler.setResult(new StreamResult(out));
+        IFUtil.setupFonts(documentHandler);
+        SAXResult result = new SAXResult(new IFParser().getContentHandler(documentHandler, userAgent));
+        TransformerFactory.newInstance().newTransformer().transform(
+                new StreamSource(new ByteArrayInputStream(intermediate)), result);
+        return out.getByteCount();
+    }
+}
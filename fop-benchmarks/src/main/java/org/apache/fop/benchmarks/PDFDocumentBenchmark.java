@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+
+import org.apache.fop.pdf.PDFDocument;
+import org.apache.fop.pdf.PDFEncryptionManager;
+import org.apache.fop.pdf.PDFEncryptionParams;
+import org.apache.fop.pdf.PDFFilterList;
+import org.apache.fop.pdf.PDFPage;
+import org.apache.fop.pdf.PDFReference;
+import org.apache.fop.pdf.PDFResources;
+import org.apache.fop.pdf.PDFStream;
+
+/**
+ * Measures writing a PDF document: the object model, content stream compression and,
+ * optionally, encryption. The pages hold pre-generated content streams so that no layout or
+ * rendering is involved.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PDFDocumentBenchmark {
+
+    /** The number of pages. */
+    @Param("100")
+    public int pages;
+
+    /** The encryption: none, 128-bit RC4 or 256-bit AES. */
+    @Param({"none", "rc4", "aes256"})
+    public String encryption;
+
+    private String[] contents;
+
+    /** Generates the page contents. */
+    @Setup
+    public void setUp() {
+        Random random = new Random(pages);
+        contents = new String[pages];
+        for (int i = 0; i < pages; i++) {
+            StringBuilder sb = new StringBuilder("BT\n/F1 10 Tf\n");
+            for (int line = 0; line < 60; line++) {
+                sb.append("1 0 0 1 56 ").append(780 - line * 12).append(" Tm\n[(");
+                for (int c = 0; c < 80; c++) {
+                    sb.append((char) ('a' + random.nextInt(26)));
+                }
+                sb.append(") -").append(random.nextInt(200)).append(" (text)] TJ\n");
+            }
+            contents[i] = sb.append("ET\n").toString();
+        }
+    }
+
+    /**
+     * Writes the document.
+     * @return the size of the document in bytes
+     * @throws IOException if an error occurs while writing
+     */
+    @Benchmark
+    public long writeDocument() throws IOException {
+        CountingOutputStream out = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+        PDFDocument doc = new PDFDocument("Apache FOP");
+        if (!"none".equals(encryption)) {
+            PDFEncryptionParams params = new PDFEncryptionParams("user", "owner",
+                    true, true, false, false, true);
+            params.setEncryptionLengthInBits("rc4".equals(encryption) ? 128 : 256);
+            PDFEncryptionManager.setupPDFEncryption(params, doc);
+        }
+        doc.getInfo().setTitle("Benchmark");
+        doc.outputHeader(out);
+        PDFResources resources = doc.getResources();
+        for (int i = 0; i < pages; i++) {
+            PDFPage page = doc.getFactory().makePage(resources, 595, 842, i);
+            PDFStream stream = doc.getFactory().makeStream(PDFFilterList.CONTENT_FILTER, false);
+            stream.add(contents[i]);
+            doc.registerObject(stream);
+            page.setContents(new PDFReference(stream));
+            doc.addObject(page);
+            doc.output(out);
+        }
+        doc.outputTrailer(out);
+        return out.getByteCount();
+    }
+}
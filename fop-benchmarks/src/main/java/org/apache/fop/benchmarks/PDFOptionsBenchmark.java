@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.pdf.PDFEncryptionParams;
+import org.apache.fop.render.pdf.PDFEncryptionOption;
+
+/**
+ * Measures the cost of the PDF output options on a conversion to PDF:
+ * <ul>
+ * <li><code>plain</code>: the default settings</li>
+ * <li><code>tagged</code>: accessibility (tagged PDF)</li>
+ * <li><code>encrypted</code>: 256-bit AES encryption</li>
+ * <li><code>signed</code>: a digital signature, using a generated key</li>
+ * <li><code>conserve-memory</code>: the conserve memory policy</li>
+ * <li><code>placeholders</code>: page number citations drawn as placeholders</li>
+ * <li><code>uncached</code>: the property parse cache and the converted image cache
+ * disabled</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PDFOptionsBenchmark {
+
+    private static final String PASSWORD = "benchmark";
+
+    /** The synthetic document. */
+    @Param({BenchmarkDocuments.LONG_TEXT, BenchmarkDocuments.MANY_IMAGES})
+    public String document;
+
+    /** The output option. */
+    @Param({"plain", "tagged", "encrypted", "signed", "conserve-memory", "placeholders", "uncached"})
+    public String option;
+
+    /** The approximate number of pages. */
+    @Param("20")
+    public int pages;
+
+    private FopFactory fopFactory;
+    private File keystore;
+    private String fo;
+
+    /**
+     * Creates the factory and the document.
+     * @throws Exception if the factory cannot be configured or the document generated
+     */
+    @Setup
+    public void setUp() throws Exception {
+        if ("signed".equals(option)) {
+            keystore = createKeystore();
+            fopFactory = BenchmarkDocuments.createFopFactory("<sign-params><keystore>"
+                    + keystore.toURI() + "</keystore><password>" + PASSWORD + "</password></sign-params>");
+        } else {
+            fopFactory = BenchmarkDocuments.createFopFactory();
+        }
+        if ("uncached".equals(option)) {
+            fopFactory.getPropertyParseCache().setMaximumEntries(0);
+            fopFactory.getConvertedImageCache().setMaximumSize(0);
+        }
+        fo = BenchmarkDocuments.createDocument(document, pages);
+    }
+
+    /** Deletes the generated keystore. */
+    @TearDown
+    public void tearDown() {
+        if (keystore != null) {
+            keystore.delete();
+        }
+    }
+
+    private static File createKeystore() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        X500Name name = new X500Name("CN=FOP Benchmark");
+        long now = System.currentTimeMillis();
+        X509Certificate cert = new JcaX509CertificateConverter().getCertificate(
+                new JcaX509v3CertificateBuilder(name, BigInteger.ONE, new Date(now - 3600000L),
+                        new Date(now + 24 * 3600000L), name, keyPair.getPublic())
+                        .build(new JcaContentSignerBuilder("SHA256WithRSA").build(keyPair.getPrivate())));
+        KeyStore keystore = KeyStore.getInstance("PKCS12");
+        keystore.load(null, null);
+        keystore.setKeyEntry("fop", keyPair.getPrivate(), PASSWORD.toCharArray(), new Certificate[] {cert});
+        File file = File.createTempFile("fop-benchmarks", ".p12");
+        try (OutputStream out = new FileOutputStream(file)) {
+            keystore.store(out, PASSWORD.toCharArray());
+        }
+        return file;
+    }
+
+    /**
+     * Converts the document to PDF.
+     * @return the size of the output in bytes
+     * @throws Exception if an error occurs while converting
+     */
+    @Benchmark
+    public long convert() throws Exception {
+        FOUserAgent userAgent = BenchmarkDocuments.createUserAgent(fopFactory);
+        if ("tagged".equals(option)) {
+            userAgent.setAccessibility(true);
+        } else if ("encrypted".equals(option)) {
+            PDFEncryptionParams params = new PDFEncryptionParams(PASSWORD, PASSWORD,
+                    true, true, false, false, true);
+            params.setEncryptionLengthInBits(256);
+            userAgent.getRendererOptions().put(PDFEncryptionOption.ENCRYPTION_PARAMS, params);
+        } else if ("conserve-memory".equals(option)) {
+            userAgent.setConserveMemoryPolicy(true);
+        } else if ("placeholders".equals(option)) {
+            userAgent.setPageNumberPlaceholderDigits(3);
+        }
+        CountingOutputStream out = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_PDF, userAgent, out);
+        BenchmarkDocuments.render(fop, fo);
+        return out.getByteCount();
+    }
+}
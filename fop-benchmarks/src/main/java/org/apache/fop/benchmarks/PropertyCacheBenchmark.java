@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.fop.fo.properties.PropertyCache;
+
+/**
+ * Measures the {@link PropertyCache} interner shared by concurrent renderings:
+ * <ul>
+ * <li><code>hit</code>: an instance equal to a cached one is fetched, the cached instance is
+ * returned</li>
+ * <li><code>miss</code>: a new value is fetched and added to the cache; it is garbage right
+ * away, so the cleared references are removed from the cache as well</li>
+ * <li><code>fetch</code>: a mix of one miss for fifteen hits, as seen by the property
+ * caches while an FO tree is built</li>
+ * </ul>
+ * The benchmarks run on four threads fetching from the same cache; use <code>-t</code> to
+ * change the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class PropertyCacheBenchmark {
+
+    /** The number of cached values. */
+    @Param("1024")
+    public int values;
+
+    private PropertyCache<Value> cache;
+    /** Keeps the cached values reachable */
+    private Value[] cached;
+
+    private final AtomicInteger threads = new AtomicInteger();
+
+    /** Creates the cache and fills it with the values. */
+    @Setup
+    public void setUp() {
+        cache = new PropertyCache<Value>();
+        cached = new Value[values];
+        for (int i = 0; i < values; i++) {
+            cached[i] = cache.fetch(new Value(i));
+        }
+    }
+
+    /** The instances fetched by a thread. */
+    @State(Scope.Thread)
+    public static class Fetcher {
+
+        private Value[] equalValues;
+        private int next;
+        private long nextMiss;
+
+        /**
+         * Creates copies of the cached values, so hits return another instance.
+         * @param benchmark the benchmark state
+         */
+        @Setup
+        public void setUp(PropertyCacheBenchmark benchmark) {
+            equalValues = new Value[Integer.highestOneBit(benchmark.values)];
+            for (int i = 0; i < equalValues.length; i++) {
+                equalValues[i] = new Value(benchmark.cached[(i * 31) % benchmark.values].value);
+            }
+            //every thread misses with values of its own, above the cached ones
+            nextMiss = (long) (benchmark.threads.incrementAndGet()) << 40;
+        }
+
+        private Value nextHit() {
+            return equalValues[next++ & (equalValues.length - 1)];
+        }
+
+        private Value nextMiss() {
+            return new Value(nextMiss++);
+        }
+    }
+
+    /**
+     * Fetches an instance equal to a cached one.
+     * @param fetcher the thread's instances
+     * @return the cached instance
+     */
+    @Benchmark
+    public Value hit(Fetcher fetcher) {
+        return cache.fetch(fetcher.nextHit());
+    }
+
+    /**
+     * Fetches a new value.
+     * @param fetcher the thread's instances
+     * @return the fetched value
+     */
+    @Benchmark
+    public Value miss(Fetcher fetcher) {
+        return cache.fetch(fetcher.nextMiss());
+    }
+
+    /**
+     * Fetches a cached value fifteen times out of sixteen and a new one otherwise.
+     * @param fetcher the thread's instances
+     * @return the cached or fetched value
+     */
+    @Benchmark
+    public Value fetch(Fetcher fetcher) {
+        Value value = fetcher.nextHit();
+        return cache.fetch((fetcher.next & 15) == 0 ? fetcher.nextMiss() : value);
+    }
+
+    /** An immutable value with a cheap <code>equals()</code>, like most cached properties. */
+    public static final class Value {
+
+        private final long value;
+
+        Value(long value) {
+            this.value = value;
+        }
+
+        /**
+         * {@inheritDoc} The values of the threads only differ in the upper bits, which are
+         * mixed into the hash code so unequal values rarely have the same hash code.
+         */
+        public int hashCode() {
+            return (int) ((value * 0x9E3779B97F4A7C15L) >>> 32);
+        }
+
+        /** {@inheritDoc} */
+        public boolean equals(Object obj) {
+            return obj instanceof Value && ((Value) obj).value == value;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.util.PipelinedContentHandler;
+
+/**
+ * Measures the throughput of rendering XML data through an XSLT stylesheet, with the
+ * transformation and the FO processing either running on the same thread or with the FO
+ * processed on a separate thread (see {@link PipelinedContentHandler}) while the
+ * transformation produces it. The stylesheet is compiled once, as a server would cache it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransformationBenchmark {
+
+    /** The number of orders of the XML data, each rendered to a page-sequence. */
+    @Param({"10", "100"})
+    public int orders;
+
+    private FopFactory fopFactory;
+    private Templates stylesheet;
+    private String data;
+
+    /**
+     * Creates the factory, compiles the stylesheet and generates the data.
+     * @throws Exception if the factory cannot be configured or the stylesheet compiled
+     */
+    @Setup
+    public void setUp() throws Exception {
+        fopFactory = BenchmarkDocuments.createFopFactory();
+        stylesheet = TransformerFactory.newInstance().newTemplates(
+                new StreamSource(new StringReader(BenchmarkDocuments.createOrderStylesheet())));
+        data = BenchmarkDocuments.createOrderData(orders);
+    }
+
+    private Fop newFop(CountingOutputStream out) throws Exception {
+        return fopFactory.newFop(MimeConstants.MIME_PDF, BenchmarkDocuments.createUserAgent(fopFactory), out);
+    }
+
+    /**
+     * Transforms the data and processes the resulting FO on the same thread.
+     * @return the size of the output in bytes
+     * @throws Exception if an error occurs while rendering
+     */
+    @Benchmark
+    public long sequential() throws Exception {
+        CountingOutputStream out = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+        stylesheet.newTransformer().transform(BenchmarkDocuments.toSource(data),
+                new SAXResult(newFop(out).getDefaultHandler()));
+        return out.getByteCount();
+    }
+
+    /**
+     * Transforms the data on the calling thread while the resulting FO is processed on
+     * another thread.
+     * @return the size of the output in bytes
+     * @throws Exception if an error occurs while rendering
+     */
+    @Benchmark
+    public long pipelined() throws Exception {
+        CountingOutputStream out = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+        PipelinedContentHandler.transform(stylesheet.newTransformer(),
+                BenchmarkDocuments.toSource(data), newFop(out).getDefaultHandler());
+        return out.getByteCount();
+    }
+}
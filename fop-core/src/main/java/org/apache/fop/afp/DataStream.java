@@ -95,6 +95,9 @@ public class DataStream {
     /** the afp painting state */
     private final AFPPaintingState paintingState;
 
+    /** reused for encoding text, the encoded text is written before the next use */
+    private byte[] encodingBuffer;
+
     /**
      * Default constructor for the AFPDocumentStream.
      *
@@ -435,7 +438,11 @@ public class DataStream {
             private void flushText(PtocaBuilder builder, StringBuffer sb,
                     final CharacterSet charSet) throws IOException {
                 if (sb.length() > 0) {
-                    builder.addTransparentData(charSet.encodeChars(sb));
+                    int bufferSize = CharacterSet.getEncodingBufferSize(sb.length());
+                    if (encodingBuffer == null || encodingBuffer.length < bufferSize) {
+                        encodingBuffer = new byte[bufferSize];
+                    }
+                    builder.addTransparentData(charSet.encodeChars(sb, encodingBuffer));
                     sb.setLength(0);
                 }
             }
@@ -330,6 +330,30 @@ public class CharacterSet {
         return encoder.encode(chars);
     }
 
+    /**
+     * Encodes a character sequence into a reusable buffer. If the buffer is large enough (see
+     * {@link #getEncodingBufferSize(int)}), the returned object wraps it and must have been
+     * consumed before the buffer is used again.
+     * @param chars the characters
+     * @param buffer the buffer to encode into (may be null)
+     * @return the encoded characters
+     * @throws CharacterCodingException if the encoding operation fails
+     */
+    public EncodedChars encodeChars(CharSequence chars, byte[] buffer)
+            throws CharacterCodingException {
+        return encoder.encode(chars, buffer);
+    }
+
+    /**
+     * Returns the size of the buffer {@link #encodeChars(CharSequence, byte[])} needs to encode
+     * the given number of characters without allocating.
+     * @param charCount the number of characters
+     * @return the buffer size in bytes
+     */
+    public static int getEncodingBufferSize(int charCount) {
+        return CharactersetEncoder.getBufferSize(charCount);
+    }
+
     /**
      * Map a Unicode character to a code point in the font.
      * The code tables are already converted to Unicode therefore
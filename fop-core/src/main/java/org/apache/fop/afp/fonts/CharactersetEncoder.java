@@ -22,11 +22,8 @@ package org.apache.fop.afp.fonts;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
 import java.nio.charset.CharacterCodingException;
-import java.nio.charset.Charset;
-import java.nio.charset.CharsetEncoder;
-import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
 
 /**
  * An abstraction that wraps the encoding mechanism for encoding a Unicode character sequence into a
@@ -34,11 +31,10 @@ import java.nio.charset.CodingErrorAction;
  */
 public abstract class CharactersetEncoder {
 
-    private final CharsetEncoder encoder;
+    private final CodePageTable table;
 
     private CharactersetEncoder(String encoding) {
-        this.encoder = Charset.forName(encoding).newEncoder();
-        this.encoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.table = CodePageTable.getInstance(encoding);
     }
 
     /**
@@ -46,10 +42,9 @@ public abstract class CharactersetEncoder {
      *
      * @param c the character
      * @return true if, and only if, this encoder can encode the given character
-     * @throws IllegalStateException - If an encoding operation is already in progress
      */
     final boolean canEncode(char c) {
-        return encoder.canEncode(c);
+        return table.canEncode(c);
     }
 
     /**
@@ -60,21 +55,52 @@ public abstract class CharactersetEncoder {
      * @throws CharacterCodingException if the encoding operation fails
      */
     final EncodedChars encode(CharSequence chars) throws CharacterCodingException {
-        ByteBuffer bb;
-        // encode method is not thread safe
-        synchronized (encoder) {
-            bb = encoder.encode(CharBuffer.wrap(chars));
+        return encode(chars, null);
+    }
+
+    /**
+     * Encodes a character sequence into the given buffer if it is large enough. The returned
+     * object may wrap the buffer, so it must have been consumed before the buffer is reused.
+     *
+     * @param chars the character sequence
+     * @param buffer the buffer to reuse (may be null)
+     * @return the encoded character sequence
+     * @throws CharacterCodingException if the encoding operation fails
+     * @see #getBufferSize(int)
+     */
+    final EncodedChars encode(CharSequence chars, byte[] buffer) throws CharacterCodingException {
+        int maxLength = table.getMaxLength(chars.length());
+        boolean reuse = buffer != null && buffer.length >= maxLength;
+        byte[] bytes = reuse ? buffer : new byte[maxLength];
+        int length = table.encode(chars, bytes);
+        if (length >= 0) {
+            if (!reuse && length < maxLength) {
+                bytes = Arrays.copyOf(bytes, length);
+            }
+            return getEncodedChars(bytes, length);
         }
-        if (bb.hasArray()) {
+        ByteBuffer bb = table.encodeWithEncoder(chars);
+        if (bb.hasArray() && bb.arrayOffset() == 0) {
             return getEncodedChars(bb.array(), bb.limit());
         } else {
             bb.rewind();
-            byte[] bytes = new byte[bb.remaining()];
+            bytes = new byte[bb.remaining()];
             bb.get(bytes);
             return getEncodedChars(bytes, bytes.length);
         }
     }
 
+    /**
+     * Returns the buffer size needed to encode the given number of characters with
+     * {@link #encode(CharSequence, byte[])} without allocating a new array.
+     *
+     * @param charCount the number of characters
+     * @return the buffer size
+     */
+    static int getBufferSize(int charCount) {
+        return charCount * CodePageTable.MAX_BYTES_PER_CHAR + 1;
+    }
+
     abstract EncodedChars getEncodedChars(byte[] byteArray, int length);
 
     /**
@@ -103,10 +129,10 @@ public abstract class CharactersetEncoder {
         }
         @Override
         EncodedChars getEncodedChars(byte[] byteArray, int length) {
-            if (byteArray[0] == 0x0E && byteArray[length - 1] == 0x0F) {
+            if (length > 1 && byteArray[0] == 0x0E && byteArray[length - 1] == 0x0F) {
                 return new EncodedChars(byteArray, 1, length - 2, true);
             }
-            return new EncodedChars(byteArray, true);
+            return new EncodedChars(byteArray, 0, length, true);
         }
     }
 
@@ -125,7 +151,7 @@ public abstract class CharactersetEncoder {
 
         @Override
         EncodedChars getEncodedChars(byte[] byteArray, int length) {
-            return new EncodedChars(byteArray, isDBCS);
+            return new EncodedChars(byteArray, 0, length, isDBCS);
         }
     }
 
@@ -150,10 +176,6 @@ public abstract class CharactersetEncoder {
             this.isDBCS = isDBCS;
         }
 
-        private EncodedChars(byte[] bytes, boolean isDBCS) {
-            this(bytes, 0, bytes.length, isDBCS);
-        }
-
         /**
          * write <code>length</code> bytes from <code>offset</code> to the output stream
          *
@@ -163,7 +185,7 @@ public abstract class CharactersetEncoder {
          * @throws IOException if an I/O error occurs
          */
         public void writeTo(OutputStream out, int offset, int length) throws IOException {
-            if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            if (offset < 0 || length < 0 || offset + length > this.length) {
                 throw new IllegalArgumentException();
             }
             out.write(bytes, this.offset + offset, length);
@@ -194,8 +216,8 @@ public abstract class CharactersetEncoder {
          */
         public byte[] getBytes() {
             // return copy just in case
-            byte[] copy = new byte[bytes.length];
-            System.arraycopy(bytes, 0, copy, 0, bytes.length);
+            byte[] copy = new byte[length];
+            System.arraycopy(bytes, offset, copy, 0, length);
             return copy;
         }
     }
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+package org.apache.fop.afp.fonts;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable Unicode to code page lookup table for the characters of the Basic Multilingual
+ * Plane, built once per encoding and shared by all {@link CharactersetEncoder}s. Encoding
+ * through the table needs no locking. The table is built from the JDK's {@link CharsetEncoder}
+ * in blocks of 256 characters when a block is first used.
+ * <p>
+ * Stateful EBCDIC encodings that switch between single and double byte mode with the
+ * "Shift Out" (0x0E) and "Shift In" (0x0F) control characters are supported. Character sequences
+ * containing unmappable characters or surrogates are encoded by the JDK's encoder, so the
+ * result is always identical to the one of {@link CharsetEncoder#encode(CharBuffer)}.</p>
+ */
+final class CodePageTable {
+
+    private static final ConcurrentMap<String, CodePageTable> TABLES
+            = new ConcurrentHashMap<String, CodePageTable>();
+
+    /** The maximum number of bytes a character is encoded to, including shift characters */
+    static final int MAX_BYTES_PER_CHAR = 3;
+
+    private static final byte SHIFT_OUT = 0x0E;
+    private static final byte SHIFT_IN = 0x0F;
+
+    private static final int BLOCK_SIZE = 256;
+    private static final int UNMAPPED = -1;
+    private static final int NOT_IN_TABLE = -2;
+    private static final int DOUBLE_BYTE = 0x10000;
+    private static final int SHIFTED = 0x20000;
+
+    private final CharsetEncoder encoder;
+    private final boolean singleByte;
+    /** Built blocks, read without locking: a racing thread at worst builds a block again */
+    private final Block[] blocks = new Block[0x10000 / BLOCK_SIZE];
+
+    private CodePageTable(String encoding) {
+        this.encoder = Charset.forName(encoding).newEncoder();
+        this.encoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.singleByte = encoder.maxBytesPerChar() <= 1;
+    }
+
+    /**
+     * Returns the table for the given encoding.
+     * @param encoding the encoding
+     * @return the code page table
+     * @throws java.nio.charset.UnsupportedCharsetException if the encoding is not supported
+     */
+    static CodePageTable getInstance(String encoding) {
+        CodePageTable table = TABLES.get(encoding);
+        if (table == null) {
+            table = new CodePageTable(encoding);
+            CodePageTable existing = TABLES.putIfAbsent(encoding, table);
+            if (existing != null) {
+                table = existing;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Tells whether or not the given character can be encoded.
+     * @param c the character
+     * @return true if, and only if, the character can be encoded
+     */
+    boolean canEncode(char c) {
+        return lookup(c) != UNMAPPED;
+    }
+
+    /**
+     * Returns the length of an array large enough to encode the given number of characters
+     * with {@link #encode(CharSequence, byte[])}.
+     * @param charCount the number of characters
+     * @return the length in bytes
+     */
+    int getMaxLength(int charCount) {
+        return singleByte ? charCount : charCount * MAX_BYTES_PER_CHAR + 1;
+    }
+
+    /**
+     * Encodes a character sequence through the lookup table.
+     * @param chars the character sequence
+     * @param bytes the array to encode into, see {@link #getMaxLength(int)}
+     * @return the number of bytes written or -1 if the character sequence can only be encoded
+     *          by {@link #encodeWithEncoder(CharSequence)}
+     */
+    int encode(CharSequence chars, byte[] bytes) {
+        int pos = 0;
+        boolean shifted = false;
+        int[] block = null;
+        int blockIndex = -1;
+        for (int i = 0, count = chars.length(); i < count; i++) {
+            char c = chars.charAt(i);
+            if (c / BLOCK_SIZE != blockIndex) {
+                blockIndex = c / BLOCK_SIZE;
+                Block b = blocks[blockIndex];
+                if (b == null) {
+                    //building blocks is kept out of this loop so it compiles to tight code
+                    return encode(chars, bytes, blockIndex);
+                }
+                block = b.entries;
+            }
+            int entry = block[c % BLOCK_SIZE];
+            if (entry >= 0 && entry < DOUBLE_BYTE && !shifted) {
+                //single byte character outside of a double byte sequence, the common case
+                bytes[pos++] = (byte) entry;
+                continue;
+            }
+            if (entry < 0) {
+                return -1;
+            }
+            if ((entry & SHIFTED) != 0) {
+                if (!shifted) {
+                    bytes[pos++] = SHIFT_OUT;
+                    shifted = true;
+                }
+            } else if (shifted) {
+                bytes[pos++] = SHIFT_IN;
+                shifted = false;
+            }
+            if ((entry & DOUBLE_BYTE) != 0) {
+                bytes[pos++] = (byte) (entry >> 8);
+            }
+            bytes[pos++] = (byte) entry;
+        }
+        if (shifted) {
+            bytes[pos++] = SHIFT_IN;
+        }
+        return pos;
+    }
+
+    private int encode(CharSequence chars, byte[] bytes, int missingBlock) {
+        getBlock(missingBlock);
+        return encode(chars, bytes);
+    }
+
+    /**
+     * Encodes a character sequence using the JDK's encoder.
+     * @param chars the character sequence
+     * @return the encoded characters
+     * @throws CharacterCodingException if the encoding operation fails
+     */
+    ByteBuffer encodeWithEncoder(CharSequence chars) throws CharacterCodingException {
+        // encode method is not thread safe
+        synchronized (encoder) {
+            return encoder.encode(CharBuffer.wrap(chars));
+        }
+    }
+
+    private int lookup(char c) {
+        return getBlock(c / BLOCK_SIZE)[c % BLOCK_SIZE];
+    }
+
+    private int[] getBlock(int index) {
+        Block block = blocks[index];
+        if (block == null) {
+            block = new Block(buildBlock(index));
+            blocks[index] = block;
+        }
+        return block.entries;
+    }
+
+    private int[] buildBlock(int index) {
+        int[] block = new int[BLOCK_SIZE];
+        Arrays.fill(block, UNMAPPED);
+        synchronized (encoder) {
+            for (int i = 0; i < BLOCK_SIZE; i++) {
+                char c = (char) (index * BLOCK_SIZE + i);
+                if (Character.isSurrogate(c) || !encoder.canEncode(c)) {
+                    continue;
+                }
+                ByteBuffer bb;
+                try {
+                    bb = encoder.encode(CharBuffer.wrap(new char[] {c}));
+                } catch (CharacterCodingException cce) {
+                    block[i] = NOT_IN_TABLE;
+                    continue;
+                }
+                byte[] bytes = new byte[bb.remaining()];
+                bb.get(bytes);
+                block[i] = toEntry(bytes);
+            }
+        }
+        return block;
+    }
+
+    private static int toEntry(byte[] bytes) {
+        switch (bytes.length) {
+        case 1:
+            return bytes[0] & 0xFF;
+        case 2:
+            return DOUBLE_BYTE | ((bytes[0] & 0xFF) << 8) | (bytes[1] & 0xFF);
+        case 4:
+            if (bytes[0] == SHIFT_OUT && bytes[3] == SHIFT_IN) {
+                return SHIFTED | DOUBLE_BYTE | ((bytes[1] & 0xFF) << 8) | (bytes[2] & 0xFF);
+            }
+            return NOT_IN_TABLE;
+        default:
+            //leave anything else to the encoder
+            return NOT_IN_TABLE;
+        }
+    }
+
+    /**
+     * A block of table entries. The final field makes the entries visible to any thread that
+     * sees the block, so blocks can be shared without the cost of volatile reads.
+     */
+    private static final class Block {
+
+        private final int[] entries;
+
+        Block(int[] entries) {
+            this.entries = entries;
+        }
+    }
+}
@@ -42,6 +42,9 @@ public class GraphicsCharacterString extends AbstractGraphicsCoord {
      */
     private final CharacterSet charSet;
 
+    /** the encoded string, created on first use */
+    private byte[] encodedString;
+
     /**
      * Constructor (absolute positioning)
      *
@@ -90,7 +93,10 @@ public class GraphicsCharacterString extends AbstractGraphicsCoord {
      */
     private byte[] getStringAsBytes() throws UnsupportedEncodingException,
             CharacterCodingException {
-        return charSet.encodeChars(str).getBytes();
+        if (encodedString == null) {
+            encodedString = charSet.encodeChars(str).getBytes();
+        }
+        return encodedString;
     }
 
     /** {@inheritDoc} */
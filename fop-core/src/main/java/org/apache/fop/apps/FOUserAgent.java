@@ -52,12 +52,17 @@ import org.apache.fop.event.LoggingEventListener;
 import org.apache.fop.events.DefaultEventBroadcaster;
 import org.apache.fop.events.Event;
 import org.apache.fop.events.EventBroadcaster;
+import org.apache.fop.events.EventFilter;
 import org.apache.fop.events.EventListener;
+import org.apache.fop.events.model.EventSeverity;
 import org.apache.fop.fo.ElementMappingRegistry;
 import org.apache.fop.fo.FOEventHandler;
+import org.apache.fop.fo.expr.PropertyParseCache;
 import org.apache.fop.fonts.FontManager;
 import org.apache.fop.hyphenation.HyphenationTreeCache;
 import org.apache.fop.layoutmgr.LayoutManagerMaker;
+import org.apache.fop.pdf.PDFSignCredentialsCache;
+import org.apache.fop.render.ConvertedImageCache;
 import org.apache.fop.render.ImageHandlerRegistry;
 import org.apache.fop.render.Renderer;
 import org.apache.fop.render.RendererConfig;
@@ -105,6 +110,10 @@ public class FOUserAgent {
     private FOEventHandler foEventHandlerOverride;
     private boolean locatorEnabled = true; // true by default (for error messages).
     private boolean conserveMemoryPolicy;
+    private long conserveMemoryBufferSize;
+    private int pageNumberPlaceholderDigits;
+    private FormattingMetrics formattingMetrics;
+    private int activeNodeLimit;
     private EventBroadcaster eventBroadcaster = new FOPEventBroadcaster();
     private StructureTreeEventHandler structureTreeEventHandler
             = DummyStructureTreeEventHandler.INSTANCE;
@@ -621,6 +630,13 @@ public class FOUserAgent {
             rootListener.processEvent(event);
         }
 
+        /** {@inheritDoc} */
+        public boolean isEventOfInterest(String eventID, EventSeverity severity) {
+            //The temporary root listener needs to see the first event
+            return !(rootListener instanceof EventFilter)
+                    || ((EventFilter) rootListener).isEventOfInterest(eventID, severity);
+        }
+
     }
 
     /**
@@ -641,6 +657,109 @@ public class FOUserAgent {
         this.conserveMemoryPolicy = conserveMemoryPolicy;
     }
 
+    /**
+     * Controls whether the time and memory spent in the individual processing phases are
+     * recorded. The metrics are reported through {@link FormattingResults#getMetrics()}.
+     * Recording adds a small overhead to every phase change, so it is disabled by default.
+     * @param enabled true to record formatting metrics
+     */
+    public void setFormattingMetricsEnabled(boolean enabled) {
+        if (!enabled) {
+            formattingMetrics = null;
+        } else if (formattingMetrics == null) {
+            formattingMetrics = new FormattingMetrics();
+        }
+    }
+
+    /**
+     * Indicates whether formatting metrics are recorded.
+     * @return true if formatting metrics are recorded
+     */
+    public boolean isFormattingMetricsEnabled() {
+        return formattingMetrics != null;
+    }
+
+    /**
+     * Returns the formatting metrics recorded for the document processed with this user agent.
+     * @return the formatting metrics or null if they're not recorded
+     */
+    public FormattingMetrics getFormattingMetrics() {
+        return formattingMetrics;
+    }
+
+    /**
+     * Limits the number of active nodes the line and page breaking algorithms keep for each
+     * line or page. A limit trades the optimality of the breaks for bounded time and memory
+     * on very long paragraphs and page-sequences.
+     * @param limit the maximum number of active nodes per line or page, or 0 (the default)
+     * for no limit
+     * @see org.apache.fop.layoutmgr.BreakingAlgorithm#setActiveNodeLimit(int)
+     */
+    public void setActiveNodeLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Active node limit must not be negative: " + limit);
+        }
+        this.activeNodeLimit = limit;
+    }
+
+    /**
+     * Returns the maximum number of active nodes the breaking algorithms keep for each line
+     * or page.
+     * @return the limit or 0 if there is no limit
+     */
+    public int getActiveNodeLimit() {
+        return activeNodeLimit;
+    }
+
+    /**
+     * Returns the number of digits reserved for page number citations that can't be resolved
+     * during layout.
+     *
+     * @return the number of digits or 0 if page number placeholders are disabled
+     */
+    public int getPageNumberPlaceholderDigits() {
+        return this.pageNumberPlaceholderDigits;
+    }
+
+    /**
+     * Enables page number placeholders. Layout reserves room for the given number of digits
+     * for every page number citation whose target hasn't been laid out yet (for example the
+     * total page count in a "Page 3 of 10" footer). Renderers supporting it then render such
+     * pages right away with a placeholder and patch in the page number at the end of the
+     * document, instead of holding the pages in memory until the citations are resolved.
+     * Page numbers longer than the reserved room may overlap the following text.
+     *
+     * @param digits the number of digits to reserve, 0 to disable page number placeholders
+     */
+    public void setPageNumberPlaceholderDigits(int digits) {
+        if (digits < 0) {
+            throw new IllegalArgumentException("The number of digits must not be negative");
+        }
+        this.pageNumberPlaceholderDigits = digits;
+    }
+
+    /**
+     * Returns the size of the in-memory buffer for pages saved by the memory-conservation
+     * policy.
+     *
+     * @return the buffer size in bytes, 0 if all pages are saved to temporary files
+     */
+    public long getConserveMemoryBufferSize() {
+        return this.conserveMemoryBufferSize;
+    }
+
+    /**
+     * Sets the size of the in-memory buffer for pages saved by the memory-conservation policy.
+     * Saved pages are kept in memory in compressed form until the buffer is full, then the
+     * pages saved first are moved to temporary files.
+     *
+     * @param conserveMemoryBufferSize the buffer size in bytes, 0 (the default) to save all
+     *          pages to temporary files
+     */
+    public void setConserveMemoryBufferSize(long conserveMemoryBufferSize) {
+        this.conserveMemoryBufferSize = conserveMemoryBufferSize;
+    }
+
     /**
      * Check whether complex script features are enabled.
      *
@@ -803,6 +922,21 @@ public class FOUserAgent {
         return factory.getColorSpaceCache();
     }
 
+    /** @see FopFactory#getConvertedImageCache() */
+    public ConvertedImageCache getConvertedImageCache() {
+        return factory.getConvertedImageCache();
+    }
+
+    /** @see FopFactory#getPropertyParseCache() */
+    public PropertyParseCache getPropertyParseCache() {
+        return factory.getPropertyParseCache();
+    }
+
+    /** @see FopFactory#getPDFSignCredentialsCache() */
+    public PDFSignCredentialsCache getPDFSignCredentialsCache() {
+        return factory.getPDFSignCredentialsCache();
+    }
+
     /** @see FopFactory#getHyphenationPatternNames() */
     public Map<String, String> getHyphenationPatternNames() {
         return factory.getHyphenationPatternNames();
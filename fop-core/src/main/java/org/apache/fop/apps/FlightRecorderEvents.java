@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.apps;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Emits {@link FormattingMetrics} as Java Flight Recorder events. The events are defined
+ * through <code>jdk.jfr.EventFactory</code>, which is accessed through reflection so FOP
+ * still runs on Java 8 runtimes without the flight recorder. If the flight recorder isn't
+ * available, nothing is emitted.
+ */
+final class FlightRecorderEvents {
+
+    private static final Log LOG = LogFactory.getLog(FlightRecorderEvents.class);
+
+    private static final String CATEGORY = "Apache FOP";
+
+    private static Object phaseFactory;
+    private static Object counterFactory;
+    private static Method newEvent;
+    private static Method shouldCommit;
+    private static Method set;
+    private static Method commit;
+
+    static {
+        try {
+            Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+            Constructor<?> annotationElement = annotationElementClass.getConstructor(
+                    Class.class, Object.class);
+            Constructor<?> valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor").getConstructor(
+                    Class.class, String.class, List.class);
+            Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory");
+            Method create = eventFactoryClass.getMethod("create", List.class, List.class);
+            Class<?> name = Class.forName("jdk.jfr.Name");
+            Class<?> label = Class.forName("jdk.jfr.Label");
+            Class<?> category = Class.forName("jdk.jfr.Category");
+            Class<?> timespan = Class.forName("jdk.jfr.Timespan");
+            Class<?> dataAmount = Class.forName("jdk.jfr.DataAmount");
+
+            Object pageSequence = valueDescriptor.newInstance(String.class, "pageSequence",
+                    Collections.singletonList(annotationElement.newInstance(label, "Page Sequence")));
+            phaseFactory = create.invoke(null,
+                    Arrays.asList(annotationElement.newInstance(name, "org.apache.fop.FormattingPhase"),
+                            annotationElement.newInstance(label, "Formatting Phase"),
+                            annotationElement.newInstance(category, new String[] {CATEGORY})),
+                    Arrays.asList(pageSequence,
+                            valueDescriptor.newInstance(String.class, "phase",
+                                    Collections.singletonList(annotationElement.newInstance(label, "Phase"))),
+                            valueDescriptor.newInstance(long.class, "wallTime",
+                                    Arrays.asList(annotationElement.newInstance(label, "Wall Time"),
+                                            annotationElement.newInstance(timespan, "NANOSECONDS"))),
+                            valueDescriptor.newInstance(long.class, "cpuTime",
+                                    Arrays.asList(annotationElement.newInstance(label, "CPU Time"),
+                                            annotationElement.newInstance(timespan, "NANOSECONDS"))),
+                            valueDescriptor.newInstance(long.class, "allocated",
+                                    Arrays.asList(annotationElement.newInstance(label, "Allocated"),
+                                            annotationElement.newInstance(dataAmount, "BYTES")))));
+            counterFactory = create.invoke(null,
+                    Arrays.asList(annotationElement.newInstance(name, "org.apache.fop.FormattingCounter"),
+                            annotationElement.newInstance(label, "Formatting Counter"),
+                            annotationElement.newInstance(category, new String[] {CATEGORY})),
+                    Arrays.asList(pageSequence,
+                            valueDescriptor.newInstance(String.class, "counter",
+                                    Collections.singletonList(annotationElement.newInstance(label, "Counter"))),
+                            valueDescriptor.newInstance(long.class, "value",
+                                    Collections.singletonList(annotationElement.newInstance(label, "Value")))));
+            newEvent = eventFactoryClass.getMethod("newEvent");
+            Class<?> eventClass = Class.forName("jdk.jfr.Event");
+            shouldCommit = eventClass.getMethod("shouldCommit");
+            set = eventClass.getMethod("set", int.class, Object.class);
+            commit = eventClass.getMethod("commit");
+        } catch (ClassNotFoundException cnfe) {
+            //no flight recorder
+            phaseFactory = null;
+        } catch (Exception e) {
+            LOG.debug("Flight recorder events not available", e);
+            phaseFactory = null;
+        } catch (LinkageError le) {
+            LOG.debug("Flight recorder events not available", le);
+            phaseFactory = null;
+        }
+    }
+
+    private FlightRecorderEvents() {
+    }
+
+    /**
+     * Emits the metrics of a page-sequence or of a whole document.
+     * @param pageSequence the ID of the page-sequence or null for the whole document
+     * @param metrics the metrics
+     */
+    static void emit(String pageSequence, FormattingMetrics metrics) {
+        if (phaseFactory == null) {
+            return;
+        }
+        try {
+            for (FormattingMetrics.Phase phase : FormattingMetrics.Phase.values()) {
+                if (metrics.getWallTime(phase) > 0) {
+                    commit(phaseFactory, pageSequence, phase.name(), metrics.getWallTime(phase),
+                            metrics.getCPUTime(phase), metrics.getAllocatedBytes(phase));
+                }
+            }
+            for (FormattingMetrics.Counter counter : FormattingMetrics.Counter.values()) {
+                if (metrics.getCount(counter) > 0) {
+                    commit(counterFactory, pageSequence, counter.name(), metrics.getCount(counter));
+                }
+            }
+        } catch (Exception e) {
+            LOG.debug("Could not emit flight recorder event", e);
+        }
+    }
+
+    private static void commit(Object factory, Object... values) throws Exception {
+        Object event = newEvent.invoke(factory);
+        if ((Boolean) shouldCommit.invoke(event)) {
+            for (int i = 0; i < values.length; i++) {
+                set.invoke(event, i, values[i]);
+            }
+            commit.invoke(event);
+        }
+    }
+}
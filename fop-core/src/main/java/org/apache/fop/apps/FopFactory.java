@@ -45,9 +45,12 @@ import org.apache.fop.apps.io.ResourceResolverFactory;
 import org.apache.fop.configuration.Configuration;
 import org.apache.fop.fo.ElementMapping;
 import org.apache.fop.fo.ElementMappingRegistry;
+import org.apache.fop.fo.expr.PropertyParseCache;
 import org.apache.fop.fonts.FontManager;
 import org.apache.fop.hyphenation.HyphenationTreeCache;
 import org.apache.fop.layoutmgr.LayoutManagerMaker;
+import org.apache.fop.pdf.PDFSignCredentialsCache;
+import org.apache.fop.render.ConvertedImageCache;
 import org.apache.fop.render.ImageHandlerRegistry;
 import org.apache.fop.render.RendererConfig;
 import org.apache.fop.render.RendererConfig.RendererConfigParser;
@@ -85,6 +88,15 @@ public final class FopFactory implements ImageContext {
 
     private final ColorSpaceCache colorSpaceCache;
 
+    /** Cache for images converted by the renderers, shared by all documents */
+    private final ConvertedImageCache convertedImageCache = new ConvertedImageCache();
+
+    /** Cache for parsed property expressions, shared by all documents */
+    private final PropertyParseCache propertyParseCache = new PropertyParseCache();
+
+    /** Cache for the key material used to sign PDF documents, shared by all documents */
+    private final PDFSignCredentialsCache pdfSignCredentialsCache = new PDFSignCredentialsCache();
+
     private final FopFactoryConfig config;
 
     private final InternalResourceResolver resolver;
@@ -481,6 +493,35 @@ public final class FopFactory implements ImageContext {
         return this.colorSpaceCache;
     }
 
+    /**
+     * Returns the cache for images converted by the renderers. It is shared by all documents
+     * created through this instance and can be used to adjust the cache size and to
+     * retrieve hit statistics.
+     * @return the converted image cache
+     */
+    public ConvertedImageCache getConvertedImageCache() {
+        return this.convertedImageCache;
+    }
+
+    /**
+     * Returns the cache for parsed property expressions shared by all documents created by
+     * this factory. It can be used to limit the number of cached expressions and to retrieve
+     * hit statistics.
+     * @return the property parse cache
+     */
+    public PropertyParseCache getPropertyParseCache() {
+        return this.propertyParseCache;
+    }
+
+    /**
+     * Returns the cache for the private keys and certificates used to sign PDF documents, so
+     * a key store is only loaded once for all documents created by this factory.
+     * @return the PDF signing credentials cache
+     */
+    public PDFSignCredentialsCache getPDFSignCredentialsCache() {
+        return this.pdfSignCredentialsCache;
+    }
+
     public HyphenationTreeCache getHyphenationTreeCache() {
         if (hyphenationTreeCache == null) {
             hyphenationTreeCache = new HyphenationTreeCache();
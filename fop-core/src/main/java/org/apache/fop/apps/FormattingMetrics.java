@@ -0,0 +1,359 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.apps;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records where the time and memory of a processing run are spent. For every processing
+ * {@link Phase} the wall time, the CPU time and the number of bytes allocated by the
+ * processing thread are recorded. The phases are exclusive: the time spent loading an image
+ * while rendering a page is charged to {@link Phase#IMAGE_LOADING} only, not to
+ * {@link Phase#RENDERING}. In addition, a number of {@link Counter}s are kept.
+ * <p>
+ * Metrics are only recorded if enabled through
+ * {@link FOUserAgent#setFormattingMetricsEnabled(boolean)}. They are available from
+ * {@link FormattingResults#getMetrics()} for the whole document and from
+ * {@link PageSequenceResults#getMetrics()} for each page-sequence. If the Java Flight
+ * Recorder is available, the metrics of every page-sequence and of the whole document are
+ * also emitted as <code>org.apache.fop.FormattingPhase</code> and
+ * <code>org.apache.fop.FormattingCounter</code> events, which are recorded if a flight
+ * recording is running.</p>
+ * <p>
+ * Phases are recorded on the thread that processes the document; phases entered by other
+ * threads (e.g. when rendering pages in parallel) are not recorded, while counters are.
+ * The values must not be read while the document is processed unless they're obtained
+ * from a snapshot taken on the processing thread.</p>
+ */
+public class FormattingMetrics {
+
+    /** The processing phases. */
+    public enum Phase {
+        /** Parsing the XML input, including any transformation producing it. */
+        PARSING,
+        /** Building the FO tree from the parsed input. */
+        FO_TREE,
+        /** Layout other than line and page breaking: building element lists and areas. */
+        LAYOUT,
+        /** Breaking paragraphs into lines. */
+        LINE_BREAKING,
+        /** Breaking the content into pages (and columns). */
+        PAGE_BREAKING,
+        /** Loading images. */
+        IMAGE_LOADING,
+        /** Loading fonts. */
+        FONT_LOADING,
+        /** Rendering the pages and writing the output. */
+        RENDERING
+    }
+
+    /** The counters. */
+    public enum Counter {
+        /** The number of Knuth elements passed to the line and page breaking algorithms. */
+        KNUTH_ELEMENTS,
+        /** The number of active nodes created by the line and page breaking algorithms. */
+        BREAKING_NODES,
+        /** The number of times a breaking algorithm had to restart from a forced break. */
+        BREAKING_RESTARTS,
+        /** The number of images loaded for rendering. */
+        IMAGES_LOADED,
+        /** The number of fonts loaded. */
+        FONTS_LOADED,
+        /** The number of property expressions found in the property parse cache. */
+        PROPERTY_CACHE_HITS
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final Counter[] COUNTERS = Counter.values();
+
+    private final long[] wallTime;
+    private final long[] cpuTime;
+    private final long[] allocatedBytes;
+    private final AtomicLongArray counts;
+
+    private ThreadMXBean threads;
+    private boolean cpuTimeSupported;
+    private boolean allocatedBytesSupported;
+
+    private Thread thread;
+    private Phase[] stack = new Phase[8];
+    private int depth;
+    private long markWallTime;
+    private long markCPUTime;
+    private long markAllocatedBytes;
+
+    private FormattingMetrics lastPageSequence;
+    private int pageSequenceCount;
+
+    /** Creates a new instance that records the metrics of a processing run. */
+    public FormattingMetrics() {
+        this.wallTime = new long[PHASES.length];
+        this.cpuTime = new long[PHASES.length];
+        this.allocatedBytes = new long[PHASES.length];
+        this.counts = new AtomicLongArray(COUNTERS.length);
+        try {
+            threads = ManagementFactory.getThreadMXBean();
+            cpuTimeSupported = threads.isCurrentThreadCpuTimeSupported()
+                    && threads.isThreadCpuTimeEnabled();
+            if (threads instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean hotspotThreads = (com.sun.management.ThreadMXBean) threads;
+                allocatedBytesSupported = hotspotThreads.isThreadAllocatedMemorySupported()
+                        && hotspotThreads.isThreadAllocatedMemoryEnabled();
+            }
+        } catch (LinkageError le) {
+            //java.lang.management not available
+        } catch (UnsupportedOperationException uoe) {
+            //thread metrics not supported by the VM
+        }
+    }
+
+    private FormattingMetrics(FormattingMetrics source) {
+        this.wallTime = source.wallTime.clone();
+        this.cpuTime = source.cpuTime.clone();
+        this.allocatedBytes = source.allocatedBytes.clone();
+        this.counts = new AtomicLongArray(COUNTERS.length);
+        for (int i = 0; i < COUNTERS.length; i++) {
+            counts.set(i, source.counts.get(i));
+        }
+        this.cpuTimeSupported = source.cpuTimeSupported;
+        this.allocatedBytesSupported = source.allocatedBytesSupported;
+    }
+
+    /**
+     * Enters a processing phase. The current phase, if any, is suspended until the new phase
+     * is left.
+     * @param phase the phase
+     */
+    public void startPhase(Phase phase) {
+        Thread current = Thread.currentThread();
+        if (thread == null) {
+            thread = current;
+        } else if (thread != current) {
+            return;
+        }
+        charge();
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = phase;
+    }
+
+    /**
+     * Leaves a processing phase and resumes the phase that was suspended when it was entered.
+     * Phases entered later and not left, yet, are left, too.
+     * @param phase the phase
+     */
+    public void endPhase(Phase phase) {
+        if (thread != Thread.currentThread()) {
+            return;
+        }
+        int index = depth - 1;
+        while (index >= 0 && stack[index] != phase) {
+            index--;
+        }
+        if (index >= 0) {
+            charge();
+            depth = index;
+        }
+    }
+
+    /**
+     * Increments a counter.
+     * @param counter the counter
+     * @param delta the value to add
+     */
+    public void count(Counter counter, long delta) {
+        counts.addAndGet(counter.ordinal(), delta);
+    }
+
+    /**
+     * Returns the current value of the clock the wall time is measured with.
+     * @return the time in nanoseconds
+     */
+    long nanoTime() {
+        return System.nanoTime();
+    }
+
+    private void charge() {
+        long now = nanoTime();
+        long cpu = cpuTimeSupported ? threads.getCurrentThreadCpuTime() : 0;
+        long allocated = allocatedBytesSupported
+                ? ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(thread.getId())
+                : 0;
+        if (depth > 0) {
+            int index = stack[depth - 1].ordinal();
+            wallTime[index] += now - markWallTime;
+            cpuTime[index] += cpu - markCPUTime;
+            allocatedBytes[index] += allocated - markAllocatedBytes;
+        }
+        markWallTime = now;
+        markCPUTime = cpu;
+        markAllocatedBytes = allocated;
+    }
+
+    /**
+     * Returns a copy of the metrics recorded so far. If called on the processing thread, the
+     * time spent in the current phase is included.
+     * @return the copy
+     */
+    public FormattingMetrics snapshot() {
+        if (thread == Thread.currentThread() && depth > 0) {
+            charge();
+        }
+        return new FormattingMetrics(this);
+    }
+
+    private FormattingMetrics subtract(FormattingMetrics earlier) {
+        FormattingMetrics result = new FormattingMetrics(this);
+        if (earlier != null) {
+            for (int i = 0; i < PHASES.length; i++) {
+                result.wallTime[i] -= earlier.wallTime[i];
+                result.cpuTime[i] -= earlier.cpuTime[i];
+                result.allocatedBytes[i] -= earlier.allocatedBytes[i];
+            }
+            for (int i = 0; i < COUNTERS.length; i++) {
+                result.counts.addAndGet(i, -earlier.counts.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Starts recording a document. The time until {@link #endDocument()} is called is charged
+     * to {@link Phase#PARSING} unless another phase is entered.
+     */
+    public void startDocument() {
+        startPhase(Phase.PARSING);
+    }
+
+    /**
+     * Stops recording a document and emits its metrics to the flight recorder.
+     */
+    public void endDocument() {
+        endPhase(Phase.PARSING);
+        FlightRecorderEvents.emit(null, this);
+    }
+
+    /**
+     * Returns the metrics recorded since the previous page-sequence was finished and emits them
+     * to the flight recorder.
+     * @param id the ID of the page-sequence which was just finished (may be null)
+     * @return the metrics of the page-sequence
+     */
+    FormattingMetrics endPageSequence(String id) {
+        FormattingMetrics snapshot = snapshot();
+        FormattingMetrics metrics = snapshot.subtract(lastPageSequence);
+        lastPageSequence = snapshot;
+        pageSequenceCount++;
+        FlightRecorderEvents.emit(id != null ? id : "#" + pageSequenceCount, metrics);
+        return metrics;
+    }
+
+    /**
+     * Returns the wall time spent in a phase.
+     * @param phase the phase
+     * @return the time in nanoseconds
+     */
+    public long getWallTime(Phase phase) {
+        return wallTime[phase.ordinal()];
+    }
+
+    /**
+     * Returns the CPU time the processing thread spent in a phase.
+     * @param phase the phase
+     * @return the time in nanoseconds or -1 if CPU time measurement is not supported
+     */
+    public long getCPUTime(Phase phase) {
+        return cpuTimeSupported ? cpuTime[phase.ordinal()] : -1;
+    }
+
+    /**
+     * Returns the number of bytes allocated by the processing thread in a phase.
+     * @param phase the phase
+     * @return the number of bytes or -1 if allocation measurement is not supported
+     */
+    public long getAllocatedBytes(Phase phase) {
+        return allocatedBytesSupported ? allocatedBytes[phase.ordinal()] : -1;
+    }
+
+    /**
+     * Returns the wall time spent in all phases.
+     * @return the time in nanoseconds
+     */
+    public long getTotalWallTime() {
+        return sum(wallTime);
+    }
+
+    /**
+     * Returns the CPU time the processing thread spent in all phases.
+     * @return the time in nanoseconds or -1 if CPU time measurement is not supported
+     */
+    public long getTotalCPUTime() {
+        return cpuTimeSupported ? sum(cpuTime) : -1;
+    }
+
+    /**
+     * Returns the number of bytes allocated by the processing thread in all phases.
+     * @return the number of bytes or -1 if allocation measurement is not supported
+     */
+    public long getTotalAllocatedBytes() {
+        return allocatedBytesSupported ? sum(allocatedBytes) : -1;
+    }
+
+    private static long sum(long[] values) {
+        long sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the value of a counter.
+     * @param counter the counter
+     * @return the value
+     */
+    public long getCount(Counter counter) {
+        return counts.get(counter.ordinal());
+    }
+
+    /** {@inheritDoc} */
+    public String toString() {
+        StringBuilder sb = new StringBuilder("FormattingMetrics[");
+        for (Phase phase : PHASES) {
+            sb.append(phase).append(": ").append(getWallTime(phase) / 1000000).append("ms");
+            if (cpuTimeSupported) {
+                sb.append(" (cpu ").append(getCPUTime(phase) / 1000000).append("ms)");
+            }
+            if (allocatedBytesSupported) {
+                sb.append(' ').append(getAllocatedBytes(phase) / 1024).append("KB");
+            }
+            sb.append(", ");
+        }
+        for (Counter counter : COUNTERS) {
+            sb.append(counter).append(": ").append(getCount(counter)).append(", ");
+        }
+        sb.setLength(sb.length() - 2);
+        return sb.append(']').toString();
+    }
+}
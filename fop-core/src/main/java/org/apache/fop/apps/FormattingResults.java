@@ -30,6 +30,7 @@ public class FormattingResults {
 
     private int pageCount;
     private List pageSequences;
+    private FormattingMetrics metrics;
 
     /**
      * Constructor for the FormattingResults object
@@ -37,6 +38,15 @@ public class FormattingResults {
     public FormattingResults() {
     }
 
+    /**
+     * Constructor for a FormattingResults object which reports formatting metrics.
+     *
+     * @param metrics the formatting metrics recorded while processing (may be null)
+     */
+    public FormattingResults(FormattingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     /**
      * Gets the number of pages rendered
      *
@@ -55,6 +65,16 @@ public class FormattingResults {
         return this.pageSequences;
     }
 
+    /**
+     * Gets the time and memory spent processing the document.
+     *
+     * @return the formatting metrics or null if they weren't recorded
+     * @see FOUserAgent#setFormattingMetricsEnabled(boolean)
+     */
+    public FormattingMetrics getMetrics() {
+        return this.metrics;
+    }
+
     /**
      * Resets this object
      */
@@ -79,7 +99,8 @@ public class FormattingResults {
         }
         this.pageSequences.add(
                 new PageSequenceResults(pageSequence.getId(),
-                                        pageCount));
+                                        pageCount,
+                                        metrics != null ? metrics.endPageSequence(pageSequence.getId()) : null));
     }
 }
 
@@ -27,6 +27,7 @@ public class PageSequenceResults {
 
     private String id;
     private int pageCount;
+    private FormattingMetrics metrics;
 
     /**
      * Constructor for the PageSequenceResults object
@@ -39,6 +40,18 @@ public class PageSequenceResults {
         this.pageCount = pageCount;
     }
 
+    /**
+     * Constructor for a PageSequenceResults object which reports formatting metrics.
+     *
+     * @param id         ID of the page-sequence, if available
+     * @param pageCount  The number of resulting pages
+     * @param metrics    The formatting metrics of the page-sequence (may be null)
+     */
+    public PageSequenceResults(String id, int pageCount, FormattingMetrics metrics) {
+        this(id, pageCount);
+        this.metrics = metrics;
+    }
+
     /**
      * Gets the ID of the page-sequence if one was specified.
      *
@@ -56,4 +69,14 @@ public class PageSequenceResults {
     public int getPageCount() {
         return this.pageCount;
     }
+
+    /**
+     * Gets the time and memory spent processing the page-sequence. The metrics cover
+     * everything done since the previous page-sequence was finished.
+     *
+     * @return the formatting metrics or null if they weren't recorded
+     */
+    public FormattingMetrics getMetrics() {
+        return this.metrics;
+    }
 }
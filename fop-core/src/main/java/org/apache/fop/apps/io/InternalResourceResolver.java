@@ -19,13 +19,21 @@
 
 package org.apache.fop.apps.io;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.transform.Source;
 import javax.xml.transform.TransformerException;
@@ -45,6 +53,25 @@ public class InternalResourceResolver {
     private final URI baseUri;
     private final ResourceResolver resourceResolver;
     private final DataURIResolver dataSchemeResolver = new DataURIResolver();
+    /** Read-only mappings of local files, shared by all users of this resolver */
+    private final ConcurrentMap<URI, MappedFile> mappedFiles = new ConcurrentHashMap<URI, MappedFile>();
+    /** Mappings released by the garbage collector, whose entries are to be removed */
+    private final ReferenceQueue<ByteBuffer> releasedFiles = new ReferenceQueue<ByteBuffer>();
+
+    private static final class MappedFile extends SoftReference<ByteBuffer> {
+
+        private final URI uri;
+        private final long lastModified;
+        private final long length;
+
+        private MappedFile(URI uri, ByteBuffer buffer, long lastModified, long length,
+                ReferenceQueue<ByteBuffer> queue) {
+            super(buffer, queue);
+            this.uri = uri;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
 
     /**
      * @param baseUri the base URI from which to resolve relative URIs
@@ -94,6 +121,68 @@ public class InternalResourceResolver {
         return resourceResolver.getResource(resolveFromBase(uri));
     }
 
+    /**
+     * Returns a read-only memory-mapped buffer holding a local file. This is only possible for
+     * "file" URIs when no custom {@link ResourceResolver} controls the access to resources.
+     * A file is only mapped once and the mapping is shared by all callers of this resolver
+     * until it's no longer used or the file changes. Every caller receives its own view of
+     * the mapping so the buffer position can be changed independently. The entries of the
+     * mappings released by the garbage collector and of the files that no longer exist are
+     * removed, so only files in use are remembered.
+     *
+     * @param uri the resource URI
+     * @return the mapped file or null if the resource can't be mapped
+     * @throws IOException if an I/O error occurred
+     */
+    public ByteBuffer getMappedResource(URI uri) throws IOException {
+        if (resourceResolver != ResourceResolverFactory.createDefaultResourceResolver()) {
+            return null;
+        }
+        URI resolved = resolveFromBase(uri);
+        if (!"file".equals(resolved.getScheme())) {
+            return null;
+        }
+        File file;
+        try {
+            file = new File(resolved);
+        } catch (IllegalArgumentException iae) {
+            return null;
+        }
+        removeReleasedFiles();
+        long lastModified = file.lastModified();
+        long length = file.length();
+        if (!file.isFile() || length > Integer.MAX_VALUE) {
+            mappedFiles.remove(resolved);
+            return null;
+        }
+        MappedFile mapped = mappedFiles.get(resolved);
+        ByteBuffer buffer = null;
+        if (mapped != null && mapped.lastModified == lastModified && mapped.length == length) {
+            buffer = mapped.get();
+        }
+        if (buffer == null) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            }
+            //replaces the stale entry of a changed or released mapping
+            mappedFiles.put(resolved, new MappedFile(resolved, buffer, lastModified, length,
+                    releasedFiles));
+        }
+        return buffer.duplicate();
+    }
+
+    private void removeReleasedFiles() {
+        for (Object ref = releasedFiles.poll(); ref != null; ref = releasedFiles.poll()) {
+            MappedFile released = (MappedFile) ref;
+            mappedFiles.remove(released.uri, released);
+        }
+    }
+
+    /** @return the number of local files currently remembered as mapped */
+    int getMappedFileCount() {
+        return mappedFiles.size();
+    }
+
     /**
      * Returns the OutputStream for a given URI.
      *
@@ -19,6 +19,9 @@
 
 package org.apache.fop.area;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
@@ -105,25 +108,25 @@ public class Area extends AreaTreeObject implements Serializable {
      */
     public static final int CLASS_MAX = CLASS_SIDE_FLOAT + 1;
 
-    private int areaClass = CLASS_NORMAL;
+    private transient int areaClass = CLASS_NORMAL;
 
     /** the area's inline-progression-dimension */
-    protected int ipd;
+    protected transient int ipd;
 
     /** the area's block-progression-dimension */
-    protected int bpd;
+    protected transient int bpd;
 
-    protected int effectiveIPD = -1;
+    protected transient int effectiveIPD = -1;
 
     /**
      * Resolved bidirectional level for area.
      */
-    protected int bidiLevel = -1;
+    protected transient int bidiLevel = -1;
 
     /**
      * Traits for this area.
      */
-    protected TreeMap<Integer, Object> traits;
+    protected transient TreeMap<Integer, Object> traits;
 
     /**
      * logging instance
@@ -173,6 +176,26 @@ public class Area extends AreaTreeObject implements Serializable {
         return area;
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        PageObjectOutputStream.writeCompactInt(out, areaClass);
+        PageObjectOutputStream.writeCompactInt(out, ipd);
+        PageObjectOutputStream.writeCompactInt(out, bpd);
+        PageObjectOutputStream.writeCompactInt(out, effectiveIPD);
+        PageObjectOutputStream.writeCompactInt(out, bidiLevel);
+        PageObjectOutputStream.writeCompactTraits(out, traits);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        areaClass = PageObjectInputStream.readCompactInt(in);
+        ipd = PageObjectInputStream.readCompactInt(in);
+        bpd = PageObjectInputStream.readCompactInt(in);
+        effectiveIPD = PageObjectInputStream.readCompactInt(in);
+        bidiLevel = PageObjectInputStream.readCompactInt(in);
+        traits = PageObjectInputStream.readCompactTraits(in);
+    }
+
     /**
      * Set the area class of this area.
      *
@@ -31,6 +31,7 @@ import org.apache.commons.logging.LogFactory;
 
 import org.apache.fop.apps.FOPException;
 import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.FormattingMetrics;
 import org.apache.fop.apps.FormattingResults;
 import org.apache.fop.datatypes.Numeric;
 import org.apache.fop.fo.FOEventHandler;
@@ -83,7 +84,10 @@ public class AreaTreeHandler extends FOEventHandler {
     private Root rootFObj;
 
     // The formatting results to be handed back to the caller.
-    private FormattingResults results = new FormattingResults();
+    private FormattingResults results;
+
+    // The formatting metrics, null if they aren't recorded
+    private final FormattingMetrics metrics;
 
     private TopLevelLayoutManager prevPageSeqLM;
 
@@ -102,6 +106,9 @@ public class AreaTreeHandler extends FOEventHandler {
             OutputStream stream) throws FOPException {
         super(userAgent);
 
+        this.metrics = userAgent.getFormattingMetrics();
+        this.results = new FormattingResults(metrics);
+
         setupModel(userAgent, outputFormat, stream);
 
         this.lmMaker = userAgent.getLayoutManagerMakerOverride();
@@ -264,7 +271,7 @@ public class AreaTreeHandler extends FOEventHandler {
             PageSequenceLayoutManager pageSLM;
             pageSLM = getLayoutManagerMaker().makePageSequenceLayoutManager(
                     this, pageSequence);
-            pageSLM.activateLayout();
+            activateLayout(pageSLM);
             // preserve the current PageSequenceLayoutManger for the
             // force-page-count check at the beginning of the next PageSequence
             prevPageSeqLM = pageSLM;
@@ -286,13 +293,26 @@ public class AreaTreeHandler extends FOEventHandler {
 
         ExternalDocumentLayoutManager edLM;
         edLM = getLayoutManagerMaker().makeExternalDocumentLayoutManager(this, document);
-        edLM.activateLayout();
+        activateLayout(edLM);
         // preserve the current PageSequenceLayoutManger for the
         // force-page-count check at the beginning of the next PageSequence
         prevPageSeqLM = edLM;
 
     }
 
+    private void activateLayout(TopLevelLayoutManager pslm) {
+        if (metrics == null) {
+            pslm.activateLayout();
+        } else {
+            metrics.startPhase(FormattingMetrics.Phase.LAYOUT);
+            try {
+                pslm.activateLayout();
+            } finally {
+                metrics.endPhase(FormattingMetrics.Phase.LAYOUT);
+            }
+        }
+    }
+
     /**
      * Called by the PageSequenceLayoutManager when it is finished with a
      * page-sequence.
@@ -339,7 +359,16 @@ public class AreaTreeHandler extends FOEventHandler {
             }
             idTracker.signalIDProcessed(rootFObj.getId());
         }
-        model.endDocument();
+        if (metrics == null) {
+            model.endDocument();
+        } else {
+            metrics.startPhase(FormattingMetrics.Phase.RENDERING);
+            try {
+                model.endDocument();
+            } finally {
+                metrics.endPhase(FormattingMetrics.Phase.RENDERING);
+            }
+        }
 
         if (statistics != null) {
             statistics.logResults();
@@ -21,6 +21,8 @@ package org.apache.fop.area;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
@@ -29,7 +31,11 @@ import java.io.OutputStream;
 import java.net.URI;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 import org.xml.sax.SAXException;
 
@@ -46,11 +52,24 @@ import org.apache.fop.fonts.FontInfo;
  * If the page is prepared for later rendering then this saves
  * the page contents to a file and once the page is resolved
  * the contents are reloaded.
+ * <p>
+ * Pages are saved using a {@link PageObjectOutputStream}. If the user agent specifies a conserve
+ * memory buffer size, the pages are also compressed and the most recently saved pages are kept
+ * in memory up to that size; only the pages saved before are written to temporary files.
+ * Without a buffer, pages go to temporary files uncompressed, so the default conserve mode
+ * doesn't spend time on compression.</p>
  */
 public class CachedRenderPagesModel extends RenderPagesModel {
 
     private Map<PageViewport, URI> pageMap = new HashMap<PageViewport, URI>();
 
+    /** Pages kept in memory, in the order they were saved */
+    private final Map<PageViewport, byte[]> bufferedPages = new LinkedHashMap<PageViewport, byte[]>();
+    private final long bufferSize;
+    private long bufferedSize;
+    /** true if the pages are compressed, which is the case if they're buffered in memory */
+    private final boolean compressed;
+
     /** Base directory to save temporary file in, typically points to the user's temp dir. */
     private final URI tempBaseURI;
     private static final TempResourceURIGenerator TEMP_URI_GENERATOR
@@ -68,6 +87,8 @@ public class CachedRenderPagesModel extends RenderPagesModel {
             FontInfo fontInfo, OutputStream stream) throws FOPException {
         super(userAgent, outputFormat, fontInfo, stream);
         tempBaseURI = TEMP_URI_GENERATOR.generate();
+        bufferSize = userAgent.getConserveMemoryBufferSize();
+        compressed = bufferSize > 0;
     }
 
     /** {@inheritDoc} */
@@ -79,17 +100,7 @@ public class CachedRenderPagesModel extends RenderPagesModel {
                 if (pageViewport != newpage) {
                     try {
                         // load page from cache
-                        URI tempURI = pageMap.get(pageViewport);
-                        log.debug("Loading page from: " + tempURI);
-                        InputStream inStream = renderer.getUserAgent().getResourceResolver().getResource(tempURI);
-                        ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(inStream));
-                        try {
-                            pageViewport.loadPage(in);
-                        } finally {
-                            IOUtils.closeQuietly(inStream);
-                            IOUtils.closeQuietly(in);
-                        }
-                        pageMap.remove(pageViewport);
+                        loadPage(pageViewport);
                     } catch (Exception e) {
                         AreaEventProducer eventProducer = AreaEventProducer.Provider.get(
                                 renderer.getUserAgent().getEventBroadcaster());
@@ -113,28 +124,68 @@ public class CachedRenderPagesModel extends RenderPagesModel {
         return renderer.supportsOutOfOrder() || prepared.isEmpty();
     }
 
+    private void loadPage(PageViewport pageViewport) throws IOException, ClassNotFoundException {
+        InputStream inStream;
+        byte[] data = bufferedPages.remove(pageViewport);
+        if (data != null) {
+            bufferedSize -= data.length;
+            log.debug("Loading page from memory buffer");
+            inStream = new ByteArrayInputStream(data);
+        } else {
+            URI tempURI = pageMap.get(pageViewport);
+            log.debug("Loading page from: " + tempURI);
+            inStream = new BufferedInputStream(
+                    renderer.getUserAgent().getResourceResolver().getResource(tempURI));
+        }
+        ObjectInputStream in = null;
+        try {
+            in = new PageObjectInputStream(compressed ? new InflaterInputStream(inStream) : inStream);
+            pageViewport.loadPage(in);
+        } finally {
+            IOUtils.closeQuietly(inStream);
+            IOUtils.closeQuietly(in);
+        }
+        pageMap.remove(pageViewport);
+    }
+
     /**
      * Save a page.
-     * It saves the contents of the page to a file.
+     * It saves the contents of the page to a file or to the memory buffer.
      *
      * @param page the page to prepare
      */
     protected void savePage(PageViewport page) {
         try {
-            // save page to cache
-            ObjectOutputStream tempstream;
-            String fname = "/fop-page-" + page.getPageIndex() + ".ser";
-            URI tempURI = URI.create(tempBaseURI + fname);
-            OutputStream outStream = renderer.getUserAgent().getResourceResolver().getOutputStream(tempURI);
-            tempstream = new ObjectOutputStream(new BufferedOutputStream(outStream));
-            try {
-                page.savePage(tempstream);
-            } finally {
-                IOUtils.closeQuietly(tempstream);
-            }
-            pageMap.put(page, tempURI);
-            if (log.isDebugEnabled()) {
-                log.debug("Page saved to temporary file: " + tempURI);
+            if (bufferSize > 0) {
+                ByteArrayOutputStream bout = new ByteArrayOutputStream();
+                writePage(page, bout);
+                byte[] data = bout.toByteArray();
+                // make room by moving the pages saved first to temporary files
+                Iterator<Map.Entry<PageViewport, byte[]>> iter = bufferedPages.entrySet().iterator();
+                while (bufferedSize + data.length > bufferSize && iter.hasNext()) {
+                    Map.Entry<PageViewport, byte[]> entry = iter.next();
+                    iter.remove();
+                    bufferedSize -= entry.getValue().length;
+                    spillPage(entry.getKey(), entry.getValue());
+                }
+                if (bufferedSize + data.length <= bufferSize) {
+                    bufferedPages.put(page, data);
+                    bufferedSize += data.length;
+                    if (log.isDebugEnabled()) {
+                        log.debug("Page saved to memory buffer (" + data.length + " bytes)");
+                    }
+                } else {
+                    spillPage(page, data);
+                }
+            } else {
+                URI tempURI = createTempURI(page);
+                OutputStream outStream = renderer.getUserAgent().getResourceResolver()
+                        .getOutputStream(tempURI);
+                writePage(page, new BufferedOutputStream(outStream));
+                pageMap.put(page, tempURI);
+                if (log.isDebugEnabled()) {
+                    log.debug("Page saved to temporary file: " + tempURI);
+                }
             }
         } catch (IOException ioe) {
             AreaEventProducer eventProducer
@@ -144,10 +195,48 @@ public class CachedRenderPagesModel extends RenderPagesModel {
         }
     }
 
+    private URI createTempURI(PageViewport page) {
+        String fname = "/fop-page-" + page.getPageIndex() + ".ser";
+        return URI.create(tempBaseURI + fname);
+    }
+
+    private void writePage(PageViewport page, OutputStream outStream) throws IOException {
+        Deflater deflater = compressed ? new Deflater(Deflater.BEST_SPEED) : null;
+        ObjectOutputStream tempstream = null;
+        try {
+            tempstream = new PageObjectOutputStream(compressed
+                    ? new DeflaterOutputStream(outStream, deflater) : outStream);
+            page.savePage(tempstream);
+            tempstream.close();
+        } finally {
+            IOUtils.closeQuietly(tempstream);
+            IOUtils.closeQuietly(outStream);
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    private void spillPage(PageViewport page, byte[] data) throws IOException {
+        URI tempURI = createTempURI(page);
+        OutputStream outStream = renderer.getUserAgent().getResourceResolver().getOutputStream(tempURI);
+        try {
+            outStream.write(data);
+        } finally {
+            IOUtils.closeQuietly(outStream);
+        }
+        pageMap.put(page, tempURI);
+        if (log.isDebugEnabled()) {
+            log.debug("Page moved from memory buffer to temporary file: " + tempURI);
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public void endDocument() throws SAXException {
         super.endDocument();
+        bufferedPages.clear();
+        bufferedSize = 0;
     }
 }
 
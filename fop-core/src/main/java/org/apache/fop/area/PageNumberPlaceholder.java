@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.area;
+
+import java.util.List;
+
+/**
+ * Stands in for an unresolved page number citation on a page that has already been rendered.
+ * The renderer emitted a placeholder for the citation and patches in the page number once
+ * it's known. Unlike {@link org.apache.fop.area.inline.UnresolvedPageNumber} this object
+ * doesn't reference the area tree, so the contents of the page can be released right after
+ * rendering.
+ */
+public class PageNumberPlaceholder implements Resolvable {
+
+    /** The text used for a citation whose target never got resolved. */
+    public static final String UNRESOLVED_TEXT = "?";
+
+    private final String pageIDRef;
+    private final boolean pageType;
+    private String text;
+
+    /**
+     * Creates a new placeholder.
+     * @param pageIDRef the id reference of the citation
+     * @param pageType {@link org.apache.fop.area.inline.UnresolvedPageNumber#FIRST} or
+     * {@link org.apache.fop.area.inline.UnresolvedPageNumber#LAST}
+     */
+    public PageNumberPlaceholder(String pageIDRef, boolean pageType) {
+        this.pageIDRef = pageIDRef;
+        this.pageType = pageType;
+    }
+
+    /** {@inheritDoc} */
+    public boolean isResolved() {
+        return text != null;
+    }
+
+    /** {@inheritDoc} */
+    public String[] getIDRefs() {
+        return new String[] {pageIDRef};
+    }
+
+    /** {@inheritDoc} */
+    public void resolveIDRef(String id, List<PageViewport> pages) {
+        if (text == null && pageIDRef.equals(id) && pages != null && !pages.isEmpty()) {
+            PageViewport page = pages.get(pageType ? 0 : pages.size() - 1);
+            text = page.getPageNumberString();
+        }
+    }
+
+    /**
+     * Returns a key identifying the cited page. Placeholders with the same key always resolve
+     * to the same page number.
+     * @return the key
+     */
+    public String getKey() {
+        return (pageType ? "first:" : "last:") + pageIDRef;
+    }
+
+    /**
+     * Returns the page number to patch into the placeholder.
+     * @return the page number or {@link #UNRESOLVED_TEXT} if the citation wasn't resolved
+     */
+    public String getText() {
+        return (text != null) ? text : UNRESOLVED_TEXT;
+    }
+}
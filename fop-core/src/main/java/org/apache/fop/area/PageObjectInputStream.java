@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+package org.apache.fop.area;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.apache.fop.fonts.FontTriplet;
+
+/**
+ * Object input stream used to load the pages of the area tree saved with a
+ * {@link PageObjectOutputStream}.
+ */
+public final class PageObjectInputStream extends ObjectInputStream {
+
+    private final List<String> strings = new ArrayList<String>();
+
+    private final List<FontTriplet> fontTriplets = new ArrayList<FontTriplet>();
+
+    /**
+     * Creates a new stream.
+     * @param in the underlying input stream
+     * @throws IOException if an I/O error occurs while reading the stream header
+     */
+    public PageObjectInputStream(InputStream in) throws IOException {
+        super(in);
+    }
+
+    /**
+     * Reads a non-negative integer.
+     * @return the value
+     * @throws IOException if an I/O error occurs
+     * @see PageObjectOutputStream#writeVarInt(int)
+     */
+    public int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Malformed variable-length integer");
+    }
+
+    /**
+     * Reads a string.
+     * @return the string (may be null)
+     * @throws IOException if an I/O error occurs
+     * @see PageObjectOutputStream#writeSharedString(String)
+     */
+    public String readSharedString() throws IOException {
+        int index = readVarInt();
+        if (index == 0) {
+            return null;
+        } else if (index > 1) {
+            if (index - 2 >= strings.size()) {
+                throw new StreamCorruptedException("Invalid string reference: " + index);
+            }
+            return strings.get(index - 2);
+        }
+        int length = readVarInt();
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) readVarInt();
+        }
+        String s = new String(chars);
+        strings.add(s);
+        return s;
+    }
+
+    /**
+     * Reads a positive or negative integer.
+     * @return the value
+     * @throws IOException if an I/O error occurs
+     * @see PageObjectOutputStream#writeSignedVarInt(int)
+     */
+    public int readSignedVarInt() throws IOException {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads a font triplet. Repetitions within the stream return the same instance.
+     * @return the font triplet (may be null)
+     * @throws IOException if an I/O error occurs
+     * @see PageObjectOutputStream#writeFontTriplet(FontTriplet)
+     */
+    public FontTriplet readFontTriplet() throws IOException {
+        int index = readVarInt();
+        if (index == 0) {
+            return null;
+        } else if (index > 1) {
+            if (index - 2 >= fontTriplets.size()) {
+                throw new StreamCorruptedException("Invalid font triplet reference: " + index);
+            }
+            return fontTriplets.get(index - 2);
+        }
+        String name = readSharedString();
+        String style = readSharedString();
+        int weight = readVarInt();
+        FontTriplet triplet = new FontTriplet(name, style, weight, readSignedVarInt());
+        fontTriplets.add(triplet);
+        return triplet;
+    }
+
+    /**
+     * Reads the traits of an area.
+     * @return the traits (may be null)
+     * @throws IOException if an I/O error occurs
+     * @throws ClassNotFoundException if the class of a serialized trait value is not found
+     * @see PageObjectOutputStream#writeTraits(java.util.Map)
+     */
+    public TreeMap<Integer, Object> readTraits() throws IOException, ClassNotFoundException {
+        int size = readVarInt() - 1;
+        if (size < 0) {
+            return null;
+        }
+        TreeMap<Integer, Object> traits = new TreeMap<Integer, Object>();
+        for (int i = 0; i < size; i++) {
+            Integer key = readVarInt();
+            int type = readVarInt();
+            switch (type) {
+            case PageObjectOutputStream.TRAIT_INTEGER:
+                traits.put(key, readSignedVarInt());
+                break;
+            case PageObjectOutputStream.TRAIT_TRUE:
+                traits.put(key, Boolean.TRUE);
+                break;
+            case PageObjectOutputStream.TRAIT_FALSE:
+                traits.put(key, Boolean.FALSE);
+                break;
+            case PageObjectOutputStream.TRAIT_STRING:
+                traits.put(key, readSharedString());
+                break;
+            case PageObjectOutputStream.TRAIT_FONT:
+                traits.put(key, readFontTriplet());
+                break;
+            case PageObjectOutputStream.TRAIT_OBJECT:
+                traits.put(key, readObject());
+                break;
+            default:
+                throw new StreamCorruptedException("Invalid trait value type: " + type);
+            }
+        }
+        return traits;
+    }
+
+    /**
+     * Reads an integer field of an area.
+     * @param in the stream
+     * @return the value
+     * @throws IOException if an I/O error occurs
+     * @see PageObjectOutputStream#writeCompactInt(java.io.ObjectOutputStream, int)
+     */
+    public static int readCompactInt(ObjectInputStream in) throws IOException {
+        if (in instanceof PageObjectInputStream) {
+            return ((PageObjectInputStream) in).readSignedVarInt();
+        } else {
+            return in.readInt();
+        }
+    }
+
+    /**
+     * Reads the traits of an area.
+     * @param in the stream
+     * @return the traits (may be null)
+     * @throws IOException if an I/O error occurs
+     * @throws ClassNotFoundException if the class of a serialized trait value is not found
+     * @see PageObjectOutputStream#writeCompactTraits(java.io.ObjectOutputStream, java.util.Map)
+     */
+    @SuppressWarnings("unchecked")
+    public static TreeMap<Integer, Object> readCompactTraits(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        if (in instanceof PageObjectInputStream) {
+            return ((PageObjectInputStream) in).readTraits();
+        } else {
+            return (TreeMap<Integer, Object>) in.readObject();
+        }
+    }
+
+    /**
+     * Reads an array of integers.
+     * @return the values (may be null)
+     * @throws IOException if an I/O error occurs
+     * @see PageObjectOutputStream#writeIntArray(int[])
+     */
+    public int[] readIntArray() throws IOException {
+        int length = readVarInt() - 1;
+        if (length < 0) {
+            return null;
+        }
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = readSignedVarInt();
+        }
+        return values;
+    }
+
+    /**
+     * Reads a two-dimensional array of integers.
+     * @return the values (may be null)
+     * @throws IOException if an I/O error occurs
+     * @see PageObjectOutputStream#writeIntArrays(int[][])
+     */
+    public int[][] readIntArrays() throws IOException {
+        int length = readVarInt() - 1;
+        if (length < 0) {
+            return null;
+        }
+        int[][] values = new int[length][];
+        for (int i = 0; i < length; i++) {
+            values[i] = readIntArray();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+package org.apache.fop.area;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.fop.fonts.FontTriplet;
+
+/**
+ * Object output stream used to save the pages of the area tree in conserve mode. Besides the
+ * standard serialization it offers a compact encoding for the data area classes hold in large
+ * numbers: variable-length integers, a table of shared strings, a table of the font triplets
+ * and an encoding of the trait maps that avoids serializing the map and its boxed values. The
+ * area classes use it in their <code>writeObject()</code> methods through
+ * {@link #writeCompactInt(ObjectOutputStream, int)} and
+ * {@link #writeCompactTraits(ObjectOutputStream, Map)}, which fall back to the standard
+ * serialization on other streams. Pages written with this stream must be read back with a
+ * {@link PageObjectInputStream}.
+ */
+public final class PageObjectOutputStream extends ObjectOutputStream {
+
+    /** Trait value written as a variable-length integer */
+    static final int TRAIT_INTEGER = 0;
+    /** Trait value {@link Boolean#TRUE} */
+    static final int TRAIT_TRUE = 1;
+    /** Trait value {@link Boolean#FALSE} */
+    static final int TRAIT_FALSE = 2;
+    /** Trait value written as a shared string */
+    static final int TRAIT_STRING = 3;
+    /** Trait value written as a reference into the font triplet table */
+    static final int TRAIT_FONT = 4;
+    /** Trait value written with the standard serialization */
+    static final int TRAIT_OBJECT = 5;
+
+    private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+    private final Map<FontTriplet, Integer> fontTriplets
+            = new IdentityHashMap<FontTriplet, Integer>();
+
+    /**
+     * Creates a new stream.
+     * @param out the underlying output stream
+     * @throws IOException if an I/O error occurs while writing the stream header
+     */
+    public PageObjectOutputStream(OutputStream out) throws IOException {
+        super(out);
+    }
+
+    /**
+     * Writes a non-negative integer using one byte for each 7 bits.
+     * @param value the value
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        write(value);
+    }
+
+    /**
+     * Writes a string. Each distinct string is only written once per stream, repetitions are
+     * written as references to the first occurrence.
+     * @param s the string (may be null)
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeSharedString(String s) throws IOException {
+        if (s == null) {
+            writeVarInt(0);
+            return;
+        }
+        Integer index = strings.get(s);
+        if (index != null) {
+            writeVarInt(index + 2);
+        } else {
+            strings.put(s, strings.size());
+            writeVarInt(1);
+            writeVarInt(s.length());
+            for (int i = 0, n = s.length(); i < n; i++) {
+                writeVarInt(s.charAt(i));
+            }
+        }
+    }
+
+    /**
+     * Writes a positive or negative integer, values between -64 and 63 take a single byte.
+     * @param value the value
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeSignedVarInt(int value) throws IOException {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Writes a font triplet. Each triplet instance is only written once per stream,
+     * repetitions are written as references to the first occurrence.
+     * @param triplet the font triplet (may be null)
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeFontTriplet(FontTriplet triplet) throws IOException {
+        if (triplet == null) {
+            writeVarInt(0);
+            return;
+        }
+        Integer index = fontTriplets.get(triplet);
+        if (index != null) {
+            writeVarInt(index + 2);
+        } else {
+            fontTriplets.put(triplet, fontTriplets.size());
+            writeVarInt(1);
+            writeSharedString(triplet.getName());
+            writeSharedString(triplet.getStyle());
+            writeVarInt(triplet.getWeight());
+            writeSignedVarInt(triplet.getPriority());
+        }
+    }
+
+    /**
+     * Writes the traits of an area. The keys and the integer, boolean, string and font
+     * values are written with the compact encoding, the other values (colors, borders,
+     * backgrounds, links...) with the standard serialization.
+     * @param traits the traits (may be null)
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTraits(Map<Integer, Object> traits) throws IOException {
+        if (traits == null) {
+            writeVarInt(0);
+            return;
+        }
+        writeVarInt(traits.size() + 1);
+        for (Map.Entry<Integer, Object> entry : traits.entrySet()) {
+            writeVarInt(entry.getKey());
+            Object value = entry.getValue();
+            if (value instanceof Integer) {
+                writeVarInt(TRAIT_INTEGER);
+                writeSignedVarInt((Integer) value);
+            } else if (value instanceof Boolean) {
+                writeVarInt((Boolean) value ? TRAIT_TRUE : TRAIT_FALSE);
+            } else if (value instanceof String) {
+                writeVarInt(TRAIT_STRING);
+                writeSharedString((String) value);
+            } else if (value instanceof FontTriplet) {
+                writeVarInt(TRAIT_FONT);
+                writeFontTriplet((FontTriplet) value);
+            } else {
+                writeVarInt(TRAIT_OBJECT);
+                writeObject(value);
+            }
+        }
+    }
+
+    /**
+     * Writes an integer field of an area: compactly on a page stream, with
+     * {@link ObjectOutputStream#writeInt(int)} on any other stream.
+     * @param out the stream
+     * @param value the value
+     * @throws IOException if an I/O error occurs
+     * @see PageObjectInputStream#readCompactInt(java.io.ObjectInputStream)
+     */
+    public static void writeCompactInt(ObjectOutputStream out, int value) throws IOException {
+        if (out instanceof PageObjectOutputStream) {
+            ((PageObjectOutputStream) out).writeSignedVarInt(value);
+        } else {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Writes the traits of an area: compactly on a page stream, as a serialized map on any
+     * other stream.
+     * @param out the stream
+     * @param traits the traits (may be null)
+     * @throws IOException if an I/O error occurs
+     * @see PageObjectInputStream#readCompactTraits(java.io.ObjectInputStream)
+     */
+    public static void writeCompactTraits(ObjectOutputStream out, Map<Integer, Object> traits)
+            throws IOException {
+        if (out instanceof PageObjectOutputStream) {
+            ((PageObjectOutputStream) out).writeTraits(traits);
+        } else {
+            out.writeObject(traits);
+        }
+    }
+
+    /**
+     * Writes an array of integers, small values (positive or negative) take a single byte.
+     * @param values the values (may be null)
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeIntArray(int[] values) throws IOException {
+        if (values == null) {
+            writeVarInt(0);
+            return;
+        }
+        writeVarInt(values.length + 1);
+        for (int value : values) {
+            writeSignedVarInt(value);
+        }
+    }
+
+    /**
+     * Writes a two-dimensional array of integers.
+     * @param values the values (may be null, as may be the nested arrays)
+     * @throws IOException if an I/O error occurs
+     * @see #writeIntArray(int[])
+     */
+    public void writeIntArrays(int[][] values) throws IOException {
+        if (values == null) {
+            writeVarInt(0);
+            return;
+        }
+        writeVarInt(values.length + 1);
+        for (int[] value : values) {
+            writeIntArray(value);
+        }
+    }
+}
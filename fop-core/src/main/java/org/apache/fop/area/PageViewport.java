@@ -33,6 +33,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.apache.fop.apps.FOPException;
+import org.apache.fop.area.inline.UnresolvedPageNumber;
 import org.apache.fop.fo.flow.AbstractRetrieveMarker;
 import org.apache.fop.fo.flow.Marker;
 import org.apache.fop.fo.flow.Markers;
@@ -79,6 +80,9 @@ public class PageViewport extends AreaTreeObject implements Resolvable {
 
     private Map<String, List<PageViewport>> pendingResolved;
 
+    // true once the unresolved page number citations were replaced by placeholders
+    private boolean placeholdersDetached;
+
     private Markers pageMarkers;
 
     /**
@@ -323,6 +327,25 @@ public class PageViewport extends AreaTreeObject implements Resolvable {
             || unresolvedIDRefs.size() == 0;
     }
 
+    /**
+     * Indicates whether all idrefs still unresolved on this page belong to page number
+     * citations, so the page can be rendered with placeholders for them.
+     * @return true if only page number citations are unresolved
+     */
+    public boolean hasOnlyUnresolvedPageNumbers() {
+        if (unresolvedIDRefs == null) {
+            return true;
+        }
+        for (List<Resolvable> resolvables : unresolvedIDRefs.values()) {
+            for (Resolvable res : resolvables) {
+                if (!(res instanceof UnresolvedPageNumber)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     /**
      * Get the unresolved idrefs for this page.
      * @return String array of idref's that still have not been resolved
@@ -335,7 +358,7 @@ public class PageViewport extends AreaTreeObject implements Resolvable {
 
     /** {@inheritDoc} */
     public void resolveIDRef(String id, List<PageViewport> pages) {
-        if (page == null) {
+        if (page == null && !placeholdersDetached) {
             if (pendingResolved == null) {
                 pendingResolved = new HashMap<String, List<PageViewport>>();
             }
@@ -442,9 +465,23 @@ public class PageViewport extends AreaTreeObject implements Resolvable {
      * Clear the page contents to save memory.
      * This object is kept for the life of the area tree since
      * it holds id and marker information and is used as a key.
+     * Page number citations that were rendered as placeholders are replaced by their
+     * {@link PageNumberPlaceholder} so they can still be resolved.
      */
     public void clear() {
         page = null;
+        if (unresolvedIDRefs != null) {
+            for (List<Resolvable> resolvables : unresolvedIDRefs.values()) {
+                for (int i = 0; i < resolvables.size(); i++) {
+                    Resolvable res = resolvables.get(i);
+                    if (res instanceof UnresolvedPageNumber
+                            && ((UnresolvedPageNumber) res).getPlaceholder() != null) {
+                        resolvables.set(i, ((UnresolvedPageNumber) res).getPlaceholder());
+                        placeholdersDetached = true;
+                    }
+                }
+            }
+        }
     }
 
     /** {@inheritDoc} */
@@ -30,6 +30,7 @@ import org.xml.sax.SAXException;
 
 import org.apache.fop.apps.FOPException;
 import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.FormattingMetrics;
 import org.apache.fop.fonts.FontInfo;
 import org.apache.fop.render.Renderer;
 import org.apache.fop.render.RendererEventProducer;
@@ -56,6 +57,8 @@ public class RenderPagesModel extends AreaTreeModel {
     private List<OffDocumentItem> pendingODI = new java.util.ArrayList<OffDocumentItem>();
     private List<OffDocumentItem> endDocODI = new java.util.ArrayList<OffDocumentItem>();
 
+    private final FormattingMetrics metrics;
+
     /**
      * Create a new render pages model with the given renderer.
      * @param userAgent FOUserAgent object for process
@@ -70,6 +73,7 @@ public class RenderPagesModel extends AreaTreeModel {
         super();
         this.renderer = userAgent.getRendererFactory().createRenderer(
                 userAgent, outputFormat);
+        this.metrics = userAgent.getFormattingMetrics();
 
         try {
             renderer.setupFontInfo(fontInfo);
@@ -108,13 +112,29 @@ public class RenderPagesModel extends AreaTreeModel {
      */
     @Override
     public void addPage(PageViewport page) {
+        if (metrics == null) {
+            addAndRenderPage(page);
+        } else {
+            metrics.startPhase(FormattingMetrics.Phase.RENDERING);
+            try {
+                addAndRenderPage(page);
+            } finally {
+                metrics.endPhase(FormattingMetrics.Phase.RENDERING);
+            }
+        }
+    }
+
+    private void addAndRenderPage(PageViewport page) {
         super.addPage(page);
 
         // for links the renderer needs to prepare the page
         // it is more appropriate to do this after queued pages but
         // it will mean that the renderer has not prepared a page that
         // could be referenced
-        boolean ready = renderer.supportsOutOfOrder() && page.isResolved();
+        // with page number placeholders, pages only waiting for page number citations
+        // can be rendered as well
+        boolean ready = renderer.supportsOutOfOrder() && (page.isResolved()
+                || (renderer.supportsPageNumberPlaceholders() && page.hasOnlyUnresolvedPageNumbers()));
         if (ready) {
             if (!renderer.supportsOutOfOrder() && page.getPageSequence().isFirstPage(page)) {
                 renderer.startPageSequence(getCurrentPageSequence());
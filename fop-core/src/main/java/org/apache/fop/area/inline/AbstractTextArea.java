@@ -19,6 +19,13 @@
 
 package org.apache.fop.area.inline;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.apache.fop.area.PageObjectInputStream;
+import org.apache.fop.area.PageObjectOutputStream;
+
 /**
  * Abstract base class for both TextArea and Character.
  */
@@ -54,10 +61,10 @@ public abstract class AbstractTextArea extends InlineParent {
         }
     }
 
-    private int textWordSpaceAdjust;
-    private int textLetterSpaceAdjust;
+    private transient int textWordSpaceAdjust;
+    private transient int textLetterSpaceAdjust;
     private TextAdjustingInfo textAdjustingInfo;
-    private int baselineOffset;
+    private transient int baselineOffset;
 
     /**
      * Default constructor
@@ -197,4 +204,18 @@ public abstract class AbstractTextArea extends InlineParent {
         /* Word and space areas don't have a properly set bpd; return this area's bpd instead. */
         return getBPD();
     }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        PageObjectOutputStream.writeCompactInt(out, textWordSpaceAdjust);
+        PageObjectOutputStream.writeCompactInt(out, textLetterSpaceAdjust);
+        PageObjectOutputStream.writeCompactInt(out, baselineOffset);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        textWordSpaceAdjust = PageObjectInputStream.readCompactInt(in);
+        textLetterSpaceAdjust = PageObjectInputStream.readCompactInt(in);
+        baselineOffset = PageObjectInputStream.readCompactInt(in);
+    }
 }
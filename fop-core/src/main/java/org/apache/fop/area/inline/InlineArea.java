@@ -19,11 +19,16 @@
 
 package org.apache.fop.area.inline;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.List;
 
 import org.apache.fop.area.Area;
 import org.apache.fop.area.LineArea;
+import org.apache.fop.area.PageObjectInputStream;
+import org.apache.fop.area.PageObjectOutputStream;
 import org.apache.fop.area.Trait;
 import org.apache.fop.complexscripts.bidi.InlineRun;
 
@@ -82,7 +87,7 @@ public class InlineArea extends Area {
     /**
      * offset position from before edge of parent area
      */
-    protected int blockProgressionOffset;
+    protected transient int blockProgressionOffset;
 
     /**
      * parent area
@@ -96,7 +101,7 @@ public class InlineArea extends Area {
      * been added and cannot notify its parent area, store the variation
      * and wait for the parent area to be set
      */
-    private int storedIPDVariation;
+    private transient int storedIPDVariation;
 
     /**
      * The adjustment information object
@@ -348,4 +353,16 @@ public class InlineArea extends Area {
         return false;
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        PageObjectOutputStream.writeCompactInt(out, blockProgressionOffset);
+        PageObjectOutputStream.writeCompactInt(out, storedIPDVariation);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        blockProgressionOffset = PageObjectInputStream.readCompactInt(in);
+        storedIPDVariation = PageObjectInputStream.readCompactInt(in);
+    }
+
 }
@@ -21,10 +21,13 @@ package org.apache.fop.area.inline;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.fop.area.Area;
+import org.apache.fop.area.PageObjectInputStream;
+import org.apache.fop.area.PageObjectOutputStream;
 
 /**
  * Inline parent area.
@@ -43,17 +46,25 @@ public class InlineParent extends InlineArea {
     protected transient boolean autoSize;
 
     /** The offset of the beforest child area of this area. */
-    protected int minChildOffset;
+    protected transient int minChildOffset;
 
     /**
      * The offset of the afterest child area of this area. Offset from the
      * before-edge of this area's content-rectangle and the after-edge of the child area's
      * allocation-rectangle.
      */
-    private int maxAfterEdge;
+    private transient int maxAfterEdge;
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        PageObjectOutputStream.writeCompactInt(out, minChildOffset);
+        PageObjectOutputStream.writeCompactInt(out, maxAfterEdge);
+    }
 
     private void readObject(ObjectInputStream ois) throws ClassNotFoundException, IOException {
         ois.defaultReadObject();
+        minChildOffset = PageObjectInputStream.readCompactInt(ois);
+        maxAfterEdge = PageObjectInputStream.readCompactInt(ois);
     }
 
     @Override
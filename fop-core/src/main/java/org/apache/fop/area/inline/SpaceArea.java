@@ -19,6 +19,13 @@
 
 package org.apache.fop.area.inline;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.apache.fop.area.PageObjectInputStream;
+import org.apache.fop.area.PageObjectOutputStream;
+
 /**
  * A space
  */
@@ -29,7 +36,7 @@ public class SpaceArea extends InlineArea {
     /**
      * The space for this space area
      */
-    protected char space;
+    protected transient char space;
 
     /**
      * Is this space adjustable?
@@ -59,4 +66,14 @@ public class SpaceArea extends InlineArea {
         return this.isAdjustable;
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        PageObjectOutputStream.writeCompactInt(out, space);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        space = (char) PageObjectInputStream.readCompactInt(in);
+    }
+
 }
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.util.List;
 
+import org.apache.fop.area.PageNumberPlaceholder;
 import org.apache.fop.area.PageViewport;
 import org.apache.fop.area.Resolvable;
 import org.apache.fop.complexscripts.bidi.InlineRun;
@@ -50,6 +51,7 @@ public class UnresolvedPageNumber extends TextArea implements Resolvable {
 
     //Transient fields
     private transient Font font;
+    private transient PageNumberPlaceholder placeholder;
 
     public UnresolvedPageNumber() {
         this(null, null, FIRST);
@@ -139,6 +141,26 @@ public class UnresolvedPageNumber extends TextArea implements Resolvable {
         }
     }
 
+    /**
+     * Returns the placeholder that stands in for this citation after its page has been
+     * rendered before the citation could be resolved, creating it on first use.
+     * @return the placeholder
+     */
+    public PageNumberPlaceholder createPlaceholder() {
+        if (placeholder == null) {
+            placeholder = new PageNumberPlaceholder(pageIDRef, pageType);
+        }
+        return placeholder;
+    }
+
+    /**
+     * Returns the placeholder rendered for this citation.
+     * @return the placeholder or null if the citation wasn't rendered as a placeholder
+     */
+    public PageNumberPlaceholder getPlaceholder() {
+        return placeholder;
+    }
+
     /**
      * Check if this is resolved.
      *
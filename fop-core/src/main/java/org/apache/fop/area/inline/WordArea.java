@@ -19,9 +19,14 @@
 
 package org.apache.fop.area.inline;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.fop.area.PageObjectInputStream;
+import org.apache.fop.area.PageObjectOutputStream;
 import org.apache.fop.complexscripts.bidi.InlineRun;
 import org.apache.fop.complexscripts.util.CharMirror;
 
@@ -33,21 +38,21 @@ public class WordArea extends InlineArea {
     private static final long serialVersionUID = 6444644662158970942L;
 
     /** The text for this word area */
-    protected String word;
+    protected transient String word;
 
     /** An array of width for adjusting the individual letters (optional) */
-    protected int[] letterAdjust;
+    protected transient int[] letterAdjust;
 
     /**
      * An array of resolved bidirectional levels corresponding to each character
      * in word (optional)
      */
-    protected int[] levels;
+    protected transient int[] levels;
 
     /**
      * An array of glyph positioning adjustments to apply to each glyph 'char' in word (optional)
      */
-    protected int[][] gposAdjustments;
+    protected transient int[][] gposAdjustments;
 
     /**
      * A flag indicating whether the content of word is reversed in relation to
@@ -289,6 +294,39 @@ public class WordArea extends InlineArea {
         }
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        if (out instanceof PageObjectOutputStream) {
+            // compact encoding for conserve mode, word areas are the most numerous areas
+            PageObjectOutputStream pout = (PageObjectOutputStream) out;
+            pout.writeSharedString(word);
+            pout.writeIntArray(letterAdjust);
+            pout.writeIntArray(levels);
+            pout.writeIntArrays(gposAdjustments);
+        } else {
+            out.writeObject(word);
+            out.writeObject(letterAdjust);
+            out.writeObject(levels);
+            out.writeObject(gposAdjustments);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (in instanceof PageObjectInputStream) {
+            PageObjectInputStream pin = (PageObjectInputStream) in;
+            word = pin.readSharedString();
+            letterAdjust = pin.readIntArray();
+            levels = pin.readIntArray();
+            gposAdjustments = pin.readIntArrays();
+        } else {
+            word = (String) in.readObject();
+            letterAdjust = (int[]) in.readObject();
+            levels = (int[]) in.readObject();
+            gposAdjustments = (int[][]) in.readObject();
+        }
+    }
+
     private static int[] maybePopulateLevels(int[] levels, int level, int count) {
         if ((levels == null) && (level >= 0)) {
             levels = new int[count];
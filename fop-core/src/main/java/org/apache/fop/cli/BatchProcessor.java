@@ -0,0 +1,316 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.cli;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.transform.Templates;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+
+import org.apache.fop.apps.FOPException;
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.MimeConstants;
+
+/**
+ * Processes a list of jobs (input/stylesheet/output file triples) with a single
+ * configuration on a pool of worker threads. All jobs share the FopFactory set up by
+ * {@link CommandLineOptions} (and therefore the parsed configuration, the font cache and
+ * the image cache) as well as the compiled XSLT stylesheets.
+ * <p>
+ * Each non-empty line of the job list that doesn't start with '#' describes one job: either
+ * "infile outfile" for FO input or "xmlfile xslfile outfile" for XML+XSLT input. The fields
+ * are separated by spaces or tabs; a path containing whitespace is enclosed in double quotes.
+ * Relative paths are resolved against the current directory.</p>
+ */
+public class BatchProcessor {
+
+    private final CommandLineOptions options;
+    private final PrintStream out;
+    private final Log log;
+
+    private final Map<File, Templates> templatesCache = new ConcurrentHashMap<File, Templates>();
+
+    /**
+     * Creates a new batch processor.
+     * @param options the parsed command-line options (must be in batch mode)
+     * @param out the stream the job timings and the summary are printed to
+     */
+    public BatchProcessor(CommandLineOptions options, PrintStream out) {
+        this.options = options;
+        this.out = out;
+        this.log = options.getLogger();
+    }
+
+    /**
+     * Reads the jobs from the job file given on the command line (or from stdin) and
+     * processes them.
+     * @return the number of failed jobs
+     * @throws IOException if the job list cannot be read
+     * @throws FOPException if the output format is invalid
+     */
+    public int process() throws IOException, FOPException {
+        File batchFile = options.getBatchFile();
+        Reader reader;
+        if (batchFile != null) {
+            reader = new InputStreamReader(new java.io.FileInputStream(batchFile),
+                    Charset.defaultCharset());
+        } else {
+            reader = new InputStreamReader(System.in, Charset.defaultCharset());
+        }
+        try {
+            return process(reader);
+        } finally {
+            if (batchFile != null) {
+                IOUtils.closeQuietly(reader);
+            }
+        }
+    }
+
+    /**
+     * Processes all jobs read from the given job list. Jobs are submitted as soon as their
+     * line has been read, so the job list may be a pipe that is fed while processing.
+     * @param jobList the job list
+     * @return the number of failed jobs
+     * @throws IOException if the job list cannot be read
+     * @throws FOPException if the output format is invalid
+     */
+    public int process(Reader jobList) throws IOException, FOPException {
+        final String outputFormat = options.getOutputFormat();
+        ExecutorService executor = Executors.newFixedThreadPool(options.getBatchThreadCount());
+        List<Future<JobResult>> results = new ArrayList<Future<JobResult>>();
+        int failed = 0;
+        long start = System.currentTimeMillis();
+        try {
+            BufferedReader reader = new BufferedReader(jobList);
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                final Job job;
+                try {
+                    job = parseJob(line);
+                } catch (FOPException e) {
+                    log.error("Job file line " + lineNumber + ": " + e.getMessage());
+                    failed++;
+                    continue;
+                }
+                if (job != null) {
+                    job.number = lineNumber;
+                    results.add(executor.submit(new Callable<JobResult>() {
+                        public JobResult call() {
+                            return render(job, outputFormat);
+                        }
+                    }));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        int jobCount = results.size() + failed;
+        long totalJobTime = 0;
+        for (Future<JobResult> future : results) {
+            JobResult result;
+            try {
+                result = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new FOPException(e);
+            } catch (ExecutionException e) {
+                throw new FOPException(e);
+            }
+            if (result == null) {
+                failed++;
+            } else {
+                totalJobTime += result.time;
+            }
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        int succeeded = jobCount - failed;
+        out.println("Batch finished: " + jobCount + " job(s), " + succeeded
+                + " succeeded, " + failed + " failed in " + elapsed + " ms");
+        if (succeeded > 0) {
+            out.println("  average " + (totalJobTime / succeeded) + " ms/job, "
+                    + (succeeded * 1000L / Math.max(1, elapsed)) + " job(s)/s on "
+                    + options.getBatchThreadCount() + " thread(s)");
+        }
+        return failed;
+    }
+
+    /**
+     * Parses one line of the job list.
+     * @param line the line
+     * @return the job or null if the line doesn't contain a job
+     * @throws FOPException if the line is malformed
+     */
+    Job parseJob(String line) throws FOPException {
+        String trimmed = line.trim();
+        if (trimmed.length() == 0 || trimmed.startsWith("#")) {
+            return null;
+        }
+        List<String> tokens = splitFields(trimmed);
+        Job job = new Job();
+        if (tokens.size() == 2) {
+            job.input = new File(tokens.get(0));
+            job.output = new File(tokens.get(1));
+        } else if (tokens.size() == 3) {
+            job.input = new File(tokens.get(0));
+            job.stylesheet = new File(tokens.get(1));
+            job.output = new File(tokens.get(2));
+        } else {
+            throw new FOPException("expected 'infile outfile' or 'xmlfile xslfile outfile'"
+                    + " but got: " + trimmed);
+        }
+        return job;
+    }
+
+    /**
+     * Splits a job line into its whitespace separated fields. A field enclosed in double quotes
+     * may contain whitespace, the quotes are not part of the field.
+     * @param line the line
+     * @return the fields
+     * @throws FOPException if a quoted field isn't closed
+     */
+    private static List<String> splitFields(String line) throws FOPException {
+        List<String> fields = new ArrayList<String>();
+        int pos = 0;
+        int length = line.length();
+        while (pos < length) {
+            char c = line.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (c == '"') {
+                int end = line.indexOf('"', pos + 1);
+                if (end < 0) {
+                    throw new FOPException("missing closing quote in: " + line);
+                }
+                fields.add(line.substring(pos + 1, end));
+                pos = end + 1;
+            } else {
+                int end = pos;
+                while (end < length && !Character.isWhitespace(line.charAt(end))) {
+                    end++;
+                }
+                fields.add(line.substring(pos, end));
+                pos = end;
+            }
+        }
+        return fields;
+    }
+
+    private JobResult render(Job job, String outputFormat) {
+        long start = System.currentTimeMillis();
+        OutputStream stream = null;
+        try {
+            if (!job.input.exists()) {
+                throw new FOPException("input file " + job.input + " not found");
+            }
+            FOUserAgent userAgent = options.newFOUserAgent();
+            InputHandler handler = options.createInputHandler(job.input, job.stylesheet,
+                    userAgent);
+            if (job.stylesheet != null) {
+                handler.setTemplates(getTemplates(job.stylesheet, handler));
+            } else if (MimeConstants.MIME_XSL_FO.equals(outputFormat)) {
+                throw new FOPException("FO output is only available for XML+XSLT jobs");
+            }
+            stream = new java.io.BufferedOutputStream(
+                    new java.io.FileOutputStream(job.output));
+            userAgent.setOutputFile(job.output);
+            if (MimeConstants.MIME_XSL_FO.equals(outputFormat)) {
+                handler.transformTo(stream);
+            } else {
+                handler.renderTo(userAgent, outputFormat, stream);
+            }
+            stream.close();
+            stream = null;
+            JobResult result = new JobResult(System.currentTimeMillis() - start);
+            out.println("Job " + job.number + ": " + job.input + " -> " + job.output
+                    + " (" + result.time + " ms)");
+            return result;
+        } catch (Exception e) {
+            IOUtils.closeQuietly(stream);
+            stream = null;
+            log.error("Job " + job.number + " (" + job.input + ") failed", e);
+            if (job.output.exists()) {
+                job.output.delete();
+            }
+            out.println("Job " + job.number + ": " + job.input + " FAILED ("
+                    + (System.currentTimeMillis() - start) + " ms)");
+            return null;
+        }
+    }
+
+    private Templates getTemplates(File stylesheet, InputHandler handler) throws FOPException {
+        File key = stylesheet.getAbsoluteFile();
+        Templates templates = templatesCache.get(key);
+        if (templates == null) {
+            //Two threads may compile the same stylesheet concurrently, that's harmless
+            templates = handler.newTemplates();
+            templatesCache.put(key, templates);
+        }
+        return templates;
+    }
+
+    /** One line of the job list. */
+    static class Job {
+        private int number;
+        private File input;
+        private File stylesheet;
+        private File output;
+
+        File getInput() {
+            return input;
+        }
+
+        File getStylesheet() {
+            return stylesheet;
+        }
+
+        File getOutput() {
+            return output;
+        }
+    }
+
+    private static class JobResult {
+        private final long time;
+
+        JobResult(long time) {
+            this.time = time;
+        }
+    }
+}
@@ -124,6 +124,10 @@ public class CommandLineOptions {
     private boolean strictValidation = true;
     /* control memory-conservation policy */
     private boolean conserveMemoryPolicy;
+    /* size of the in-memory buffer for pages saved by the memory-conservation policy */
+    private long conserveMemoryBufferSize;
+    /* true if the FO is processed on a separate thread while the input is parsed */
+    private boolean pipelined;
     /* true if a complex script features are enabled */
     private boolean useComplexScriptFeatures = true;
     /* set to true if -dpi used in command line */
@@ -146,6 +150,13 @@ public class CommandLineOptions {
 
     private String cacheName;
 
+    /* job file for batch mode */
+    private File batchfile;
+    /* true if batch mode is enabled */
+    private boolean batchMode;
+    /* number of worker threads in batch mode */
+    private int batchThreads = Runtime.getRuntime().availableProcessors();
+
     /**
      * Construct a command line option object.
      */
@@ -177,15 +188,9 @@ public class CommandLineOptions {
                     flushCache();
                 }
                 //Factory config is set up, now we can create the user agent
-                foUserAgent = factory.newFOUserAgent();
-                foUserAgent.getRendererOptions().putAll(renderingOptions);
+                foUserAgent = newFOUserAgent();
                 addXSLTParameter("fop-output-format", getOutputFormat());
                 addXSLTParameter("fop-version", Version.getVersion());
-                foUserAgent.setConserveMemoryPolicy(conserveMemoryPolicy);
-                // TODO: Handle this!!
-                //if (!useComplexScriptFeatures) {
-                //    foUserAgent.setComplexScriptFeaturesEnabled(false);
-                //}
             } else {
                 return false;
             }
@@ -197,6 +202,10 @@ public class CommandLineOptions {
             throw e;
         }
 
+        if (batchMode) {
+            //the input handlers are created per job by the BatchProcessor
+            return true;
+        }
         inputHandler = createInputHandler();
 
         if (MimeConstants.MIME_FOP_AWT_PREVIEW.equals(outputmode)) {
@@ -244,6 +253,45 @@ public class CommandLineOptions {
         return inputHandler;
     }
 
+    /**
+     * Creates a new user agent configured with the rendering options given on the
+     * command line. Used for the main run and for every job in batch mode.
+     * @return a new FOUserAgent instance
+     */
+    protected FOUserAgent newFOUserAgent() {
+        FOUserAgent userAgent = factory.newFOUserAgent();
+        userAgent.getRendererOptions().putAll(renderingOptions);
+        userAgent.setConserveMemoryPolicy(conserveMemoryPolicy);
+        userAgent.setConserveMemoryBufferSize(conserveMemoryBufferSize);
+        // TODO: Handle this!!
+        //if (!useComplexScriptFeatures) {
+        //    userAgent.setComplexScriptFeaturesEnabled(false);
+        //}
+        return userAgent;
+    }
+
+    /**
+     * Creates an InputHandler for one job in batch mode.
+     * @param input the FO file or, if a stylesheet is given, the XML file
+     * @param stylesheet the XSLT file or null for FO input
+     * @param userAgent the user agent of the job (used for the catalog resolver)
+     * @return a new InputHandler instance
+     */
+    protected InputHandler createInputHandler(File input, File stylesheet,
+            FOUserAgent userAgent) {
+        InputHandler handler;
+        if (stylesheet == null) {
+            handler = new InputHandler(input);
+        } else {
+            handler = new InputHandler(input, stylesheet, xsltParams);
+            if (useCatalogResolver) {
+                handler.createCatalogResolver(userAgent);
+            }
+        }
+        handler.setPipelined(pipelined);
+        return handler;
+    }
+
     /**
      * Get the logger.
      * @return the logger
@@ -289,6 +337,10 @@ public class CommandLineOptions {
                 strictValidation = false;
             } else if (args[i].equals("-conserve")) {
                 conserveMemoryPolicy = true;
+            } else if (args[i].equals("-conservebuffer")) {
+                i = i + parseConserveBufferOption(args, i);
+            } else if (args[i].equals("-pipeline")) {
+                pipelined = true;
             } else if (args[i].equals("-flush")) {
                 flushCache = true;
             } else if (args[i].equals("-cache")) {
@@ -394,6 +446,10 @@ public class CommandLineOptions {
                 getPDFEncryptionParams().setAllowAssembleDocument(false);
             } else if (args[i].equals("-noprinthq")) {
                 getPDFEncryptionParams().setAllowPrintHq(false);
+            } else if (args[i].equals("-batch")) {
+                i = i + parseBatchOption(args, i);
+            } else if (args[i].equals("-threads")) {
+                i = i + parseThreadsOption(args, i);
             } else if (args[i].equals("-version")) {
                 printVersion();
                 return false;
@@ -422,6 +478,67 @@ public class CommandLineOptions {
         }
     }
 
+    private int parseBatchOption(String[] args, int i) throws FOPException {
+        if ((i + 1 == args.length)
+                || (isOption(args[i + 1]))) {
+            throw new FOPException("if you use '-batch', you must specify "
+              + "the job file (use '-' to read the jobs from stdin)");
+        }
+        batchMode = true;
+        String filename = args[i + 1];
+        if (!isSystemInOutFile(filename)) {
+            batchfile = new File(filename);
+        }
+        if ((i + 2 == args.length)
+                || (isOption(args[i + 2]))) {
+            // no output format is specified
+            setOutputMode(MimeConstants.MIME_PDF);
+            return 1;
+        } else {
+            setOutputMode(args[i + 2]);
+            return 2;
+        }
+    }
+
+    private int parseThreadsOption(String[] args, int i) throws FOPException {
+        if ((i + 1 == args.length)
+                || (isOption(args[i + 1]))) {
+            throw new FOPException("if you use '-threads', you must specify "
+              + "the number of worker threads");
+        } else {
+            try {
+                batchThreads = Integer.parseInt(args[i + 1]);
+            } catch (NumberFormatException e) {
+                throw new FOPException("invalid number of threads: " + args[i + 1]);
+            }
+            if (batchThreads < 1) {
+                throw new FOPException("the number of threads must be at least 1");
+            }
+            return 1;
+        }
+    }
+
+    private int parseConserveBufferOption(String[] args, int i) throws FOPException {
+        if ((i + 1 == args.length)
+                || (isOption(args[i + 1]))) {
+            throw new FOPException("if you use '-conservebuffer', you must specify "
+              + "the buffer size in KB");
+        } else {
+            long size;
+            try {
+                size = Long.parseLong(args[i + 1]);
+            } catch (NumberFormatException e) {
+                throw new FOPException("invalid buffer size: " + args[i + 1]);
+            }
+            if (size < 0) {
+                throw new FOPException("the buffer size must not be negative");
+            }
+            conserveMemoryPolicy = true;
+            conserveMemoryBufferSize = size * 1024;
+            return 1;
+        }
+    }
+
     private int parseConfigurationOption(String[] args, int i) throws FOPException {
         if ((i + 1 == args.length)
                 || (isOption(args[i + 1]))) {
@@ -913,6 +1030,10 @@ public class CommandLineOptions {
      * checks whether all necessary information has been given in a consistent way
      */
     private void checkSettings() throws FOPException, FileNotFoundException {
+        if (batchMode) {
+            checkBatchSettings();
+            return;
+        }
         if (inputmode == NOT_SET) {
             throw new FOPException("No input file specified");
         }
@@ -1012,6 +1133,22 @@ public class CommandLineOptions {
         }
     }    // end checkSettings
 
+    private void checkBatchSettings() throws FOPException, FileNotFoundException {
+        if (inputmode != NOT_SET || outfilename != null || useStdOut) {
+            throw new FOPException("Input and output files are read from the job file"
+                    + " in batch mode");
+        }
+        if (outputmode.equals(MimeConstants.MIME_FOP_AWT_PREVIEW)
+                || outputmode.equals(MimeConstants.MIME_FOP_PRINT)) {
+            throw new FOPException("AWT and PRINT output are not available in batch mode");
+        }
+        if (batchfile != null && !batchfile.exists()) {
+            throw new FileNotFoundException("Error: job file "
+                                          + batchfile.getAbsolutePath()
+                                          + " not found ");
+        }
+    }
+
     /**
      * Sets the user configuration.
      * @throws FOPException if creating the user configuration fails
@@ -1070,7 +1207,9 @@ public class CommandLineOptions {
     private InputHandler createInputHandler() {
         switch (inputmode) {
             case FO_INPUT:
-                return new InputHandler(fofile);
+                InputHandler foHandler = new InputHandler(fofile);
+                foHandler.setPipelined(pipelined);
+                return foHandler;
             case AREATREE_INPUT:
                 return new AreaTreeInputHandler(areatreefile);
             case IF_INPUT:
@@ -1080,6 +1219,7 @@ public class CommandLineOptions {
                 if (useCatalogResolver) {
                     handler.createCatalogResolver(foUserAgent);
                 }
+                handler.setPipelined(pipelined);
                 return handler;
             case IMAGE_INPUT:
                 return new ImageInputHandler(imagefile, xsltfile, xsltParams);
@@ -1175,6 +1315,30 @@ public class CommandLineOptions {
         }
     }
 
+    /**
+     * Indicates whether several documents are to be processed from a job file.
+     * @return true if batch mode is enabled
+     */
+    public boolean isBatchMode() {
+        return batchMode;
+    }
+
+    /**
+     * Returns the job file for batch mode.
+     * @return the job file, null if the jobs are read from standard input (stdin)
+     */
+    public File getBatchFile() {
+        return batchfile;
+    }
+
+    /**
+     * Returns the number of worker threads used in batch mode.
+     * @return the number of threads
+     */
+    public int getBatchThreadCount() {
+        return batchThreads;
+    }
+
     private static void printVersion() {
         System.out.println("FOP Version " + Version.getVersion());
     }
@@ -1220,12 +1384,26 @@ public class CommandLineOptions {
             + "  -conserve         enable memory-conservation policy (trades memory-consumption"
             + " for disk I/O)\n"
             + "                    (Note: currently only influences whether the area tree is"
-            + " serialized.)\n\n"
+            + " serialized.)\n"
+            + "  -conservebuffer kb like -conserve, but keeps up to kb KB of compressed pages in"
+            + " memory\n"
+            + "  -pipeline         process the FO (layout and rendering) on a separate thread while"
+            + " the input is parsed and transformed\n\n"
 
             + "  -cache            specifies a file/directory path location"
             + " for the font cache file\n"
             + "  -flush            flushes the current font cache file\n\n"
 
+            + " [BATCH]  \n"
+            + "  -batch jobs [mime] processes all jobs listed in the file 'jobs' with one\n"
+            + "                    configuration, rendering with the given MIME type\n"
+            + "                    (default: application/pdf). Each line of the job file has the\n"
+            + "                    form 'infile outfile' or 'xmlfile xslfile outfile'. Paths\n"
+            + "                    containing spaces are enclosed in double quotes.\n"
+            + "                    (use '-' for jobs to read job lines from stdin)\n"
+            + "  -threads n        number of documents rendered in parallel in batch mode\n"
+            + "                    (default: number of processors)\n\n"
+
             + " [INPUT]  \n"
             + "  infile            xsl:fo input file (the same as the next) \n"
             + "                    (use '-' for infile to pipe input from stdin)\n"
@@ -1279,6 +1457,7 @@ public class CommandLineOptions {
             + "  fop -xml foo.xml -xsl foo.xsl -pdf foo.pdf\n"
             + "  fop -xml foo.xml -xsl foo.xsl -foout foo.fo\n"
             + "  fop -xml - -xsl foo.xsl -pdf -\n"
+            + "  fop -c cfg.xml -batch jobs.txt -threads 4\n"
             + "  fop foo.fo -mif foo.mif\n"
             + "  fop foo.fo -rtf foo.rtf\n"
             + "  fop foo.fo -print\n"
@@ -32,6 +32,7 @@ import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.ErrorListener;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
@@ -54,6 +55,7 @@ import org.apache.fop.apps.FOPException;
 import org.apache.fop.apps.FOUserAgent;
 import org.apache.fop.apps.Fop;
 import org.apache.fop.render.awt.viewer.Renderable;
+import org.apache.fop.util.PipelinedContentHandler;
 
 /**
  * Class for handling files input from command line
@@ -68,6 +70,8 @@ public class InputHandler implements ErrorListener, Renderable {
     private Vector xsltParams; // for XML/XSLT usage
     private EntityResolver entityResolver;
     private URIResolver uriResolver;
+    private Templates templates; // compiled stylesheet shared between several inputs
+    private boolean pipelined;
 
     /** the logger */
     protected Log log = LogFactory.getLog(InputHandler.class);
@@ -112,9 +116,16 @@ public class InputHandler implements ErrorListener, Renderable {
         }
 
         // Resulting SAX events (the generated FO) must be piped through to FOP
-        Result res = new SAXResult(fop.getDefaultHandler());
-
-        transformTo(res);
+        if (pipelined) {
+            PipelinedContentHandler pipeline = new PipelinedContentHandler(fop.getDefaultHandler());
+            try {
+                transformTo(new SAXResult(pipeline));
+            } finally {
+                pipeline.cancel();
+            }
+        } else {
+            transformTo(new SAXResult(fop.getDefaultHandler()));
+        }
     }
 
     /** {@inheritDoc} */
@@ -248,6 +259,54 @@ public class InputHandler implements ErrorListener, Renderable {
         return xslt;
     }
 
+    /**
+     * Compiles the selected stylesheet so it can be reused for several input documents
+     * (see {@link #setTemplates(Templates)}). The returned object is thread-safe.
+     *
+     * @return the compiled stylesheet or null if there's no stylesheet
+     * @throws FOPException if the stylesheet cannot be compiled
+     */
+    public Templates newTemplates() throws FOPException {
+        Source xsltSource = createXSLTSource();
+        if (xsltSource == null) {
+            return null;
+        }
+        try {
+            TransformerFactory factory = createTransformerFactory();
+            if (uriResolver != null) {
+                factory.setURIResolver(uriResolver);
+            }
+            return factory.newTemplates(xsltSource);
+        } catch (TransformerException e) {
+            throw new FOPException(e);
+        }
+    }
+
+    /**
+     * Sets a precompiled stylesheet which is used instead of compiling the stylesheet
+     * file again for this input.
+     *
+     * @param templates the compiled stylesheet (see {@link #newTemplates()})
+     */
+    public void setTemplates(Templates templates) {
+        this.templates = templates;
+    }
+
+    /**
+     * Controls whether the generated FO is processed (laid out and rendered) on a separate
+     * thread while the input is parsed and transformed, so that both stages run in parallel.
+     * @param pipelined true to process the FO on a separate thread
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    private TransformerFactory createTransformerFactory() throws TransformerException {
+        TransformerFactory factory = TransformerFactory.newInstance();
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        return factory;
+    }
+
     private XMLReader getXMLReader() throws ParserConfigurationException, SAXException {
         SAXParserFactory spf = SAXParserFactory.newInstance();
         spf.setFeature("http://xml.org/sax/features/namespaces", true);
@@ -265,15 +324,18 @@ public class InputHandler implements ErrorListener, Renderable {
     protected void transformTo(Result result) throws FOPException {
         try {
             // Setup XSLT
-            TransformerFactory factory = TransformerFactory.newInstance();
-            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            TransformerFactory factory = createTransformerFactory();
             Transformer transformer;
 
-            Source xsltSource = createXSLTSource();
-            if (xsltSource == null) {   // FO Input
+            Source xsltSource = (templates != null) ? null : createXSLTSource();
+            if (templates == null && xsltSource == null) {   // FO Input
                 transformer = factory.newTransformer();
             } else {    // XML/XSLT input
-                transformer = factory.newTransformer(xsltSource);
+                if (templates != null) {
+                    transformer = templates.newTransformer();
+                } else {
+                    transformer = factory.newTransformer(xsltSource);
+                }
 
                 // Set the value of parameters, if any, defined for stylesheet
                 if (xsltParams != null) {
@@ -165,6 +165,12 @@ public final class Main {
                 systemWrapper.exit(0);
             }
 
+            if (options.isBatchMode()) {
+                int failed = new BatchProcessor(options, System.out).process();
+                systemWrapper.exit(failed > 0 ? 1 : 0);
+                return;
+            }
+
             foUserAgent = options.getFOUserAgent();
             String outputFormat = options.getOutputFormat();
 
@@ -136,6 +136,7 @@ public final class GlyphCoverageTable extends GlyphMappingTable implements Glyph
 
     private static class MappedCoverageTable extends GlyphMappingTable.MappedMappingTable implements GlyphCoverageMapping {
         private int[] map;
+        private int[] direct;                   // direct index array, or null if not compact
         public MappedCoverageTable(List entries) {
             populate(entries);
         }
@@ -154,6 +155,10 @@ public final class GlyphCoverageTable extends GlyphMappingTable implements Glyph
             return (map != null) ? map.length : 0;
         }
         public int getMappedIndex(int gid) {
+            if (direct != null) {
+                int k = gid - map [ 0 ];
+                return ((k >= 0) && (k < direct.length)) ? direct [ k ] : -1;
+            }
             int i;
             if ((i = Arrays.binarySearch(map, gid)) >= 0) {
                 return i;
@@ -194,7 +199,22 @@ public final class GlyphCoverageTable extends GlyphMappingTable implements Glyph
             }
             assert (i + skipped) == n;
             assert this.map == null;
+            if (skipped > 0) {
+                map = Arrays.copyOf(map, i);
+            }
             this.map = map;
+            compile();
+        }
+        private void compile() {
+            int n = map.length;
+            if ((n > 0) && isCompact(map [ 0 ], map [ n - 1 ], n)) {
+                int[] da = new int [ map [ n - 1 ] - map [ 0 ] + 1 ];
+                Arrays.fill(da, -1);
+                for (int i = 0; i < n; i++) {
+                    da [ map [ i ] - map [ 0 ] ] = i;
+                }
+                this.direct = da;
+            }
         }
         /** {@inheritDoc} */
         public String toString() {
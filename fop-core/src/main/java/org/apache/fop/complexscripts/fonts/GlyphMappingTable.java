@@ -42,6 +42,12 @@ public class GlyphMappingTable {
     /** range based mapping table */
     public static final int GLYPH_MAPPING_TYPE_RANGE = 2;
 
+    /** glyph spans up to this size are always compiled into a direct index array */
+    private static final int DIRECT_SPAN_MIN = 256;
+
+    /** maximum ratio of glyph span to mapped glyph count for which a direct index array is compiled */
+    private static final int DIRECT_SPAN_FACTOR = 4;
+
     /**
      * Obtain mapping type.
      * @return mapping format type
@@ -77,6 +83,20 @@ public class GlyphMappingTable {
         return -1;
     }
 
+    /**
+     * Determine if a mapping of <code>count</code> glyphs, all of which lie in [gidMin,gidMax], is dense
+     * enough to be compiled into a direct index array, i.e., an array indexed by (gid - gidMin), trading
+     * a bounded amount of memory for constant time lookups.
+     * @param gidMin minimum mapped glyph
+     * @param gidMax maximum mapped glyph
+     * @param count number of mapped glyphs
+     * @return true if a direct index array should be used
+     */
+    protected static boolean isCompact(int gidMin, int gidMax, int count) {
+        int span = gidMax - gidMin + 1;
+        return (count > 0) && ((span <= DIRECT_SPAN_MIN) || (span <= (long) count * DIRECT_SPAN_FACTOR));
+    }
+
     /** empty mapping table base class */
     protected static class EmptyMappingTable extends GlyphMappingTable {
         /**
@@ -128,6 +148,8 @@ public class GlyphMappingTable {
         private int[] ea;                                                // array of range (inclusive) ends
         private int[] ma;                                                // array of range mapped values
         private int miMax = -1;
+        private int[] direct;                                            // direct index array, or null if not compact
+        private int directBase;                                          // glyph mapped by direct [ 0 ]
         /**
          * Construct range mapping table.
          * @param entries of mapping ranges
@@ -155,6 +177,10 @@ public class GlyphMappingTable {
         }
         /** {@inheritDoc} */
         public int getMappedIndex(int gid) {
+            if (direct != null) {
+                int k = gid - directBase;
+                return ((k >= 0) && (k < direct.length)) ? direct [ k ] : -1;
+            }
             int i;
             int mi;
             if ((i = Arrays.binarySearch(sa, gid)) >= 0) {
@@ -223,6 +249,27 @@ public class GlyphMappingTable {
             this.ea = ea;
             this.ma = ma;
             this.miMax = miMax;
+            compile();
+        }
+        private void compile() {
+            int n = sa.length;
+            int count = 0;
+            for (int i = 0; i < n; i++) {
+                count += ea [ i ] - sa [ i ] + 1;
+            }
+            if ((n > 0) && isCompact(sa [ 0 ], ea [ n - 1 ], count)) {
+                int base = sa [ 0 ];
+                int[] da = new int [ ea [ n - 1 ] - base + 1 ];
+                Arrays.fill(da, -1);
+                for (int i = 0; i < n; i++) {
+                    for (int gid = sa [ i ], e = ea [ i ]; gid <= e; gid++) {
+                        // N.B. subclass mapping function depends only on its arguments
+                        da [ gid - base ] = getMappedIndex(gid, sa [ i ], ma [ i ]);
+                    }
+                }
+                this.directBase = base;
+                this.direct = da;
+            }
         }
         /** {@inheritDoc} */
         public String toString() {
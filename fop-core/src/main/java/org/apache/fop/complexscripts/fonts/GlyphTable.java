@@ -21,7 +21,7 @@ package org.apache.fop.complexscripts.fonts;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -29,6 +29,8 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -69,8 +71,17 @@ public class GlyphTable {
     // map from lookup identifiers to lookup tables
     private Map<String, LookupTable> lookupTables;
 
-    // cache for lookups matching
-    private Map<LookupSpec, Map<LookupSpec, List<LookupTable>>> matchedLookups;
+    // cache for lookups matching; cached maps are immutable, so they may be shared between threads
+    private ConcurrentMap<LookupSpec, Map<LookupSpec, List<LookupTable>>> matchedLookups;
+
+    // cache for feature support tests
+    private ConcurrentMap<LookupSpec, Boolean> supportedFeatures;
+
+    // cache for substitution results of short glyph sequences, keyed by script processor defined keys
+    private ConcurrentMap<Object, GlyphSequence> substitutions;
+
+    /** maximum number of substitution results cached per table */
+    private static final int MAX_CACHED_SUBSTITUTIONS = 4096;
 
     // if true, then prevent further subtable addition
     private boolean frozen;
@@ -93,7 +104,31 @@ public class GlyphTable {
             this.gdef = gdef;
             this.lookups = lookups;
             this.lookupTables = new LinkedHashMap<String, LookupTable>();
-            this.matchedLookups = new HashMap<LookupSpec, Map<LookupSpec, List<LookupTable>>>();
+            this.matchedLookups = new ConcurrentHashMap<LookupSpec, Map<LookupSpec, List<LookupTable>>>();
+            this.supportedFeatures = new ConcurrentHashMap<LookupSpec, Boolean>();
+            this.substitutions = new ConcurrentHashMap<Object, GlyphSequence>();
+        }
+    }
+
+    /**
+     * Obtain a cached substitution result. The cache belongs to this table, so it is released
+     * together with the font, and lookups of different fonts don't contend.
+     * @param key a key identifying the substitution, as created by the script processor
+     * @return the cached (output) glyph sequence or null
+     */
+    public GlyphSequence getCachedSubstitution(Object key) {
+        return substitutions.get(key);
+    }
+
+    /**
+     * Cache a substitution result. Once the cache is full, further results are not cached:
+     * the frequent words of a document tend to be met early.
+     * @param key a key identifying the substitution, as created by the script processor
+     * @param gs the (output) glyph sequence, which must not be modified afterwards
+     */
+    public void cacheSubstitution(Object key, GlyphSequence gs) {
+        if (substitutions.size() < MAX_CACHED_SUBSTITUTIONS) {
+            substitutions.putIfAbsent(key, gs);
         }
     }
 
@@ -213,19 +248,24 @@ public class GlyphTable {
      * @param script a script identifier
      * @param language a language identifier
      * @param feature a feature identifier
-     * @return a (possibly empty) map from matching lookup specifications to lists of corresponding lookup tables
+     * @return a (possibly empty) unmodifiable map from matching lookup specifications to lists of corresponding
+     * lookup tables; the same map instance is returned for subsequent calls with the same arguments
      */
     public Map<LookupSpec, List<LookupTable>> matchLookups(String script, String language, String feature) {
         LookupSpec lsm = new LookupSpec(script, language, feature, true, true);
         Map<LookupSpec, List<LookupTable>> lm = matchedLookups.get(lsm);
         if (lm == null) {
-            lm = new LinkedHashMap();
+            Map<LookupSpec, List<LookupTable>> m = new LinkedHashMap<LookupSpec, List<LookupTable>>();
             List<LookupSpec> lsl = matchLookupSpecs(script, language, feature);
             for (Object aLsl : lsl) {
                 LookupSpec ls = (LookupSpec) aLsl;
-                lm.put(ls, findLookupTables(ls));
+                m.put(ls, Collections.unmodifiableList(findLookupTables(ls)));
+            }
+            lm = Collections.unmodifiableMap(m);
+            Map<LookupSpec, List<LookupTable>> lmPrev = matchedLookups.putIfAbsent(lsm, lm);
+            if (lmPrev != null) {
+                lm = lmPrev;
             }
-            matchedLookups.put(lsm, lm);
         }
         if (lm.isEmpty() && !OTFScript.isDefault(script) && !OTFScript.isWildCard(script)) {
             return matchLookups(OTFScript.DEFAULT, OTFLanguage.DEFAULT, feature);
@@ -290,8 +330,14 @@ public class GlyphTable {
      * @return true if feature supported (has at least one lookup)
      */
     public boolean hasFeature(String script, String language, String feature) {
-        UseSpec[] usa = assembleLookups(new String[] { feature }, matchLookups(script, language, feature));
-        return usa.length > 0;
+        LookupSpec ls = new LookupSpec(script, language, feature, true, true);
+        Boolean supported = supportedFeatures.get(ls);
+        if (supported == null) {
+            UseSpec[] usa = assembleLookups(new String[] { feature }, matchLookups(script, language, feature));
+            supported = usa.length > 0;
+            supportedFeatures.put(ls, supported);
+        }
+        return supported;
     }
 
     /** {@inheritDoc} */
@@ -130,6 +130,12 @@ public class ArabicScriptProcessor extends DefaultScriptProcessor {
         return subContextTester;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected boolean cachesSubstitutions() {
+        return true;
+    }
+
     /** {@inheritDoc} */
     public String[] getPositioningFeatures() {
         return GPOS_FEATURES;
@@ -162,6 +162,12 @@ public class IndicScriptProcessor extends DefaultScriptProcessor {
         return subContextTester;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected boolean cachesSubstitutions() {
+        return true;
+    }
+
     /** {@inheritDoc} */
     public String[] getPositioningFeatures() {
         return GPOS_REQ_FEATURES;
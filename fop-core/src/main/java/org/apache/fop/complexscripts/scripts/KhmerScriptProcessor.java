@@ -42,6 +42,13 @@ public class KhmerScriptProcessor extends IndicScriptProcessor {
         super(script);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected boolean cachesSubstitutions() {
+        // substitution records state used by positioning
+        return false;
+    }
+
     protected Class<? extends IndicScriptProcessor.DefaultSyllabizer> getSyllabizerClass() {
         return KhmerSyllabizer.class;
     }
@@ -19,15 +19,18 @@
 
 package org.apache.fop.complexscripts.scripts;
 
+import java.nio.IntBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.fop.complexscripts.fonts.GlyphDefinitionTable;
 import org.apache.fop.complexscripts.fonts.GlyphPositioningTable;
 import org.apache.fop.complexscripts.fonts.GlyphSubstitutionTable;
 import org.apache.fop.complexscripts.fonts.GlyphTable;
+import org.apache.fop.complexscripts.util.CharAssociation;
 import org.apache.fop.complexscripts.util.CharScript;
 import org.apache.fop.complexscripts.util.GlyphSequence;
 import org.apache.fop.complexscripts.util.ScriptContextTester;
@@ -45,6 +48,9 @@ public abstract class ScriptProcessor {
 
     private final String script;
 
+    /** maximum length of a glyph sequence whose substitution result is cached */
+    private static final int MAX_CACHED_SUBSTITUTION_LENGTH = 32;
+
     private final Map<AssembledLookupsKey, GlyphTable.UseSpec[]> assembledLookups;
 
     /**
@@ -56,7 +62,7 @@ public abstract class ScriptProcessor {
             throw new IllegalArgumentException("script must be non-empty string");
         } else {
             this.script = script;
-            this.assembledLookups = new HashMap<AssembledLookupsKey, GlyphTable.UseSpec[]>();
+            this.assembledLookups = new ConcurrentHashMap<AssembledLookupsKey, GlyphTable.UseSpec[]>();
         }
     }
 
@@ -96,7 +102,41 @@ public abstract class ScriptProcessor {
      */
     public final GlyphSequence substitute(GlyphSubstitutionTable gsub, GlyphSequence gs, String script, String language,
                                           Map<GlyphTable.LookupSpec, List<GlyphTable.LookupTable>> lookups) {
-        return substitute(gs, script, language, assembleLookups(gsub, getSubstitutionFeatures(), lookups), getSubstitutionContextTester());
+        GlyphTable.UseSpec[] usa = assembleLookups(gsub, getSubstitutionFeatures(), lookups);
+        SubstitutionKey key = cachesSubstitutions() ? SubstitutionKey.makeKey(this, gs, script, language) : null;
+        if (key == null) {
+            return substitute(gs, script, language, usa, getSubstitutionContextTester());
+        }
+        GlyphSequence cached = gsub.getCachedSubstitution(key);
+        if (cached != null) {
+            return copySubstitution(cached, gs.getCharacters());
+        }
+        GlyphSequence ogs = substitute(gs, script, language, usa, getSubstitutionContextTester());
+        gsub.cacheSubstitution(key, copySubstitution(ogs, null));
+        return ogs;
+    }
+
+    /**
+     * Determine if the result of substituting a (short) glyph sequence only depends on the glyph table,
+     * the script, the language and the characters and glyphs of the sequence, so that substitution results
+     * can be cached and reused for repeated words. Processors which keep state between substitution
+     * and positioning must not enable the cache.
+     * @return true if substitution results may be cached
+     */
+    protected boolean cachesSubstitutions() {
+        return false;
+    }
+
+    private static GlyphSequence copySubstitution(GlyphSequence gs, IntBuffer characters) {
+        int na = gs.getAssociations().size();
+        List<CharAssociation> ca = new ArrayList<CharAssociation>(na);
+        for (int i = 0; i < na; i++) {
+            ca.add(gs.getAssociation(i).clone());
+        }
+        if (characters == null) {
+            characters = IntBuffer.wrap(gs.getCharacterArray(true));
+        }
+        return new GlyphSequence(characters.duplicate(), IntBuffer.wrap(gs.getGlyphArray(true)), ca, gs.getPredications());
     }
 
     /**
@@ -269,10 +309,12 @@ public abstract class ScriptProcessor {
 
         /** {@inheritDoc} */
         public int hashCode() {
+            // N.B. lookups maps are cached by the glyph table, so hashing their size instead of their
+            // content avoids walking all lookup tables on every use while staying consistent with equals
             int hc = 0;
             hc =  7 * hc + (hc ^ table.hashCode());
             hc = 11 * hc + (hc ^ Arrays.hashCode(features));
-            hc = 17 * hc + (hc ^ lookups.hashCode());
+            hc = 17 * hc + (hc ^ lookups.size());
             return hc;
         }
 
@@ -285,8 +327,71 @@ public abstract class ScriptProcessor {
                 } else if (!Arrays.equals(features, k.features)) {
                     return false;
                 } else {
-                    return lookups.equals(k.lookups);
+                    return (lookups == k.lookups) || lookups.equals(k.lookups);
+                }
+            } else {
+                return false;
+            }
+        }
+
+    }
+
+    private static final class SubstitutionKey {
+
+        private final ScriptProcessor processor;
+        private final String script;
+        private final String language;
+        private final int[] characters;
+        private final int[] glyphs;
+        private final int hash;
+
+        private SubstitutionKey(ScriptProcessor processor, String script, String language, int[] characters,
+                                int[] glyphs) {
+            this.processor = processor;
+            this.script = script;
+            this.language = language;
+            this.characters = characters;
+            this.glyphs = glyphs;
+            int hc = processor.hashCode();
+            hc = 31 * hc + script.hashCode();
+            hc = 31 * hc + language.hashCode();
+            hc = 31 * hc + Arrays.hashCode(characters);
+            hc = 31 * hc + Arrays.hashCode(glyphs);
+            this.hash = hc;
+        }
+
+        /**
+         * Create a key for a glyph sequence that is eligible for caching, i.e., one which is short,
+         * has no predications and whose associations are the identity associations.
+         * @return key or null if not eligible
+         */
+        static SubstitutionKey makeKey(ScriptProcessor processor, GlyphSequence gs, String script, String language) {
+            int ng = gs.getGlyphCount();
+            if ((ng == 0) || (ng > MAX_CACHED_SUBSTITUTION_LENGTH) || gs.getPredications()) {
+                return null;
+            } else if (gs.getCharacterCount() != ng) {
+                return null;
+            }
+            for (int i = 0; i < ng; i++) {
+                CharAssociation a = gs.getAssociation(i);
+                if ((a.getOffset() != i) || (a.getCount() != 1) || a.isDisjoint()) {
+                    return null;
                 }
+            }
+            return new SubstitutionKey(processor, script, language, gs.getCharacterArray(true), gs.getGlyphArray(true));
+        }
+
+        /** {@inheritDoc} */
+        public int hashCode() {
+            return hash;
+        }
+
+        /** {@inheritDoc} */
+        public boolean equals(Object o) {
+            if (o instanceof SubstitutionKey) {
+                SubstitutionKey k = (SubstitutionKey) o;
+                return (hash == k.hash) && (processor == k.processor) && script.equals(k.script) && language.equals(k.language)
+                    && Arrays.equals(characters, k.characters) && Arrays.equals(glyphs, k.glyphs);
             } else {
                 return false;
             }
@@ -223,7 +223,7 @@ public class CharAssociation implements Cloneable {
     }
 
     /** {@inheritDoc} */
-    public Object clone() {
+    public CharAssociation clone() {
         try {
             CharAssociation ca = (CharAssociation) super.clone();
             if (predications != null) {
@@ -271,7 +271,7 @@ public class CharAssociation implements Cloneable {
     public static CharAssociation[] replicate(CharAssociation a, int repeat) {
         CharAssociation[] aa = new CharAssociation [ repeat ];
         for (int i = 0, n = aa.length; i < n; i++) {
-            aa [ i ] = (CharAssociation) a.clone();
+            aa [ i ] = a.clone();
         }
         return aa;
     }
@@ -597,7 +597,10 @@ public class GlyphSequence implements Cloneable {
         if (ib != null) {
             int n = ib.limit();
             int[] ia = new int[n];
-            ib.get(ia, 0, n);
+            // N.B. use absolute gets, so the buffer's position is left untouched
+            for (int i = 0; i < n; i++) {
+                ia[i] = ib.get(i);
+            }
             return ia;
         } else {
             return new int[0];
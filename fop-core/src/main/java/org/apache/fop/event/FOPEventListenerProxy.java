@@ -21,6 +21,7 @@ package org.apache.fop.event;
 
 import org.apache.fop.apps.FOUserAgent;
 import org.apache.fop.events.Event;
+import org.apache.fop.events.EventFilter;
 import org.apache.fop.events.EventListener;
 import org.apache.fop.events.model.EventSeverity;
 import org.apache.fop.fo.FOValidationEventProducer;
@@ -33,7 +34,7 @@ import org.apache.fop.layoutmgr.BlockLevelEventProducer;
  * For layout events, it reduces the default severity level if FOP signals that it can recover
  * from the event.
  */
-public class FOPEventListenerProxy implements EventListener {
+public class FOPEventListenerProxy implements EventListener, EventFilter {
 
     private static final String FOVALIDATION_EVENT_ID_PREFIX
                 = FOValidationEventProducer.class.getName();
@@ -54,6 +55,21 @@ public class FOPEventListenerProxy implements EventListener {
         this.userAgent = userAgent;
     }
 
+    /** {@inheritDoc} */
+    public boolean isEventOfInterest(String eventID, EventSeverity severity) {
+        if (!(delegate instanceof EventFilter)) {
+            return true;
+        }
+        EventFilter filter = (EventFilter) delegate;
+        if (filter.isEventOfInterest(eventID, severity)) {
+            return true;
+        }
+        //The severity of these events may be reduced in processEvent()
+        return (eventID.startsWith(FOVALIDATION_EVENT_ID_PREFIX)
+                || eventID.startsWith(BLOCK_LEVEL_EVENT_ID_PREFIX))
+                && filter.isEventOfInterest(eventID, EventSeverity.WARN);
+    }
+
     /** {@inheritDoc} */
     public synchronized void processEvent(Event event) {
         if (event.getEventID().startsWith(FOVALIDATION_EVENT_ID_PREFIX)) {
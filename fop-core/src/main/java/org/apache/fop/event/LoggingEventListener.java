@@ -26,6 +26,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.apache.fop.events.Event;
+import org.apache.fop.events.EventFilter;
 import org.apache.fop.events.EventFormatter;
 import org.apache.fop.events.EventListener;
 import org.apache.fop.events.model.EventSeverity;
@@ -34,7 +35,7 @@ import org.apache.fop.events.model.EventSeverity;
  * EventListener implementation that redirects events to Commons Logging. The events are
  * converted to localized messages.
  */
-public class LoggingEventListener implements EventListener {
+public class LoggingEventListener implements EventListener, EventFilter {
 
     /** Default logger instance */
     private static Log defaultLog = LogFactory.getLog(LoggingEventListener.class);
@@ -78,6 +79,19 @@ public class LoggingEventListener implements EventListener {
         return this.log;
     }
 
+    /** {@inheritDoc} */
+    public boolean isEventOfInterest(String eventID, EventSeverity severity) {
+        if (severity == EventSeverity.INFO) {
+            return log.isInfoEnabled();
+        } else if (severity == EventSeverity.WARN) {
+            return log.isWarnEnabled();
+        } else if (severity == EventSeverity.ERROR) {
+            return log.isErrorEnabled();
+        } else {
+            return true;
+        }
+    }
+
     /** {@inheritDoc} */
     public void processEvent(Event event) {
         String msg = EventFormatter.format(event);
@@ -38,6 +38,7 @@ import org.apache.xmlgraphics.util.QName;
 import org.apache.fop.accessibility.fo.FO2StructureTreeConverter;
 import org.apache.fop.apps.FOPException;
 import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.FormattingMetrics;
 import org.apache.fop.apps.FormattingResults;
 import org.apache.fop.fo.ElementMapping.Maker;
 import org.apache.fop.fo.extensions.ExtensionElementMapping;
@@ -82,6 +83,9 @@ public class FOTreeBuilder extends DefaultHandler {
     /** The user agent for this processing run. */
     private FOUserAgent userAgent;
 
+    /** The formatting metrics, null if they aren't recorded */
+    private final FormattingMetrics metrics;
+
     private boolean used;
     private boolean empty = true;
 
@@ -104,6 +108,7 @@ public class FOTreeBuilder extends DefaultHandler {
 
         this.userAgent = foUserAgent;
         this.elementMappingRegistry = userAgent.getElementMappingRegistry();
+        this.metrics = userAgent.getFormattingMetrics();
         //This creates either an AreaTreeHandler and ultimately a Renderer, or
         //one of the RTF-, MIF- etc. Handlers.
         foEventHandler = foUserAgent.getRendererFactory().createFOEventHandler(
@@ -135,7 +140,13 @@ public class FOTreeBuilder extends DefaultHandler {
     /** {@inheritDoc} */
     public void characters(char[] data, int start, int length)
                 throws SAXException {
+        if (metrics != null) {
+            metrics.startPhase(FormattingMetrics.Phase.FO_TREE);
+        }
         delegate.characters(data, start, length);
+        if (metrics != null) {
+            metrics.endPhase(FormattingMetrics.Phase.FO_TREE);
+        }
     }
 
     /** {@inheritDoc} */
@@ -146,6 +157,9 @@ public class FOTreeBuilder extends DefaultHandler {
         }
 
         used = true;
+        if (metrics != null) {
+            metrics.startDocument();
+        }
         empty = true;
         rootFObj = null;    // allows FOTreeBuilder to be reused
         if (LOG.isDebugEnabled()) {
@@ -170,6 +184,9 @@ public class FOTreeBuilder extends DefaultHandler {
             LOG.debug("Parsing of document complete");
         }
         foEventHandler.endDocument();
+        if (metrics != null) {
+            metrics.endDocument();
+        }
     }
 
     /** {@inheritDoc} */
@@ -177,6 +194,9 @@ public class FOTreeBuilder extends DefaultHandler {
                              final Attributes attlist) throws SAXException {
         this.depth++;
         errorinstart = false;
+        if (metrics != null) {
+            metrics.startPhase(FormattingMetrics.Phase.FO_TREE);
+        }
         final ContentHandler contentHandler = delegate;
         SAXException saxException = AccessController.doPrivileged(
             new PrivilegedAction<SAXException>() {
@@ -190,6 +210,9 @@ public class FOTreeBuilder extends DefaultHandler {
                 }
             }
         );
+        if (metrics != null) {
+            metrics.endPhase(FormattingMetrics.Phase.FO_TREE);
+        }
         if (saxException != null) {
             errorinstart = true;
             throw saxException;
@@ -199,6 +222,9 @@ public class FOTreeBuilder extends DefaultHandler {
     /** {@inheritDoc} */
     public void endElement(final String uri, final String localName, final String rawName) throws SAXException {
         if (!errorinstart) {
+            if (metrics != null) {
+                metrics.startPhase(FormattingMetrics.Phase.FO_TREE);
+            }
             final ContentHandler contentHandler = delegate;
             SAXException saxException = AccessController.doPrivileged(
                 new PrivilegedAction<SAXException>() {
@@ -225,6 +251,9 @@ public class FOTreeBuilder extends DefaultHandler {
                     delegate.endElement(uri, localName, rawName);
                 }
             }
+            if (metrics != null) {
+                metrics.endPhase(FormattingMetrics.Phase.FO_TREE);
+            }
         }
     }
 
@@ -128,6 +128,15 @@ public class PropertyInfo {
                     : null;
     }
 
+    /**
+     * Returns the cache for parsed property expressions.
+     * @return the cache or null if there's no user agent to obtain it from
+     */
+    protected PropertyParseCache getParseCache() {
+        FOUserAgent userAgent = getUserAgent();
+        return (userAgent != null) ? userAgent.getPropertyParseCache() : null;
+    }
+
     private PercentBase getFunctionPercentBase() {
         if (stkFunction != null) {
             Function f = (Function)stkFunction.peek();
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fo.expr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.fop.fo.Constants;
+import org.apache.fop.fo.properties.Property;
+
+/**
+ * A thread-safe cache for the results of {@link PropertyParser}, shared by all documents of a
+ * {@link org.apache.fop.apps.FopFactory}. Attribute values such as <code>font-size="10pt"</code>
+ * or <code>border="0.5pt solid black"</code> occur many times per document; once parsed, the
+ * resulting {@link Property} is looked up by property id and expression instead of being parsed
+ * again.
+ * <p>
+ * Only results that don't depend on the context of the expression are cached, i.e. no
+ * percentages, font-relative (em) or pixel units and no function calls. The cache is bounded by
+ * the number of entries; once it's full, no further values are added. Hit and miss counts are
+ * recorded.</p>
+ */
+public final class PropertyParseCache {
+
+    /** The default maximum number of cached expressions */
+    public static final int DEFAULT_MAXIMUM_ENTRIES = 8192;
+
+    /** Longer expressions are unlikely to be repeated and are not cached. */
+    private static final int MAXIMUM_EXPRESSION_LENGTH = 256;
+
+    private final List<ConcurrentMap<String, Property>> tables;
+    private final AtomicInteger entryCount = new AtomicInteger();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private volatile int maximumEntries = DEFAULT_MAXIMUM_ENTRIES;
+
+    /** Creates a new, empty cache. */
+    public PropertyParseCache() {
+        tables = new ArrayList<ConcurrentMap<String, Property>>(Constants.PROPERTY_COUNT + 1);
+        for (int i = 0; i <= Constants.PROPERTY_COUNT; i++) {
+            tables.add(new ConcurrentHashMap<String, Property>());
+        }
+    }
+
+    private ConcurrentMap<String, Property> getTable(int propId) {
+        int index = propId & Constants.PROPERTY_MASK;
+        return (index < tables.size()) ? tables.get(index) : null;
+    }
+
+    /**
+     * Returns the cached result of parsing an expression for a property.
+     * @param propId the property id
+     * @param expr the expression
+     * @return the property or null if it isn't cached
+     */
+    public Property get(int propId, String expr) {
+        ConcurrentMap<String, Property> table = getTable(propId);
+        if (table == null || expr.length() > MAXIMUM_EXPRESSION_LENGTH) {
+            return null;
+        }
+        Property prop = table.get(expr);
+        if (prop == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return prop;
+    }
+
+    /**
+     * Adds the context-independent result of parsing an expression to the cache.
+     * @param propId the property id
+     * @param expr the expression
+     * @param prop the parsed (immutable) property
+     */
+    public void put(int propId, String expr, Property prop) {
+        ConcurrentMap<String, Property> table = getTable(propId);
+        if (table == null || expr.length() > MAXIMUM_EXPRESSION_LENGTH
+                || entryCount.get() >= maximumEntries) {
+            return;
+        }
+        if (table.putIfAbsent(expr, prop) == null) {
+            entryCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Sets the maximum number of cached expressions. 0 disables the cache. Lowering the
+     * maximum doesn't remove entries, use {@link #clear()} for that.
+     * @param maximumEntries the maximum number of entries
+     */
+    public void setMaximumEntries(int maximumEntries) {
+        if (maximumEntries < 0) {
+            throw new IllegalArgumentException("maximumEntries must not be negative");
+        }
+        this.maximumEntries = maximumEntries;
+    }
+
+    /**
+     * Returns the maximum number of cached expressions.
+     * @return the maximum number of entries
+     */
+    public int getMaximumEntries() {
+        return maximumEntries;
+    }
+
+    /**
+     * Returns the number of cached expressions.
+     * @return the number of entries
+     */
+    public int getEntryCount() {
+        return entryCount.get();
+    }
+
+    /**
+     * Returns the number of lookups that found a cached property.
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of lookups that didn't find a cached property.
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /** Removes all entries from the cache. The statistics are kept. */
+    public void clear() {
+        for (ConcurrentMap<String, Property> table : tables) {
+            for (String expr : table.keySet()) {
+                if (table.remove(expr) != null) {
+                    entryCount.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    public String toString() {
+        return "PropertyParseCache: " + entryCount.get() + " of " + maximumEntries + " entries, "
+                + hitCount.get() + " hits, " + missCount.get() + " misses";
+    }
+}
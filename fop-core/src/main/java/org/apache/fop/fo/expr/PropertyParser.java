@@ -24,6 +24,7 @@ import java.util.List;
 
 import org.apache.xmlgraphics.util.UnitConv;
 
+import org.apache.fop.apps.FormattingMetrics;
 import org.apache.fop.datatypes.Length;
 import org.apache.fop.datatypes.LengthBase;
 import org.apache.fop.datatypes.Numeric;
@@ -43,6 +44,7 @@ import org.apache.fop.fo.properties.StringProperty;
  */
 public final class PropertyParser extends PropertyTokenizer {
     private PropertyInfo propInfo;    // Maker and propertyList related info
+    private boolean contextDependent; // true if the result depends on propInfo
 
     private static final String RELUNIT = "em";
     private static final HashMap FUNCTION_TABLE = new HashMap();
@@ -89,8 +91,23 @@ public final class PropertyParser extends PropertyTokenizer {
      */
     public static Property parse(String expr, PropertyInfo propInfo)
             throws PropertyException {
+        PropertyParseCache cache = propInfo.getParseCache();
+        int propId = (cache != null) ? propInfo.getPropertyMaker().getPropId() : 0;
+        Property prop = (cache != null) ? cache.get(propId, expr) : null;
+        if (prop != null) {
+            FormattingMetrics metrics = propInfo.getUserAgent().getFormattingMetrics();
+            if (metrics != null) {
+                metrics.count(FormattingMetrics.Counter.PROPERTY_CACHE_HITS, 1);
+            }
+            return prop;
+        }
         try {
-            return new PropertyParser(expr, propInfo).parseProperty();
+            PropertyParser parser = new PropertyParser(expr, propInfo);
+            prop = parser.parseProperty();
+            if (cache != null && !parser.contextDependent) {
+                cache.put(propId, expr, prop);
+            }
+            return prop;
         } catch (PropertyException exc) {
             exc.setPropertyInfo(propInfo);
             throw exc;
@@ -271,6 +288,7 @@ public final class PropertyParser extends PropertyTokenizer {
              */
             double pcval = Double.parseDouble(
                     currentTokenValue.substring(0, currentTokenValue.length() - 1)) / 100.0;
+            contextDependent = true;
             PercentBase pcBase = this.propInfo.getPercentBase();
             if (pcBase != null) {
                 if (pcBase.getDimension() == 0) {
@@ -307,11 +325,13 @@ public final class PropertyParser extends PropertyTokenizer {
             String unitPart = currentTokenValue.substring(numLen);
             double numPart = Double.parseDouble(currentTokenValue.substring(0, numLen));
             if (RELUNIT.equals(unitPart)) {
+                contextDependent = true;
                 prop = (Property) NumericOp.multiply(
                                     NumberProperty.getInstance(numPart),
                                     propInfo.currentFontSize());
             } else {
                 if ("px".equals(unitPart)) {
+                    contextDependent = true;
                     //pass the ratio between target-resolution and
                     //the default resolution of 72dpi
                     float resolution = propInfo.getPropertyList().getFObj()
@@ -337,6 +357,7 @@ public final class PropertyParser extends PropertyTokenizer {
                                             + currentTokenValue);
             }
             next();
+            contextDependent = true;
             // Push new function (for function context: getPercentBase())
             propInfo.pushFunction(function);
             prop = function.eval(parseArgs(function), propInfo);
@@ -31,6 +31,7 @@ import org.apache.xmlgraphics.image.loader.ImageManager;
 import org.apache.fop.ResourceEventProducer;
 import org.apache.fop.apps.FOPException;
 import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.FormattingMetrics;
 import org.apache.fop.datatypes.Length;
 import org.apache.fop.datatypes.URISpecification;
 import org.apache.fop.fo.FONode;
@@ -77,6 +78,10 @@ public class ExternalGraphic extends AbstractGraphics {
         FOUserAgent userAgent = getUserAgent();
         ImageManager manager = userAgent.getImageManager();
         ImageInfo info = null;
+        FormattingMetrics metrics = userAgent.getFormattingMetrics();
+        if (metrics != null) {
+            metrics.startPhase(FormattingMetrics.Phase.IMAGE_LOADING);
+        }
         try {
             info = manager.getImageInfo(url, userAgent.getImageSessionContext());
         } catch (ImageException e) {
@@ -91,6 +96,10 @@ public class ExternalGraphic extends AbstractGraphics {
             ResourceEventProducer eventProducer = ResourceEventProducer.Provider.get(
                     getUserAgent().getEventBroadcaster());
             eventProducer.imageIOError(this, url, ioe, getLocator());
+        } finally {
+            if (metrics != null) {
+                metrics.endPhase(FormattingMetrics.Phase.IMAGE_LOADING);
+            }
         }
         if (info != null) {
             this.intrinsicWidth = info.getSize().getWidthMpt();
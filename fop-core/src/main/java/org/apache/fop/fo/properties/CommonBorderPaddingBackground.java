@@ -31,6 +31,7 @@ import org.apache.xmlgraphics.image.loader.ImageSessionContext;
 
 import org.apache.fop.ResourceEventProducer;
 import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.FormattingMetrics;
 import org.apache.fop.datatypes.Length;
 import org.apache.fop.datatypes.PercentBaseContext;
 import org.apache.fop.datatypes.URISpecification;
@@ -428,6 +429,10 @@ public class CommonBorderPaddingBackground {
                 ImageManager manager = userAgent.getImageManager();
                 ImageSessionContext sessionContext = userAgent.getImageSessionContext();
                 ImageInfo info;
+                FormattingMetrics metrics = userAgent.getFormattingMetrics();
+                if (metrics != null) {
+                    metrics.startPhase(FormattingMetrics.Phase.IMAGE_LOADING);
+                }
                 try {
                     info = manager.getImageInfo(uri, sessionContext);
                     newInstance.backgroundImageInfo = info;
@@ -443,6 +448,10 @@ public class CommonBorderPaddingBackground {
                     ResourceEventProducer eventProducer = ResourceEventProducer.Provider.get(
                             fobj.getUserAgent().getEventBroadcaster());
                     eventProducer.imageIOError(fobj, uri, ioe, fobj.getLocator());
+                } finally {
+                    if (metrics != null) {
+                        metrics.endPhase(FormattingMetrics.Phase.IMAGE_LOADING);
+                    }
                 }
             }
         }
@@ -19,14 +19,10 @@
 
 package org.apache.fop.fo.properties;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -35,36 +31,33 @@ import org.apache.commons.logging.LogFactory;
  * Thread-safe cache that minimizes the memory requirements by fetching an instance from the cache
  * that is equal to the given one. Internally the instances are stored in WeakReferences in order to
  * be reclaimed when they are no longer referenced.
+ * <p>
+ * The cache is split into segments (selected by hash code) with their own lock and hash table so
+ * concurrent renderings rarely contend. Entries with equal hash codes are chained, i.e. unequal
+ * instances never evict each other. References cleared by the garbage collector are enqueued and
+ * removed from the segment by the next operation on it, so there are no periodic full scans.</p>
  * @param <T> The type of values that are cached
  */
 public final class PropertyCache<T> {
 
     private static final Log LOG = LogFactory.getLog(PropertyCache.class);
 
+    /** The number of segments, a power of two. */
+    private static final int SEGMENT_COUNT = 16;
+
+    /** Selects the segment from the upper bits of the hash. */
+    private static final int SEGMENT_SHIFT = 32 - Integer.numberOfTrailingZeros(SEGMENT_COUNT);
+
+    /** The initial table size of each segment, a power of two. */
+    private static final int INITIAL_CAPACITY = 16;
+
     /**
      * Determines if the cache is used based on the value of the system property
      * org.apache.fop.fo.properties.use-cache
      */
     private final boolean useCache;
 
-    /**
-     * The underlying map that stores WeakReferences to the cached entries. The map keys are the
-     * hashCode of the cached entries. The map values are a WeakRefence to the cached entries. When
-     * two cached entries have the same hash code, the last one is kept but this should be an
-     * exception case (otherwise the hashCode() method of T needs to be fixed).
-     */
-    private final ConcurrentMap<Integer, WeakReference<T>> map;
-
-    /**
-     * Counts the number of entries put in the map in order to periodically check and remove the
-     * entries whose referents have been reclaimed.
-     */
-    private final AtomicInteger putCounter;
-
-    /**
-     * Lock to prevent concurrent cleanup of the map.
-     */
-    private final Lock cleanupLock;
+    private final Segment[] segments;
 
     private final AtomicInteger hashCodeCollisionCounter;
 
@@ -86,19 +79,23 @@ public final class PropertyCache<T> {
                    + " due to security restriction; defaulting to 'true'.");
         }
         if (useCache) {
-            this.map = new ConcurrentHashMap<Integer, WeakReference<T>>();
-            this.putCounter = new AtomicInteger();
-            this.cleanupLock = new ReentrantLock();
+            this.segments = newSegments();
+            for (int i = 0; i < SEGMENT_COUNT; i++) {
+                segments[i] = new Segment();
+            }
             this.hashCodeCollisionCounter = new AtomicInteger();
         } else {
-            this.map = null;
-            this.putCounter = null;
-            this.cleanupLock = null;
+            this.segments = null;
             this.hashCodeCollisionCounter = null;
         }
         this.useCache = useCache;
     }
 
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Segment[] newSegments() {
+        return (Segment[]) new PropertyCache.Segment[SEGMENT_COUNT];
+    }
+
     /**
      * Returns a cached version of the given object. If the object is not yet in
      * the cache, it will be added and then returned.
@@ -115,88 +112,144 @@ public final class PropertyCache<T> {
             return null;
         }
 
-        Integer hashCode = obj.hashCode();
+        int hash = spread(obj.hashCode());
+        return segments[hash >>> SEGMENT_SHIFT].fetch(obj, hash);
+    }
 
-        WeakReference<T> weakRef = map.get(hashCode);
-        if (weakRef == null) {
-            weakRef = map.putIfAbsent(hashCode, new WeakReference<T>(obj));
-            attemptCleanup();
+    /** Spreads the bits of poorly distributed hash codes over the segment and table index. */
+    private static int spread(int hashCode) {
+        int h = hashCode * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
 
-            if (weakRef == null) {
-                return obj;
-            }
-            // else another thread added a value, continue.
+    private void collision(T obj) {
+        /*
+         * Log a message when obj.getClass() does not implement correctly the equals() or
+         * hashCode() method. It is expected that only very few objects will have the
+         * same hashCode but will not be equal.
+         */
+        if ((hashCodeCollisionCounter.incrementAndGet() % 10) == 0) {
+            LOG.info(hashCodeCollisionCounter.get() + " hashCode() collisions for "
+                    + obj.getClass().getName());
         }
+    }
 
-        T cached = weakRef.get();
-        if (cached != null) {
-            if (eq(cached, obj)) {
-                return cached;
-            } else {
-                /*
-                 * Log a message when obj.getClass() does not implement correctly the equals() or
-                 * hashCode() method. It is expected that only very few objects will have the
-                 * same hashCode but will not be equal.
-                 */
-                if ((hashCodeCollisionCounter.incrementAndGet() % 10) == 0) {
-                    LOG.info(hashCodeCollisionCounter.get() + " hashCode() collisions for "
-                            + obj.getClass().getName());
-                }
+    /**
+     * Returns the number of cached instances. Instances reclaimed by the garbage collector
+     * may still be counted until their segment is used again.
+     * @return the number of cached instances
+     */
+    public int getSize() {
+        int size = 0;
+        if (useCache) {
+            for (Segment segment : segments) {
+                size += segment.size();
             }
-
         }
+        return size;
+    }
 
-        // Adds a new or replaces an existing entry with obj that has the same hash code
-        map.put(hashCode, new WeakReference<T>(obj));
-        attemptCleanup();
-        return obj;
+    /**
+     * Returns the number of times an instance was found that has the same hash code as the
+     * requested one but isn't equal to it.
+     * @return the number of hash code collisions
+     */
+    public int getCollisionCount() {
+        return useCache ? hashCodeCollisionCounter.get() : 0;
+    }
 
-        /*
-         * Another thread might add first. We could check this using map.replace() instead of
-         * map.put() and then recursively call fetch(obj). But if in the meantime, garbage
-         * collection kicks in, we might end up with a StackOverflowException. Not caching an entry
-         * is tolerable, after all it's configurable.
-         */
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return super.toString() + "[size=" + getSize() + ", collisions=" + getCollisionCount()
+                + ", useCache=" + useCache + "]";
     }
 
+    /** A cached instance, chained to the other entries of the same table slot. */
+    private static final class Entry<T> extends WeakReference<T> {
 
-    private void attemptCleanup() {
-        if ((putCounter.incrementAndGet() % 10000) != 0) {
-            return;
-        }
+        private final int hash;
+        private Entry<T> next;
 
-        // Lock as there is no need for concurrent cleanup and protect us, on JDK5, from
-        // http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=6312056
-        if (cleanupLock.tryLock()) {
-            try {
-                cleanReclaimedMapEntries();
-            } finally {
-                cleanupLock.unlock();
-            }
+        private Entry(T referent, int hash, ReferenceQueue<T> queue, Entry<T> next) {
+            super(referent, queue);
+            this.hash = hash;
+            this.next = next;
         }
     }
 
-    private void cleanReclaimedMapEntries() {
-        Iterator<Map.Entry<Integer, WeakReference<T>>> iterator = map.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<Integer, WeakReference<T>> entry = iterator.next();
-            WeakReference<T> weakRef = entry.getValue();
-            T r = weakRef.get();
-            if (r == null) {
-                iterator.remove();
+    /** A part of the cache with its own lock, hash table and reference queue. */
+    private final class Segment {
+
+        private final ReferenceQueue<T> queue = new ReferenceQueue<T>();
+        private Entry<T>[] table = newTable(INITIAL_CAPACITY);
+        private int count;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Entry<T>[] newTable(int capacity) {
+            return new Entry[capacity];
+        }
+
+        synchronized T fetch(T obj, int hash) {
+            expungeStaleEntries();
+            int index = hash & (table.length - 1);
+            for (Entry<T> e = table[index]; e != null; e = e.next) {
+                if (e.hash == hash) {
+                    T cached = e.get();
+                    if (cached == obj || (cached != null && cached.equals(obj))) {
+                        return cached;
+                    } else if (cached != null) {
+                        collision(obj);
+                    }
+                }
+            }
+            table[index] = new Entry<T>(obj, hash, queue, table[index]);
+            if (++count > table.length - (table.length >>> 2)) {
+                resize();
             }
+            return obj;
         }
-    }
 
-    private boolean eq(Object p, Object q) {
-        if (p == q) {
-            return true;
+        synchronized int size() {
+            expungeStaleEntries();
+            return count;
         }
-        cleanupLock.lock();
-        try {
-            return p.equals(q);
-        } finally {
-            cleanupLock.unlock();
+
+        /** Removes the entries whose referents have been reclaimed. */
+        private void expungeStaleEntries() {
+            Reference<? extends T> ref;
+            while ((ref = queue.poll()) != null) {
+                @SuppressWarnings("unchecked")
+                Entry<T> stale = (Entry<T>) ref;
+                int index = stale.hash & (table.length - 1);
+                Entry<T> prev = null;
+                for (Entry<T> e = table[index]; e != null; prev = e, e = e.next) {
+                    if (e == stale) {
+                        if (prev == null) {
+                            table[index] = e.next;
+                        } else {
+                            prev.next = e.next;
+                        }
+                        count--;
+                        break;
+                    }
+                }
+            }
+        }
+
+        private void resize() {
+            Entry<T>[] newTable = newTable(table.length * 2);
+            for (Entry<T> head : table) {
+                Entry<T> e = head;
+                while (e != null) {
+                    Entry<T> next = e.next;
+                    int index = e.hash & (newTable.length - 1);
+                    e.next = newTable[index];
+                    newTable[index] = e;
+                    e = next;
+                }
+            }
+            table = newTable;
         }
     }
 }
@@ -32,6 +32,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.fonts.truetype.FontFileReader;
 import org.apache.fop.fonts.truetype.SVGGlyphData;
 
 
@@ -168,6 +169,17 @@ public abstract class CustomFont extends Typeface
         return resourceResolver.getResource(embedFileURI);
     }
 
+    /**
+     * Returns a reader for an embeddable OpenType/TrueType font file. Local font files are
+     * memory-mapped and shared with other readers of the same file.
+     *
+     * @return the font file reader
+     * @throws IOException if the font file can't be read
+     */
+    public FontFileReader getFontFileReader() throws IOException {
+        return FontFileReader.create(resourceResolver, embedFileURI);
+    }
+
     /**
      * Returns the lookup name to an embeddable font file available as a
      * resource.
@@ -20,6 +20,7 @@
 package org.apache.fop.fonts;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -120,6 +121,9 @@ public class DefaultFontConfigurator implements FontConfigurator<EmbedFontInfo>
             try {
                 fontURLList = fontFileFinder.find(directory.getDirectory());
                 fontAdder.add(fontURLList, fontInfoList);
+            } catch (InterruptedIOException e) {
+                // don't let the font cache be saved with an incomplete font list
+                throw new FOPException("Font configuration interrupted", e);
             } catch (IOException e) {
                 LogUtil.handleException(log, e, strict);
             } catch (URISyntaxException use) {
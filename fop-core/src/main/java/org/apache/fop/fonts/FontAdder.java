@@ -19,17 +19,34 @@
 
 package org.apache.fop.fonts;
 
+import java.io.InterruptedIOException;
+import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.fop.apps.io.InternalResourceResolver;
 import org.apache.fop.fonts.autodetect.FontInfoFinder;
 
 /**
- * Adds a list of fonts to a given font info list
+ * Adds a list of fonts to a given font info list. The font files are examined on a pool of
+ * worker threads (see {@link #setThreadCount(int)}); the resulting font infos are added in
+ * the order of the font file list regardless.
  */
 public class FontAdder {
+
+    /** font file lists shorter than this are examined on the calling thread */
+    private static final int MIN_PARALLEL_FONTS = 4;
+
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+
     private final FontEventListener listener;
     private final InternalResourceResolver resourceResolver;
     private final FontManager manager;
@@ -47,28 +64,76 @@ public class FontAdder {
         this.listener = listener;
     }
 
+    /**
+     * Sets the maximum number of threads used to examine font files.
+     * @param threadCount the number of threads (1 to examine the font files sequentially)
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
     /**
      * Iterates over font url list adding to font info list
      * @param fontURLList font file list
      * @param fontInfoList a configured font info list
      * @throws URISyntaxException if a URI syntax error is found
+     * @throws InterruptedIOException if the thread is interrupted while the font files are
+     * examined; the font info list is incomplete then
      */
     public void add(List<URL> fontURLList, List<EmbedFontInfo> fontInfoList)
-            throws URISyntaxException {
-        FontCache cache = manager.getFontCache();
-        FontInfoFinder finder = new FontInfoFinder();
+            throws URISyntaxException, InterruptedIOException {
+        final FontCache cache = manager.getFontCache();
+        final FontInfoFinder finder = new FontInfoFinder();
         finder.setEventListener(listener);
 
-        for (URL fontURL : fontURLList) {
-            EmbedFontInfo[] embedFontInfos = finder.find(fontURL.toURI(), resourceResolver, cache);
-            if (embedFontInfos == null) {
-                continue;
+        int threads = Math.min(threadCount, fontURLList.size() / MIN_PARALLEL_FONTS);
+        if (threads <= 1) {
+            for (URL fontURL : fontURLList) {
+                addFontInfos(finder.find(fontURL.toURI(), resourceResolver, cache), fontInfoList);
+            }
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory());
+        try {
+            List<Future<EmbedFontInfo[]>> results = new ArrayList<Future<EmbedFontInfo[]>>();
+            for (URL fontURL : fontURLList) {
+                final URI fontURI = fontURL.toURI();
+                results.add(executor.submit(new Callable<EmbedFontInfo[]>() {
+                    public EmbedFontInfo[] call() {
+                        return finder.find(fontURI, resourceResolver, cache);
+                    }
+                }));
             }
-            for (EmbedFontInfo fontInfo : embedFontInfos) {
-                if (fontInfo != null) {
-                    fontInfoList.add(fontInfo);
-                }
+            for (Future<EmbedFontInfo[]> result : results) {
+                addFontInfos(result.get(), fontInfoList);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Font auto-detection interrupted");
+        } catch (ExecutionException e) {
+            // FontInfoFinder reports all font loading problems through the event listener
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void addFontInfos(EmbedFontInfo[] embedFontInfos, List<EmbedFontInfo> fontInfoList) {
+        if (embedFontInfos == null) {
+            return;
+        }
+        for (EmbedFontInfo fontInfo : embedFontInfos) {
+            if (fontInfo != null) {
+                fontInfoList.add(fontInfo);
+            }
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "FOP font auto-detection");
+            thread.setDaemon(true);
+            return thread;
         }
     }
 }
@@ -20,19 +20,27 @@
 package org.apache.fop.fonts;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
@@ -46,6 +54,14 @@ import org.apache.fop.util.LogUtil;
 
 /**
  * Fop cache (currently only used for font info caching)
+ * <p>
+ * The cache is stored in a compact, versioned binary format: a small header followed by one
+ * record per font file. The font infos of a record are only decoded when the font file is
+ * looked up, and records that weren't touched are written back unchanged, so loading and
+ * saving a cache of thousands of system fonts is cheap. Cache files written by older FOP
+ * versions using Java serialization are still read and converted on the next save.</p>
+ * <p>
+ * This class is thread-safe, so font files may be examined concurrently.</p>
  */
 public final class FontCache implements Serializable {
 
@@ -64,6 +80,18 @@ public final class FontCache implements Serializable {
     /** font cache file path */
     private static final String DEFAULT_CACHE_FILENAME = "fop-fonts.cache";
 
+    /** identifies a font cache file in the compact format ("FOPC") */
+    private static final int MAGIC = 0x464F5043;
+
+    /**
+     * Version of the compact format. Change this value when the record layout changes,
+     * caches written in another version are discarded.
+     */
+    static final int FORMAT_VERSION = 1;
+
+    /** first bytes of a Java serialization stream (legacy cache files) */
+    private static final int SERIALIZATION_MAGIC = 0xACED;
+
     /** has this cache been changed since it was last read? */
     private transient boolean changed;
 
@@ -160,11 +188,10 @@ public final class FontCache implements Serializable {
                             + cacheFile.getCanonicalPath());
                 }
                 InputStream in = new BufferedInputStream(new FileInputStream(cacheFile));
-                ObjectInputStream oin = new ObjectInputStream(in);
                 try {
-                    return (FontCache) oin.readObject();
+                    return read(in);
                 } finally {
-                    IOUtils.closeQuietly(oin);
+                    IOUtils.closeQuietly(in);
                 }
             } catch (ClassNotFoundException e) {
                 // We don't really care about the exception since it's just a
@@ -187,6 +214,64 @@ public final class FontCache implements Serializable {
         return null;
     }
 
+    private static FontCache read(InputStream in) throws IOException, ClassNotFoundException {
+        in.mark(4);
+        DataInputStream din = new DataInputStream(in);
+        int magic = din.readInt();
+        if ((magic >>> 16) == SERIALIZATION_MAGIC) {
+            in.reset();
+            FontCache cache = (FontCache) new ObjectInputStream(in).readObject();
+            // convert to the compact format on the next save
+            cache.changed = true;
+            return cache;
+        }
+        if (magic != MAGIC) {
+            throw new IOException("not a font cache file");
+        }
+        int version = din.readInt();
+        if (version != FORMAT_VERSION) {
+            log.info("Font cache format version " + version + " is not supported."
+                    + " Discarding font cache file.");
+            return null;
+        }
+        FontCache cache = new FontCache();
+        for (int i = 0, n = din.readInt(); i < n; i++) {
+            String key = din.readUTF();
+            long lastModified = din.readLong();
+            byte[] data = new byte[din.readInt()];
+            din.readFully(data);
+            cache.getFontFileMap().put(key, new CachedFontFile(lastModified, data));
+        }
+        for (int i = 0, n = din.readInt(); i < n; i++) {
+            String key = din.readUTF();
+            cache.getFailedFontMap().put(key, din.readLong());
+        }
+        return cache;
+    }
+
+    private void write(OutputStream out) throws IOException {
+        DataOutputStream dout = new DataOutputStream(out);
+        dout.writeInt(MAGIC);
+        dout.writeInt(FORMAT_VERSION);
+        Map<String, CachedFontFile> fontFiles = getFontFileMap();
+        dout.writeInt(fontFiles.size());
+        for (Map.Entry<String, CachedFontFile> entry : fontFiles.entrySet()) {
+            CachedFontFile cff = entry.getValue();
+            byte[] data = cff.getData();
+            dout.writeUTF(entry.getKey());
+            dout.writeLong(cff.lastModified());
+            dout.writeInt(data.length);
+            dout.write(data);
+        }
+        Map<String, Long> failedFonts = getFailedFontMap();
+        dout.writeInt(failedFonts.size());
+        for (Map.Entry<String, Long> entry : failedFonts.entrySet()) {
+            dout.writeUTF(entry.getKey());
+            dout.writeLong(entry.getValue());
+        }
+        dout.flush();
+    }
+
     /**
      * Writes the font cache to disk.
      *
@@ -212,11 +297,10 @@ public final class FontCache implements Serializable {
                     log.trace("Writing font cache to " + cacheFile.getCanonicalPath());
                     OutputStream out = new java.io.FileOutputStream(cacheFile);
                     out = new java.io.BufferedOutputStream(out);
-                    ObjectOutputStream oout = new ObjectOutputStream(out);
                     try {
-                        oout.writeObject(this);
+                        write(out);
                     } finally {
-                        IOUtils.closeQuietly(oout);
+                        IOUtils.closeQuietly(out);
                     }
                 } catch (IOException ioe) {
                     LogUtil.handleException(log, ioe, true);
@@ -260,7 +344,9 @@ public final class FontCache implements Serializable {
      * @return boolean
      */
     public boolean containsFont(String embedUrl) {
-        return (embedUrl != null && getFontFileMap().containsKey(embedUrl));
+        synchronized (changeLock) {
+            return (embedUrl != null && getFontFileMap().containsKey(embedUrl));
+        }
     }
 
     /**
@@ -271,8 +357,7 @@ public final class FontCache implements Serializable {
      * @return font
      */
     public boolean containsFont(EmbedFontInfo fontInfo) {
-        return (fontInfo != null && getFontFileMap().containsKey(
-                getCacheKey(fontInfo)));
+        return (fontInfo != null && containsFont(getCacheKey(fontInfo)));
     }
 
     /**
@@ -323,21 +408,30 @@ public final class FontCache implements Serializable {
         String cacheKey = getCacheKey(fontInfo);
         synchronized (changeLock) {
             CachedFontFile cachedFontFile;
-            if (containsFont(cacheKey)) {
-                cachedFontFile = getFontFileMap().get(cacheKey);
-                if (!cachedFontFile.containsFont(fontInfo)) {
+            try {
+                if (containsFont(cacheKey)) {
+                    cachedFontFile = getFontFileMap().get(cacheKey);
+                    if (!cachedFontFile.containsFont(fontInfo)) {
+                        cachedFontFile.put(fontInfo);
+                        changed = true;
+                    }
+                } else {
+                    // try and determine modified date
+                    URI fontUri = resourceResolver.resolveFromBase(fontInfo.getEmbedURI());
+                    long lastModified = getLastModified(fontUri);
+                    cachedFontFile = new CachedFontFile(lastModified);
+                    if (log.isTraceEnabled()) {
+                        log.trace("Font added to cache: " + cacheKey);
+                    }
                     cachedFontFile.put(fontInfo);
+                    getFontFileMap().put(cacheKey, cachedFontFile);
+                    changed = true;
                 }
-            } else {
-                // try and determine modified date
-                URI fontUri = resourceResolver.resolveFromBase(fontInfo.getEmbedURI());
-                long lastModified = getLastModified(fontUri);
-                cachedFontFile = new CachedFontFile(lastModified);
-                if (log.isTraceEnabled()) {
-                    log.trace("Font added to cache: " + cacheKey);
-                }
-                cachedFontFile.put(fontInfo);
-                getFontFileMap().put(cacheKey, cachedFontFile);
+            } catch (IOException ioe) {
+                // corrupt cache entry, drop it
+                log.warn("Discarding corrupt font cache entry for " + cacheKey + ": "
+                        + ioe.getMessage());
+                getFontFileMap().remove(cacheKey);
                 changed = true;
             }
         }
@@ -351,7 +445,9 @@ public final class FontCache implements Serializable {
      * @return CachedFontFile object
      */
     public CachedFontFile getFontFile(String embedUrl) {
-        return containsFont(embedUrl) ? getFontFileMap().get(embedUrl) : null;
+        synchronized (changeLock) {
+            return containsFont(embedUrl) ? getFontFileMap().get(embedUrl) : null;
+        }
     }
 
     /**
@@ -367,10 +463,16 @@ public final class FontCache implements Serializable {
      *         if it is outdated
      */
     public EmbedFontInfo[] getFontInfos(String embedUrl, long lastModified) {
-        CachedFontFile cff = getFontFile(embedUrl);
-        if (cff.lastModified() == lastModified) {
-            return cff.getEmbedFontInfos();
-        } else {
+        synchronized (changeLock) {
+            CachedFontFile cff = getFontFile(embedUrl);
+            if (cff != null && cff.lastModified() == lastModified) {
+                try {
+                    return cff.getEmbedFontInfos();
+                } catch (IOException ioe) {
+                    log.warn("Discarding corrupt font cache entry for " + embedUrl + ": "
+                            + ioe.getMessage());
+                }
+            }
             removeFont(embedUrl);
             return null;
         }
@@ -466,6 +568,14 @@ public final class FontCache implements Serializable {
      * @return the last modified date/time
      */
     public static long getLastModified(URI uri) {
+        if ("file".equals(uri.getScheme())) {
+            // avoid opening the file, that's what the URLConnection below does
+            try {
+                return new File(uri).lastModified();
+            } catch (IllegalArgumentException iae) {
+                // not a plain file URI, fall through
+            }
+        }
         try {
             URL url = uri.toURL();
             URLConnection conn = url.openConnection();
@@ -483,6 +593,79 @@ public final class FontCache implements Serializable {
         }
     }
 
+    private static void writeFontInfo(EmbedFontInfo efi, DataOutput out) throws IOException {
+        FontUris fontUris = efi.getFontUris();
+        writeURI(fontUris.getEmbed(), out);
+        writeURI(fontUris.getMetrics(), out);
+        writeURI(fontUris.getAfm(), out);
+        writeURI(fontUris.getPfm(), out);
+        writeString(efi.getPostScriptName(), out);
+        writeString(efi.getSubFontName(), out);
+        writeString(efi.getEncodingMode() != null ? efi.getEncodingMode().getName() : null, out);
+        writeString(efi.getEmbeddingMode() != null ? efi.getEmbeddingMode().getName() : null, out);
+        out.writeBoolean(efi.getKerning());
+        out.writeBoolean(efi.getAdvanced());
+        out.writeBoolean(efi.getSimulateStyle());
+        out.writeBoolean(efi.getEmbedAsType1());
+        out.writeBoolean(efi.getUseSVG());
+        List<FontTriplet> triplets = efi.getFontTriplets();
+        out.writeInt(triplets.size());
+        for (FontTriplet triplet : triplets) {
+            out.writeUTF(triplet.getName());
+            out.writeUTF(triplet.getStyle());
+            out.writeInt(triplet.getWeight());
+            out.writeInt(triplet.getPriority());
+        }
+    }
+
+    private static EmbedFontInfo readFontInfo(DataInput in) throws IOException {
+        FontUris fontUris = new FontUris(readURI(in), readURI(in), readURI(in), readURI(in));
+        String postScriptName = readString(in);
+        String subFontName = readString(in);
+        String encodingMode = readString(in);
+        String embeddingMode = readString(in);
+        boolean kerning = in.readBoolean();
+        boolean advanced = in.readBoolean();
+        boolean simulateStyle = in.readBoolean();
+        boolean embedAsType1 = in.readBoolean();
+        boolean useSVG = in.readBoolean();
+        int n = in.readInt();
+        List<FontTriplet> triplets = new ArrayList<FontTriplet>(n);
+        for (int i = 0; i < n; i++) {
+            triplets.add(new FontTriplet(in.readUTF(), in.readUTF(), in.readInt(), in.readInt()));
+        }
+        EmbedFontInfo efi = new EmbedFontInfo(fontUris, kerning, advanced, triplets, subFontName,
+                encodingMode != null ? EncodingMode.getValue(encodingMode) : null,
+                embeddingMode != null ? EmbeddingMode.getValue(embeddingMode) : null,
+                simulateStyle, embedAsType1, useSVG);
+        efi.setPostScriptName(postScriptName);
+        return efi;
+    }
+
+    private static void writeString(String s, DataOutput out) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeURI(URI uri, DataOutput out) throws IOException {
+        writeString(uri != null ? uri.toString() : null, out);
+    }
+
+    private static URI readURI(DataInput in) throws IOException {
+        String s = readString(in);
+        try {
+            return s != null ? new URI(s) : null;
+        } catch (URISyntaxException use) {
+            throw new IOException(use.getMessage());
+        }
+    }
+
     private static class CachedFontFile implements Serializable {
         private static final long serialVersionUID = 4524237324330578883L;
 
@@ -491,29 +674,64 @@ public final class FontCache implements Serializable {
 
         private Map<String, EmbedFontInfo> filefontsMap;
 
+        /** encoded font infos as read from the cache file, decoded on first access */
+        private transient byte[] data;
+
         public CachedFontFile(long lastModified) {
             setLastModified(lastModified);
         }
 
-        private Map<String, EmbedFontInfo> getFileFontsMap() {
+        CachedFontFile(long lastModified, byte[] data) {
+            this(lastModified);
+            this.data = data;
+        }
+
+        private Map<String, EmbedFontInfo> getFileFontsMap() throws IOException {
             if (filefontsMap == null) {
-                filefontsMap = new HashMap<String, EmbedFontInfo>();
+                Map<String, EmbedFontInfo> map = new HashMap<String, EmbedFontInfo>();
+                if (data != null) {
+                    DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+                    for (int i = 0, n = in.readInt(); i < n; i++) {
+                        EmbedFontInfo efi = readFontInfo(in);
+                        map.put(efi.getPostScriptName(), efi);
+                    }
+                }
+                filefontsMap = map;
             }
             return filefontsMap;
         }
 
-        void put(EmbedFontInfo efi) {
+        /**
+         * Returns the encoded font infos. Entries that were never decoded are returned as read.
+         */
+        byte[] getData() throws IOException {
+            if (filefontsMap == null && data != null) {
+                return data;
+            }
+            ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bout);
+            Map<String, EmbedFontInfo> map = getFileFontsMap();
+            out.writeInt(map.size());
+            for (EmbedFontInfo efi : map.values()) {
+                writeFontInfo(efi, out);
+            }
+            out.flush();
+            return bout.toByteArray();
+        }
+
+        void put(EmbedFontInfo efi) throws IOException {
             getFileFontsMap().put(efi.getPostScriptName(), efi);
+            data = null;
         }
 
-        public boolean containsFont(EmbedFontInfo efi) {
+        public boolean containsFont(EmbedFontInfo efi) throws IOException {
             return efi.getPostScriptName() != null
                     && getFileFontsMap().containsKey(efi.getPostScriptName());
         }
 
-        public EmbedFontInfo[] getEmbedFontInfos() {
-            return getFileFontsMap().values().toArray(
-                    new EmbedFontInfo[getFileFontsMap().size()]);
+        public EmbedFontInfo[] getEmbedFontInfos() throws IOException {
+            Map<String, EmbedFontInfo> map = getFileFontsMap();
+            return map.values().toArray(new EmbedFontInfo[map.size()]);
         }
 
         /**
@@ -21,6 +21,7 @@ package org.apache.fop.fonts;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -109,6 +110,9 @@ public final class FontDetectorFactory {
                 for (String mimeTypes : FONT_MIMETYPES) {
                     fontAdder.add(resource.listResourcesOfMimeType(mimeTypes), fontInfoList);
                 }
+            } catch (InterruptedIOException e) {
+                // don't let the font cache be saved with an incomplete font list
+                throw new FOPException("Font auto-detection interrupted", e);
             } catch (IOException e) {
                 LogUtil.handleException(log, e, strict);
             } catch (URISyntaxException use) {
@@ -30,6 +30,8 @@ import java.util.TreeSet;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.apache.fop.apps.FormattingMetrics;
+
 
 /**
  * The FontInfo holds font information for the layout and rendering of a fo document.
@@ -64,6 +66,9 @@ public class FontInfo {
     /** Event listener for font events */
     private FontEventListener eventListener;
 
+    /** Formatting metrics recording the time spent loading fonts, null if not recorded */
+    private FormattingMetrics formattingMetrics;
+
     /**
      * Main constructor
      */
@@ -83,6 +88,15 @@ public class FontInfo {
         this.eventListener = listener;
     }
 
+    /**
+     * Sets the formatting metrics which record the time spent loading the fonts registered
+     * afterwards.
+     * @param formattingMetrics the formatting metrics (may be null)
+     */
+    public void setFormattingMetrics(FormattingMetrics formattingMetrics) {
+        this.formattingMetrics = formattingMetrics;
+    }
+
     /**
      * Checks if the font setup is valid (At least the ultimate fallback font
      * must be registered.)
@@ -179,6 +193,9 @@ public class FontInfo {
         if (metrics instanceof Typeface) {
             ((Typeface)metrics).setEventListener(this.eventListener);
         }
+        if (metrics instanceof LazyFont) {
+            ((LazyFont) metrics).setFormattingMetrics(formattingMetrics);
+        }
         this.fonts.put(internalFontKey, (Typeface)metrics);
     }
 
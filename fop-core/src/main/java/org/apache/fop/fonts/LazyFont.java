@@ -30,6 +30,7 @@ import org.xml.sax.InputSource;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.apache.fop.apps.FormattingMetrics;
 import org.apache.fop.apps.io.InternalResourceResolver;
 import org.apache.fop.complexscripts.fonts.Positionable;
 import org.apache.fop.complexscripts.fonts.Substitutable;
@@ -57,6 +58,7 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
     private boolean isMetricsLoaded;
     private Typeface realFont;
     private FontDescriptor realFontDescriptor;
+    private FormattingMetrics formattingMetrics;
 
     /**
      * Main constructor
@@ -97,8 +99,19 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
         return sbuf.toString();
     }
 
+    /**
+     * Sets the formatting metrics which record the time spent loading the font.
+     * @param formattingMetrics the formatting metrics (may be null)
+     */
+    void setFormattingMetrics(FormattingMetrics formattingMetrics) {
+        this.formattingMetrics = formattingMetrics;
+    }
+
     private void load(boolean fail) {
         if (!isMetricsLoaded) {
+            if (formattingMetrics != null) {
+                formattingMetrics.startPhase(FormattingMetrics.Phase.FONT_LOADING);
+            }
             try {
                 if (fontUris.getMetrics() != null) {
                     // Use of XML based font metrics is DEPRECATED!
@@ -136,6 +149,10 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
             }
             realFont.setEventListener(this.eventListener);
             isMetricsLoaded = true;
+            if (formattingMetrics != null) {
+                formattingMetrics.endPhase(FormattingMetrics.Phase.FONT_LOADING);
+                formattingMetrics.count(FormattingMetrics.Counter.FONTS_LOADED, 1);
+            }
         }
     }
 
@@ -21,10 +21,17 @@ package org.apache.fop.fonts.autodetect;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.commons.io.DirectoryWalker;
 import org.apache.commons.io.IOCase;
@@ -153,8 +160,47 @@ public class FontFileFinder extends DirectoryWalker implements FontFinder {
         }
         List<File> fontDirs = fontDirFinder.find();
         List<URL> results = new java.util.ArrayList<URL>();
-        for (File dir : fontDirs) {
-            super.walk(dir, results);
+        if (fontDirs.size() <= 1) {
+            for (File dir : fontDirs) {
+                super.walk(dir, results);
+            }
+            return results;
+        }
+        // walk the font directories concurrently, they are often on different devices
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(fontDirs.size(), Runtime.getRuntime().availableProcessors()),
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        // an abandoned scan must not keep the JVM alive
+                        Thread thread = new Thread(r, "FOP font directory scan");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        try {
+            List<Future<List<URL>>> dirResults = new java.util.ArrayList<Future<List<URL>>>();
+            for (final File dir : fontDirs) {
+                dirResults.add(executor.submit(new Callable<List<URL>>() {
+                    public List<URL> call() throws IOException {
+                        List<URL> dirResult = new java.util.ArrayList<URL>();
+                        walk(dir, dirResult);
+                        return dirResult;
+                    }
+                }));
+            }
+            for (Future<List<URL>> dirResult : dirResults) {
+                results.addAll(dirResult.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
         }
         return results;
     }
@@ -19,14 +19,12 @@
 
 package org.apache.fop.fonts.autodetect;
 
-import java.io.InputStream;
 import java.net.URI;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -197,11 +195,9 @@ public class FontInfoFinder {
         if (fontURI.toASCIIString().toLowerCase().endsWith(".ttc")) {
             // Get a list of the TTC Font names
             List<String> ttcNames = null;
-            InputStream in = null;
             try {
-                in = resourceResolver.getResource(fontURI);
                 TTFFile ttf = new TTFFile(false, false);
-                FontFileReader reader = new FontFileReader(in);
+                FontFileReader reader = FontFileReader.create(resourceResolver, fontURI);
                 ttcNames = ttf.getTTCnames(reader);
                 if (ttcNames == null) {
                     return null;
@@ -212,8 +208,6 @@ public class FontInfoFinder {
                             fontURI.toASCIIString(), new RuntimeException(e));
                 }
                 return null;
-            } finally {
-                IOUtils.closeQuietly(in);
             }
 
             List<EmbedFontInfo> embedFontInfoList = new java.util.ArrayList<EmbedFontInfo>();
@@ -21,18 +21,27 @@ package org.apache.fop.fonts.truetype;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
 
 import org.apache.commons.io.IOUtils;
 
+import org.apache.fop.apps.io.InternalResourceResolver;
+
 /**
  * Reads a TrueType font file into a byte array and
  * provides file like functions for array access.
+ * <p>
+ * Local font files may instead be backed by a read-only memory-mapped buffer that is shared
+ * with all other readers of the same file (see {@link #create(InternalResourceResolver, URI)}),
+ * so large fonts and font collections are not copied onto the heap just to read a few tables.
+ * A private copy is only made if the data is modified or requested as a whole.
  */
 public class FontFileReader {
 
     private final int fsize; // file size
     private int current;    // current position in file
-    private final byte[] file;
+    private ByteBuffer file;
 
     /**
      * Constructor
@@ -41,11 +50,47 @@ public class FontFileReader {
      * @throws IOException In case of an I/O problem
      */
     public FontFileReader(InputStream in) throws IOException {
-        this.file = IOUtils.toByteArray(in);
-        this.fsize = this.file.length;
+        this.file = ByteBuffer.wrap(IOUtils.toByteArray(in));
+        this.fsize = this.file.capacity();
         this.current = 0;
     }
 
+    /**
+     * Creates a reader for the contents of a buffer, usually a memory-mapped font file. The
+     * buffer's content is not modified and may be shared between readers.
+     *
+     * @param buffer the font data from position 0 to the buffer's capacity
+     */
+    public FontFileReader(ByteBuffer buffer) {
+        this.file = buffer;
+        this.fsize = buffer.capacity();
+        this.current = 0;
+    }
+
+    /**
+     * Creates a reader for a font file. Local font files are memory-mapped and the mapping is
+     * shared by all readers created through the same resolver, other fonts are read into
+     * memory.
+     *
+     * @param resolver the resolver for the font file
+     * @param uri the URI of the font file
+     * @return the reader
+     * @throws IOException In case of an I/O problem
+     */
+    public static FontFileReader create(InternalResourceResolver resolver, URI uri)
+            throws IOException {
+        ByteBuffer mapped = resolver.getMappedResource(uri);
+        if (mapped != null) {
+            return new FontFileReader(mapped);
+        }
+        InputStream in = resolver.getResource(uri);
+        try {
+            return new FontFileReader(in);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
 
     /**
      * Set current file position to offset
@@ -100,7 +145,7 @@ public class FontFileReader {
             throw new java.io.EOFException("Reached EOF, file size=" + fsize);
         }
 
-        final byte ret = file[current++];
+        final byte ret = file.get(current++);
         return ret;
     }
 
@@ -167,8 +212,9 @@ public class FontFileReader {
         final byte b1 = (byte)((val >> 8) & 0xff);
         final byte b2 = (byte)(val & 0xff);
         final int fileIndex = (int) pos;
-        file[fileIndex] = b1;
-        file[fileIndex + 1] = b2;
+        ByteBuffer data = getWritableBuffer();
+        data.put(fileIndex, b1);
+        data.put(fileIndex + 1, b2);
     }
 
     /**
@@ -239,15 +285,14 @@ public class FontFileReader {
      */
     public final String readTTFString() throws IOException {
         int i = current;
-        while (file[i++] != 0) {
+        while (file.get(i++) != 0) {
             if (i >= fsize) {
                 throw new java.io.EOFException("Reached EOF, file size="
                                                + fsize);
             }
         }
 
-        byte[] tmp = new byte[i - current - 1];
-        System.arraycopy(file, current, tmp, 0, i - current - 1);
+        byte[] tmp = copyBytes(current, i - current - 1);
         return new String(tmp, "ISO-8859-1");
     }
 
@@ -264,8 +309,7 @@ public class FontFileReader {
             throw new java.io.EOFException("Reached EOF, file size=" + fsize);
         }
 
-        byte[] tmp = new byte[len];
-        System.arraycopy(file, current, tmp, 0, len);
+        byte[] tmp = copyBytes(current, len);
         current += len;
         final String encoding;
         if ((tmp.length > 0) && (tmp[0] == 0)) {
@@ -289,8 +333,7 @@ public class FontFileReader {
             throw new java.io.EOFException("Reached EOF, file size=" + fsize);
         }
 
-        byte[] tmp = new byte[len];
-        System.arraycopy(file, current, tmp, 0, len);
+        byte[] tmp = copyBytes(current, len);
         current += len;
         final String encoding;
         encoding = "UTF-16BE"; //Use this for all known encoding IDs for now
@@ -311,15 +354,32 @@ public class FontFileReader {
             throw new java.io.IOException("Reached EOF");
         }
 
+        return copyBytes(offset, length);
+    }
+
+    private byte[] copyBytes(int offset, int length) {
         byte[] ret = new byte[length];
-        System.arraycopy(file, offset, ret, 0, length);
+        ByteBuffer src = file.duplicate();
+        src.position(offset);
+        src.get(ret);
         return ret;
     }
+
     /**
      * Returns the full byte array representation of the file.
+     * If the reader is backed by a shared buffer, the font is copied into a private array
+     * first, which is then used by this reader from now on.
      * @return byte array.
      */
     public byte[] getAllBytes() {
+        return getWritableBuffer().array();
+    }
+
+    private ByteBuffer getWritableBuffer() {
+        if (file.isReadOnly() || !file.hasArray() || file.arrayOffset() != 0
+                || file.array().length != fsize) {
+            file = ByteBuffer.wrap(copyBytes(0, fsize));
+        }
         return file;
     }
 }
@@ -25,7 +25,9 @@ import java.util.ListIterator;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.apache.fop.apps.FormattingMetrics;
 import org.apache.fop.fo.Constants;
+import org.apache.fop.fo.FObj;
 import org.apache.fop.layoutmgr.BreakingAlgorithm.KnuthNode;
 import org.apache.fop.traits.MinOptMax;
 import org.apache.fop.util.ListUtil;
@@ -260,6 +262,33 @@ public abstract class AbstractBreaker {
         return false;
     }
 
+    /**
+     * Runs the page breaking algorithm on a block list, applying the user agent's active node
+     * limit, and records the time spent and the work done in the formatting metrics.
+     * @param alg the page breaking algorithm
+     * @param blockList the block list to break
+     * @param startIndex index of the Knuth element at which the breaking must start
+     * @return the number of effective breaks
+     */
+    protected int findBreakingPoints(PageBreakingAlgorithm alg, BlockSequence blockList, int startIndex) {
+        FObj fobj = getTopLevelLM().getFObj();
+        FormattingMetrics metrics = null;
+        if (fobj != null) {
+            metrics = fobj.getUserAgent().getFormattingMetrics();
+            alg.setActiveNodeLimit(fobj.getUserAgent().getActiveNodeLimit());
+        }
+        if (metrics == null) {
+            return alg.findBreakingPoints(blockList, startIndex, 1, true, BreakingAlgorithm.ALL_BREAKS);
+        }
+        metrics.startPhase(FormattingMetrics.Phase.PAGE_BREAKING);
+        try {
+            return alg.findBreakingPoints(blockList, startIndex, 1, true, BreakingAlgorithm.ALL_BREAKS);
+        } finally {
+            metrics.endPhase(FormattingMetrics.Phase.PAGE_BREAKING);
+            alg.addCounts(metrics);
+        }
+    }
+
     /**
      * Returns the PageProvider if any. PageBreaker overrides this method because each
      * page may have a different available BPD which needs to be accessible to the breaking
@@ -407,8 +436,7 @@ public abstract class AbstractBreaker {
                          isPartOverflowRecoveryActivated(), autoHeight, isSinglePartFavored());
 
                 alg.setConstantLineWidth(flowBPD);
-                int optimalPageCount = alg.findBreakingPoints(blockList, 1, true,
-                        BreakingAlgorithm.ALL_BREAKS);
+                int optimalPageCount = findBreakingPoints(alg, blockList, 0);
                 boolean ipdChangesOnNextPage = (alg.getIPDdifference() != 0);
                 boolean onLastPageAndIPDChanges = false;
                 if (!ipdChangesOnNextPage) {
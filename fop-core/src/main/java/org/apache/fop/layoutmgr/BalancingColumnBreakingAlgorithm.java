@@ -20,8 +20,8 @@
 package org.apache.fop.layoutmgr;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 
 import org.apache.fop.traits.MinOptMax;
@@ -29,11 +29,30 @@ import org.apache.fop.traits.MinOptMax;
 /**
  * This is a the breaking algorithm that is responsible for balancing columns in multi-column
  * layout.
+ * <p>
+ * The ideal breaks are computed once, from cumulated element lengths: the length of any
+ * range of elements is the difference of two prefix sums, and the first legal break
+ * exceeding a given column length is found with a search over a tree of the maximum break
+ * lengths, so each balancing iteration costs a few lookups per column rather than a scan
+ * of the element list.</p>
  */
 public class BalancingColumnBreakingAlgorithm extends PageBreakingAlgorithm {
 
     private int columnCount;
-    private List<Integer> idealBreaks;
+    private int[] idealBreaks;
+
+    /** Cumulated width of the boxes and glues before each element. */
+    private int[] contentLengths;
+    /** Cumulated width of the boxes and glues before each element, without break glues. */
+    private int[] nonBreakLengths;
+    /** Indexes of the legal breaks from the start position on, in ascending order. */
+    private int[] breakIndexes;
+    /** The length of the content up to each legal break, including the penalty width. */
+    private int[] breakLengths;
+    /** A binary tree holding the maximum break length of each range of legal breaks. */
+    private int[] maxBreakLengths;
+    private int breakCount;
+    private int leafCount;
 
     public BalancingColumnBreakingAlgorithm(LayoutManager topLevelLM,
             PageProvider pageProvider,
@@ -52,30 +71,30 @@ public class BalancingColumnBreakingAlgorithm extends PageBreakingAlgorithm {
     /** {@inheritDoc} */
     protected double computeDemerits(KnuthNode activeNode,
             KnuthElement element, int fitnessClass, double r) {
-        double demerits = Double.MAX_VALUE;
         if (idealBreaks == null) {
             idealBreaks = calculateIdealBreaks(activeNode.position);
         }
-        LinkedList<Integer> curPossibility = getPossibilityTrail(activeNode);
-        boolean notIdeal = false;
-        int idealDemerit = columnCount + 1 - curPossibility.size();
-        if (curPossibility.size() > idealBreaks.size()) {
-            return demerits;
-        }
-        for (int breakPos = 0; breakPos < curPossibility.size(); breakPos++) {
-            if (curPossibility.get(breakPos) != 0
-                    && !curPossibility.get(breakPos).equals(idealBreaks.get(breakPos))) {
-                notIdeal = true;
-                break;
+        // the trail of breaks leading to the active node is followed through the
+        // previous nodes; it must not be longer than the ideal one...
+        int trailLength = 0;
+        for (KnuthNode node = activeNode; node != null; node = node.previous) {
+            if (++trailLength > idealBreaks.length) {
+                return Double.MAX_VALUE;
             }
         }
-        if (!notIdeal) {
-            demerits = idealDemerit;
+        // ...and all its breaks must be ideal
+        int breakPos = trailLength;
+        for (KnuthNode node = activeNode; node != null; node = node.previous) {
+            breakPos--;
+            if (node.position != 0 && node.position != idealBreaks[breakPos]) {
+                return Double.MAX_VALUE;
+            }
         }
-        return demerits;
+        return columnCount + 1 - trailLength;
     }
 
-    private List<Integer> calculateIdealBreaks(int startPos) {
+    private int[] calculateIdealBreaks(int startPos) {
+        calculateLengths(startPos);
         List<ColumnContent> previousPreviousBreaks = null;
         List<ColumnContent> previousBreaks = null;
         List<ColumnContent> breaks = new ArrayList<ColumnContent>();
@@ -89,7 +108,8 @@ public class BalancingColumnBreakingAlgorithm extends PageBreakingAlgorithm {
         return getElementIdBreaks(breaks, startPos);
     }
 
-    private static final class ColumnContent {
+    /** The range of elements in a column. */
+    static final class ColumnContent {
 
         public final int startIndex;
 
@@ -122,51 +142,151 @@ public class BalancingColumnBreakingAlgorithm extends PageBreakingAlgorithm {
 
     }
 
+    /**
+     * Computes the cumulated element lengths and collects the legal breaks from the given
+     * start position on.
+     */
+    void calculateLengths(int startPos) {
+        int size = par.size();
+        contentLengths = new int[size + 1];
+        nonBreakLengths = new int[size + 1];
+        breakIndexes = new int[size];
+        breakLengths = new int[size];
+        breakCount = 0;
+        boolean prevIsBox = false;
+        for (int i = 0; i < size; i++) {
+            KnuthElement element = (KnuthElement) par.get(i);
+            int width = element instanceof KnuthPenalty ? 0 : element.getWidth();
+            contentLengths[i + 1] = contentLengths[i] + width;
+            if (i >= startPos && isLegalBreak(i, prevIsBox)) {
+                nonBreakLengths[i + 1] = nonBreakLengths[i];
+                breakIndexes[breakCount] = i;
+                breakLengths[breakCount] = nonBreakLengths[i] + getPenaltyWidth(i);
+                breakCount++;
+                prevIsBox = false;
+            } else {
+                nonBreakLengths[i + 1] = nonBreakLengths[i] + width;
+                prevIsBox = i >= startPos && element instanceof KnuthBox;
+            }
+        }
+        leafCount = 1;
+        while (leafCount < breakCount) {
+            leafCount <<= 1;
+        }
+        maxBreakLengths = new int[2 * leafCount];
+        Arrays.fill(maxBreakLengths, leafCount, maxBreakLengths.length, Integer.MIN_VALUE);
+        System.arraycopy(breakLengths, 0, maxBreakLengths, leafCount, breakCount);
+        for (int i = leafCount - 1; i > 0; i--) {
+            maxBreakLengths[i] = Math.max(maxBreakLengths[2 * i], maxBreakLengths[2 * i + 1]);
+        }
+    }
+
+    /**
+     * Returns the first legal break from the given one on whose break length exceeds the
+     * given length.
+     * @param fromBreak the number of the first legal break to consider
+     * @param length the length
+     * @return the number of the legal break, or -1 if there is none
+     */
+    int findBreakExceeding(int fromBreak, int length) {
+        if (fromBreak >= breakCount) {
+            return -1;
+        }
+        int node = leafCount + fromBreak;
+        while (maxBreakLengths[node] <= length) {
+            // move on to the next subtree on the right
+            while ((node & 1) == 1) {
+                node >>= 1;
+            }
+            if (node == 0) {
+                return -1;
+            }
+            node++;
+        }
+        while (node < leafCount) {
+            node <<= 1;
+            if (maxBreakLengths[node] <= length) {
+                node++;
+            }
+        }
+        return node - leafCount;
+    }
+
+    /** @return the number of legal breaks found by {@link #calculateLengths(int)} */
+    int getBreakCount() {
+        return breakCount;
+    }
+
+    /**
+     * Returns the length of the content from the start position up to the given legal break,
+     * including the width of the penalty at the break.
+     * @param breakNumber the number of the legal break
+     * @return the break length
+     */
+    int getBreakLength(int breakNumber) {
+        return breakLengths[breakNumber];
+    }
+
+    /** Returns the number of the first legal break at or after the given element. */
+    private int getFirstBreakFrom(int index) {
+        int breakNumber = Arrays.binarySearch(breakIndexes, 0, breakCount, index);
+        return breakNumber >= 0 ? breakNumber : -breakNumber - 1;
+    }
+
+    /** Returns the index of the last element of a column ending at the given legal break. */
+    private int getColumnEndIndex(int breakNumber) {
+        int index = breakIndexes[breakNumber];
+        return par.get(index) instanceof KnuthPenalty ? index : index - 1;
+    }
+
     private int getAverageColumnLength(List<ColumnContent> columns) {
         int totalLength = 0;
         for (ColumnContent col : columns) {
-            totalLength += calcContentLength(par, col.startIndex, col.endIndex);
+            totalLength += calcContentLength(col.startIndex, col.endIndex);
         }
         return totalLength / columnCount;
     }
 
-    private List<ColumnContent> getInitialBreaks(int startIndex, int averageColLength) {
+    /**
+     * Distributes the elements from the given index on over the columns, breaking each column
+     * at the legal break closest to a multiple of the average column length.
+     * {@link #calculateLengths(int)} must have been called for the same start index.
+     * @param startIndex the index of the first element
+     * @param averageColLength the average column length
+     * @return the columns
+     */
+    List<ColumnContent> getInitialBreaks(int startIndex, int averageColLength) {
         List<ColumnContent> initialColumns = new ArrayList<ColumnContent>();
         int colStartIndex = startIndex;
         int totalLength = 0;
         int idealBreakLength = averageColLength;
         int previousBreakLength = 0;
         int prevBreakIndex = startIndex;
-        boolean prevIsBox = false;
-        int colNumber = 1;
-        for (int i = startIndex; i < par.size(); i++) {
-            KnuthElement element = (KnuthElement) par.get(i);
-            if (isLegalBreak(i, prevIsBox)) {
-                int breakLength = totalLength
-                        + (element instanceof KnuthPenalty ? element.getWidth() : 0);
-                if (breakLength > idealBreakLength && colNumber < columnCount) {
-                    int breakIndex;
-                    if (breakLength - idealBreakLength > idealBreakLength - previousBreakLength) {
-                        breakIndex = prevBreakIndex;
-                        totalLength = previousBreakLength;
-                    } else {
-                        breakIndex = element instanceof KnuthPenalty ? i : i - 1;
-                        totalLength = breakLength;
-                    }
-                    initialColumns.add(new ColumnContent(colStartIndex, breakIndex));
-                    i = getNextStartIndex(breakIndex);
-                    colStartIndex = i--;
-                    colNumber++;
-                    idealBreakLength += averageColLength;
-                } else {
-                    previousBreakLength = breakLength;
-                    prevBreakIndex = element instanceof KnuthPenalty ? i : i - 1;
-                    prevIsBox = false;
-                }
+        for (int colNumber = 1; colNumber < columnCount; colNumber++) {
+            // the break lengths are cumulated from the start position: shift them so they
+            // continue from the length at the start of the column
+            int offset = totalLength - nonBreakLengths[colStartIndex];
+            int firstBreak = getFirstBreakFrom(colStartIndex);
+            int breakNumber = findBreakExceeding(firstBreak, idealBreakLength - offset);
+            if (breakNumber < 0) {
+                break;
+            }
+            if (breakNumber > firstBreak) {
+                previousBreakLength = breakLengths[breakNumber - 1] + offset;
+                prevBreakIndex = getColumnEndIndex(breakNumber - 1);
+            }
+            int breakLength = breakLengths[breakNumber] + offset;
+            int breakIndex;
+            if (breakLength - idealBreakLength > idealBreakLength - previousBreakLength) {
+                breakIndex = prevBreakIndex;
+                totalLength = previousBreakLength;
             } else {
-                totalLength += element instanceof KnuthPenalty ? 0 : element.getWidth();
-                prevIsBox = element instanceof KnuthBox;
+                breakIndex = getColumnEndIndex(breakNumber);
+                totalLength = breakLength;
             }
+            initialColumns.add(new ColumnContent(colStartIndex, breakIndex));
+            colStartIndex = getNextStartIndex(breakIndex);
+            idealBreakLength += averageColLength;
         }
         assert initialColumns.size() == columnCount - 1;
         initialColumns.add(new ColumnContent(colStartIndex, par.size() - 1));
@@ -191,10 +311,10 @@ public class BalancingColumnBreakingAlgorithm extends PageBreakingAlgorithm {
         do {
             changes = false;
             ColumnContent curColumn = breaks.get(breaks.size() - 1);
-            int curColLength = calcContentLength(par, curColumn.startIndex, curColumn.endIndex);
+            int curColLength = calcContentLength(curColumn.startIndex, curColumn.endIndex);
             for (int colIndex = (breaks.size() - 1); colIndex > 0; colIndex--) {
                 ColumnContent prevColumn = breaks.get(colIndex - 1);
-                int prevColLength = calcContentLength(par, prevColumn.startIndex, prevColumn.endIndex);
+                int prevColLength = calcContentLength(prevColumn.startIndex, prevColumn.endIndex);
                 if (prevColLength < curColLength) {
                     int newBreakIndex = curColumn.startIndex;
                     boolean prevIsBox = true;
@@ -207,12 +327,12 @@ public class BalancingColumnBreakingAlgorithm extends PageBreakingAlgorithm {
                             newBreakIndex--;
                         }
                         int newStartIndex = getNextStartIndex(newBreakIndex);
-                        int newPrevColLength = calcContentLength(par, prevColumn.startIndex, newBreakIndex);
+                        int newPrevColLength = calcContentLength(prevColumn.startIndex, newBreakIndex);
                         if (newPrevColLength <= fFactor + curColLength) {
                             prevColumn = new ColumnContent(prevColumn.startIndex, newBreakIndex);
                             breaks.set(colIndex - 1, prevColumn);
                             breaks.set(colIndex, new ColumnContent(newStartIndex, curColumn.endIndex));
-                            prevColLength = calcContentLength(par, prevColumn.startIndex, newBreakIndex);
+                            prevColLength = calcContentLength(prevColumn.startIndex, newBreakIndex);
                             changes = true;
                         }
                     }
@@ -230,8 +350,11 @@ public class BalancingColumnBreakingAlgorithm extends PageBreakingAlgorithm {
                 || prevIsBox && element instanceof KnuthGlue;
     }
 
-    private int calcContentLength(KnuthSequence par, int startIndex, int endIndex) {
-        return ElementListUtils.calcContentLength(par, startIndex, endIndex) + getPenaltyWidth(endIndex);
+    private int calcContentLength(int startIndex, int endIndex) {
+        // like ElementListUtils.calcContentLength(), a range ending before its start
+        // extends to the end of the sequence
+        int end = endIndex < startIndex ? par.size() : Math.min(endIndex + 1, par.size());
+        return contentLengths[end] - contentLengths[startIndex] + getPenaltyWidth(endIndex);
     }
 
     private int getPenaltyWidth(int index) {
@@ -239,25 +362,16 @@ public class BalancingColumnBreakingAlgorithm extends PageBreakingAlgorithm {
         return element instanceof KnuthPenalty ? element.getWidth() : 0;
     }
 
-    private List<Integer> getElementIdBreaks(List<ColumnContent> breaks, int startPos) {
-        List<Integer> elementIdBreaks = new ArrayList<Integer>();
-        elementIdBreaks.add(startPos);
+    private int[] getElementIdBreaks(List<ColumnContent> breaks, int startPos) {
+        int[] elementIdBreaks = new int[breaks.size()];
+        int count = 0;
+        elementIdBreaks[count++] = startPos;
         for (ColumnContent column : breaks) {
             if (breaks.get(breaks.size() - 1).equals(column)) {
                 continue;
             }
-            elementIdBreaks.add(column.endIndex);
+            elementIdBreaks[count++] = column.endIndex;
         }
-        return elementIdBreaks;
-    }
-
-    private LinkedList<Integer> getPossibilityTrail(KnuthNode activeNode) {
-        LinkedList<Integer> trail = new LinkedList<Integer>();
-        KnuthNode previous = activeNode;
-        do {
-            trail.addFirst(previous.position);
-            previous = previous.previous;
-        } while (previous != null);
-        return trail;
+        return Arrays.copyOf(elementIdBreaks, count);
     }
 }
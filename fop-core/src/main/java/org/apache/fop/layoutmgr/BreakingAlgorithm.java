@@ -19,9 +19,12 @@
 
 package org.apache.fop.layoutmgr;
 
+import java.util.Arrays;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.apache.fop.apps.FormattingMetrics;
 import org.apache.fop.fo.Constants;
 
 /**
@@ -154,6 +157,12 @@ public abstract class BreakingAlgorithm {
      */
     protected KnuthNode[] activeLines;
 
+    /** The storage of the set of active nodes of the previous run, reused by the next one. */
+    private KnuthNode[] recycledLines;
+
+    /** The maximum number of active nodes per line, 0 if unlimited. */
+    private int activeNodeLimit;
+
     /**
      * The number of active nodes.
      */
@@ -192,6 +201,11 @@ public abstract class BreakingAlgorithm {
     private boolean partOverflowRecoveryActivated = true;
     private KnuthNode lastRecovered;
 
+    /** The number of elements, nodes and restarts handled by this instance, for the metrics. */
+    private long elementCount;
+    private long nodeCount;
+    private long restartCount;
+
     /**
      * Create a new instance.
      *
@@ -220,6 +234,30 @@ public abstract class BreakingAlgorithm {
         this.maxFlaggedPenaltiesCount = maxFlagCount;
     }
 
+    /**
+     * Limits the number of active nodes kept for each line. When a new breakpoint makes a line
+     * exceed the limit, the nodes of that line with the highest total demerits are discarded.
+     * This bounds the work per element on long, loosely constrained sequences, where every
+     * element is otherwise compared against a large number of active nodes, at the price of
+     * possibly missing the optimal set of breakpoints.
+     * @param limit the maximum number of active nodes per line, or 0 (the default) to keep
+     * every feasible node
+     */
+    public void setActiveNodeLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Active node limit must not be negative: " + limit);
+        }
+        this.activeNodeLimit = limit;
+    }
+
+    /**
+     * Returns the maximum number of active nodes kept for each line.
+     * @return the limit or 0 if the number of active nodes is unlimited
+     */
+    public int getActiveNodeLimit() {
+        return activeNodeLimit;
+    }
+
 
     /**
      * Class recording all the informations of a feasible breaking point.
@@ -525,6 +563,7 @@ public abstract class BreakingAlgorithm {
         this.par = par;
         this.threshold = threshold;
         this.force = force;
+        elementCount += par.size() - startIndex;
 
         // initialize the algorithm
         initialize();
@@ -586,6 +625,7 @@ public abstract class BreakingAlgorithm {
                     this.lastRecovered = null;
                 }
                 elementIndex = restartFrom(lastForced, elementIndex);
+                restartCount++;
             }
 
         }
@@ -604,7 +644,7 @@ public abstract class BreakingAlgorithm {
             }
         }
 
-        activeLines = null;
+        releaseActiveLines();
         return line;
     }
 
@@ -665,7 +705,25 @@ public abstract class BreakingAlgorithm {
         this.lastTooLong = null;
         this.startLine = 0;
         this.endLine = 0;
-        this.activeLines = new KnuthNode[20];
+        this.activeNodeCount = 0;
+        if (recycledLines != null) {
+            this.activeLines = recycledLines;
+            recycledLines = null;
+        } else {
+            this.activeLines = new KnuthNode[20];
+        }
+    }
+
+    /**
+     * Empties the set of active nodes at the end of a run. Its storage is kept for the next
+     * run of this instance, such as a retry with a different threshold.
+     */
+    protected void releaseActiveLines() {
+        if (activeLines != null) {
+            Arrays.fill(activeLines, null);
+            recycledLines = activeLines;
+            activeLines = null;
+        }
     }
 
     /**
@@ -878,6 +936,17 @@ public abstract class BreakingAlgorithm {
         return lastForced;
     }
 
+    /**
+     * Adds the number of elements, active nodes and restarts handled by this instance to
+     * the given formatting metrics.
+     * @param metrics the formatting metrics
+     */
+    public void addCounts(FormattingMetrics metrics) {
+        metrics.count(FormattingMetrics.Counter.KNUTH_ELEMENTS, elementCount);
+        metrics.count(FormattingMetrics.Counter.BREAKING_NODES, nodeCount);
+        metrics.count(FormattingMetrics.Counter.BREAKING_RESTARTS, restartCount);
+    }
+
     /**
      * Restart from the given node at the given index.
      *
@@ -1169,6 +1238,43 @@ public abstract class BreakingAlgorithm {
             }
         }
         best.reset();
+        if (activeNodeLimit > 0 && line + 1 < endLine) {
+            pruneActiveNodes(line + 1);
+        }
+    }
+
+    /**
+     * Removes the active nodes with the highest total demerits from the given line until it
+     * holds no more than {@link #getActiveNodeLimit()} nodes. The nodes for the most recent
+     * breakpoint are never removed.
+     * @param line the line number
+     */
+    private void pruneActiveNodes(int line) {
+        int count = 0;
+        for (KnuthNode node = getNode(line); node != null; node = node.next) {
+            count++;
+        }
+        if (count <= activeNodeLimit) {
+            return;
+        }
+        // the nodes at the most recent breakpoint are kept, so the line can still be continued
+        int lastPosition = activeLines[line * 2 + 1].position;
+        for (; count > activeNodeLimit; count--) {
+            KnuthNode worst = null;
+            for (KnuthNode node = getNode(line); node != null; node = node.next) {
+                if (node.position != lastPosition
+                        && (worst == null || node.totalDemerits > worst.totalDemerits)) {
+                    worst = node;
+                }
+            }
+            if (worst == null) {
+                break;
+            }
+            if (log.isTraceEnabled()) {
+                log.trace("\tPruning " + worst);
+            }
+            removeNode(line, worst);
+        }
     }
 
     /**
@@ -1336,7 +1442,8 @@ public abstract class BreakingAlgorithm {
 
     /**
      * Add a node at the end of the given line's existing active nodes.
-     * If this is the first node in the line, adjust endLine accordingly.
+     * If this is the first node in the line, raise endLine to include it. endLine is never
+     * lowered, as higher lines may still hold active nodes.
      * @param line number of the line ending at the node's corresponding breakpoint
      * @param node the active node to add
      */
@@ -1352,10 +1459,11 @@ public abstract class BreakingAlgorithm {
             activeLines[headIdx + 1].next = node;
         } else {
             activeLines[headIdx] = node;
-            endLine = line + 1;
+            endLine = Math.max(endLine, line + 1);
         }
         activeLines[headIdx + 1] = node;
         activeNodeCount++;
+        nodeCount++;
     }
 
     /**
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.layoutmgr;
+
+import java.util.Arrays;
+
+/**
+ * The cumulated block-progression-dimensions of the footnote bodies cited in a page
+ * sequence: the value at index <code>i</code> is the total length of the footnotes
+ * <code>0</code> to <code>i</code>. The values are kept in an <code>int</code> array, so
+ * the number of whole footnotes fitting in some space is found with a binary search
+ * instead of a scan over all the footnotes placed so far.
+ */
+final class FootnoteLengths {
+
+    private int[] lengths = new int[16];
+    private int size;
+
+    /**
+     * Appends the length of the next footnote.
+     * @param length the length of the footnote body
+     */
+    void add(int length) {
+        if (size == lengths.length) {
+            lengths = Arrays.copyOf(lengths, size * 2);
+        }
+        lengths[size] = getLast() + length;
+        size++;
+    }
+
+    /** Removes the last footnote. */
+    void removeLast() {
+        if (size == 0) {
+            throw new IndexOutOfBoundsException("No footnote to remove");
+        }
+        size--;
+    }
+
+    /**
+     * Returns the total length of the footnotes up to the given one.
+     * @param index the index of a footnote
+     * @return the cumulated length
+     */
+    int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return lengths[index];
+    }
+
+    /** @return the total length of all the footnotes, 0 if there are none */
+    int getLast() {
+        return size == 0 ? 0 : lengths[size - 1];
+    }
+
+    /** @return the number of footnotes */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the index of the last footnote, starting from <code>fromIndex</code>, whose
+     * cumulated length doesn't exceed the given length. The search is binary as footnote
+     * lengths aren't negative.
+     * @param fromIndex the index of the first footnote to consider
+     * @param maxLength the maximum cumulated length
+     * @return the index of the footnote, or <code>fromIndex - 1</code> if the footnote at
+     * <code>fromIndex</code> already exceeds the length
+     */
+    int lastIndexWithin(int fromIndex, int maxLength) {
+        int low = fromIndex;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (lengths[mid] <= maxLength) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+}
@@ -57,7 +57,7 @@ public class PageBreaker extends AbstractBreaker {
     private int floatYOffset;
 
     private List relayedFootnotesList;
-    private List relayedLengthList;
+    private FootnoteLengths relayedLengthList;
     private int relayedTotalFootnotesLength;
     private int relayedInsertedFootnotesLength;
     private boolean relayedFootnotesPending;
@@ -448,9 +448,7 @@ public class PageBreaker extends AbstractBreaker {
             log.debug("===================================================");
         }
 
-        int optimalPageCount = algRestart.findBreakingPoints(effectiveList,
-                    newStartPos,
-                    1, true, BreakingAlgorithm.ALL_BREAKS);
+        int optimalPageCount = findBreakingPoints(algRestart, effectiveList, newStartPos);
         if (algRestart.getPageBreaks() != null) {
             log.debug("restart: optimalPageCount= " + optimalPageCount
                     + " pageBreaks.size()= " + algRestart.getPageBreaks().size());
@@ -926,7 +924,7 @@ public class PageBreaker extends AbstractBreaker {
         pageBreakHandled = true;
     }
 
-    public void holdFootnotes(List fl, List ll, int tfl, int ifl, boolean fp, boolean nf, int fnfi, int fli,
+    void holdFootnotes(List fl, FootnoteLengths ll, int tfl, int ifl, boolean fp, boolean nf, int fnfi, int fli,
             int fei, MinOptMax fsl, int pfli, int pfei) {
         relayedFootnotesList = fl;
         relayedLengthList = ll;
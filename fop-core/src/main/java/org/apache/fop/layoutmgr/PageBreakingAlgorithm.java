@@ -53,7 +53,7 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
      */
     private List<List<KnuthElement>> footnotesList;
     /** Cumulated bpd of unhandled footnotes. */
-    private List<Integer> lengthList;
+    private FootnoteLengths lengthList;
     /** Length of all the footnotes which will be put on the current page. */
     private int totalFootnotesLength;
     /**
@@ -418,7 +418,7 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
         if (!footnotesPending) {
             footnotesPending = true;
             footnotesList = new ArrayList<List<KnuthElement>>();
-            lengthList = new ArrayList<Integer>();
+            lengthList = new FootnoteLengths();
             totalFootnotesLength = 0;
         }
         if (!newFootnotes) {
@@ -435,11 +435,8 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
                     noteLength += element.getWidth();
                 }
             }
-            int prevLength = (lengthList == null || lengthList.isEmpty())
-                    ? 0
-                    : ListUtil.getLast(lengthList);
             if (lengthList != null) {
-                lengthList.add(prevLength + noteLength);
+                lengthList.add(noteLength);
             }
             totalFootnotesLength += noteLength;
         }
@@ -474,7 +471,7 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
     private void resetFootnotes(List<List<KnuthElement>> elementLists) {
         for (int i = 0; i < elementLists.size(); i++) {
             ListUtil.removeLast(footnotesList);
-            ListUtil.removeLast(lengthList);
+            lengthList.removeLast();
         }
         // update footnotesPending;
         if (footnotesList.size() == 0) {
@@ -771,12 +768,13 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
                     listIndex = firstNewFootnoteIndex;
                     elementIndex = 0;
                 }
-                // try adding the new footnotes
-                while (lengthList.get(listIndex) - prevLength
-                       <= availableLength) {
-                    splitLength = lengthList.get(listIndex) - prevLength;
+                // try adding the new footnotes: find the last one that fits with a
+                // binary search over the cumulated lengths
+                int lastIndex = lengthList.lastIndexWithin(listIndex, prevLength + availableLength);
+                if (lastIndex >= listIndex) {
+                    splitLength = lengthList.get(lastIndex) - prevLength;
                     somethingAdded = true;
-                    listIndex++;
+                    listIndex = lastIndex + 1;
                     elementIndex = 0;
                 }
                 // as this method is called only if it is not possible to insert
@@ -1233,7 +1231,7 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
          * case.
          */
         calculateBreakPoints(bestNodeForIPDChange, par, bestNodeForIPDChange.line + 1);
-        activeLines = null;
+        releaseActiveLines();
         return bestNodeForIPDChange.line;
     }
 
@@ -1302,7 +1300,7 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
 
     protected int handleFloat() {
         calculateBreakPoints(bestFloatEdgeNode, par, bestFloatEdgeNode.line);
-        activeLines = null;
+        releaseActiveLines();
         return bestFloatEdgeNode.line - 1;
     }
 
@@ -1344,7 +1342,7 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
         handlingStartOfFloat = false;
     }
 
-    public void loadFootnotes(List fl, List ll, int tfl, int ifl, boolean fp, boolean nf, int fnfi, int fli,
+    void loadFootnotes(List fl, FootnoteLengths ll, int tfl, int ifl, boolean fp, boolean nf, int fnfi, int fli,
             int fei, MinOptMax fsl, int pfli, int pfei) {
         footnotesList = fl;
         lengthList = ll;
@@ -19,6 +19,8 @@
 
 package org.apache.fop.layoutmgr.inline;
 
+import java.util.Arrays;
+
 import org.apache.fop.area.PageViewport;
 import org.apache.fop.area.Trait;
 import org.apache.fop.area.inline.InlineArea;
@@ -97,8 +99,26 @@ public abstract class AbstractPageNumberCitationLayoutManager extends LeafNodeLa
             citationString = page.getPageNumberString();
         } else {
             resolved = false;
-            citationString = "MMM"; // Use a place holder
+            int digits = citation.getUserAgent().getPageNumberPlaceholderDigits();
+            if (digits > 0) {
+                citationString = getPlaceholderString(digits);
+            } else {
+                citationString = "MMM"; // Use a place holder
+            }
+        }
+    }
+
+    /** Reserves room for the given number of the widest digit of the font. */
+    private String getPlaceholderString(int digits) {
+        char widest = '0';
+        for (char c = '1'; c <= '9'; c++) {
+            if (font.getCharWidth(c) > font.getCharWidth(widest)) {
+                widest = c;
+            }
         }
+        char[] placeholder = new char[digits];
+        Arrays.fill(placeholder, widest);
+        return new String(placeholder);
     }
 
     private int getStringWidth(String str) {
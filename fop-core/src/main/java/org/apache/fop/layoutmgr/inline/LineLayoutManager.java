@@ -29,6 +29,7 @@ import java.util.ListIterator;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.apache.fop.apps.FormattingMetrics;
 import org.apache.fop.area.Area;
 import org.apache.fop.area.LineArea;
 import org.apache.fop.area.Trait;
@@ -852,9 +853,6 @@ public class LineLayoutManager extends InlineStackingLayoutManager
      */
     private LineLayoutPossibilities findOptimalBreakingPoints(int alignment, Paragraph currPar,
                                                               boolean isLastPar) {
-        // use the member lineLayouts, which is read by LineBreakingAlgorithm.updateData1 and 2
-        lineLayouts = new LineLayoutPossibilities();
-        double maxAdjustment = 1;
         LineBreakingAlgorithm alg = new LineBreakingAlgorithm(alignment,
                                         textAlignment, textAlignmentLast,
                                         textIndent.getValue(this), currPar.lineFiller.getOpt(),
@@ -864,6 +862,25 @@ public class LineLayoutManager extends InlineStackingLayoutManager
                                             ? 0 : hyphenationLadderCount.getValue(),
                                         this);
         alg.setConstantLineWidth(ipd);
+        alg.setActiveNodeLimit(fobj.getUserAgent().getActiveNodeLimit());
+        FormattingMetrics metrics = fobj.getUserAgent().getFormattingMetrics();
+        if (metrics == null) {
+            return findOptimalBreakingPoints(alg, alignment, currPar, isLastPar);
+        }
+        metrics.startPhase(FormattingMetrics.Phase.LINE_BREAKING);
+        try {
+            return findOptimalBreakingPoints(alg, alignment, currPar, isLastPar);
+        } finally {
+            metrics.endPhase(FormattingMetrics.Phase.LINE_BREAKING);
+            alg.addCounts(metrics);
+        }
+    }
+
+    private LineLayoutPossibilities findOptimalBreakingPoints(LineBreakingAlgorithm alg,
+            int alignment, Paragraph currPar, boolean isLastPar) {
+        // use the member lineLayouts, which is read by LineBreakingAlgorithm.updateData1 and 2
+        lineLayouts = new LineLayoutPossibilities();
+        double maxAdjustment = 1;
         boolean canWrap = (wrapOption != EN_NO_WRAP);
         boolean canHyphenate = (canWrap && hyphenationProperties.hyphenate.getEnum() == EN_TRUE);
 
@@ -921,7 +938,6 @@ public class LineLayoutManager extends InlineStackingLayoutManager
             // use non-hyphenated breaks, when possible
             lineLayouts.restorePossibilities();
         }
-
         return lineLayouts;
     }
 
@@ -129,6 +129,16 @@ public abstract class AbstractPDFStream extends PDFObject {
      */
     protected abstract int getSizeHint() throws IOException;
 
+    /**
+     * Returns the exact length of the raw stream data if it is known before the data is
+     * written. If it is and no filter changes the data, the stream is written without
+     * buffering the data first.
+     * @return the length of the raw stream data or -1 if it isn't known in advance
+     */
+    protected long getRawStreamLength() {
+        return -1;
+    }
+
     /**
      * Sends the raw stream data to the target OutputStream.
      * @param out OutputStream to write to
@@ -210,6 +220,17 @@ public abstract class AbstractPDFStream extends PDFObject {
         return bytesWritten;
     }
 
+    private void writeRawStream(OutputStream out, int length) throws IOException {
+        out.write(encode("\nstream\n"));
+        CountingOutputStream cout = new CountingOutputStream(new CloseBlockerOutputStream(out));
+        outputRawStreamData(cout);
+        if (cout.getCount() != length) {
+            throw new IOException("Stream length changed: expected " + length + " bytes but "
+                    + cout.getCount() + " bytes were written");
+        }
+        out.write(encode("\nendstream"));
+    }
+
     /**
      * Overload the base object method so we don't have to copy
      * byte arrays around so much
@@ -224,7 +245,14 @@ public abstract class AbstractPDFStream extends PDFObject {
 
         StreamCache encodedStream = null;
         final Object lengthEntry;
-        if (encodeOnTheFly) {
+        long rawLength = -1;
+        if (!encodeOnTheFly && getFilterList().isPassThrough()) {
+            rawLength = getRawStreamLength();
+        }
+        boolean writeRaw = rawLength >= 0 && rawLength <= Integer.MAX_VALUE;
+        if (writeRaw) {
+            lengthEntry = (int) rawLength;
+        } else if (encodeOnTheFly) {
             if (!refLength.hasObjectNumber()) {
                 registerChildren();
             }
@@ -239,7 +267,9 @@ public abstract class AbstractPDFStream extends PDFObject {
 
         //Send encoded stream to target OutputStream
         PDFDocument.flushTextBuffer(textBuffer, cout);
-        if (encodedStream == null) {
+        if (writeRaw) {
+            writeRawStream(cout, (int) rawLength);
+        } else if (encodedStream == null) {
             encodeAndWriteStream(cout, refLength);
         } else {
             outputStreamData(encodedStream, cout);
@@ -57,6 +57,18 @@ public class ObjectStream extends PDFStream {
         return reference;
     }
 
+    /**
+     * Releases the objects of this stream after it has been written.
+     */
+    void release() {
+        for (CompressedObject object : objects) {
+            if (object instanceof PDFStructElem) {
+                ((PDFStructElem) object).release();
+            }
+        }
+        objects.clear();
+    }
+
     @Override
     protected void outputRawStreamData(OutputStream out) throws IOException {
         int currentOffset = 0;
@@ -41,6 +41,8 @@ class ObjectStreamManager {
 
     private ObjectStream currentObjectStream;
 
+    private final List<ObjectStream> fullObjectStreams = new ArrayList<ObjectStream>();
+
     ObjectStreamManager(PDFDocument pdfDocument) {
         this.pdfDocument = pdfDocument;
         createObjectStream();
@@ -49,6 +51,7 @@ class ObjectStreamManager {
 
     void add(CompressedObject compressedObject) {
         if (numObjectsInStream++ == OBJECT_STREAM_CAPACITY) {
+            fullObjectStreams.add(currentObjectStream);
             createObjectStream();
             numObjectsInStream = 1;
         }
@@ -60,7 +63,26 @@ class ObjectStreamManager {
                 ? new ObjectStream()
                 : new ObjectStream(currentObjectStream);
         pdfDocument.assignObjectNumber(currentObjectStream);
-        pdfDocument.addTrailerObject(currentObjectStream);
+    }
+
+    /**
+     * Returns the object streams that have been filled up since the last call and removes
+     * them from this manager. No more objects will be added to them.
+     */
+    List<ObjectStream> removeFullObjectStreams() {
+        List<ObjectStream> objectStreams = new ArrayList<ObjectStream>(fullObjectStreams);
+        fullObjectStreams.clear();
+        return objectStreams;
+    }
+
+    /**
+     * Returns all object streams not returned yet, including the one currently being filled,
+     * and removes them from this manager. To be called once all objects have been added.
+     */
+    List<ObjectStream> removeObjectStreams() {
+        List<ObjectStream> objectStreams = removeFullObjectStreams();
+        objectStreams.add(currentObjectStream);
+        return objectStreams;
     }
 
     List<CompressedObjectReference> getCompressedObjectReferences() {
@@ -88,6 +88,8 @@ public class PDFDocument {
 
     protected List<PDFStructElem> structureTreeElements;
 
+    private ObjectStreamManager structureTreeObjectStreams;
+
     /** List of objects to write in the trailer */
     protected List<PDFObject> trailerObjects = new ArrayList<PDFObject>();
 
@@ -393,6 +395,80 @@ public class PDFDocument {
         structureTreeElements.add(structElem);
     }
 
+    /**
+     * Writes the elements of the given subtrees of the structure tree ahead of the trailer and
+     * releases them, so that only their object numbers remain in memory. The subtrees must be
+     * complete, i.e. no content may be added to any of their elements anymore. If the structure
+     * tree is compressed, the elements are added to object streams which are written as soon
+     * as they are full. Nothing is written if the document is linearized.
+     *
+     * @param stream the stream the document is written to
+     * @param subtrees the root elements of the complete subtrees
+     * @throws IOException if an I/O error occurs while writing the elements
+     */
+    public void outputStructureTreeElements(OutputStream stream, Collection<PDFStructElem> subtrees)
+            throws IOException {
+        if (structureTreeElements == null || isLinearizationEnabled()) {
+            return;
+        }
+        List<PDFStructElem> completed = new ArrayList<PDFStructElem>();
+        List<PDFStructElem> remaining = new ArrayList<PDFStructElem>();
+        for (PDFStructElem structElem : structureTreeElements) {
+            if (isInSubtree(structElem, subtrees)) {
+                completed.add(structElem);
+            } else {
+                remaining.add(structElem);
+            }
+        }
+        if (completed.isEmpty()) {
+            return;
+        }
+        structureTreeElements = remaining;
+        removeUnusedStructureElements(completed);
+        if (mayCompressStructureTreeElements()) {
+            ObjectStreamManager objectStreams = getStructureTreeObjectStreams();
+            for (PDFStructElem structElem : completed) {
+                objectStreams.add(structElem);
+            }
+            for (ObjectStream objectStream : objectStreams.removeFullObjectStreams()) {
+                streamIndirectObject(objectStream, stream);
+                objectStream.release();
+            }
+        } else {
+            for (PDFStructElem structElem : completed) {
+                streamIndirectObject(structElem, stream);
+                structElem.release();
+            }
+        }
+    }
+
+    private static boolean isInSubtree(PDFStructElem structElem, Collection<PDFStructElem> subtrees) {
+        for (PDFStructElem elem = structElem; elem != null; elem = elem.getParentStructElem()) {
+            if (subtrees.contains(elem)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void removeUnusedStructureElements(List<PDFStructElem> structElems) {
+        Iterator<PDFStructElem> structElemIterator = structElems.iterator();
+        while (structElemIterator.hasNext()) {
+            PDFStructElem structElem = structElemIterator.next();
+            if (!structElem.hasObjectNumber()) {
+                structElemIterator.remove();
+                structElem.parentElement.kids.remove(structElem);
+            }
+        }
+    }
+
+    private ObjectStreamManager getStructureTreeObjectStreams() {
+        if (structureTreeObjectStreams == null) {
+            structureTreeObjectStreams = new ObjectStreamManager(this);
+        }
+        return structureTreeObjectStreams;
+    }
+
     /**
      * Assigns the given scope to the given element and adds it to the structure tree. The
      * scope may not be added if it's not compatible with this document's PDF version.
@@ -956,6 +1032,22 @@ public class PDFDocument {
         return xObject;
     }
 
+    /**
+     * Adds a form XObject whose content is only known at the end of the document.
+     * The Form XObject is written with the trailer, so its content can still be set after
+     * the pages using it have been written.
+     *
+     * @param cont the PDF Stream contents of the Form XObject
+     * @param formres a reference to the PDF Resources for the Form XObject data
+     * @return the PDF Form XObject
+     */
+    public PDFFormXObject addTrailerFormXObject(PDFStream cont, PDFReference formres) {
+        PDFFormXObject xObject = new PDFFormXObject(++this.xObjectCount, cont, formres);
+        registerTrailerObject(xObject);
+        this.resources.addXObject(xObject);
+        return xObject;
+    }
+
     /**
      * Get the root Outlines object. This method does not write
      * the outline to the PDF document, it simply creates a
@@ -1152,14 +1244,7 @@ public class PDFDocument {
                 ? new CompressedTrailerOutputHelper()
                 : new UncompressedTrailerOutputHelper();
         if (structureTreeElements != null) {
-            Iterator<PDFStructElem> structElemIterator = structureTreeElements.iterator();
-            while (structElemIterator.hasNext()) {
-                PDFStructElem structElem = structElemIterator.next();
-                if (!structElem.hasObjectNumber()) {
-                    structElemIterator.remove();
-                    structElem.parentElement.kids.remove(structElem);
-                }
-            }
+            removeUnusedStructureElements(structureTreeElements);
             trailerOutputHelper.outputStructureTreeElements(stream);
         }
         streamIndirectObjects(trailerObjects, stream);
@@ -1237,15 +1322,13 @@ public class PDFDocument {
 
     private class CompressedTrailerOutputHelper implements TrailerOutputHelper {
 
-        private ObjectStreamManager structureTreeObjectStreams;
-
         public void outputStructureTreeElements(OutputStream stream)
                 throws IOException {
-            assert structureTreeElements.size() > 0;
-            structureTreeObjectStreams = new ObjectStreamManager(PDFDocument.this);
+            ObjectStreamManager objectStreams = getStructureTreeObjectStreams();
             for (PDFStructElem structElem : structureTreeElements) {
-                structureTreeObjectStreams.add(structElem);
+                objectStreams.add(structElem);
             }
+            trailerObjects.addAll(objectStreams.removeObjectStreams());
         }
 
         public long outputCrossReferenceObject(OutputStream stream,
@@ -1254,7 +1337,7 @@ public class PDFDocument {
             assert objects.isEmpty();
             new CrossReferenceStream(PDFDocument.this, ++objectcount, trailerDictionary, position,
                     indirectObjectOffsets,
-                    structureTreeObjectStreams.getCompressedObjectReferences())
+                    getStructureTreeObjectStreams().getCompressedObjectReferences())
                     .output(stream);
             return position;
         }
@@ -22,12 +22,15 @@ package org.apache.fop.pdf;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
@@ -58,6 +61,24 @@ public final class PDFEncryptionJCE extends PDFObject implements PDFEncryption {
 
     private static byte[] ivZero = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
 
+    /*
+     * Cipher instances are expensive to look up, so each document keeps the ones it created
+     * and re-keys them for every string or stream. A document is only written by one thread,
+     * so no synchronization is needed. A cipher is taken from the pool while it is used, which
+     * allows streams and strings to be encrypted while another stream is still open.
+     */
+    private final Deque<Cipher> cipherPool = new ArrayDeque<Cipher>();
+
+    private final byte[] iv = new byte[16];
+
+    private SecretKeySpec aesKey;
+
+    private int lastObjectNumber = -1;
+
+    private int lastGeneration = -1;
+
+    private byte[] lastObjectKey;
+
     private class EncryptionInitializer {
 
         private final PDFEncryptionParams encryptionParams;
@@ -650,18 +671,25 @@ public final class PDFEncryptionJCE extends PDFObject implements PDFEncryption {
 
         /** {@inheritDoc} */
         public OutputStream applyFilter(OutputStream out) throws IOException {
+            final Cipher cipher;
             if (useAlgorithm31a) {
-                byte[] iv = new byte[16];
-                random.nextBytes(iv);
-                Cipher cipher = initCipher(encryptionKey, false, iv);
+                cipher = acquireAESCipher();
                 out.write(iv);
                 out.flush();
-                return new CipherOutputStream(out, cipher);
             } else {
-                byte[] key = createEncryptionKey(streamNumber.getNumber(), streamGeneration);
-                Cipher cipher = initCipher(key);
-                return new CipherOutputStream(out, cipher);
+                cipher = acquireRC4Cipher(streamNumber.getNumber(), streamGeneration);
             }
+            return new CipherOutputStream(out, cipher) {
+                private boolean closed;
+
+                public void close() throws IOException {
+                    super.close();
+                    if (!closed) {
+                        closed = true;
+                        cipherPool.push(cipher);
+                    }
+                }
+            };
         }
 
     }
@@ -705,17 +733,66 @@ public final class PDFEncryptionJCE extends PDFObject implements PDFEncryption {
         if (o == null && !useAlgorithm31a) {
             throw new IllegalStateException("No object number could be obtained for a PDF object");
         }
-        if (useAlgorithm31a) {
-            byte[] iv = new byte[16];
-            random.nextBytes(iv);
-            byte[] encryptedData = encryptWithKey(encryptionKey, data, false, iv);
-            byte[] storedData = new byte[encryptedData.length + 16];
-            System.arraycopy(iv, 0, storedData, 0, 16);
-            System.arraycopy(encryptedData, 0, storedData, 16, encryptedData.length);
-            return storedData;
-        } else {
-            byte[] key = createEncryptionKey(o.getObjectNumber().getNumber(), o.getGeneration());
-            return encryptWithKey(key, data);
+        Cipher cipher = useAlgorithm31a ? acquireAESCipher()
+                : acquireRC4Cipher(o.getObjectNumber().getNumber(), o.getGeneration());
+        try {
+            //the encrypted string is written straight into the result, after the IV if any
+            int offset = useAlgorithm31a ? iv.length : 0;
+            byte[] storedData = new byte[offset + cipher.getOutputSize(data.length)];
+            System.arraycopy(iv, 0, storedData, 0, offset);
+            int length = offset + cipher.doFinal(data, 0, data.length, storedData, offset);
+            return length == storedData.length ? storedData : Arrays.copyOf(storedData, length);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e.getMessage());
+        } finally {
+            cipherPool.push(cipher);
+        }
+    }
+
+    /**
+     * Returns a cipher for AES-256 encryption with a new random IV, which is left in
+     * {@link #iv}. The cipher must be returned to the pool after use.
+     */
+    private Cipher acquireAESCipher() {
+        random.nextBytes(iv);
+        if (aesKey == null) {
+            aesKey = new SecretKeySpec(encryptionKey, "AES");
+        }
+        Cipher cipher = cipherPool.poll();
+        try {
+            if (cipher == null) {
+                cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            }
+            cipher.init(Cipher.ENCRYPT_MODE, aesKey, new IvParameterSpec(iv));
+            return cipher;
+        } catch (InvalidKeyException e) {
+            throw new IllegalStateException(e);
+        } catch (GeneralSecurityException e) {
+            throw new UnsupportedOperationException(e);
+        }
+    }
+
+    /**
+     * Returns a cipher for RC4 encryption with the key of the given object. The cipher must
+     * be returned to the pool after use.
+     */
+    private Cipher acquireRC4Cipher(int objectNumber, int generation) {
+        if (objectNumber != lastObjectNumber || generation != lastGeneration) {
+            lastObjectKey = createEncryptionKey(objectNumber, generation);
+            lastObjectNumber = objectNumber;
+            lastGeneration = generation;
+        }
+        Cipher cipher = cipherPool.poll();
+        try {
+            if (cipher == null) {
+                cipher = Cipher.getInstance("RC4");
+            }
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(lastObjectKey, "RC4"));
+            return cipher;
+        } catch (InvalidKeyException e) {
+            throw new IllegalStateException(e);
+        } catch (GeneralSecurityException e) {
+            throw new UnsupportedOperationException(e);
         }
     }
 
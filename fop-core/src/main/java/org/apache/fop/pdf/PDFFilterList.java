@@ -88,6 +88,22 @@ public class PDFFilterList {
         return this.disableAllFilters;
     }
 
+    /**
+     * Indicates whether the filters leave the data untouched, i.e. all filters are disabled
+     * or each filter either does no encoding or has already been applied to the data.
+     * @return true if {@link #applyFilters(OutputStream)} doesn't change the data
+     */
+    public boolean isPassThrough() {
+        if (!isDisableAllFilters()) {
+            for (PDFFilter filter : filters) {
+                if (!filter.isApplied() && !(filter instanceof NullFilter)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     /**
      * Indicates whether the filter list is already initialized.
      * @return true if more there are filters present
@@ -153,6 +153,14 @@ public class PDFImageXObject extends PDFXObject {
         pdfimage.outputContents(out);
     }
 
+    /** {@inheritDoc} */
+    protected long getRawStreamLength() {
+        if (pdfimage instanceof PDFPassThroughImage) {
+            return ((PDFPassThroughImage) pdfimage).getContentLength();
+        }
+        return -1;
+    }
+
     /** {@inheritDoc} */
     protected int getSizeHint() throws IOException {
         return 0;
@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+package org.apache.fop.pdf;
+
+/**
+ * A {@link PDFImage} whose data is already encoded and is copied to the PDF file as-is, and
+ * whose length is known before the data is written. The XObject for such an image writes the
+ * data straight to the PDF file instead of buffering it to determine its length, unless
+ * further filters (such as encryption) have to be applied.
+ */
+public interface PDFPassThroughImage extends PDFImage {
+
+    /**
+     * Returns the exact number of bytes {@link #outputContents(java.io.OutputStream)} will
+     * write.
+     * @return the length of the image data or -1 if it isn't known in advance
+     */
+    long getContentLength();
+}
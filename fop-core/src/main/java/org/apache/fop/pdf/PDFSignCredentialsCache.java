@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Enumeration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+
+/**
+ * Caches the private keys and certificate chains loaded from PKCS#12 key stores for signing
+ * PDF documents, so the key store is only read and decrypted once per
+ * {@link org.apache.fop.apps.FopFactory} rather than once per document. There is one entry
+ * per resolved key store URI. The entry records the modification time of the key store (for
+ * local files) and a digest of the password; if either differs on lookup, the key store is
+ * loaded again and the entry replaced, so the cache doesn't grow when a key store is replaced
+ * or its password changed.
+ */
+public class PDFSignCredentialsCache {
+
+    /** The private key and certificate chain used to sign a document. */
+    public static final class Credentials {
+
+        private final PrivateKey privateKey;
+        private final Certificate[] certificateChain;
+
+        Credentials(PrivateKey privateKey, Certificate[] certificateChain) {
+            this.privateKey = privateKey;
+            this.certificateChain = certificateChain;
+        }
+
+        /** @return the private key */
+        public PrivateKey getPrivateKey() {
+            return privateKey;
+        }
+
+        /** @return the certificate chain, starting with the signing certificate */
+        public Certificate[] getCertificateChain() {
+            return certificateChain.clone();
+        }
+
+        /** @return the signing certificate */
+        public X509Certificate getCertificate() {
+            return (X509Certificate) certificateChain[0];
+        }
+    }
+
+    /** The credentials loaded from a key store and what they were loaded from. */
+    private static final class Entry {
+
+        private final long lastModified;
+        private final byte[] passwordDigest;
+        private final Credentials credentials;
+
+        private Entry(long lastModified, byte[] passwordDigest, Credentials credentials) {
+            this.lastModified = lastModified;
+            this.passwordDigest = passwordDigest;
+            this.credentials = credentials;
+        }
+
+        private boolean isValid(long lastModified, byte[] passwordDigest) {
+            return this.lastModified == lastModified
+                    && MessageDigest.isEqual(this.passwordDigest, passwordDigest);
+        }
+    }
+
+    private final ConcurrentMap<String, Entry> credentials = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * Returns the credentials for the given signing parameters, loading the key store if
+     * necessary. The validity of the signing certificate is checked on every call.
+     * @param resolver the resolver used to locate the key store
+     * @param signParams the signing parameters
+     * @return the credentials
+     * @throws IOException if the key store can't be read or contains no certificate
+     * @throws GeneralSecurityException if the key store can't be decrypted or the certificate
+     * isn't valid
+     * @throws URISyntaxException if the key store URI is invalid
+     */
+    public Credentials get(InternalResourceResolver resolver, PDFSignParams signParams)
+            throws IOException, GeneralSecurityException, URISyntaxException {
+        URI uri = resolver.resolveFromBase(InternalResourceResolver.cleanURI(signParams.getPkcs12()));
+        long lastModified = -1;
+        if ("file".equals(uri.getScheme()) && uri.getPath() != null) {
+            lastModified = new File(uri.getPath()).lastModified();
+        }
+        byte[] passwordDigest = MessageDigest.getInstance("SHA-256").digest(
+                signParams.getPassword().getBytes(StandardCharsets.UTF_8));
+        Entry entry = credentials.get(uri.toString());
+        if (entry == null || !entry.isValid(lastModified, passwordDigest)) {
+            entry = new Entry(lastModified, passwordDigest,
+                    load(resolver, uri, signParams.getPassword().toCharArray()));
+            credentials.put(uri.toString(), entry);
+        }
+        entry.credentials.getCertificate().checkValidity();
+        return entry.credentials;
+    }
+
+    private static Credentials load(InternalResourceResolver resolver, URI uri, char[] password)
+            throws IOException, GeneralSecurityException {
+        KeyStore keystore = KeyStore.getInstance("PKCS12");
+        try (InputStream is = resolver.getResource(uri)) {
+            keystore.load(is, password);
+        }
+        Enumeration<String> aliases = keystore.aliases();
+        while (aliases.hasMoreElements()) {
+            String alias = aliases.nextElement();
+            PrivateKey privateKey = (PrivateKey) keystore.getKey(alias, password);
+            Certificate[] certChain = keystore.getCertificateChain(alias);
+            if (certChain != null && certChain[0] instanceof X509Certificate) {
+                return new Credentials(privateKey, certChain);
+            }
+        }
+        throw new IOException("Could not find certificate");
+    }
+
+    /** @return the number of cached key stores */
+    public int getSize() {
+        return credentials.size();
+    }
+
+    /** Removes all cached credentials. */
+    public void clear() {
+        credentials.clear();
+    }
+}
@@ -18,50 +18,129 @@
 /* $Id$ */
 package org.apache.fop.pdf;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
-import java.security.KeyStore;
-import java.security.PrivateKey;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.cert.Certificate;
-import java.security.cert.X509Certificate;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.Enumeration;
 
+import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
 import org.bouncycastle.cert.jcajce.JcaCertStore;
+import org.bouncycastle.cms.CMSAbsentContent;
 import org.bouncycastle.cms.CMSException;
 import org.bouncycastle.cms.CMSSignedData;
 import org.bouncycastle.cms.CMSSignedDataGenerator;
 import org.bouncycastle.cms.jcajce.JcaSignerInfoGeneratorBuilder;
 import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.DigestCalculator;
+import org.bouncycastle.operator.DigestCalculatorProvider;
+import org.bouncycastle.operator.OperatorCreationException;
 import org.bouncycastle.operator.OperatorException;
 import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
-import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
 
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.output.CountingOutputStream;
-
-import org.apache.xmlgraphics.io.TempResourceURIGenerator;
+import org.apache.commons.io.output.ByteArrayOutputStream;
 
 import org.apache.fop.apps.FOUserAgent;
 
+/**
+ * Signs a PDF document while it is written. The signature dictionary is written with the
+ * trailer objects and reserves fixed-size slots for /Contents and /ByteRange. All bytes before
+ * the /Contents slot are passed straight on to the target stream and fed to the message
+ * digest; only the short remainder of the document is kept in memory until the document is
+ * complete, when the /ByteRange slot is patched, the signature is created and the rest is
+ * written out.
+ */
 public class PDFSignature {
     private static final int SIZE_OF_CONTENTS = 18944;
-    private static final TempResourceURIGenerator TEMP_URI_GENERATOR = new TempResourceURIGenerator("pdfsign2");
+    private static final String BYTE_RANGE_PLACEHOLDER = "[0 1000000000 1000000000 1000000000]";
     private Perms perms;
     private PDFRoot root;
-    private PrivateKey privateKey;
-    private long startOfDocMDP;
-    private long startOfContents;
     private FOUserAgent userAgent;
-    private URI tempURI;
     private PDFSignParams signParams;
+    private SigningOutputStream signingStream;
+
+    /**
+     * The stream a signed document is written to. It passes the document on to the target
+     * stream, computes the digest of the signed byte ranges and tracks the offsets of the
+     * signature slots.
+     */
+    public static final class SigningOutputStream extends FilterOutputStream {
+
+        private final MessageDigest digest;
+        private long count;
+        private long startOfContents = -1;
+        private long endOfContents = -1;
+        private long startOfByteRange = -1;
+        private ByteArrayOutputStream tail;
+
+        /**
+         * Creates a new stream.
+         * @param out the stream the signed document is written to
+         */
+        public SigningOutputStream(OutputStream out) {
+            super(out);
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /** {@inheritDoc} */
+        public void write(int b) throws IOException {
+            if (tail != null) {
+                tail.write(b);
+            } else if (startOfContents < 0) {
+                out.write(b);
+                digest.update((byte) b);
+            }
+            count++;
+        }
+
+        /** {@inheritDoc} */
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (tail != null) {
+                tail.write(b, off, len);
+            } else if (startOfContents < 0) {
+                out.write(b, off, len);
+                digest.update(b, off, len);
+            }
+            //the placeholder of the /Contents slot is replaced by the signature
+            count += len;
+        }
+
+        /**
+         * Does not close the target stream, which is still needed to write the signature.
+         * {@inheritDoc}
+         */
+        public void close() throws IOException {
+            flush();
+        }
+
+        private void startContents() {
+            startOfContents = count;
+        }
+
+        private void endContents() {
+            endOfContents = count;
+            tail = new ByteArrayOutputStream();
+        }
+
+        private void startByteRange() {
+            startOfByteRange = count;
+        }
+
+        private OutputStream getTarget() {
+            return out;
+        }
+    }
 
     static class TransformParams extends PDFDictionary {
         TransformParams() {
@@ -86,8 +165,20 @@ public class PDFSignature {
         }
 
         public int output(OutputStream stream) throws IOException {
-            CountingOutputStream countingOutputStream = (CountingOutputStream) stream;
-            startOfContents = startOfDocMDP + countingOutputStream.getByteCount();
+            signingStream.startContents();
+            int length = super.output(stream);
+            signingStream.endContents();
+            return length;
+        }
+    }
+
+    class ByteRange extends PDFObject {
+        protected String toPDFString() {
+            return BYTE_RANGE_PLACEHOLDER;
+        }
+
+        public int output(OutputStream stream) throws IOException {
+            signingStream.startByteRange();
             return super.output(stream);
         }
     }
@@ -111,16 +202,14 @@ public class PDFSignature {
             array.add(new SigRef());
             put("Reference", array);
             put("Contents", new Contents());
-            put("ByteRange", new PDFArray(0, 1000000000, 1000000000, 1000000000));
+            put("ByteRange", new ByteRange());
         }
 
         public int output(OutputStream stream) throws IOException {
-            if (stream instanceof CountingOutputStream) {
-                CountingOutputStream countingOutputStream = (CountingOutputStream) stream;
-                startOfDocMDP = countingOutputStream.getByteCount();
-                return super.output(stream);
+            if (getDocument().isLinearizationEnabled()) {
+                throw new IOException("Disable pdf linearization");
             }
-            throw new IOException("Disable pdf linearization");
+            return super.output(stream);
         }
     }
 
@@ -128,14 +217,15 @@ public class PDFSignature {
         DocMDP docMDP;
         Perms(PDFRoot root, DocMDP docMDP) {
             this.docMDP = docMDP;
-            root.getDocument().registerObject(docMDP);
+            //written with the trailer so that most of the document precedes the /Contents slot
+            root.getDocument().registerTrailerObject(docMDP);
             put("DocMDP", docMDP);
         }
     }
 
     static class SigField extends PDFDictionary {
         SigField(Perms perms, PDFPage page, PDFRoot root) {
-            root.getDocument().registerObject(this);
+            root.getDocument().registerTrailerObject(this);
             put("FT", new PDFName("Sig"));
             put("Type", new PDFName("Annot"));
             put("Subtype", new PDFName("Widget"));
@@ -173,13 +263,21 @@ public class PDFSignature {
         }
     }
 
-    public PDFSignature(PDFRoot root, FOUserAgent userAgent, PDFSignParams signParams) {
+    /**
+     * Creates a new signature.
+     * @param root the root of the document to sign
+     * @param userAgent the user agent
+     * @param signParams the signing parameters
+     * @param signingStream the stream the document is written to
+     */
+    public PDFSignature(PDFRoot root, FOUserAgent userAgent, PDFSignParams signParams,
+            SigningOutputStream signingStream) {
         this.root = root;
         this.userAgent = userAgent;
         this.signParams = signParams;
+        this.signingStream = signingStream;
         perms = new Perms(root, new DocMDP());
         root.put("Perms", perms);
-        tempURI = TEMP_URI_GENERATOR.generate();
     }
 
     public void add(PDFPage page) {
@@ -188,90 +286,90 @@ public class PDFSignature {
         page.addAnnotation(sigField);
     }
 
-    public void signPDF(URI uri, OutputStream os) throws IOException {
-        try (InputStream pdfIS = getTempIS(uri)) {
-            pdfIS.mark(Integer.MAX_VALUE);
-            String byteRangeValues = "0 1000000000 1000000000 1000000000";
-            String byteRange = "\n  /ByteRange [" + byteRangeValues + "]";
-            int pdfLength = pdfIS.available();
-            long offsetToPDFEnd = startOfContents + SIZE_OF_CONTENTS + 2 + byteRange.length();
-            long endOfPDFSize = pdfLength - offsetToPDFEnd;
-            String byteRangeValues2 = String.format("0 %s %s %s", startOfContents,
-                    startOfContents + SIZE_OF_CONTENTS + 2, byteRange.length() + endOfPDFSize);
-            byteRange = "\n  /ByteRange [" + byteRangeValues2 + "]";
-            String byteRangePadding = new String(new char[byteRangeValues.length() - byteRangeValues2.length()])
-                    .replace("\0", " ");
-            try (OutputStream editedPDF = getTempOS()) {
-                IOUtils.copyLarge(pdfIS, editedPDF, 0, startOfContents);
-                editedPDF.write(byteRange.getBytes("UTF-8"));
-                editedPDF.write(byteRangePadding.getBytes("UTF-8"));
-                IOUtils.copyLarge(pdfIS, editedPDF, offsetToPDFEnd - startOfContents, Long.MAX_VALUE);
-            }
-            pdfIS.reset();
-            IOUtils.copyLarge(pdfIS, os, 0, startOfContents);
-            try (InputStream is = getTempIS(tempURI)) {
-                byte[] signed = readPKCS(is);
-                String signedHexPadding = new String(new char[SIZE_OF_CONTENTS - (signed.length * 2)])
-                        .replace("\0", "0");
-                String signedHex = "<" + PDFText.toHex(signed, false) + signedHexPadding + ">";
-                os.write(signedHex.getBytes("UTF-8"));
-            }
-            os.write(byteRange.getBytes("UTF-8"));
-            os.write(byteRangePadding.getBytes("UTF-8"));
-            IOUtils.copyLarge(pdfIS, os, offsetToPDFEnd - startOfContents, Long.MAX_VALUE);
+    /**
+     * Completes the signed document after it has been written to the signing stream: fills
+     * in the /ByteRange and /Contents slots and writes the remainder of the document to the
+     * target stream.
+     * @throws IOException if an I/O error occurs or the signature dictionary wasn't written
+     */
+    public void signPDF() throws IOException {
+        SigningOutputStream stream = signingStream;
+        if (stream.tail == null || stream.startOfByteRange < stream.endOfContents) {
+            throw new IOException("The signature dictionary has not been written");
         }
+        byte[] tail = stream.tail.toByteArray();
+        String byteRange = String.format("[0 %s %s %s]", stream.startOfContents, stream.endOfContents,
+                stream.count - stream.endOfContents);
+        String byteRangePadding = new String(new char[BYTE_RANGE_PLACEHOLDER.length() - byteRange.length()])
+                .replace("\0", " ");
+        byte[] byteRangeBytes = (byteRange + byteRangePadding).getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(byteRangeBytes, 0, tail, (int) (stream.startOfByteRange - stream.endOfContents),
+                byteRangeBytes.length);
+        stream.digest.update(tail);
+        byte[] signed = sign(stream.digest.digest());
+        if (signed.length * 2 > SIZE_OF_CONTENTS) {
+            throw new IOException("The signature doesn't fit into the reserved space");
+        }
+        String signedHexPadding = new String(new char[SIZE_OF_CONTENTS - (signed.length * 2)])
+                .replace("\0", "0");
+        String signedHex = "<" + PDFText.toHex(signed, false) + signedHexPadding + ">";
+        OutputStream os = stream.getTarget();
+        os.write(signedHex.getBytes(StandardCharsets.UTF_8));
+        os.write(tail);
+        os.flush();
     }
 
-    private OutputStream getTempOS() throws IOException {
-        return new BufferedOutputStream(userAgent.getResourceResolver().getOutputStream(tempURI));
-    }
-
-    private InputStream getTempIS(URI uri) throws IOException {
-        return new BufferedInputStream(userAgent.getResourceResolver().getResource(uri));
-    }
-
-    private byte[] readPKCS(InputStream pdf) throws IOException {
+    private byte[] sign(byte[] contentDigest) throws IOException {
         try {
-            char[] password = signParams.getPassword().toCharArray();
-            KeyStore keystore = KeyStore.getInstance("PKCS12");
-            try (InputStream is = userAgent.getResourceResolver().getResource(signParams.getPkcs12())) {
-                keystore.load(is, password);
-            }
-            Certificate[] certificates = readKeystore(keystore, password);
-            return sign(pdf, certificates);
+            PDFSignCredentialsCache.Credentials credentials = userAgent.getPDFSignCredentialsCache().get(
+                    userAgent.getResourceResolver(), signParams);
+            Certificate[] certChain = credentials.getCertificateChain();
+            CMSSignedDataGenerator gen = new CMSSignedDataGenerator();
+            ContentSigner sha2Signer = new JcaContentSignerBuilder("SHA256WithRSA").build(
+                    credentials.getPrivateKey());
+            gen.addSignerInfoGenerator(new JcaSignerInfoGeneratorBuilder(
+                    new PrecomputedDigestProvider(contentDigest)).build(sha2Signer, credentials.getCertificate()));
+            gen.addCertificates(new JcaCertStore(Arrays.asList(certChain)));
+            CMSSignedData signedData = gen.generate(new CMSAbsentContent(), false);
+            return signedData.getEncoded();
         } catch (GeneralSecurityException | URISyntaxException | OperatorException | CMSException e) {
             throw new RuntimeException(e);
         }
     }
 
-    private Certificate[] readKeystore(KeyStore keystore, char[] password)
-            throws GeneralSecurityException, IOException {
-        Enumeration<String> aliases = keystore.aliases();
-        while (aliases.hasMoreElements()) {
-            String alias = aliases.nextElement();
-            privateKey = (PrivateKey) keystore.getKey(alias, password);
-            Certificate[] certChain = keystore.getCertificateChain(alias);
-            if (certChain != null) {
-                Certificate cert = certChain[0];
-                if (cert instanceof X509Certificate) {
-                    ((X509Certificate) cert).checkValidity();
-                }
-                return certChain;
-            }
+    /**
+     * Supplies the digest of the document computed by the {@link SigningOutputStream} to the
+     * CMS generator, so the signed content doesn't have to be read again.
+     */
+    private static final class PrecomputedDigestProvider implements DigestCalculatorProvider {
+
+        private final byte[] digest;
+
+        PrecomputedDigestProvider(byte[] digest) {
+            this.digest = digest;
         }
-        throw new IOException("Could not find certificate");
-    }
 
-    private byte[] sign(InputStream content, Certificate[] certChain)
-            throws GeneralSecurityException, OperatorException, CMSException, IOException {
-        CMSSignedDataGenerator gen = new CMSSignedDataGenerator();
-        X509Certificate cert = (X509Certificate) certChain[0];
-        ContentSigner sha2Signer = new JcaContentSignerBuilder("SHA256WithRSA").build(privateKey);
-        gen.addSignerInfoGenerator(new JcaSignerInfoGeneratorBuilder(
-                new JcaDigestCalculatorProviderBuilder().build()).build(sha2Signer, cert));
-        gen.addCertificates(new JcaCertStore(Arrays.asList(certChain)));
-        CMSProcessableInputStream msg = new CMSProcessableInputStream(content);
-        CMSSignedData signedData = gen.generate(msg, false);
-        return signedData.getEncoded();
+        public DigestCalculator get(final AlgorithmIdentifier algorithm) throws OperatorCreationException {
+            if (!NISTObjectIdentifiers.id_sha256.equals(algorithm.getAlgorithm())) {
+                throw new OperatorCreationException("Unsupported digest algorithm: " + algorithm.getAlgorithm());
+            }
+            return new DigestCalculator() {
+                public AlgorithmIdentifier getAlgorithmIdentifier() {
+                    return algorithm;
+                }
+
+                public OutputStream getOutputStream() {
+                    return new OutputStream() {
+                        public void write(int b) {
+                            //the content has already been digested
+                        }
+                    };
+                }
+
+                public byte[] getDigest() {
+                    return digest.clone();
+                }
+            };
+        }
     }
 }
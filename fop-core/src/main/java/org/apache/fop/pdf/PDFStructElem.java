@@ -267,6 +267,17 @@ public class PDFStructElem extends StructureHierarchyMember
         return this.kids;
     }
 
+    /**
+     * Releases the kids and entries of this element after it has been written. Only its
+     * object number, which references to it need, and its structure type are kept.
+     */
+    protected void release() {
+        kids = null;
+        attributes = null;
+        entries.clear();
+        order.clear();
+    }
+
     public int output(OutputStream stream) throws IOException {
         if (getDocument() != null && getDocument().getProfile().getPDFUAMode().isEnabled()) {
             if (entries.containsKey("Alt") && "".equals(get("Alt"))) {
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+package org.apache.fop.render;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.xmlgraphics.image.loader.ImageInfo;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.io.InternalResourceResolver;
+
+/**
+ * A bounded, thread-safe cache for images that have been converted to a renderer's output format,
+ * shared by all documents of a {@link org.apache.fop.apps.FopFactory}. Renderers use it to skip
+ * expensive conversions (resampling, dithering, re-encoding) of images that appear in many
+ * documents. The key has to identify the source image and all parameters that have an influence
+ * on the conversion result, the cached values must be immutable.
+ * <p>
+ * The cache is bounded by the total size of the cached values as reported by the renderers, the
+ * least recently used entries are evicted first. Hit, miss and eviction counts are recorded.</p>
+ */
+public final class ConvertedImageCache {
+
+    /** The default maximum size of the cache: 32 MB */
+    public static final long DEFAULT_MAXIMUM_SIZE = 32L * 1024 * 1024;
+
+    private final Map<Object, Entry> entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true);
+
+    private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    private static final class Entry {
+
+        private final Object value;
+        private final long size;
+
+        private Entry(Object value, long size) {
+            this.value = value;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Identifies the source of an image for use in a cache key: the original URI resolved
+     * against the base URI of the user agent and, for local files, the time of the last
+     * modification. Images with the same relative URI in documents with different base URIs
+     * therefore don't collide, and a replaced file isn't served from the cache.
+     * @param info the image info
+     * @param userAgent the user agent
+     * @return the identity of the image source or null if the image can't be identified
+     */
+    public static Object getImageSource(ImageInfo info, FOUserAgent userAgent) {
+        String uri = info.getOriginalURI();
+        if (uri == null || userAgent == null || userAgent.getResourceResolver() == null) {
+            return null;
+        }
+        URI resolved;
+        try {
+            resolved = userAgent.getResourceResolver().resolveFromBase(
+                    InternalResourceResolver.cleanURI(uri));
+        } catch (URISyntaxException use) {
+            return null;
+        }
+        long lastModified = -1;
+        if ("file".equals(resolved.getScheme()) && resolved.getPath() != null) {
+            lastModified = new File(resolved.getPath()).lastModified();
+        }
+        return Arrays.asList(resolved.toString(), lastModified);
+    }
+
+    /**
+     * Returns the cached value for the given key.
+     * @param key the key
+     * @return the cached value or null if there is none
+     */
+    public synchronized Object get(Object key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.value;
+    }
+
+    /**
+     * Adds a value to the cache, evicting the least recently used values if the maximum size
+     * would be exceeded. Values larger than the maximum size are not cached.
+     * @param key the key
+     * @param value the immutable value
+     * @param valueSize the size of the value in bytes
+     */
+    public synchronized void put(Object key, Object value, long valueSize) {
+        if (valueSize > maximumSize) {
+            return;
+        }
+        Entry previous = entries.put(key, new Entry(value, valueSize));
+        if (previous != null) {
+            size -= previous.size;
+        }
+        size += valueSize;
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Entry> iter = entries.values().iterator();
+        while (size > maximumSize && iter.hasNext()) {
+            size -= iter.next().size;
+            iter.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Sets the maximum total size of the cached values. 0 disables the cache.
+     * @param maximumSize the maximum size in bytes
+     */
+    public synchronized void setMaximumSize(long maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must not be negative");
+        }
+        this.maximumSize = maximumSize;
+        evict();
+    }
+
+    /**
+     * Returns the maximum total size of the cached values.
+     * @return the maximum size in bytes
+     */
+    public synchronized long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Returns the total size of the cached values.
+     * @return the size in bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of cached values.
+     * @return the number of entries
+     */
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of lookups that found a cached value.
+     * @return the hit count
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that didn't find a cached value.
+     * @return the miss count
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of values that were evicted to stay within the maximum size.
+     * @return the eviction count
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /** Removes all values from the cache. The statistics are kept. */
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    /** {@inheritDoc} */
+    public synchronized String toString() {
+        return "ConvertedImageCache: " + entries.size() + " entries, " + size + " of "
+                + maximumSize + " bytes, " + hitCount + " hits, " + missCount + " misses, "
+                + evictionCount + " evictions";
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.apache.xmlgraphics.image.loader.ImageInfo;
+import org.apache.xmlgraphics.image.loader.impl.ImageRawJPEG;
+import org.apache.xmlgraphics.image.loader.impl.ImageRawPNG;
+import org.apache.xmlgraphics.image.loader.impl.ImageRawStream;
+import org.apache.xmlgraphics.image.loader.impl.JPEGConstants;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.io.InternalResourceResolver;
+
+/**
+ * The encoded data of a raw image, referenced by one or more regions of the local image file
+ * it was loaded from. Renderers that embed the encoded data without re-encoding it use this
+ * to copy the data straight from the file to the output (through {@link FileChannel}s) at
+ * the time it is written instead of buffering it first.
+ * <p>
+ * Instances are only created if the image's URI resolves to a local file whose headers match
+ * the image, otherwise the image's own stream has to be used.</p>
+ */
+public final class ImageFileSource {
+
+    /** logging instance */
+    private static Log log = LogFactory.getLog(ImageFileSource.class);
+
+    private static final byte[] ICC_PROFILE = {'I', 'C', 'C', '_', 'P', 'R', 'O', 'F', 'I', 'L', 'E', 0};
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int PNG_IHDR = 0x49484452;
+    private static final int PNG_IDAT = 0x49444154;
+    private static final int PNG_IEND = 0x49454E44;
+
+    private final File file;
+    private final long lastModified;
+    private final long[] offsets;
+    private final long[] lengths;
+    private final long length;
+
+    private ImageFileSource(File file, long lastModified, List<long[]> regions) {
+        this.file = file;
+        this.lastModified = lastModified;
+        this.offsets = new long[regions.size()];
+        this.lengths = new long[regions.size()];
+        long total = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = regions.get(i)[0];
+            lengths[i] = regions.get(i)[1];
+            total += lengths[i];
+        }
+        this.length = total;
+    }
+
+    /**
+     * Creates a file source for the JPEG data of a raw JPEG image.
+     * @param jpeg the raw JPEG image
+     * @param userAgent the user agent used to resolve the image URI
+     * @param skipICCProfile true if embedded ICC profiles shall be left out (as done when the
+     *          image's ICC profile is written separately)
+     * @return the file source or null if the image data isn't available from a local file
+     */
+    public static ImageFileSource forRawJPEG(ImageRawJPEG jpeg, FOUserAgent userAgent,
+            boolean skipICCProfile) {
+        File file = toLocalFile(jpeg.getInfo(), userAgent);
+        if (file == null) {
+            return null;
+        }
+        try {
+            ImageFileSource source = scanJPEG(file, jpeg.getInfo(),
+                    skipICCProfile && jpeg.getICCProfile() != null);
+            if (source != null) {
+                release(jpeg);
+            }
+            return source;
+        } catch (IOException ioe) {
+            log.debug("Not using file source for " + file + ": " + ioe.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Creates a file source for the compressed pixel data (the contents of the IDAT chunks)
+     * of a raw PNG image.
+     * @param png the raw PNG image
+     * @param userAgent the user agent used to resolve the image URI
+     * @return the file source or null if the image data isn't available from a local file
+     */
+    public static ImageFileSource forRawPNG(ImageRawPNG png, FOUserAgent userAgent) {
+        File file = toLocalFile(png.getInfo(), userAgent);
+        if (file == null) {
+            return null;
+        }
+        try {
+            ImageFileSource source = scanPNG(file, png.getInfo());
+            if (source != null) {
+                release(png);
+            }
+            return source;
+        } catch (IOException ioe) {
+            log.debug("Not using file source for " + file + ": " + ioe.getMessage());
+            return null;
+        }
+    }
+
+    private static File toLocalFile(ImageInfo info, FOUserAgent userAgent) {
+        String uri = info.getOriginalURI();
+        if (uri == null || userAgent == null || uri.startsWith("data:")) {
+            return null;
+        }
+        try {
+            URI resolved = userAgent.getResourceResolver().resolveFromBase(
+                    InternalResourceResolver.cleanURI(uri));
+            if (!"file".equals(resolved.getScheme())) {
+                return null;
+            }
+            File file = new File(resolved);
+            return file.isFile() ? file : null;
+        } catch (URISyntaxException use) {
+            return null;
+        } catch (IllegalArgumentException iae) {
+            return null;
+        }
+    }
+
+    /** The data is read from the file from now on, close a stream nobody will consume. */
+    private static void release(ImageRawStream image) {
+        if (!image.isCacheable()) {
+            try {
+                IOUtils.closeQuietly(image.createInputStream());
+            } catch (IllegalStateException ise) {
+                // already consumed
+            }
+        }
+    }
+
+    private static ImageFileSource scanJPEG(File file, ImageInfo info, boolean skipICCProfile)
+            throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            long lastModified = file.lastModified();
+            if (raf.readUnsignedByte() != JPEGConstants.MARK
+                    || raf.readUnsignedByte() != JPEGConstants.SOI) {
+                return null;
+            }
+            List<long[]> regions = new ArrayList<long[]>();
+            long regionStart = 0;
+            boolean sizeMatches = false;
+            while (true) {
+                long segmentStart = raf.getFilePointer();
+                if (raf.readUnsignedByte() != JPEGConstants.MARK) {
+                    return null;
+                }
+                int segID;
+                do {
+                    segID = raf.readUnsignedByte();
+                } while (segID == JPEGConstants.MARK);
+                if (segID == JPEGConstants.SOS || segID == JPEGConstants.EOI) {
+                    break;
+                }
+                if (segID == 0x01 || (segID >= 0xD0 && segID <= 0xD7)) {
+                    continue; //standalone markers
+                }
+                int reclen = raf.readUnsignedShort();
+                long next = raf.getFilePointer() - 2 + reclen;
+                if (segID >= JPEGConstants.SOF0 && segID <= 0xCF
+                        && segID != 0xC4 && segID != 0xC8 && segID != 0xCC) {
+                    raf.skipBytes(1); //precision
+                    int height = raf.readUnsignedShort();
+                    int width = raf.readUnsignedShort();
+                    sizeMatches = width == info.getSize().getWidthPx()
+                            && height == info.getSize().getHeightPx();
+                } else if (segID == JPEGConstants.APP2 && skipICCProfile
+                        && startsWith(raf, ICC_PROFILE)) {
+                    regions.add(new long[] {regionStart, segmentStart - regionStart});
+                    regionStart = next;
+                }
+                raf.seek(next);
+            }
+            if (!sizeMatches) {
+                return null;
+            }
+            regions.add(new long[] {regionStart, raf.length() - regionStart});
+            return new ImageFileSource(file, lastModified, regions);
+        } finally {
+            IOUtils.closeQuietly(raf);
+        }
+    }
+
+    private static ImageFileSource scanPNG(File file, ImageInfo info) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            long lastModified = file.lastModified();
+            if (!startsWith(raf, PNG_SIGNATURE)) {
+                return null;
+            }
+            raf.skipBytes(PNG_SIGNATURE.length);
+            List<long[]> regions = new ArrayList<long[]>();
+            boolean sizeMatches = false;
+            while (raf.getFilePointer() < raf.length()) {
+                long chunkLength = raf.readInt() & 0xFFFFFFFFL;
+                int chunkType = raf.readInt();
+                long data = raf.getFilePointer();
+                if (chunkType == PNG_IHDR) {
+                    sizeMatches = raf.readInt() == info.getSize().getWidthPx()
+                            && raf.readInt() == info.getSize().getHeightPx();
+                } else if (chunkType == PNG_IDAT) {
+                    regions.add(new long[] {data, chunkLength});
+                } else if (chunkType == PNG_IEND) {
+                    break;
+                }
+                raf.seek(data + chunkLength + 4); //skip data and CRC
+            }
+            if (!sizeMatches || regions.isEmpty()) {
+                return null;
+            }
+            return new ImageFileSource(file, lastModified, regions);
+        } finally {
+            IOUtils.closeQuietly(raf);
+        }
+    }
+
+    private static boolean startsWith(RandomAccessFile raf, byte[] prefix) throws IOException {
+        long pos = raf.getFilePointer();
+        byte[] buf = new byte[prefix.length];
+        try {
+            raf.readFully(buf);
+        } catch (IOException ioe) {
+            return false;
+        } finally {
+            raf.seek(pos);
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buf[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the image file.
+     * @return the file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the number of bytes of image data.
+     * @return the length of the data
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Copies the image data to the given stream.
+     * @param out the target stream
+     * @throws IOException if an I/O error occurs or the file changed since it was examined
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        RandomAccessFile raf = open();
+        try {
+            FileChannel channel = raf.getChannel();
+            WritableByteChannel target = Channels.newChannel(out);
+            for (int i = 0; i < offsets.length; i++) {
+                long pos = offsets[i];
+                long end = pos + lengths[i];
+                while (pos < end) {
+                    long count = channel.transferTo(pos, end - pos, target);
+                    if (count <= 0) {
+                        throw new IOException("Unexpected end of image file " + file);
+                    }
+                    pos += count;
+                }
+            }
+        } finally {
+            IOUtils.closeQuietly(raf);
+        }
+    }
+
+    /**
+     * Reads the image data into a byte array.
+     * @return the image data
+     * @throws IOException if an I/O error occurs or the file changed since it was examined
+     */
+    public byte[] toByteArray() throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Image file too large: " + file);
+        }
+        byte[] data = new byte[(int) length];
+        RandomAccessFile raf = open();
+        try {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            for (int i = 0; i < offsets.length; i++) {
+                long pos = offsets[i];
+                buffer.limit(buffer.position() + (int) lengths[i]);
+                while (buffer.hasRemaining()) {
+                    int count = channel.read(buffer, pos);
+                    if (count < 0) {
+                        throw new IOException("Unexpected end of image file " + file);
+                    }
+                    pos += count;
+                }
+            }
+        } finally {
+            IOUtils.closeQuietly(raf);
+        }
+        return data;
+    }
+
+    private RandomAccessFile open() throws IOException {
+        if (file.lastModified() != lastModified) {
+            throw new IOException("Image file " + file + " changed while the document was rendered");
+        }
+        return new RandomAccessFile(file, "r");
+    }
+
+    /** {@inheritDoc} */
+    public String toString() {
+        return "ImageFileSource: " + file + " (" + offsets.length + " region(s), " + length + " bytes)";
+    }
+}
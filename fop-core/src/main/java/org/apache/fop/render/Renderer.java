@@ -109,6 +109,19 @@ public interface Renderer {
      */
     boolean supportsOutOfOrder();
 
+    /**
+     * Reports if pages with unresolved page number citations can be rendered right away. The
+     * renderer then emits a placeholder for each unresolved citation and patches in the page
+     * number at the end of the document, so such pages don't have to be held in memory.
+     * Renderers don't support this unless they say so.
+     *
+     * @return   True if this renderer supports page number placeholders.
+     * @see org.apache.fop.apps.FOUserAgent#setPageNumberPlaceholderDigits(int)
+     */
+    default boolean supportsPageNumberPlaceholders() {
+        return false;
+    }
+
     /**
      *
      * @param locale Locale of the language
@@ -43,6 +43,7 @@ import org.apache.fop.afp.AFPResourceInfo;
 import org.apache.fop.afp.AFPResourceManager;
 import org.apache.fop.afp.ioca.ImageContent;
 import org.apache.fop.afp.modca.ResourceObject;
+import org.apache.fop.render.ImageFileSource;
 import org.apache.fop.render.ImageHandler;
 import org.apache.fop.render.RenderingContext;
 
@@ -133,11 +134,17 @@ public class AFPImageHandlerRawJPEG extends AFPImageHandler implements ImageHand
         boolean included = afpContext.getResourceManager().tryIncludeObject(imageObjectInfo);
         if (!included) {
             log.debug("Embedding undecoded JPEG as IOCA image...");
-            InputStream inputStream = jpeg.createInputStream();
-            try {
-                imageObjectInfo.setData(IOUtils.toByteArray(inputStream));
-            } finally {
-                IOUtils.closeQuietly(inputStream);
+            ImageFileSource fileSource = ImageFileSource.forRawJPEG(jpeg,
+                    context.getUserAgent(), false);
+            if (fileSource != null) {
+                imageObjectInfo.setData(fileSource.toByteArray());
+            } else {
+                InputStream inputStream = jpeg.createInputStream();
+                try {
+                    imageObjectInfo.setData(IOUtils.toByteArray(inputStream));
+                } finally {
+                    IOUtils.closeQuietly(inputStream);
+                }
             }
 
             // Create image
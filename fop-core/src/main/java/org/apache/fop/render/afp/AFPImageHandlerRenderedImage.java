@@ -31,6 +31,7 @@ import java.awt.image.SampleModel;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -55,6 +56,8 @@ import org.apache.fop.afp.AFPResourceInfo;
 import org.apache.fop.afp.AFPResourceManager;
 import org.apache.fop.afp.ioca.ImageContent;
 import org.apache.fop.afp.modca.ResourceObject;
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.render.ConvertedImageCache;
 import org.apache.fop.render.ImageHandler;
 import org.apache.fop.render.RenderingContext;
 import org.apache.fop.util.bitmap.BitmapImageUtil;
@@ -130,12 +133,26 @@ public class AFPImageHandlerRenderedImage extends AFPImageHandler implements Ima
 
         boolean included = afpContext.getResourceManager().tryIncludeObject(imageObjectInfo);
         if (!included) {
-            long start = System.currentTimeMillis();
-            //encode only if the same image has not been encoded, yet
-            encoder.encodeImage(imageObjectInfo, paintingState);
-            if (log.isDebugEnabled()) {
-                long duration = System.currentTimeMillis() - start;
-                log.debug("Image encoding took " + duration + "ms.");
+            //images converted for earlier documents are reused, a maximum size of 0 disables that
+            ConvertedImageCache cache = (context.getUserAgent() != null)
+                    ? context.getUserAgent().getConvertedImageCache() : null;
+            EncodingKey key = (cache != null && cache.getMaximumSize() > 0)
+                    ? encoder.createKey(paintingState, context.getUserAgent()) : null;
+            EncodedImage encoded = (key != null) ? (EncodedImage) cache.get(key) : null;
+            if (encoded != null) {
+                encoded.applyTo(imageObjectInfo);
+            } else {
+                long start = System.currentTimeMillis();
+                //encode only if the same image has not been encoded, yet
+                encoder.encodeImage(imageObjectInfo, paintingState);
+                if (log.isDebugEnabled()) {
+                    long duration = System.currentTimeMillis() - start;
+                    log.debug("Image encoding took " + duration + "ms.");
+                }
+                if (key != null) {
+                    cache.put(key, new EncodedImage(imageObjectInfo),
+                            imageObjectInfo.getData().length);
+                }
             }
 
             // Create image
@@ -149,6 +166,63 @@ public class AFPImageHandlerRenderedImage extends AFPImageHandler implements Ima
             && targetContext instanceof AFPRenderingContext;
     }
 
+    /**
+     * Identifies an image conversion: the source image and all painting state settings that
+     * have an influence on the result of {@link RenderedImageEncoder#encodeImage}.
+     */
+    private static final class EncodingKey {
+
+        private final Object[] values;
+        private final int hash;
+
+        private EncodingKey(Object... values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        /** {@inheritDoc} */
+        public int hashCode() {
+            return hash;
+        }
+
+        /** {@inheritDoc} */
+        public boolean equals(Object obj) {
+            return obj instanceof EncodingKey && Arrays.equals(values, ((EncodingKey) obj).values);
+        }
+    }
+
+    /** The result of an image conversion, the image data must not be modified. */
+    private static final class EncodedImage {
+
+        private final byte[] data;
+        private final String mimeType;
+        private final int bitsPerPixel;
+        private final int compression;
+        private final boolean color;
+        private final boolean subtractive;
+        private final boolean createPageSegment;
+
+        private EncodedImage(AFPImageObjectInfo imageObjectInfo) {
+            this.data = imageObjectInfo.getData();
+            this.mimeType = imageObjectInfo.getMimeType();
+            this.bitsPerPixel = imageObjectInfo.getBitsPerPixel();
+            this.compression = imageObjectInfo.getCompression();
+            this.color = imageObjectInfo.isColor();
+            this.subtractive = imageObjectInfo.isSubtractive();
+            this.createPageSegment = imageObjectInfo.isCreatePageSegment();
+        }
+
+        private void applyTo(AFPImageObjectInfo imageObjectInfo) {
+            imageObjectInfo.setData(data);
+            imageObjectInfo.setMimeType(mimeType);
+            imageObjectInfo.setBitsPerPixel(bitsPerPixel);
+            imageObjectInfo.setCompression(compression);
+            imageObjectInfo.setColor(color);
+            imageObjectInfo.setSubtractive(subtractive);
+            imageObjectInfo.setCreatePageSegment(createPageSegment);
+        }
+    }
+
     private static final class RenderedImageEncoder {
 
         private enum FunctionSet {
@@ -239,6 +313,27 @@ public class AFPImageHandlerRenderedImage extends AFPImageHandler implements Ima
             objectAreaInfo.setHeightRes(resolution);
         }
 
+        /**
+         * Creates the cache key for the conversion prepared by {@link #prepareEncoding}.
+         * @param paintingState the painting state
+         * @param userAgent the user agent, used to resolve the image URI
+         * @return the key or null if the image can't be identified
+         */
+        private EncodingKey createKey(AFPPaintingState paintingState, FOUserAgent userAgent) {
+            Object source = ConvertedImageCache.getImageSource(imageRendered.getInfo(), userAgent);
+            if (source == null) {
+                return null;
+            }
+            RenderedImage renderedImage = imageRendered.getRenderedImage();
+            return new EncodingKey(source, renderedImage.getWidth(), renderedImage.getHeight(),
+                    intrinsicSize.getDimensionPx(), maxPixelSize,
+                    paintingState.isColorImages(), paintingState.getBitsPerPixel(),
+                    usePageSegments, resampledDim, paintingState.getResolution(),
+                    paintingState.getDitheringQuality(), paintingState.canEmbedJpeg(),
+                    paintingState.getBitmapEncodingQuality(), paintingState.getFS45(),
+                    paintingState.getWrapPSeg());
+        }
+
         private AFPDataObjectInfo encodeImage(
             AFPImageObjectInfo imageObjectInfo,
              AFPPaintingState paintingState)
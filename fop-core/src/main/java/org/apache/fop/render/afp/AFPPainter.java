@@ -105,6 +105,9 @@ public class AFPPainter extends AbstractIFPainter<AFPDocumentHandler> {
     private final AFPEventProducer eventProducer;
     private Integer bytesAvailable;
 
+    /** reused for encoding text, the encoded text is written before the next use */
+    private byte[] encodingBuffer;
+
     /**
      * Default constructor.
      * @param documentHandler the parent document handler
@@ -1111,7 +1114,11 @@ public class AFPPainter extends AbstractIFPainter<AFPDocumentHandler> {
         private void flushText(PtocaBuilder builder, StringBuffer sb,
                                final CharacterSet charSet) throws IOException {
             if (sb.length() > 0) {
-                builder.addTransparentData(charSet.encodeChars(sb));
+                int bufferSize = CharacterSet.getEncodingBufferSize(sb.length());
+                if (encodingBuffer == null || encodingBuffer.length < bufferSize) {
+                    encodingBuffer = new byte[bufferSize];
+                }
+                builder.addTransparentData(charSet.encodeChars(sb, encodingBuffer));
                 sb.setLength(0);
             }
         }
@@ -45,6 +45,7 @@ import org.apache.xmlgraphics.image.loader.util.ImageUtil;
 
 import org.apache.fop.ResourceEventProducer;
 import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.FormattingMetrics;
 import org.apache.fop.fo.Constants;
 import org.apache.fop.fonts.Font;
 import org.apache.fop.fonts.FontInfo;
@@ -160,9 +161,21 @@ public abstract class AbstractIFPainter<T extends IFDocumentHandler> implements
 
         ImageFlavor[] flavors = imageHandlerRegistry.getSupportedFlavors(context);
         info.getCustomObjects().put("warningincustomobject", true);
-        org.apache.xmlgraphics.image.loader.Image img = manager.getImage(
+        FormattingMetrics metrics = getUserAgent().getFormattingMetrics();
+        if (metrics != null) {
+            metrics.startPhase(FormattingMetrics.Phase.IMAGE_LOADING);
+        }
+        org.apache.xmlgraphics.image.loader.Image img;
+        try {
+            img = manager.getImage(
                     info, flavors,
                     hints, sessionContext);
+        } finally {
+            if (metrics != null) {
+                metrics.endPhase(FormattingMetrics.Phase.IMAGE_LOADING);
+                metrics.count(FormattingMetrics.Counter.IMAGES_LOADED, 1);
+            }
+        }
 
         if (info.getCustomObjects().get("warning") != null) {
             ResourceEventProducer eventProducer = ResourceEventProducer.Provider.get(
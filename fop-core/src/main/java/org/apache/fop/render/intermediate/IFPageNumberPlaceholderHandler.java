@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.intermediate;
+
+import java.awt.Color;
+
+import org.apache.fop.fonts.FontTriplet;
+
+/**
+ * Interface to draw page number citations whose value is only known at the end of the
+ * document. This is an optional interface for document handler implementations which can
+ * reserve a spot in a page that has already been written and fill it in later.
+ */
+public interface IFPageNumberPlaceholderHandler {
+
+    /**
+     * Indicates whether page number placeholders can be used for the current document.
+     * @return true if page number placeholders are supported
+     */
+    boolean supportsPageNumberPlaceholders();
+
+    /**
+     * Draws a placeholder for a page number citation on the current page. Citations with the
+     * same key and text attributes always resolve to the same text, so the implementation may
+     * share a placeholder between them.
+     * @param key identifies the citation
+     * @param x X-coordinate of the starting point of the text
+     * @param y Y-coordinate of the starting point of the text
+     * @param triplet the font triplet
+     * @param size the font size (in mpt)
+     * @param color the text color
+     * @return the placeholder to fill in by {@link #fillPageNumberPlaceholder(Object, String)}
+     * @throws IFException if an error occurs while handling this event
+     */
+    Object drawPageNumberPlaceholder(String key, int x, int y, FontTriplet triplet, int size,
+            Color color) throws IFException;
+
+    /**
+     * Fills in the resolved page number. This is called once for every placeholder, after
+     * the last page has been rendered and before the document trailer is started.
+     * @param placeholder the placeholder as returned by
+     * {@link #drawPageNumberPlaceholder(String, int, int, FontTriplet, int, Color)}
+     * @param text the page number
+     * @throws IFException if an error occurs while handling this event
+     */
+    void fillPageNumberPlaceholder(Object placeholder, String text) throws IFException;
+}
@@ -63,6 +63,7 @@ import org.apache.fop.area.CTM;
 import org.apache.fop.area.DestinationData;
 import org.apache.fop.area.OffDocumentExtensionAttachment;
 import org.apache.fop.area.OffDocumentItem;
+import org.apache.fop.area.PageNumberPlaceholder;
 import org.apache.fop.area.PageSequence;
 import org.apache.fop.area.PageViewport;
 import org.apache.fop.area.RegionViewport;
@@ -77,6 +78,7 @@ import org.apache.fop.area.inline.InlineViewport;
 import org.apache.fop.area.inline.Leader;
 import org.apache.fop.area.inline.SpaceArea;
 import org.apache.fop.area.inline.TextArea;
+import org.apache.fop.area.inline.UnresolvedPageNumber;
 import org.apache.fop.area.inline.WordArea;
 import org.apache.fop.datatypes.URISpecification;
 import org.apache.fop.fo.extensions.ExtensionAttachment;
@@ -155,6 +157,10 @@ public class IFRenderer extends AbstractPathOrientedRenderer {
 
     private TextUtil textUtil = new TextUtil();
 
+    /** The page number placeholders still to be filled in, by the document handler's handle */
+    private Map<Object, PageNumberPlaceholder> pageNumberPlaceholders
+            = new java.util.LinkedHashMap<Object, PageNumberPlaceholder>();
+
     private Stack<String> ids = new Stack<String>();
 
     /**
@@ -211,6 +217,22 @@ public class IFRenderer extends AbstractPathOrientedRenderer {
                 ? this.documentHandler.supportsPagesOutOfOrder() : false);
     }
 
+    /** {@inheritDoc} */
+    public boolean supportsPageNumberPlaceholders() {
+        return supportsOutOfOrder() && getUserAgent().getPageNumberPlaceholderDigits() > 0
+                && getPageNumberPlaceholderHandler() != null;
+    }
+
+    private IFPageNumberPlaceholderHandler getPageNumberPlaceholderHandler() {
+        if (this.documentHandler instanceof IFPageNumberPlaceholderHandler) {
+            IFPageNumberPlaceholderHandler handler = (IFPageNumberPlaceholderHandler) this.documentHandler;
+            if (handler.supportsPageNumberPlaceholders()) {
+                return handler;
+            }
+        }
+        return null;
+    }
+
     /**
      * Returns the document navigation handler if available/supported.
      * @return the document navigation handler or null if not supported
@@ -274,6 +296,7 @@ public class IFRenderer extends AbstractPathOrientedRenderer {
                 documentHandler.endPageSequence();
                 this.inPageSequence = false;
             }
+            fillPageNumberPlaceholders();
             documentHandler.startDocumentTrailer();
 
             //Wrap up document navigation
@@ -308,6 +331,14 @@ public class IFRenderer extends AbstractPathOrientedRenderer {
         documentHandler.setDocumentLocale(locale);
     }
 
+    private void fillPageNumberPlaceholders() throws IFException {
+        for (Map.Entry<Object, PageNumberPlaceholder> entry : pageNumberPlaceholders.entrySet()) {
+            getPageNumberPlaceholderHandler().fillPageNumberPlaceholder(
+                    entry.getKey(), entry.getValue().getText());
+        }
+        pageNumberPlaceholders.clear();
+    }
+
     /** {@inheritDoc} */
     public void processOffDocumentItem(OffDocumentItem odi) {
         if (odi instanceof DestinationData) {
@@ -1064,7 +1095,12 @@ public class IFRenderer extends AbstractPathOrientedRenderer {
         textUtil.setStartPosition(rx, bl);
         textUtil.setSpacing(text.getTextLetterSpaceAdjust(), text.getTextWordSpaceAdjust());
         documentHandler.getContext().setHyphenated(text.isHyphenated());
-        super.renderText(text);
+        if (text instanceof UnresolvedPageNumber && !((UnresolvedPageNumber) text).isResolved()
+                && supportsPageNumberPlaceholders()) {
+            renderPageNumberPlaceholder((UnresolvedPageNumber) text, triplet, size, ct, rx, bl);
+        } else {
+            super.renderText(text);
+        }
 
         textUtil.flush();
         renderTextDecoration(tf, size, text, bl, rx);
@@ -1072,6 +1108,24 @@ public class IFRenderer extends AbstractPathOrientedRenderer {
         resetStructurePointer();
     }
 
+    /**
+     * Renders a page number citation that's still unresolved as a placeholder, which is
+     * filled in at the end of the document.
+     */
+    private void renderPageNumberPlaceholder(UnresolvedPageNumber text, FontTriplet triplet,
+            int size, Color color, int x, int y) {
+        PageNumberPlaceholder placeholder = text.createPlaceholder();
+        try {
+            Object handle = getPageNumberPlaceholderHandler().drawPageNumberPlaceholder(
+                    placeholder.getKey(), x, y, triplet, size, color);
+            if (!pageNumberPlaceholders.containsKey(handle)) {
+                pageNumberPlaceholders.put(handle, placeholder);
+            }
+        } catch (IFException e) {
+            handleIFException(e);
+        }
+    }
+
     /** {@inheritDoc} */
     protected void renderWord(WordArea word) {
         Font font = getFontFromArea(word.getParentArea());
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.pdf;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.ColorModel;
+import java.awt.image.RenderedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.xmlgraphics.image.loader.Image;
+import org.apache.xmlgraphics.image.loader.ImageProcessingHints;
+import org.apache.xmlgraphics.image.loader.impl.ImageRawPNG;
+import org.apache.xmlgraphics.image.loader.impl.ImageRendered;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.pdf.FlateFilter;
+import org.apache.fop.pdf.PDFDocument;
+import org.apache.fop.pdf.PDFFilterList;
+import org.apache.fop.render.ConvertedImageCache;
+import org.apache.fop.render.ImageHandlerUtil;
+import org.apache.fop.render.RenderingContext;
+
+/**
+ * The flate-encoded data of an image and its soft mask as written to the PDF. Instances are
+ * shared by all documents of a {@link org.apache.fop.apps.FopFactory} through its
+ * {@link ConvertedImageCache}, so images that appear in many documents are only encoded once
+ * and later documents just copy the bytes. The data must not be modified.
+ */
+final class EncodedImagePayload {
+
+    /** The image processing hints that have an influence on the conversion to a bitmap. */
+    private static final Object[] CONVERSION_HINTS = {
+        ImageProcessingHints.SOURCE_RESOLUTION, ImageProcessingHints.TARGET_RESOLUTION,
+        ImageProcessingHints.BITMAP_TYPE_INTENT, ImageProcessingHints.TRANSPARENCY_INTENT,
+        ImageProcessingHints.IGNORE_COLOR_PROFILE, ImageHandlerUtil.CONVERSION_MODE
+    };
+
+    private final byte[] data;
+    private final byte[] softMask;
+
+    /**
+     * Creates a new payload.
+     * @param data the flate-encoded image data
+     * @param softMask the flate-encoded soft mask or null if there's none
+     */
+    EncodedImagePayload(byte[] data, byte[] softMask) {
+        this.data = data;
+        this.softMask = softMask;
+    }
+
+    /** @return the flate-encoded image data */
+    byte[] getData() {
+        return data;
+    }
+
+    /** @return the flate-encoded soft mask or null */
+    byte[] getSoftMask() {
+        return softMask;
+    }
+
+    /** @return the total size of the payload in bytes */
+    long getSize() {
+        return data.length + (softMask != null ? softMask.length : 0);
+    }
+
+    /**
+     * Returns the cache for encoded images of the given user agent.
+     * @param userAgent the user agent (may be null)
+     * @return the cache or null if encoded images are not cached
+     */
+    static ConvertedImageCache getCache(FOUserAgent userAgent) {
+        ConvertedImageCache cache = (userAgent != null) ? userAgent.getConvertedImageCache() : null;
+        return (cache != null && cache.getMaximumSize() > 0) ? cache : null;
+    }
+
+    /**
+     * Creates the cache key for a bitmap: the encoding, the image source, the size and color
+     * model of the bitmap and the image processing hints it was converted with. The bitmap of
+     * an SVG image, for example, depends on the target resolution.
+     * @param encoding identifies how the payload is produced from the bitmap
+     * @param image the bitmap
+     * @param context the rendering context with the image processing hints
+     * @return the key or null if the image can't be identified
+     */
+    static Object createKey(String encoding, ImageRendered image, RenderingContext context) {
+        RenderedImage ri = image.getRenderedImage();
+        List<Object> key = createKey(encoding, image, context.getUserAgent(),
+                ri.getWidth(), ri.getHeight(), ri.getColorModel());
+        if (key != null) {
+            for (Object hint : CONVERSION_HINTS) {
+                key.add(context.getHint(hint));
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Creates the cache key for a PNG image: the encoding, the image source and the size and
+     * color model of the PNG image.
+     * @param encoding identifies how the payload is produced from the PNG data
+     * @param png the PNG image
+     * @param userAgent the user agent used to resolve the image URI
+     * @return the key or null if the image can't be identified
+     */
+    static Object createKey(String encoding, ImageRawPNG png, FOUserAgent userAgent) {
+        return createKey(encoding, png, userAgent,
+                png.getSize().getWidthPx(), png.getSize().getHeightPx(), png.getColorModel());
+    }
+
+    /**
+     * Identifies the image source by the resolved image URI and the modification time of
+     * local image files, see {@link ConvertedImageCache#getImageSource}.
+     */
+    private static List<Object> createKey(String encoding, Image image, FOUserAgent userAgent,
+            int width, int height, ColorModel cm) {
+        Object source = ConvertedImageCache.getImageSource(image.getInfo(), userAgent);
+        if (source == null) {
+            return null;
+        }
+        ColorSpace cs = cm.getColorSpace();
+        return new ArrayList<Object>(Arrays.asList(encoding, source,
+                image.getInfo().getMimeType(), width, height,
+                cm.getPixelSize(), cm.getNumComponents(), cm.hasAlpha(), cm.getTransparency(),
+                cs.getType(), cs.isCS_sRGB()));
+    }
+
+    /**
+     * Indicates whether a document compresses images with the built-in default, i.e. a
+     * single flate filter, so cached payloads can be written as they are.
+     * @param doc the PDF document
+     * @return true if the default image filter is used
+     */
+    static boolean usesDefaultImageFilter(PDFDocument doc) {
+        Map<String, List<String>> filterMap = doc.getFilterMap();
+        if (filterMap == null) {
+            return true;
+        }
+        List<String> filters = filterMap.get(PDFFilterList.IMAGE_FILTER);
+        if (filters == null) {
+            filters = filterMap.get(PDFFilterList.DEFAULT_FILTER);
+        }
+        return filters == null || filters.isEmpty()
+                || (filters.size() == 1 && "flate".equals(filters.get(0)));
+    }
+
+    /**
+     * Creates a filter describing flate-encoded payload data.
+     * @return the (already applied) filter
+     */
+    static FlateFilter createAppliedFilter() {
+        FlateFilter flate = new FlateFilter();
+        flate.setApplied(true);
+        return flate;
+    }
+}
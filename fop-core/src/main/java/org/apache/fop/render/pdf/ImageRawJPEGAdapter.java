@@ -35,6 +35,8 @@ import org.apache.fop.pdf.PDFDeviceColorSpace;
 import org.apache.fop.pdf.PDFDocument;
 import org.apache.fop.pdf.PDFFilter;
 import org.apache.fop.pdf.PDFFilterList;
+import org.apache.fop.pdf.PDFPassThroughImage;
+import org.apache.fop.render.ImageFileSource;
 
 /**
  * PDFImage implementation for the PDF renderer which handles raw JPEG images.
@@ -44,10 +46,12 @@ import org.apache.fop.pdf.PDFFilterList;
  * a PDF object and associated with the XObject. This way, the PDF file size is kept as small
  * as possible.
  */
-public class ImageRawJPEGAdapter extends AbstractImageAdapter {
+public class ImageRawJPEGAdapter extends AbstractImageAdapter implements PDFPassThroughImage {
 
     private PDFFilter pdfFilter;
 
+    private ImageFileSource fileSource;
+
     /**
      * Creates a new PDFImage from an Image instance.
      * @param image the JPEG image
@@ -65,6 +69,20 @@ public class ImageRawJPEGAdapter extends AbstractImageAdapter {
         return ((ImageRawJPEG)this.image);
     }
 
+    /**
+     * Sets the local file the JPEG data is copied from. The file source has to leave out the
+     * embedded ICC profile if the image has one.
+     * @param fileSource the file source or null to use the image's stream
+     */
+    public void setFileSource(ImageFileSource fileSource) {
+        this.fileSource = fileSource;
+    }
+
+    /** {@inheritDoc} */
+    public long getContentLength() {
+        return (fileSource != null) ? fileSource.getLength() : -1;
+    }
+
     /** {@inheritDoc} */
     public void setup(PDFDocument doc) {
         pdfFilter = new DCTFilter();
@@ -96,6 +114,10 @@ public class ImageRawJPEGAdapter extends AbstractImageAdapter {
 
     /** {@inheritDoc} */
     public void outputContents(OutputStream out) throws IOException {
+        if (fileSource != null) {
+            fileSource.writeTo(out);
+            return;
+        }
         InputStream in = getImage().createInputStream();
         in = ImageUtil.decorateMarkSupported(in);
         try {
@@ -51,9 +51,12 @@ import org.apache.fop.pdf.PDFFilter;
 import org.apache.fop.pdf.PDFFilterException;
 import org.apache.fop.pdf.PDFFilterList;
 import org.apache.fop.pdf.PDFName;
+import org.apache.fop.pdf.PDFPassThroughImage;
 import org.apache.fop.pdf.PDFReference;
+import org.apache.fop.render.ConvertedImageCache;
+import org.apache.fop.render.ImageFileSource;
 
-public class ImageRawPNGAdapter extends AbstractImageAdapter {
+public class ImageRawPNGAdapter extends AbstractImageAdapter implements PDFPassThroughImage {
 
     /** logging instance */
     private static Log log = LogFactory.getLog(ImageRawPNGAdapter.class);
@@ -67,6 +70,10 @@ public class ImageRawPNGAdapter extends AbstractImageAdapter {
     private String maskRef;
     private PDFReference softMask;
     private int numberOfInterleavedComponents;
+    private ImageFileSource fileSource;
+    private ConvertedImageCache cache;
+    private Object cacheKey;
+    private EncodedImagePayload payload;
 
     /**
      * Creates a new PDFImage from an Image instance.
@@ -77,6 +84,44 @@ public class ImageRawPNGAdapter extends AbstractImageAdapter {
         super(image, key);
     }
 
+    /**
+     * Indicates whether the compressed pixel data of the given image is copied to the PDF
+     * as-is, i.e. it has no alpha channel that needs to be separated.
+     * @param png the image
+     * @return true if the data is not re-encoded
+     */
+    public static boolean isCopiedAsIs(ImageRawPNG png) {
+        ColorModel cm = png.getColorModel();
+        int components = (cm instanceof IndexColorModel) ? 1 : cm.getNumComponents();
+        return (components == 1 || components == 3)
+                && !(cm.hasAlpha() && cm.getTransparency() == ColorModel.TRANSLUCENT);
+    }
+
+    /**
+     * Sets the local file the compressed pixel data is copied from. Only used if
+     * {@link #isCopiedAsIs(ImageRawPNG)} is true for the image.
+     * @param fileSource the file source or null to use the image's stream
+     */
+    public void setFileSource(ImageFileSource fileSource) {
+        this.fileSource = fileSource;
+    }
+
+    /**
+     * Sets the cache the image data is shared through with other documents if the alpha
+     * channel has to be separated from the color data.
+     * @param cache the cache (null disables caching)
+     * @param cacheKey the key identifying the image (null disables caching)
+     */
+    public void setConvertedImageCache(ConvertedImageCache cache, Object cacheKey) {
+        this.cache = cache;
+        this.cacheKey = cacheKey;
+    }
+
+    /** {@inheritDoc} */
+    public long getContentLength() {
+        return (fileSource != null) ? fileSource.getLength() : -1;
+    }
+
     /** {@inheritDoc} */
     public void setup(PDFDocument doc) {
         super.setup(doc);
@@ -115,36 +160,16 @@ public class ImageRawPNGAdapter extends AbstractImageAdapter {
         if (cm.hasAlpha() && cm.getTransparency() == ColorModel.TRANSLUCENT) {
             doc.getProfile().verifyTransparencyAllowed(image.getInfo().getOriginalURI());
             // TODO: Implement code to combine image with background color if transparency is not allowed
-            // here we need to inflate the PNG pixel data, which includes alpha, separate the alpha channel
-            // and then deflate it back again
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            BufferedOutputStream dos = new BufferedOutputStream(new DeflaterOutputStream(baos, new Deflater()));
-            InputStream in = ((ImageRawStream) image).createInputStream();
-            try {
-                InflaterInputStream infStream = new InflaterInputStream(in, new Inflater());
-                DataInputStream dataStream = new DataInputStream(infStream);
-                // offset is the byte offset of the alpha component
-                int offset = numberOfInterleavedComponents - 1; // 1 for GA, 3 for RGBA
-                int numColumns = image.getSize().getWidthPx();
-                int bytesPerRow = numberOfInterleavedComponents * numColumns;
-                int filter;
-                // read line by line; the first byte holds the filter
-                while ((filter = dataStream.read()) != -1) {
-                    byte[] bytes = new byte[bytesPerRow];
-                    dataStream.readFully(bytes, 0, bytesPerRow);
-                    dos.write((byte) filter);
-                    for (int j = 0; j < numColumns; j++) {
-                        dos.write(bytes, offset, 1);
-                        offset += numberOfInterleavedComponents;
-                    }
-                    offset = numberOfInterleavedComponents - 1;
+            if (cache != null && cacheKey != null
+                    && (numberOfInterleavedComponents == 2 || numberOfInterleavedComponents == 4)) {
+                // the alpha channel has been separated for an earlier document
+                payload = (EncodedImagePayload) cache.get(cacheKey);
+                if (payload == null) {
+                    payload = new EncodedImagePayload(separateColorData(), separateAlphaChannel());
+                    cache.put(cacheKey, payload, payload.getSize());
                 }
-                dos.close();
-            } catch (IOException e) {
-                throw new RuntimeException("Error processing transparency channel:", e);
-            } finally {
-                IOUtils.closeQuietly(in);
             }
+            byte[] alphaData = (payload != null) ? payload.getSoftMask() : separateAlphaChannel();
             // set up alpha channel compression
             FlateFilter transFlate;
             try {
@@ -158,7 +183,7 @@ public class ImageRawPNGAdapter extends AbstractImageAdapter {
                 throw new RuntimeException("FlateFilter configuration error", e);
             }
             BitmapImage alphaMask = new BitmapImage("Mask:" + this.getKey(), image.getSize().getWidthPx(),
-                    image.getSize().getHeightPx(), baos.toByteArray(), null);
+                    image.getSize().getHeightPx(), alphaData, null);
             alphaMask.setPDFFilter(transFlate);
             alphaMask.disallowMultipleFilters();
             alphaMask.setColorSpace(new PDFDeviceColorSpace(PDFDeviceColorSpace.DEVICE_GRAY));
@@ -166,6 +191,53 @@ public class ImageRawPNGAdapter extends AbstractImageAdapter {
         }
     }
 
+    private byte[] separateAlphaChannel() {
+        // here we need to inflate the PNG pixel data, which includes alpha, separate the alpha channel
+        // and then deflate it back again
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        BufferedOutputStream dos = new BufferedOutputStream(new DeflaterOutputStream(baos, new Deflater()));
+        InputStream in = ((ImageRawStream) image).createInputStream();
+        try {
+            InflaterInputStream infStream = new InflaterInputStream(in, new Inflater());
+            DataInputStream dataStream = new DataInputStream(infStream);
+            // offset is the byte offset of the alpha component
+            int offset = numberOfInterleavedComponents - 1; // 1 for GA, 3 for RGBA
+            int numColumns = image.getSize().getWidthPx();
+            int bytesPerRow = numberOfInterleavedComponents * numColumns;
+            int filter;
+            // read line by line; the first byte holds the filter
+            while ((filter = dataStream.read()) != -1) {
+                byte[] bytes = new byte[bytesPerRow];
+                dataStream.readFully(bytes, 0, bytesPerRow);
+                dos.write((byte) filter);
+                for (int j = 0; j < numColumns; j++) {
+                    dos.write(bytes, offset, 1);
+                    offset += numberOfInterleavedComponents;
+                }
+                offset = numberOfInterleavedComponents - 1;
+            }
+            dos.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Error processing transparency channel:", e);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+        return baos.toByteArray();
+    }
+
+    private byte[] separateColorData() {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        InputStream in = ((ImageRawStream) image).createInputStream();
+        try {
+            writeColorData(in, baos);
+        } catch (IOException e) {
+            throw new RuntimeException("Error processing color channels:", e);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+        return baos.toByteArray();
+    }
+
     /** {@inheritDoc} */
     public PDFDeviceColorSpace getColorSpace() {
         // DeviceGray, DeviceRGB, or DeviceCMYK
@@ -209,6 +281,14 @@ public class ImageRawPNGAdapter extends AbstractImageAdapter {
 
     /** {@inheritDoc} */
     public void outputContents(OutputStream out) throws IOException {
+        if (fileSource != null) {
+            fileSource.writeTo(out);
+            return;
+        }
+        if (payload != null) {
+            out.write(payload.getData());
+            return;
+        }
         InputStream in = ((ImageRawStream) image).createInputStream();
 
         try {
@@ -216,35 +296,39 @@ public class ImageRawPNGAdapter extends AbstractImageAdapter {
                 // means we have Gray, RGB, or Palette
                 IOUtils.copy(in, out);
             } else {
-                // means we have Gray + alpha or RGB + alpha
-                // TODO: since we have alpha here do this when the alpha channel is extracted
-                int numBytes = numberOfInterleavedComponents - 1; // 1 for Gray, 3 for RGB
-                int numColumns = image.getSize().getWidthPx();
-                InflaterInputStream infStream = new InflaterInputStream(in, new Inflater());
-                DataInputStream dataStream = new DataInputStream(infStream);
-                int offset = 0;
-                int bytesPerRow = numberOfInterleavedComponents * numColumns;
-                int filter;
-                // here we need to inflate the PNG pixel data, which includes alpha, separate the alpha
-                // channel and then deflate the RGB channels back again
-                BufferedOutputStream dos = new BufferedOutputStream(new DeflaterOutputStream(out, new Deflater()));
-                while ((filter = dataStream.read()) != -1) {
-                    byte[] bytes = new byte[bytesPerRow];
-                    dataStream.readFully(bytes, 0, bytesPerRow);
-                    dos.write((byte) filter);
-                    for (int j = 0; j < numColumns; j++) {
-                        dos.write(bytes, offset, numBytes);
-                        offset += numberOfInterleavedComponents;
-                    }
-                    offset = 0;
-                }
-                dos.close();
+                writeColorData(in, out);
             }
         } finally {
             IOUtils.closeQuietly(in);
         }
     }
 
+    private void writeColorData(InputStream in, OutputStream out) throws IOException {
+        // means we have Gray + alpha or RGB + alpha
+        // TODO: since we have alpha here do this when the alpha channel is extracted
+        int numBytes = numberOfInterleavedComponents - 1; // 1 for Gray, 3 for RGB
+        int numColumns = image.getSize().getWidthPx();
+        InflaterInputStream infStream = new InflaterInputStream(in, new Inflater());
+        DataInputStream dataStream = new DataInputStream(infStream);
+        int offset = 0;
+        int bytesPerRow = numberOfInterleavedComponents * numColumns;
+        int filter;
+        // here we need to inflate the PNG pixel data, which includes alpha, separate the alpha
+        // channel and then deflate the RGB channels back again
+        BufferedOutputStream dos = new BufferedOutputStream(new DeflaterOutputStream(out, new Deflater()));
+        while ((filter = dataStream.read()) != -1) {
+            byte[] bytes = new byte[bytesPerRow];
+            dataStream.readFully(bytes, 0, bytesPerRow);
+            dos.write((byte) filter);
+            for (int j = 0; j < numColumns; j++) {
+                dos.write(bytes, offset, numBytes);
+                offset += numberOfInterleavedComponents;
+            }
+            offset = 0;
+        }
+        dos.close();
+    }
+
     /** {@inheritDoc} */
     public String getFilterHint() {
         return PDFFilterList.PRECOMPRESSED_FILTER;
@@ -28,6 +28,8 @@ import java.awt.image.RenderedImage;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import org.apache.commons.io.output.ByteArrayOutputStream;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -35,6 +37,8 @@ import org.apache.xmlgraphics.image.loader.impl.ImageRendered;
 import org.apache.xmlgraphics.ps.ImageEncodingHelper;
 
 import org.apache.fop.pdf.AlphaRasterImage;
+import org.apache.fop.pdf.BitmapImage;
+import org.apache.fop.pdf.FlateFilter;
 import org.apache.fop.pdf.PDFColor;
 import org.apache.fop.pdf.PDFDeviceColorSpace;
 import org.apache.fop.pdf.PDFDictionary;
@@ -42,6 +46,7 @@ import org.apache.fop.pdf.PDFDocument;
 import org.apache.fop.pdf.PDFFilter;
 import org.apache.fop.pdf.PDFFilterList;
 import org.apache.fop.pdf.PDFReference;
+import org.apache.fop.render.ConvertedImageCache;
 
 /**
  * PDFImage implementation for the PDF renderer which handles RenderedImages.
@@ -57,6 +62,10 @@ public class ImageRenderedAdapter extends AbstractImageAdapter {
     private String maskRef;
     private PDFReference softMask;
 
+    private ConvertedImageCache cache;
+    private Object cacheKey;
+    private EncodedImagePayload payload;
+
     /**
      * Creates a new PDFImage from an Image instance.
      * @param image the image
@@ -67,6 +76,16 @@ public class ImageRenderedAdapter extends AbstractImageAdapter {
         this.encodingHelper = new ImageEncodingHelper(image.getRenderedImage());
     }
 
+    /**
+     * Sets the cache the encoded image data is shared through with other documents.
+     * @param cache the cache (null disables caching)
+     * @param cacheKey the key identifying the image (null disables caching)
+     */
+    public void setConvertedImageCache(ConvertedImageCache cache, Object cacheKey) {
+        this.cache = cache;
+        this.cacheKey = cacheKey;
+    }
+
     /**
      * Returns the ImageRendered instance for this adapter.
      * @return the ImageRendered instance
@@ -120,16 +139,56 @@ public class ImageRenderedAdapter extends AbstractImageAdapter {
 
         //Handle transparency mask if applicable
         ColorModel orgcm = ri.getColorModel();
-        if (orgcm.hasAlpha() && orgcm.getTransparency() == ColorModel.TRANSLUCENT) {
+        boolean translucent = orgcm.hasAlpha() && orgcm.getTransparency() == ColorModel.TRANSLUCENT;
+        if (translucent) {
             doc.getProfile().verifyTransparencyAllowed(image.getInfo().getOriginalURI());
             //TODO Implement code to combine image with background color if transparency is not
             //allowed (need BufferedImage support for that)
+        }
 
+        if (cache != null && cacheKey != null && EncodedImagePayload.usesDefaultImageFilter(doc)) {
+            //the image has been encoded for an earlier document or is encoded once for all
+            payload = (EncodedImagePayload) cache.get(cacheKey);
+            if (payload == null) {
+                payload = encode(ri, translucent);
+                cache.put(cacheKey, payload, payload.getSize());
+            }
+            this.pdfFilter = EncodedImagePayload.createAppliedFilter();
+            disallowMultipleFilters();
+            if (payload.getSoftMask() != null) {
+                BitmapImage alphaMask = new BitmapImage("Mask:" + getKey(), ri.getWidth(),
+                        ri.getHeight(), payload.getSoftMask(), null);
+                alphaMask.setPDFFilter(EncodedImagePayload.createAppliedFilter());
+                alphaMask.disallowMultipleFilters();
+                alphaMask.setColorSpace(new PDFDeviceColorSpace(PDFDeviceColorSpace.DEVICE_GRAY));
+                this.softMask = doc.addImage(null, alphaMask).makeReference();
+            }
+        } else if (translucent) {
             AlphaRasterImage alphaImage = new AlphaRasterImage("Mask:" + getKey(), ri);
             this.softMask = doc.addImage(null, alphaImage).makeReference();
         }
     }
 
+    private EncodedImagePayload encode(RenderedImage ri, boolean translucent) {
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            OutputStream out = new FlateFilter().applyFilter(baos);
+            encodeImage(out);
+            out.close();
+            byte[] mask = null;
+            if (translucent) {
+                ByteArrayOutputStream maskOut = new ByteArrayOutputStream();
+                out = new FlateFilter().applyFilter(maskOut);
+                new AlphaRasterImage("Mask:" + getKey(), ri).outputContents(out);
+                out.close();
+                mask = maskOut.toByteArray();
+            }
+            return new EncodedImagePayload(baos.toByteArray(), mask);
+        } catch (IOException ioe) {
+            throw new RuntimeException("Error encoding image " + image.getInfo(), ioe);
+        }
+    }
+
     /** {@inheritDoc} */
     public PDFDeviceColorSpace getColorSpace() {
         // DeviceGray, DeviceRGB, or DeviceCMYK
@@ -197,6 +256,14 @@ public class ImageRenderedAdapter extends AbstractImageAdapter {
 
     /** {@inheritDoc} */
     public void outputContents(OutputStream out) throws IOException {
+        if (payload != null) {
+            out.write(payload.getData());
+        } else {
+            encodeImage(out);
+        }
+    }
+
+    private void encodeImage(OutputStream out) throws IOException {
         long start = System.currentTimeMillis();
         encodingHelper.setBWInvert(true);
         encodingHelper.encode(out);
@@ -19,34 +19,36 @@
 
 package org.apache.fop.render.pdf;
 
+import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.net.URI;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
-import org.apache.commons.io.output.CountingOutputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import org.apache.xmlgraphics.io.TempResourceURIGenerator;
 import org.apache.xmlgraphics.xmp.Metadata;
 
 import org.apache.fop.accessibility.StructureTreeEventHandler;
 import org.apache.fop.apps.MimeConstants;
 import org.apache.fop.fo.extensions.xmp.XMPMetadata;
+import org.apache.fop.fonts.FontTriplet;
 import org.apache.fop.pdf.PDFAnnotList;
 import org.apache.fop.pdf.PDFArray;
 import org.apache.fop.pdf.PDFDocument;
+import org.apache.fop.pdf.PDFFormXObject;
 import org.apache.fop.pdf.PDFPage;
 import org.apache.fop.pdf.PDFReference;
+import org.apache.fop.pdf.PDFResourceContext;
 import org.apache.fop.pdf.PDFResources;
 import org.apache.fop.pdf.PDFSignature;
 import org.apache.fop.pdf.PDFStream;
@@ -57,6 +59,7 @@ import org.apache.fop.render.intermediate.IFContext;
 import org.apache.fop.render.intermediate.IFDocumentHandlerConfigurator;
 import org.apache.fop.render.intermediate.IFDocumentNavigationHandler;
 import org.apache.fop.render.intermediate.IFException;
+import org.apache.fop.render.intermediate.IFPageNumberPlaceholderHandler;
 import org.apache.fop.render.intermediate.IFPainter;
 import org.apache.fop.render.pdf.PDFRendererConfig.PDFRendererConfigParser;
 import org.apache.fop.render.pdf.extensions.PDFDictionaryAttachment;
@@ -65,11 +68,11 @@ import org.apache.fop.render.pdf.extensions.PDFEmbeddedFileAttachment;
 /**
  * {@link org.apache.fop.render.intermediate.IFDocumentHandler} implementation that produces PDF.
  */
-public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
+public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler
+        implements IFPageNumberPlaceholderHandler {
 
     /** logging instance */
     private static Log log = LogFactory.getLog(PDFDocumentHandler.class);
-    private static final TempResourceURIGenerator SIGN_TEMP_URI_GENERATOR = new TempResourceURIGenerator("pdfsign");
 
     private boolean accessEnabled;
 
@@ -108,9 +111,31 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
     private Map<Integer, PDFArray> pageNumbers = new HashMap<Integer, PDFArray>();
     private Map<String, PDFReference> contents = new HashMap<String, PDFReference>();
     private PDFSignature pdfSignature;
-    private URI signTempURI;
+    private PDFSignature.SigningOutputStream signingStream;
     private OutputStream orgOutputStream;
 
+    /** Form XObjects showing resolved page numbers, by citation and text attributes */
+    private Map<List<Object>, PageNumberForm> pageNumberForms = new HashMap<List<Object>, PageNumberForm>();
+
+    /** A Form XObject whose content is set once the cited page number is known. */
+    private static final class PageNumberForm {
+
+        private final PDFFormXObject form;
+        private final PDFContentGenerator generator;
+        private final FontTriplet triplet;
+        private final int size;
+        private final Color color;
+
+        private PageNumberForm(PDFFormXObject form, PDFContentGenerator generator,
+                FontTriplet triplet, int size, Color color) {
+            this.form = form;
+            this.generator = generator;
+            this.triplet = triplet;
+            this.size = size;
+            this.color = color;
+        }
+    }
+
     /**
      * Default constructor.
      */
@@ -124,6 +149,55 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
         return !accessEnabled;
     }
 
+    /** {@inheritDoc} */
+    public boolean supportsPageNumberPlaceholders() {
+        return !accessEnabled;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The placeholder is a Form XObject which is written with the document trailer. It's
+     * shared by all citations of the same page with the same text attributes.
+     */
+    public Object drawPageNumberPlaceholder(String key, int x, int y, FontTriplet triplet,
+            int size, Color color) throws IFException {
+        List<Object> formKey = Arrays.<Object>asList(key, triplet, size, color);
+        PageNumberForm pageNumberForm = pageNumberForms.get(formKey);
+        if (pageNumberForm == null) {
+            PDFContentGenerator formGenerator = new PDFContentGenerator(pdfDoc, outputStream,
+                    new PDFResourceContext(pdfDoc.getResources()), getContext());
+            PDFFormXObject form = pdfDoc.addTrailerFormXObject(formGenerator.getStream(), null);
+            form.put("Resources", pdfDoc.getResources());
+            //The text is drawn at the origin; allow for a few glyphs on both sides of it
+            double em = size / 1000.0;
+            form.put("BBox", new PDFArray(form, new double[] {-em, -2 * em, 16 * em, 2 * em}));
+            pageNumberForm = new PageNumberForm(form, formGenerator, triplet, size, color);
+            pageNumberForms.put(formKey, pageNumberForm);
+        }
+        currentPage.addXObject(pageNumberForm.form);
+        generator.placeImage(AffineTransform.getTranslateInstance(x / 1000.0, y / 1000.0),
+                pageNumberForm.form.getName() + " Do\n");
+        return pageNumberForm;
+    }
+
+    /** {@inheritDoc} */
+    public void fillPageNumberPlaceholder(Object placeholder, String text) throws IFException {
+        PageNumberForm pageNumberForm = (PageNumberForm) placeholder;
+        PDFContentGenerator pageGenerator = this.generator;
+        this.generator = pageNumberForm.generator;
+        try {
+            PDFPainter painter = new PDFPainter(this, null);
+            painter.setFont(pageNumberForm.triplet.getName(), pageNumberForm.triplet.getStyle(),
+                    pageNumberForm.triplet.getWeight(), "normal", pageNumberForm.size,
+                    pageNumberForm.color);
+            painter.drawText(0, 0, 0, 0, null, text);
+            this.generator.endTextObject();
+        } finally {
+            this.generator = pageGenerator;
+        }
+        pageNumberForms.values().remove(pageNumberForm);
+    }
+
     /** {@inheritDoc} */
     public String getMimeType() {
         return MimeConstants.MIME_PDF;
@@ -181,9 +255,8 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
     private void setupPDFSigning() throws IOException {
         if (pdfUtil.getSignParams() != null) {
             orgOutputStream = outputStream;
-            signTempURI = SIGN_TEMP_URI_GENERATOR.generate();
-            outputStream = new BufferedOutputStream(getUserAgent().getResourceResolver().getOutputStream(signTempURI));
-            outputStream = new CountingOutputStream(outputStream);
+            signingStream = new PDFSignature.SigningOutputStream(outputStream);
+            outputStream = signingStream;
         }
     }
 
@@ -220,18 +293,18 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
         } catch (IOException ioe) {
             throw new IFException("I/O error in endDocument()", ioe);
         }
-        super.endDocument();
         signPDF();
+        super.endDocument();
     }
 
     private void signPDF() {
-        if (signTempURI != null) {
+        if (signingStream != null) {
             try {
-                outputStream.close();
-                pdfSignature.signPDF(signTempURI, orgOutputStream);
+                pdfSignature.signPDF();
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
+            outputStream = orgOutputStream;
         }
     }
 
@@ -299,8 +372,9 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
         generator.saveGraphicsState();
         generator.concatenate(basicPageTransform);
 
-        if (signTempURI != null && pdfSignature == null) {
-            pdfSignature = new PDFSignature(pdfDoc.getRoot(), getUserAgent(), pdfUtil.getSignParams());
+        if (signingStream != null && pdfSignature == null) {
+            pdfSignature = new PDFSignature(pdfDoc.getRoot(), getUserAgent(), pdfUtil.getSignParams(),
+                    signingStream);
             pdfSignature.add(currentPage);
         }
     }
@@ -337,6 +411,10 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
             if (!pdfDoc.isLinearizationEnabled()) {
                 this.generator.flushPDFDoc();
                 this.generator = null;
+                if (accessEnabled) {
+                    structureTreeBuilder.outputCompletedPageSequences(
+                            logicalStructureHandler.getLastContentElement(), this.outputStream);
+                }
             }
         } catch (IOException ioe) {
             throw new IFException("I/O error in endPage()", ioe);
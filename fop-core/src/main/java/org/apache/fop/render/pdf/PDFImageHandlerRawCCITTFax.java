@@ -37,7 +37,7 @@ public class PDFImageHandlerRawCCITTFax extends AbstractPDFImageHandler {
     };
 
     @Override
-    PDFImage createPDFImage(Image image, String xobjectKey) {
+    PDFImage createPDFImage(RenderingContext context, Image image, String xobjectKey) {
         return new ImageRawCCITTFaxAdapter((ImageRawCCITTFax) image, xobjectKey);
     }
 
@@ -24,6 +24,7 @@ import org.apache.xmlgraphics.image.loader.ImageFlavor;
 import org.apache.xmlgraphics.image.loader.impl.ImageRawJPEG;
 
 import org.apache.fop.pdf.PDFImage;
+import org.apache.fop.render.ImageFileSource;
 import org.apache.fop.render.RenderingContext;
 
 /**
@@ -41,8 +42,12 @@ public class PDFImageHandlerRawJPEG extends AbstractPDFImageHandler {
     }
 
     @Override
-    PDFImage createPDFImage(Image image, String xobjectKey) {
-        return new ImageRawJPEGAdapter((ImageRawJPEG) image, xobjectKey);
+    PDFImage createPDFImage(RenderingContext context, Image image, String xobjectKey) {
+        ImageRawJPEG jpeg = (ImageRawJPEG) image;
+        ImageRawJPEGAdapter adapter = new ImageRawJPEGAdapter(jpeg, xobjectKey);
+        //The adapter leaves out an embedded ICC profile as it is added as a separate object
+        adapter.setFileSource(ImageFileSource.forRawJPEG(jpeg, context.getUserAgent(), true));
+        return adapter;
     }
 
     /** {@inheritDoc} */
@@ -26,6 +26,8 @@ import org.apache.xmlgraphics.image.loader.ImageFlavor;
 import org.apache.xmlgraphics.image.loader.impl.ImageRawPNG;
 
 import org.apache.fop.pdf.PDFImage;
+import org.apache.fop.render.ConvertedImageCache;
+import org.apache.fop.render.ImageFileSource;
 import org.apache.fop.render.RenderingContext;
 
 /**
@@ -37,8 +39,19 @@ public class PDFImageHandlerRawPNG extends AbstractPDFImageHandler {
     private static final ImageFlavor[] FLAVORS = new ImageFlavor[] {ImageFlavor.RAW_PNG};
 
     @Override
-    PDFImage createPDFImage(Image image, String xobjectKey) {
-        return new ImageRawPNGAdapter((ImageRawPNG) image, xobjectKey);
+    PDFImage createPDFImage(RenderingContext context, Image image, String xobjectKey) {
+        ImageRawPNG png = (ImageRawPNG) image;
+        ImageRawPNGAdapter adapter = new ImageRawPNGAdapter(png, xobjectKey);
+        if (ImageRawPNGAdapter.isCopiedAsIs(png)) {
+            adapter.setFileSource(ImageFileSource.forRawPNG(png, context.getUserAgent()));
+        } else {
+            ConvertedImageCache cache = EncodedImagePayload.getCache(context.getUserAgent());
+            if (cache != null) {
+                adapter.setConvertedImageCache(cache,
+                        EncodedImagePayload.createKey("png-alpha", png, context.getUserAgent()));
+            }
+        }
+        return adapter;
     }
 
     /** {@inheritDoc} */
@@ -24,6 +24,7 @@ import org.apache.xmlgraphics.image.loader.ImageFlavor;
 import org.apache.xmlgraphics.image.loader.impl.ImageRendered;
 
 import org.apache.fop.pdf.PDFImage;
+import org.apache.fop.render.ConvertedImageCache;
 import org.apache.fop.render.RenderingContext;
 
 /**
@@ -37,8 +38,14 @@ public class PDFImageHandlerRenderedImage extends AbstractPDFImageHandler {
     };
 
     @Override
-    PDFImage createPDFImage(Image image, String xobjectKey) {
-        return new ImageRenderedAdapter((ImageRendered) image, xobjectKey);
+    PDFImage createPDFImage(RenderingContext context, Image image, String xobjectKey) {
+        ImageRenderedAdapter adapter = new ImageRenderedAdapter((ImageRendered) image, xobjectKey);
+        ConvertedImageCache cache = EncodedImagePayload.getCache(context.getUserAgent());
+        if (cache != null) {
+            adapter.setConvertedImageCache(cache,
+                    EncodedImagePayload.createKey("rendered", (ImageRendered) image, context));
+        }
+        return adapter;
     }
 
     /** {@inheritDoc} */
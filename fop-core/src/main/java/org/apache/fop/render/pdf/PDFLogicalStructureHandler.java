@@ -56,6 +56,8 @@ public class PDFLogicalStructureHandler {
      */
     private PDFArray pageParentTreeArray;
 
+    private PDFStructElem lastContentElement;
+
     /**
      * Class providing the necessary information for bracketing content
      * associated to a structure element as a marked-content sequence.
@@ -123,7 +125,17 @@ public class PDFLogicalStructureHandler {
         parentTree.addToNums(currentPage.getStructParents(), pageParentTreeArray);
     }
 
+    /**
+     * Returns the structure element that content has been added to most recently.
+     *
+     * @return the structure element, <code>null</code> if no content has been added yet
+     */
+    PDFStructElem getLastContentElement() {
+        return lastContentElement;
+    }
+
     private MarkedContentInfo addToParentTree(PDFStructElem structureTreeElement) {
+        lastContentElement = structureTreeElement;
         PDFStructElem parent = structureTreeElement;
         while (parent instanceof PDFStructElem.Placeholder) {
             parent = parent.getParentStructElem();
@@ -200,6 +212,7 @@ public class PDFLogicalStructureHandler {
         contentItem.put("Obj", link);
         parentTree.addToNums(structParent, structureTreeElement);
         structureTreeElement.addKid(contentItem);
+        lastContentElement = structureTreeElement;
     }
 
 }
@@ -19,7 +19,11 @@
 
 package org.apache.fop.render.pdf;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -343,6 +347,9 @@ public class PDFStructureTreeBuilder implements StructureTreeEventHandler {
 
     private PDFStructElem rootStructureElement;
 
+    /** The page-sequence elements whose structure elements haven't been written yet */
+    private final List<PDFStructElem> pageSequenceElements = new LinkedList<PDFStructElem>();
+
     void setPdfFactory(PDFFactory pdfFactory) {
         this.pdfFactory = pdfFactory;
     }
@@ -383,6 +390,32 @@ public class PDFStructureTreeBuilder implements StructureTreeEventHandler {
             structElem.setLanguage(language);
         }
         ancestors.add(structElem);
+        pageSequenceElements.add(structElem);
+    }
+
+    /**
+     * Writes the structure elements of the page-sequences preceding the page-sequence the given
+     * element belongs to. Pages are rendered in order when the document is tagged, so no content
+     * can be added to these page-sequences anymore.
+     *
+     * @param renderedElement an element that content has been rendered for
+     * @param stream the stream the document is written to
+     * @throws IOException if an I/O error occurs while writing the elements
+     */
+    void outputCompletedPageSequences(PDFStructElem renderedElement, OutputStream stream)
+            throws IOException {
+        PDFStructElem pageSequenceElement = renderedElement;
+        while (pageSequenceElement != null
+                && pageSequenceElement.getParentStructElem() != rootStructureElement) {
+            pageSequenceElement = pageSequenceElement.getParentStructElem();
+        }
+        int index = pageSequenceElements.indexOf(pageSequenceElement);
+        if (index > 0) {
+            List<PDFStructElem> completed = new ArrayList<PDFStructElem>(
+                    pageSequenceElements.subList(0, index));
+            pageSequenceElements.subList(0, index).clear();
+            pdfFactory.getDocument().outputStructureTreeElements(stream, completed);
+        }
     }
 
     public void endPageSequence() {
@@ -74,6 +74,16 @@ public class PageSequenceStructElem extends PDFStructElem {
         return true;
     }
 
+    @Override
+    protected void release() {
+        super.release();
+        regionBefores.clear();
+        regionAfters.clear();
+        regionStarts.clear();
+        regionEnds.clear();
+        footnoteSeparator.clear();
+    }
+
     private void addRegions(PDFArray k, List<? extends PDFObject> regions) {
         if (!regions.isEmpty()) {
             for (PDFObject kid : regions) {
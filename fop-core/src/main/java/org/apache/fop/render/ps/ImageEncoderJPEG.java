@@ -25,23 +25,40 @@ import java.io.OutputStream;
 import org.apache.xmlgraphics.image.loader.impl.ImageRawJPEG;
 import org.apache.xmlgraphics.ps.ImageEncoder;
 
+import org.apache.fop.render.ImageFileSource;
+
 /**
  * ImageEncoder implementation for JPEG images.
  */
 public class ImageEncoderJPEG implements ImageEncoder {
     private final ImageRawJPEG jpeg;
+    private final ImageFileSource fileSource;
 
     /**
      * Main constructor
      * @param jpeg the JPEG image
      */
     public ImageEncoderJPEG(ImageRawJPEG jpeg) {
+        this(jpeg, null);
+    }
+
+    /**
+     * Creates an encoder that copies the JPEG data from a local file.
+     * @param jpeg the JPEG image
+     * @param fileSource the file the JPEG data is copied from (null to use the image's stream)
+     */
+    public ImageEncoderJPEG(ImageRawJPEG jpeg, ImageFileSource fileSource) {
         this.jpeg = jpeg;
+        this.fileSource = fileSource;
     }
 
     /** {@inheritDoc} */
     public void writeTo(OutputStream out) throws IOException {
-        jpeg.writeTo(out);
+        if (fileSource != null) {
+            fileSource.writeTo(out);
+        } else {
+            jpeg.writeTo(out);
+        }
     }
 
     /** {@inheritDoc} */
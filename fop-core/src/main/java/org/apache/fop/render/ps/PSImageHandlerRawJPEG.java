@@ -33,6 +33,7 @@ import org.apache.xmlgraphics.ps.ImageFormGenerator;
 import org.apache.xmlgraphics.ps.PSGenerator;
 import org.apache.xmlgraphics.ps.PSImageUtils;
 
+import org.apache.fop.render.ImageFileSource;
 import org.apache.fop.render.RenderingContext;
 
 /**
@@ -60,7 +61,8 @@ public class PSImageHandlerRawJPEG implements PSImageHandler {
 
         ImageInfo info = image.getInfo();
 
-        ImageEncoder encoder = new ImageEncoderJPEG(jpeg);
+        ImageEncoder encoder = new ImageEncoderJPEG(jpeg,
+                ImageFileSource.forRawJPEG(jpeg, context.getUserAgent(), false));
         PSImageUtils.writeImage(encoder, info.getSize().getDimensionPx(),
                 info.getOriginalURI(), targetRect,
                 jpeg.getColorSpace(), 8, jpeg.isInverted(), gen);
@@ -75,7 +77,8 @@ public class PSImageHandlerRawJPEG implements PSImageHandler {
         ImageInfo info = image.getInfo();
         String imageDescription = info.getMimeType() + " " + info.getOriginalURI();
 
-        ImageEncoder encoder = new ImageEncoderJPEG(jpeg);
+        ImageEncoder encoder = new ImageEncoderJPEG(jpeg,
+                ImageFileSource.forRawJPEG(jpeg, context.getUserAgent(), false));
         FormGenerator formGen = new ImageFormGenerator(
                 form.getName(), imageDescription,
                 info.getSize().getDimensionPt(),
@@ -50,6 +50,7 @@ import org.apache.fop.apps.Fop;
 import org.apache.fop.apps.FopFactory;
 import org.apache.fop.apps.FopFactoryBuilder;
 import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.util.PipelinedContentHandler;
 
 /**
  * Example servlet to generate a PDF from a servlet.
@@ -70,6 +71,9 @@ import org.apache.fop.apps.MimeConstants;
  * <br>
  * For this to work with Internet Explorer, you might need to append "ext=.pdf"
  * to the URL.
+ * <br>
+ * If the servlet's init parameter "pipelined" is set to true, FOP processes the resulting
+ * XSL-FO (layout and rendering) on a separate thread while the input is parsed and transformed.
  * (todo) Ev. add caching mechanism for Templates objects
  */
 public class FopServlet extends HttpServlet {
@@ -82,6 +86,8 @@ public class FopServlet extends HttpServlet {
     protected static final String XML_REQUEST_PARAM = "xml";
     /** Name of the parameter used for the XSLT file */
     protected static final String XSLT_REQUEST_PARAM = "xslt";
+    /** Name of the init parameter enabling pipelined processing */
+    protected static final String PIPELINED_INIT_PARAM = "pipelined";
 
     /** The TransformerFactory used to create Transformer instances */
     protected TransformerFactory transFactory;
@@ -89,12 +95,15 @@ public class FopServlet extends HttpServlet {
     protected FopFactory fopFactory;
     /** URIResolver for use by this servlet */
     protected transient URIResolver uriResolver;
+    /** true if FOP processes the FO on a separate thread while the input is transformed */
+    protected boolean pipelined;
 
     /**
      * {@inheritDoc}
      */
     public void init() throws ServletException {
         this.uriResolver = new ServletContextURIResolver(getServletContext());
+        this.pipelined = Boolean.parseBoolean(getInitParameter(PIPELINED_INIT_PARAM));
         this.transFactory = TransformerFactory.newInstance();
         transFactory.setAttribute("http://javax.xml.XMLConstants/property/accessExternalDTD", "");
         transFactory.setAttribute("http://javax.xml.XMLConstants/property/accessExternalStylesheet", "");
@@ -257,11 +266,16 @@ public class FopServlet extends HttpServlet {
         //Setup FOP
         Fop fop = fopFactory.newFop(MimeConstants.MIME_PDF, foUserAgent, out);
 
-        //Make sure the XSL transformation's result is piped through to FOP
-        Result res = new SAXResult(fop.getDefaultHandler());
+        if (pipelined) {
+            //Process the FO on a separate thread while the transformation produces it
+            PipelinedContentHandler.transform(transformer, src, fop.getDefaultHandler());
+        } else {
+            //Make sure the XSL transformation's result is piped through to FOP
+            Result res = new SAXResult(fop.getDefaultHandler());
 
-        //Start the transformation and rendering process
-        transformer.transform(src, res);
+            //Start the transformation and rendering process
+            transformer.transform(src, res);
+        }
 
         //Return the result
         sendPDF(out.toByteArray(), response);
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.tools.loadtest;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+import javax.xml.transform.TransformerFactory;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.FormattingMetrics;
+
+/**
+ * Renders a mix of documents concurrently on a number of threads sharing one
+ * {@link FopFactory} and measures throughput, latency, allocation and garbage collection.
+ * <p>
+ * Every task is first rendered twice on the calling thread. If both renderings produce the
+ * same output, the output of every concurrent rendering is compared against it, which
+ * detects state leaking between threads. Each worker thread then renders the task mix for
+ * a number of warm-up passes, waits for the other threads and renders it again for the
+ * measured passes. The threads start the mix at different tasks so different documents are
+ * rendered at the same time.</p>
+ */
+public class LoadTest {
+
+    private static final Log LOG = LogFactory.getLog(LoadTest.class);
+
+    private final FopFactory fopFactory;
+    private final List<LoadTestTask> tasks;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int warmUpPasses = 1;
+    private int passes = 5;
+    private File outputDir;
+    private boolean recordMetrics;
+
+    /**
+     * Creates a new load test.
+     * @param fopFactory the FOP factory shared by all threads
+     * @param tasks the documents to render
+     */
+    public LoadTest(FopFactory fopFactory, List<LoadTestTask> tasks) {
+        this.fopFactory = fopFactory;
+        this.tasks = tasks;
+    }
+
+    /**
+     * Sets the number of rendering threads.
+     * @param threads the number of threads
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Sets the number of times each thread renders the task mix before measuring.
+     * @param warmUpPasses the number of warm-up passes
+     */
+    public void setWarmUpPasses(int warmUpPasses) {
+        this.warmUpPasses = warmUpPasses;
+    }
+
+    /**
+     * Sets the number of times each thread renders the task mix while measuring.
+     * @param passes the number of measured passes
+     */
+    public void setPasses(int passes) {
+        this.passes = passes;
+    }
+
+    /**
+     * Sets the directory the output of the single-threaded renderings is written to.
+     * @param outputDir the output directory or null to discard the output
+     */
+    public void setOutputDir(File outputDir) {
+        this.outputDir = outputDir;
+    }
+
+    /**
+     * Controls whether per-phase formatting metrics are recorded and reported.
+     * @param recordMetrics true to record formatting metrics
+     */
+    public void setRecordMetrics(boolean recordMetrics) {
+        this.recordMetrics = recordMetrics;
+    }
+
+    /**
+     * Runs the load test.
+     * @return the report
+     * @throws Exception if a reference rendering fails or the test is interrupted
+     */
+    public LoadTestReport run() throws Exception {
+        TransformerFactory transformerFactory = TransformerFactory.newInstance();
+        byte[][] reference = new byte[tasks.size()][];
+        boolean[] comparable = new boolean[tasks.size()];
+        for (int t = 0; t < tasks.size(); t++) {
+            LoadTestTask task = tasks.get(t);
+            LOG.info("Reference rendering: " + task);
+            task.prepare(transformerFactory);
+            OutputStream out = null;
+            if (outputDir != null) {
+                File file = new File(outputDir, String.format("%03d", t) + task.getTargetFileExtension());
+                out = new BufferedOutputStream(new FileOutputStream(file));
+            }
+            reference[t] = render(task, transformerFactory, out);
+            comparable[t] = MessageDigest.isEqual(reference[t], render(task, transformerFactory, null));
+        }
+
+        final LoadTestReport report = new LoadTestReport(tasks, comparable, threads);
+        final CyclicBarrier start = new CyclicBarrier(threads + 1);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(new Worker(i, start, reference, comparable, report), "FOP load test " + i);
+            workers[i].start();
+        }
+        start.await();
+        long startTime = System.nanoTime();
+        long[] gc = getGCStatistics();
+        LOG.info("Measuring " + passes + " passes on " + threads + " threads");
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long duration = System.nanoTime() - startTime;
+        long[] gcEnd = getGCStatistics();
+        report.finish(duration, gc[0] < 0 ? -1 : gcEnd[0] - gc[0], gcEnd[1] - gc[1]);
+        return report;
+    }
+
+    private byte[] render(LoadTestTask task, TransformerFactory transformerFactory, OutputStream out)
+            throws Exception {
+        OutputDigester digester = new OutputDigester(out);
+        try {
+            task.render(fopFactory, transformerFactory, digester, false);
+        } finally {
+            digester.close();
+        }
+        return digester.getDigest();
+    }
+
+    private static long[] getGCStatistics() {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc.getCollectionCount() < 0) {
+                return new long[] {-1, 0};
+            }
+            count += gc.getCollectionCount();
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[] {count, time};
+    }
+
+    private class Worker implements Runnable {
+
+        private final int index;
+        private final CyclicBarrier start;
+        private final byte[][] reference;
+        private final boolean[] comparable;
+        private final LoadTestReport report;
+        private final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+        private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        private final boolean allocationSupported;
+
+        Worker(int index, CyclicBarrier start, byte[][] reference, boolean[] comparable,
+                LoadTestReport report) {
+            this.index = index;
+            this.start = start;
+            this.reference = reference;
+            this.comparable = comparable;
+            this.report = report;
+            this.allocationSupported = threadBean instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()
+                    && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemoryEnabled();
+        }
+
+        public void run() {
+            try {
+                for (int pass = 0; pass < warmUpPasses; pass++) {
+                    renderPass(null);
+                }
+                start.await();
+                for (int pass = 0; pass < passes; pass++) {
+                    renderPass(report);
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            } catch (BrokenBarrierException bbe) {
+                LOG.error("Load test aborted", bbe);
+            }
+        }
+
+        private void renderPass(LoadTestReport target) {
+            for (int i = 0; i < tasks.size(); i++) {
+                int t = (index + i) % tasks.size();
+                LoadTestTask task = tasks.get(t);
+                OutputDigester digester = new OutputDigester(null);
+                long allocated = getAllocatedBytes();
+                long startTime = System.nanoTime();
+                FormattingMetrics metrics = null;
+                Throwable failure = null;
+                try {
+                    metrics = task.render(fopFactory, transformerFactory, digester, recordMetrics);
+                    digester.close();
+                } catch (Exception e) {
+                    failure = e;
+                } catch (Error e) {
+                    failure = e;
+                }
+                long latency = System.nanoTime() - startTime;
+                allocated = allocationSupported ? getAllocatedBytes() - allocated : -1;
+                boolean different = failure == null && comparable[t]
+                        && !MessageDigest.isEqual(reference[t], digester.getDigest());
+                if (different) {
+                    LOG.warn("Output of " + task + " on " + Thread.currentThread().getName()
+                            + " differs from the single-threaded rendering");
+                }
+                if (target != null) {
+                    target.add(new LoadTestReport.Sample(t, latency, allocated, digester.getByteCount(),
+                            different, metrics, failure));
+                } else if (failure != null) {
+                    LOG.error("Warm-up rendering of " + task + " failed", failure);
+                }
+            }
+        }
+
+        private long getAllocatedBytes() {
+            return allocationSupported
+                    ? ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(
+                            Thread.currentThread().getId())
+                    : 0;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.tools.loadtest;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.List;
+
+import org.apache.fop.Version;
+import org.apache.fop.apps.FopFactory;
+
+/**
+ * Command-line interface of the multi-threaded load test.
+ * @see LoadTest
+ */
+public final class LoadTestMain {
+
+    private File configFile;
+    private File outputDir;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int warmUpPasses = 1;
+    private int passes = 5;
+    private boolean recordMetrics;
+    private List<LoadTestTask> tasks = new java.util.ArrayList<LoadTestTask>();
+
+    private LoadTestMain() {
+    }
+
+    private static void printHelp() {
+        System.out.println("Apache FOP " + Version.getVersion()
+                + " - http://xmlgraphics.apache.org/fop/\n");
+
+        String className = LoadTestMain.class.getName();
+        PrintStream out = System.out;
+        out.println("USAGE");
+        out.println("  java [vmargs] " + className
+                + " [-c <config-file>] [-t <threads>] [-w <passes>] [-n <passes>] [-o <output-dir>]"
+                + " [-metrics] task...");
+        out.println();
+        out.println("PARAMETERS");
+        out.println("  config-file: an optional FOP configuration file");
+        out.println("  -t: the number of rendering threads (defaults to the number of processors)");
+        out.println("  -w: the number of warm-up passes over the task mix per thread (defaults to 1)");
+        out.println("  -n: the number of measured passes over the task mix per thread (defaults to 5)");
+        out.println("  output-dir: writes the output of the single-threaded reference renderings");
+        out.println("  -metrics: reports the mean time and allocation per processing phase");
+        out.println("  task: input[,stylesheet][=format]");
+        out.println("        input: an XSL-FO file, an XML file to be transformed by the stylesheet,");
+        out.println("               or an intermediate format file (*.if or *.if.xml)");
+        out.println("        format: pdf (default), ps, afp, pcl, png, tiff, txt, rtf, if, at or a MIME type");
+        out.println();
+        out.println("EXAMPLE");
+        out.println("  java [vmargs] " + className
+                + " -t 8 -n 10 invoice.fo invoice.fo=ps report.xml,report.xsl=afp");
+        out.println("  --> renders the three tasks ten times on each of eight threads");
+        out.println("      and reports throughput and latency.");
+        out.println();
+        out.println("The exit code is 1 if a rendering failed or produced output that differs");
+        out.println("from a single-threaded rendering of the same task.");
+        out.println();
+    }
+
+    private boolean parseArguments(String[] args) {
+        if (args.length == 0) {
+            System.out.println("use --help or -? for usage information.");
+            return false;
+        }
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--help".equals(arg) || "-?".equals(arg) || "-h".equals(arg)) {
+                printHelp();
+                return false;
+            } else if ("-metrics".equals(arg)) {
+                recordMetrics = true;
+            } else if (i < args.length - 1 && "-c".equals(arg)) {
+                configFile = new File(args[++i]);
+            } else if (i < args.length - 1 && "-o".equals(arg)) {
+                outputDir = new File(args[++i]);
+            } else if (i < args.length - 1 && "-t".equals(arg)) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (i < args.length - 1 && "-w".equals(arg)) {
+                warmUpPasses = Integer.parseInt(args[++i]);
+            } else if (i < args.length - 1 && "-n".equals(arg)) {
+                passes = Integer.parseInt(args[++i]);
+            } else if (arg.startsWith("-")) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            } else {
+                tasks.add(LoadTestTask.parse(arg));
+            }
+        }
+        if (tasks.isEmpty()) {
+            throw new IllegalArgumentException("No task given");
+        }
+        return true;
+    }
+
+    private LoadTestReport run() throws Exception {
+        FopFactory fopFactory;
+        if (configFile != null) {
+            fopFactory = FopFactory.newInstance(configFile);
+        } else {
+            fopFactory = FopFactory.newInstance(new File(".").toURI());
+        }
+        if (outputDir != null && !outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create output directory: " + outputDir);
+        }
+        LoadTest loadTest = new LoadTest(fopFactory, tasks);
+        loadTest.setThreads(threads);
+        loadTest.setWarmUpPasses(warmUpPasses);
+        loadTest.setPasses(passes);
+        loadTest.setOutputDir(outputDir);
+        loadTest.setRecordMetrics(recordMetrics);
+        LoadTestReport report = loadTest.run();
+        report.print(System.out);
+        return report;
+    }
+
+    /**
+     * The command-line interface.
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        try {
+            LoadTestMain app = new LoadTestMain();
+            if (app.parseArguments(args)) {
+                LoadTestReport report = app.run();
+                // @SuppressFBWarnings("DM_EXIT")
+                System.exit(report.getFailureCount() + report.getDifferenceCount() > 0 ? 1 : 0);
+            }
+        } catch (Throwable t) {
+            t.printStackTrace();
+            // @SuppressFBWarnings("DM_EXIT")
+            System.exit(-1);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.tools.loadtest;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.fop.apps.FormattingMetrics;
+
+/**
+ * The results of a load test: throughput, latency percentiles, allocation and garbage
+ * collection per document, failures and output differences.
+ */
+public class LoadTestReport {
+
+    private static final double MS = 1000000.0;
+    private static final double MB = 1024.0 * 1024.0;
+
+    /** The result of a single rendering. */
+    static final class Sample {
+
+        private final int task;
+        private final long latency;
+        private final long allocatedBytes;
+        private final long outputBytes;
+        private final boolean different;
+        private final FormattingMetrics metrics;
+        private final Throwable failure;
+
+        Sample(int task, long latency, long allocatedBytes, long outputBytes, boolean different,
+                FormattingMetrics metrics, Throwable failure) {
+            this.task = task;
+            this.latency = latency;
+            this.allocatedBytes = allocatedBytes;
+            this.outputBytes = outputBytes;
+            this.different = different;
+            this.metrics = metrics;
+            this.failure = failure;
+        }
+    }
+
+    private final List<LoadTestTask> tasks;
+    private final boolean[] comparable;
+    private final int threads;
+    private final List<Sample> samples = new java.util.ArrayList<Sample>();
+    private long duration;
+    private long gcCount;
+    private long gcTime;
+
+    /**
+     * Creates a new report.
+     * @param tasks the rendered tasks
+     * @param comparable for each task, whether its output is deterministic and has been compared
+     * @param threads the number of threads
+     */
+    LoadTestReport(List<LoadTestTask> tasks, boolean[] comparable, int threads) {
+        this.tasks = tasks;
+        this.comparable = comparable;
+        this.threads = threads;
+    }
+
+    /**
+     * Records the result of a rendering.
+     * @param sample the result
+     */
+    synchronized void add(Sample sample) {
+        samples.add(sample);
+    }
+
+    /**
+     * Records the duration of the measured period and the garbage collections in it.
+     * @param duration the wall time in nanoseconds
+     * @param gcCount the number of garbage collections
+     * @param gcTime the time spent collecting garbage in milliseconds
+     */
+    void finish(long duration, long gcCount, long gcTime) {
+        this.duration = duration;
+        this.gcCount = gcCount;
+        this.gcTime = gcTime;
+    }
+
+    /**
+     * Returns the number of rendered documents, including failed ones.
+     * @return the number of documents
+     */
+    public synchronized int getDocumentCount() {
+        return samples.size();
+    }
+
+    /**
+     * Returns the number of renderings that failed with an exception.
+     * @return the number of failures
+     */
+    public synchronized int getFailureCount() {
+        int count = 0;
+        for (Sample sample : samples) {
+            if (sample.failure != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of renderings whose output differs from the output of a
+     * single-threaded rendering of the same task.
+     * @return the number of differences
+     */
+    public synchronized int getDifferenceCount() {
+        int count = 0;
+        for (Sample sample : samples) {
+            if (sample.different) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of documents rendered per second.
+     * @return the throughput
+     */
+    public double getThroughput() {
+        return duration > 0 ? getDocumentCount() * 1000.0 * MS / duration : 0;
+    }
+
+    /**
+     * Returns a percentile of the rendering latency.
+     * @param percentile the percentile between 0 and 100
+     * @return the latency in nanoseconds
+     */
+    public long getLatencyPercentile(double percentile) {
+        return percentile(latencies(-1), percentile);
+    }
+
+    private synchronized long[] latencies(int task) {
+        long[] values = new long[samples.size()];
+        int count = 0;
+        for (Sample sample : samples) {
+            if (task < 0 || sample.task == task) {
+                values[count++] = sample.latency;
+            }
+        }
+        values = Arrays.copyOf(values, count);
+        Arrays.sort(values);
+        return values;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+
+    /**
+     * Prints the report.
+     * @param out the stream to print to
+     */
+    public synchronized void print(PrintStream out) {
+        int documents = samples.size();
+        long outputBytes = 0;
+        long allocatedBytes = 0;
+        boolean allocationMeasured = true;
+        for (Sample sample : samples) {
+            outputBytes += sample.outputBytes;
+            allocatedBytes += sample.allocatedBytes;
+            allocationMeasured &= sample.allocatedBytes >= 0;
+        }
+        out.println(format("Load test: %d documents, %d threads, %.3f s",
+                documents, threads, duration / MS / 1000.0));
+        if (documents == 0) {
+            return;
+        }
+        out.println(format("Throughput: %.2f documents/s, %.2f MB/s output",
+                getThroughput(), duration > 0 ? outputBytes / MB * 1000.0 * MS / duration : 0));
+        long[] latencies = latencies(-1);
+        out.println(format("Latency: p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms",
+                percentile(latencies, 50) / MS, percentile(latencies, 90) / MS,
+                percentile(latencies, 99) / MS, percentile(latencies, 100) / MS));
+        if (allocationMeasured) {
+            out.println(format("Allocated: %.2f MB per document", allocatedBytes / MB / documents));
+        }
+        if (gcCount >= 0) {
+            out.println(format("GC: %d collections, %d ms (%.2f collections, %.1f ms per document)",
+                    gcCount, gcTime, (double) gcCount / documents, (double) gcTime / documents));
+        }
+        out.println();
+        out.println(format("%-40s %6s %6s %6s %9s %9s %9s %9s %9s %9s", "Task", "docs", "fail", "diff",
+                "p50 ms", "p90 ms", "p99 ms", "max ms", "alloc MB", "out KB"));
+        for (int t = 0; t < tasks.size(); t++) {
+            int count = 0;
+            int failures = 0;
+            int differences = 0;
+            long taskAllocated = 0;
+            long taskOutput = 0;
+            for (Sample sample : samples) {
+                if (sample.task == t) {
+                    count++;
+                    failures += (sample.failure != null) ? 1 : 0;
+                    differences += sample.different ? 1 : 0;
+                    taskAllocated += sample.allocatedBytes;
+                    taskOutput += sample.outputBytes;
+                }
+            }
+            long[] taskLatencies = latencies(t);
+            String name = tasks.get(t).toString();
+            if (name.length() > 40) {
+                name = "..." + name.substring(name.length() - 37);
+            }
+            out.println(format("%-40s %6d %6d %6s %9.1f %9.1f %9.1f %9.1f %9.2f %9.1f", name, count, failures,
+                    comparable[t] ? String.valueOf(differences) : "n/a",
+                    percentile(taskLatencies, 50) / MS, percentile(taskLatencies, 90) / MS,
+                    percentile(taskLatencies, 99) / MS, percentile(taskLatencies, 100) / MS,
+                    allocationMeasured && count > 0 ? taskAllocated / MB / count : -1.0,
+                    count > 0 ? taskOutput / 1024.0 / count : 0.0));
+        }
+        printMetrics(out);
+        printFailures(out);
+        out.println();
+        int differences = getDifferenceCount();
+        if (differences > 0) {
+            out.println(differences + " renderings produced output that differs from a single-threaded"
+                    + " rendering!");
+        }
+        for (int t = 0; t < tasks.size(); t++) {
+            if (!comparable[t]) {
+                out.println("Output of " + tasks.get(t) + " isn't deterministic and wasn't compared.");
+            }
+        }
+    }
+
+    private void printMetrics(PrintStream out) {
+        int count = 0;
+        long[] wallTime = new long[FormattingMetrics.Phase.values().length];
+        long[] cpuTime = new long[wallTime.length];
+        long[] allocated = new long[wallTime.length];
+        for (Sample sample : samples) {
+            if (sample.metrics != null) {
+                count++;
+                for (FormattingMetrics.Phase phase : FormattingMetrics.Phase.values()) {
+                    wallTime[phase.ordinal()] += sample.metrics.getWallTime(phase);
+                    cpuTime[phase.ordinal()] += sample.metrics.getCPUTime(phase);
+                    allocated[phase.ordinal()] += sample.metrics.getAllocatedBytes(phase);
+                }
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        out.println();
+        out.println(format("%-40s %9s %9s %9s", "Phase (mean per document)", "wall ms", "cpu ms", "alloc MB"));
+        for (FormattingMetrics.Phase phase : FormattingMetrics.Phase.values()) {
+            int i = phase.ordinal();
+            out.println(format("%-40s %9.2f %9.2f %9.2f", phase, wallTime[i] / MS / count,
+                    cpuTime[i] / MS / count, allocated[i] / MB / count));
+        }
+    }
+
+    private void printFailures(PrintStream out) {
+        boolean header = false;
+        for (Sample sample : samples) {
+            if (sample.failure != null) {
+                if (!header) {
+                    out.println();
+                    out.println("Failures:");
+                    header = true;
+                }
+                out.println("  " + tasks.get(sample.task) + ": " + sample.failure);
+            }
+        }
+    }
+
+    private static String format(String pattern, Object... args) {
+        return String.format(Locale.ENGLISH, pattern, args);
+    }
+}
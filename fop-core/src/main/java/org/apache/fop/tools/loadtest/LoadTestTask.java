@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.tools.loadtest;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.FormattingMetrics;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.events.Event;
+import org.apache.fop.events.EventListener;
+import org.apache.fop.render.intermediate.IFDocumentHandler;
+import org.apache.fop.render.intermediate.IFParser;
+import org.apache.fop.render.intermediate.IFUtil;
+
+/**
+ * A document rendered by the load test: an XSL-FO file, an XML file with an XSLT stylesheet
+ * producing XSL-FO, or an intermediate format file, and the output format to render it to.
+ * <p>
+ * A task is specified as <code>input[,stylesheet][=format]</code>. Input files ending
+ * with <code>.if</code> or <code>.if.xml</code> are parsed as intermediate format, all
+ * others as XSL-FO. The format is a MIME type or one of the short names known to
+ * {@link #getOutputFormat(String)}; it defaults to PDF.</p>
+ */
+public class LoadTestTask {
+
+    /** The creation date of all documents, so renderings of the same input can be compared. */
+    private static final Date CREATION_DATE = new Date(0);
+
+    private static final Map<String, String> FORMATS = new java.util.LinkedHashMap<String, String>();
+
+    static {
+        FORMATS.put("pdf", MimeConstants.MIME_PDF);
+        FORMATS.put("ps", MimeConstants.MIME_POSTSCRIPT);
+        FORMATS.put("afp", MimeConstants.MIME_AFP);
+        FORMATS.put("pcl", MimeConstants.MIME_PCL);
+        FORMATS.put("png", MimeConstants.MIME_PNG);
+        FORMATS.put("tiff", MimeConstants.MIME_TIFF);
+        FORMATS.put("txt", MimeConstants.MIME_PLAIN_TEXT);
+        FORMATS.put("rtf", MimeConstants.MIME_RTF);
+        FORMATS.put("if", MimeConstants.MIME_FOP_IF);
+        FORMATS.put("at", MimeConstants.MIME_FOP_AREA_TREE);
+    }
+
+    private static final EventListener NO_EVENT_LOGGING = new EventListener() {
+        public void processEvent(Event event) {
+            //events which lead to failures are thrown as exceptions
+        }
+    };
+
+    private final File input;
+    private final File stylesheet;
+    private final String outputFormat;
+    private final boolean intermediate;
+    private Templates templates;
+
+    /**
+     * Creates a new task.
+     * @param input the input file
+     * @param stylesheet the XSLT stylesheet transforming the input to XSL-FO or null
+     * @param outputFormat the MIME type of the output format
+     */
+    public LoadTestTask(File input, File stylesheet, String outputFormat) {
+        this.input = input;
+        this.stylesheet = stylesheet;
+        this.outputFormat = outputFormat;
+        String name = input.getName().toLowerCase(Locale.ENGLISH);
+        this.intermediate = stylesheet == null && (name.endsWith(".if") || name.endsWith(".if.xml"));
+    }
+
+    /**
+     * Parses a task specification of the form <code>input[,stylesheet][=format]</code>.
+     * @param spec the task specification
+     * @return the task
+     */
+    public static LoadTestTask parse(String spec) {
+        String format = MimeConstants.MIME_PDF;
+        int equals = spec.lastIndexOf('=');
+        if (equals > 0) {
+            format = getOutputFormat(spec.substring(equals + 1));
+            spec = spec.substring(0, equals);
+        }
+        int comma = spec.indexOf(',');
+        if (comma > 0) {
+            return new LoadTestTask(new File(spec.substring(0, comma)),
+                    new File(spec.substring(comma + 1)), format);
+        }
+        return new LoadTestTask(new File(spec), null, format);
+    }
+
+    /**
+     * Returns the MIME type for an output format given as MIME type or as short name
+     * (pdf, ps, afp, pcl, png, tiff, txt, rtf, if or at).
+     * @param format the MIME type or short name
+     * @return the MIME type
+     */
+    public static String getOutputFormat(String format) {
+        String mime = FORMATS.get(format.toLowerCase(Locale.ENGLISH));
+        if (mime != null) {
+            return mime;
+        } else if (format.indexOf('/') > 0) {
+            return format;
+        }
+        throw new IllegalArgumentException("Unknown output format: " + format);
+    }
+
+    /**
+     * Compiles the stylesheet, if any. Called once before the task is rendered.
+     * @param transformerFactory the transformer factory
+     * @throws TransformerConfigurationException if the stylesheet can't be compiled
+     */
+    void prepare(TransformerFactory transformerFactory) throws TransformerConfigurationException {
+        if (stylesheet != null && templates == null) {
+            templates = transformerFactory.newTemplates(new StreamSource(stylesheet));
+        }
+    }
+
+    /**
+     * Renders the document.
+     * @param fopFactory the FOP factory shared by all renderings
+     * @param transformerFactory the transformer factory of the rendering thread
+     * @param out the output stream
+     * @param recordMetrics true to record formatting metrics
+     * @return the formatting metrics or null if they weren't recorded
+     * @throws Exception if an error occurs
+     */
+    FormattingMetrics render(FopFactory fopFactory, TransformerFactory transformerFactory,
+            OutputStream out, boolean recordMetrics) throws Exception {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        userAgent.setCreationDate(CREATION_DATE);
+        userAgent.getEventBroadcaster().addEventListener(NO_EVENT_LOGGING);
+        userAgent.setFormattingMetricsEnabled(recordMetrics);
+        Transformer transformer = (templates != null)
+                ? templates.newTransformer() : transformerFactory.newTransformer();
+        StreamSource src = new StreamSource(input);
+        if (intermediate) {
+            IFDocumentHandler targetHandler = fopFactory.getRendererFactory().createDocumentHandler(
+                    userAgent, outputFormat);
+            IFUtil.setupFonts(targetHandler);
+            targetHandler.setResult(new StreamResult(out));
+            IFParser parser = new IFParser();
+            transformer.transform(src, new SAXResult(parser.getContentHandler(targetHandler, userAgent)));
+        } else {
+            Fop fop = fopFactory.newFop(outputFormat, userAgent, out);
+            transformer.transform(src, new SAXResult(fop.getDefaultHandler()));
+        }
+        return userAgent.getFormattingMetrics();
+    }
+
+    /**
+     * Returns the file extension for the output format.
+     * @return the file extension, for example ".pdf"
+     */
+    public String getTargetFileExtension() {
+        for (Map.Entry<String, String> entry : FORMATS.entrySet()) {
+            if (entry.getValue().equals(outputFormat)) {
+                String name = entry.getKey();
+                return ("if".equals(name) || "at".equals(name)) ? "." + name + ".xml" : "." + name;
+            }
+        }
+        return ".out";
+    }
+
+    /** {@inheritDoc} */
+    public String toString() {
+        StringBuilder sb = new StringBuilder(input.getName());
+        if (stylesheet != null) {
+            sb.append(',').append(stylesheet.getName());
+        }
+        return sb.append(" -> ").append(outputFormat).toString();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.tools.loadtest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Computes a digest of the output of a rendering so renderings of the same input can be
+ * compared. Values derived from the time of writing (the file identifier of a PDF document,
+ * the XMP metadata date and the DSC creation date of a PostScript file) are masked before
+ * they're digested.
+ */
+final class OutputDigester extends OutputStream {
+
+    /** The keys whose values are masked; each value ends with the corresponding terminator. */
+    private static final byte[][] VOLATILE_KEYS = {
+        "/ID [".getBytes(StandardCharsets.US_ASCII),
+        "<xmp:MetadataDate>".getBytes(StandardCharsets.US_ASCII),
+        "%%CreationDate: ".getBytes(StandardCharsets.US_ASCII)};
+    private static final byte[] TERMINATORS = {']', '<', '\n'};
+
+    private final MessageDigest digest;
+    private final OutputStream out;
+    private final byte[] buffer = new byte[4096];
+    private final int[] matched = new int[VOLATILE_KEYS.length];
+    private int masking = -1;
+    private long count;
+    private byte[] result;
+
+    /**
+     * Creates a new instance.
+     * @param out the stream to pass the output to or null to discard it
+     */
+    OutputDigester(OutputStream out) {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        this.out = out;
+    }
+
+    /** {@inheritDoc} */
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    /** {@inheritDoc} */
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (out != null) {
+            out.write(b, off, len);
+        }
+        count += len;
+        while (len > 0) {
+            int chunk = Math.min(len, buffer.length);
+            for (int i = 0; i < chunk; i++) {
+                buffer[i] = mask(b[off + i]);
+            }
+            digest.update(buffer, 0, chunk);
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    private byte mask(byte b) {
+        if (masking >= 0) {
+            if (b == TERMINATORS[masking]) {
+                masking = -1;
+                return b;
+            }
+            return '0';
+        }
+        for (int k = 0; k < VOLATILE_KEYS.length; k++) {
+            byte[] key = VOLATILE_KEYS[k];
+            if (b == key[matched[k]]) {
+                if (++matched[k] == key.length) {
+                    Arrays.fill(matched, 0);
+                    masking = k;
+                    break;
+                }
+            } else {
+                matched[k] = (b == key[0]) ? 1 : 0;
+            }
+        }
+        return b;
+    }
+
+    /** {@inheritDoc} */
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void close() throws IOException {
+        if (result == null) {
+            result = digest.digest();
+        }
+        if (out != null) {
+            out.close();
+        }
+    }
+
+    /**
+     * Returns the number of bytes written.
+     * @return the number of bytes
+     */
+    long getByteCount() {
+        return count;
+    }
+
+    /**
+     * Returns the digest of the output. Only available after the stream has been closed.
+     * @return the digest
+     */
+    byte[] getDigest() {
+        return result;
+    }
+}
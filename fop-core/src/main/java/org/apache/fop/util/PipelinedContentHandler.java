@@ -0,0 +1,565 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.util;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.sax.SAXResult;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+
+/**
+ * SAX ContentHandler which passes all events on to another ContentHandler running on a separate
+ * thread. This allows the producer of the events (an XML parser or an XSLT processor) and their
+ * consumer (typically FOP's FO tree builder and layout) to work in parallel.
+ * <p>
+ * The events are buffered in a bounded ring of reusable event slots, so no objects are
+ * allocated per event once the slots have grown to the size of the document's attribute lists
+ * and text nodes. The producer blocks when the ring is full. Exceptions thrown by the consumer
+ * are rethrown to the producer on its next event, and {@link #endDocument()} only returns once
+ * the consumer has processed all events.</p>
+ * <p>
+ * If the producer fails before sending the end of the document, {@link #cancel()} has to be
+ * called to stop the consumer thread; it returns once the consumer thread has stopped.
+ * {@link #transform(Transformer, Source, ContentHandler)} takes care of this.</p>
+ */
+public class PipelinedContentHandler implements ContentHandler {
+
+    /** The default number of events buffered */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /** The default time in milliseconds {@link #cancel()} waits for the consumer thread */
+    public static final long DEFAULT_CANCEL_TIMEOUT = 30000;
+
+    /** Number of events after which they are handed over to the other thread */
+    private static final int BATCH_SIZE = 64;
+
+    private static final int START_DOCUMENT = 0;
+    private static final int END_DOCUMENT = 1;
+    private static final int START_PREFIX_MAPPING = 2;
+    private static final int END_PREFIX_MAPPING = 3;
+    private static final int START_ELEMENT = 4;
+    private static final int END_ELEMENT = 5;
+    private static final int CHARACTERS = 6;
+    private static final int IGNORABLE_WHITESPACE = 7;
+    private static final int PROCESSING_INSTRUCTION = 8;
+    private static final int SKIPPED_ENTITY = 9;
+
+    private final ContentHandler delegate;
+    private final Event[] ring;
+    private final int mask;
+    private final Object lock = new Object();
+
+    /** Producer side: the position of the next event to write */
+    private long writePos;
+    private Locator locator;
+    private Thread consumer;
+
+    /** Number of events handed over to the consumer */
+    private volatile long published;
+    /** Number of events processed by the consumer */
+    private volatile long consumed;
+    private volatile Throwable failure;
+    private volatile boolean finished;
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a new instance with the default capacity.
+     * @param delegate the handler receiving the events on the consumer thread
+     */
+    public PipelinedContentHandler(ContentHandler delegate) {
+        this(delegate, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param delegate the handler receiving the events on the consumer thread
+     * @param capacity the number of events buffered (rounded up to a power of two)
+     */
+    public PipelinedContentHandler(ContentHandler delegate, int capacity) {
+        if (capacity < BATCH_SIZE) {
+            capacity = BATCH_SIZE;
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.delegate = delegate;
+        this.ring = new Event[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new Event();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Runs the given transformation. The transformation result is passed on to the given
+     * handler which runs on a separate thread.
+     * @param transformer the transformer
+     * @param source the source to transform
+     * @param handler the handler receiving the transformation result
+     * @throws TransformerException if the transformation or the handler fails
+     */
+    public static void transform(Transformer transformer, Source source, ContentHandler handler)
+            throws TransformerException {
+        PipelinedContentHandler pipeline = new PipelinedContentHandler(handler);
+        try {
+            transformer.transform(source, new SAXResult(pipeline));
+        } finally {
+            pipeline.cancel();
+        }
+    }
+
+    /**
+     * Stops the consumer thread if it hasn't finished, yet, and waits for it to stop for at
+     * most {@link #DEFAULT_CANCEL_TIMEOUT} milliseconds. Events not yet processed are
+     * discarded. This has no effect once {@link #endDocument()} has returned.
+     * @see #cancel(long)
+     */
+    public void cancel() {
+        cancel(DEFAULT_CANCEL_TIMEOUT);
+    }
+
+    /**
+     * Stops the consumer thread if it hasn't finished, yet. Events not yet processed are
+     * discarded. The consumer thread stops once the handler returns from the event it is
+     * processing; this method waits for it to do so, but for at most the given time, as a
+     * single event (the end of a page sequence, for instance) may take long to process.
+     * This has no effect once {@link #endDocument()} has returned.
+     * @param timeout the maximum time to wait in milliseconds, 0 to wait as long as necessary
+     */
+    public void cancel(long timeout) {
+        synchronized (lock) {
+            cancelled = true;
+            lock.notifyAll();
+        }
+        if (consumer != null && consumer != Thread.currentThread()) {
+            try {
+                consumer.join(timeout);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void setDocumentLocator(Locator locator) {
+        this.locator = locator;
+    }
+
+    /** {@inheritDoc} */
+    public void startDocument() throws SAXException {
+        if (consumer == null) {
+            consumer = new Thread(new Runnable() {
+                public void run() {
+                    consume();
+                }
+            }, "FOP SAX pipeline");
+            consumer.setDaemon(true);
+            consumer.setContextClassLoader(Thread.currentThread().getContextClassLoader());
+            consumer.start();
+        }
+        nextEvent(START_DOCUMENT);
+        commit();
+    }
+
+    /** {@inheritDoc} */
+    public void endDocument() throws SAXException {
+        nextEvent(END_DOCUMENT);
+        commit();
+        publish();
+        synchronized (lock) {
+            while (!finished) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new SAXException("Interrupted while waiting for the end of processing");
+                }
+            }
+        }
+        checkFailure();
+    }
+
+    /** {@inheritDoc} */
+    public void startPrefixMapping(String prefix, String uri) throws SAXException {
+        Event event = nextEvent(START_PREFIX_MAPPING);
+        event.localName = prefix;
+        event.uri = uri;
+        commit();
+    }
+
+    /** {@inheritDoc} */
+    public void endPrefixMapping(String prefix) throws SAXException {
+        Event event = nextEvent(END_PREFIX_MAPPING);
+        event.localName = prefix;
+        commit();
+    }
+
+    /** {@inheritDoc} */
+    public void startElement(String uri, String localName, String qName, Attributes atts)
+            throws SAXException {
+        Event event = nextEvent(START_ELEMENT);
+        event.uri = uri;
+        event.localName = localName;
+        event.qName = qName;
+        event.attributes.setAttributes(atts);
+        commit();
+    }
+
+    /** {@inheritDoc} */
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        Event event = nextEvent(END_ELEMENT);
+        event.uri = uri;
+        event.localName = localName;
+        event.qName = qName;
+        commit();
+    }
+
+    /** {@inheritDoc} */
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        nextEvent(CHARACTERS).setChars(ch, start, length);
+        commit();
+    }
+
+    /** {@inheritDoc} */
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+        nextEvent(IGNORABLE_WHITESPACE).setChars(ch, start, length);
+        commit();
+    }
+
+    /** {@inheritDoc} */
+    public void processingInstruction(String target, String data) throws SAXException {
+        Event event = nextEvent(PROCESSING_INSTRUCTION);
+        event.localName = target;
+        event.qName = data;
+        commit();
+    }
+
+    /** {@inheritDoc} */
+    public void skippedEntity(String name) throws SAXException {
+        Event event = nextEvent(SKIPPED_ENTITY);
+        event.localName = name;
+        commit();
+    }
+
+    private Event nextEvent(int type) throws SAXException {
+        checkFailure();
+        if (writePos - consumed > mask) {
+            publish();
+            synchronized (lock) {
+                while (writePos - consumed > mask && failure == null) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw new SAXException("Interrupted while waiting for the event buffer");
+                    }
+                }
+            }
+            checkFailure();
+        }
+        Event event = ring[(int) (writePos & mask)];
+        event.type = type;
+        if (locator != null) {
+            event.systemId = locator.getSystemId();
+            event.publicId = locator.getPublicId();
+            event.lineNumber = locator.getLineNumber();
+            event.columnNumber = locator.getColumnNumber();
+        }
+        return event;
+    }
+
+    private void commit() {
+        writePos++;
+        if ((writePos & (BATCH_SIZE - 1)) == 0) {
+            publish();
+        }
+    }
+
+    private void publish() {
+        synchronized (lock) {
+            published = writePos;
+            lock.notifyAll();
+        }
+    }
+
+    private void checkFailure() throws SAXException {
+        Throwable t = failure;
+        if (t instanceof SAXException) {
+            throw (SAXException) t;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new SAXException((Exception) t);
+        }
+    }
+
+    private void consume() {
+        ReplayLocator replayLocator = new ReplayLocator();
+        long readPos = 0;
+        try {
+            if (locator != null) {
+                delegate.setDocumentLocator(replayLocator);
+            }
+            while (true) {
+                long available;
+                synchronized (lock) {
+                    while ((available = published) == readPos && !cancelled) {
+                        lock.wait();
+                    }
+                    if (cancelled) {
+                        return;
+                    }
+                }
+                while (readPos < available) {
+                    if (cancelled) {
+                        return;
+                    }
+                    Event event = ring[(int) (readPos & mask)];
+                    replayLocator.event = event;
+                    boolean end = replay(event);
+                    readPos++;
+                    if (end) {
+                        return;
+                    }
+                    if ((readPos & (BATCH_SIZE - 1)) == 0) {
+                        release(readPos);
+                    }
+                }
+                release(readPos);
+            }
+        } catch (Throwable t) {
+            failure = t;
+        } finally {
+            synchronized (lock) {
+                finished = true;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void release(long readPos) {
+        synchronized (lock) {
+            consumed = readPos;
+            lock.notifyAll();
+        }
+    }
+
+    private boolean replay(Event event) throws SAXException {
+        switch (event.type) {
+        case START_DOCUMENT:
+            delegate.startDocument();
+            break;
+        case END_DOCUMENT:
+            delegate.endDocument();
+            return true;
+        case START_PREFIX_MAPPING:
+            delegate.startPrefixMapping(event.localName, event.uri);
+            break;
+        case END_PREFIX_MAPPING:
+            delegate.endPrefixMapping(event.localName);
+            break;
+        case START_ELEMENT:
+            delegate.startElement(event.uri, event.localName, event.qName, event.attributes);
+            break;
+        case END_ELEMENT:
+            delegate.endElement(event.uri, event.localName, event.qName);
+            break;
+        case CHARACTERS:
+            delegate.characters(event.chars, 0, event.length);
+            break;
+        case IGNORABLE_WHITESPACE:
+            delegate.ignorableWhitespace(event.chars, 0, event.length);
+            break;
+        case PROCESSING_INSTRUCTION:
+            delegate.processingInstruction(event.localName, event.qName);
+            break;
+        case SKIPPED_ENTITY:
+            delegate.skippedEntity(event.localName);
+            break;
+        default:
+            throw new IllegalStateException("Unknown event type: " + event.type);
+        }
+        return false;
+    }
+
+    /** A reusable slot of the ring buffer. */
+    private static final class Event {
+
+        private int type;
+        /** the namespace URI, also used for prefix mappings */
+        private String uri;
+        /** the local name, also used for prefixes, PI targets and entity names */
+        private String localName;
+        /** the qualified name, also used for PI data */
+        private String qName;
+        private final EventAttributes attributes = new EventAttributes();
+        private char[] chars = new char[64];
+        private int length;
+
+        private String systemId;
+        private String publicId;
+        private int lineNumber = -1;
+        private int columnNumber = -1;
+
+        private void setChars(char[] ch, int start, int length) {
+            if (chars.length < length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+            }
+            System.arraycopy(ch, start, chars, 0, length);
+            this.length = length;
+        }
+    }
+
+    /** Reusable copy of an attribute list. */
+    private static final class EventAttributes implements Attributes {
+
+        private static final int URI = 0;
+        private static final int LOCAL_NAME = 1;
+        private static final int QNAME = 2;
+        private static final int TYPE = 3;
+        private static final int VALUE = 4;
+        private static final int FIELDS = 5;
+
+        private String[] data = new String[8 * FIELDS];
+        private int length;
+
+        private void setAttributes(Attributes atts) {
+            int n = atts.getLength();
+            if (data.length < n * FIELDS) {
+                data = new String[n * FIELDS];
+            }
+            for (int i = 0; i < n; i++) {
+                int offset = i * FIELDS;
+                data[offset + URI] = atts.getURI(i);
+                data[offset + LOCAL_NAME] = atts.getLocalName(i);
+                data[offset + QNAME] = atts.getQName(i);
+                data[offset + TYPE] = atts.getType(i);
+                data[offset + VALUE] = atts.getValue(i);
+            }
+            length = n;
+        }
+
+        private String get(int index, int field) {
+            return (index >= 0 && index < length) ? data[index * FIELDS + field] : null;
+        }
+
+        /** {@inheritDoc} */
+        public int getLength() {
+            return length;
+        }
+
+        /** {@inheritDoc} */
+        public String getURI(int index) {
+            return get(index, URI);
+        }
+
+        /** {@inheritDoc} */
+        public String getLocalName(int index) {
+            return get(index, LOCAL_NAME);
+        }
+
+        /** {@inheritDoc} */
+        public String getQName(int index) {
+            return get(index, QNAME);
+        }
+
+        /** {@inheritDoc} */
+        public String getType(int index) {
+            return get(index, TYPE);
+        }
+
+        /** {@inheritDoc} */
+        public String getValue(int index) {
+            return get(index, VALUE);
+        }
+
+        /** {@inheritDoc} */
+        public int getIndex(String uri, String localName) {
+            for (int i = 0; i < length; i++) {
+                if (localName.equals(data[i * FIELDS + LOCAL_NAME])
+                        && uri.equals(data[i * FIELDS + URI])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /** {@inheritDoc} */
+        public int getIndex(String qName) {
+            for (int i = 0; i < length; i++) {
+                if (qName.equals(data[i * FIELDS + QNAME])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /** {@inheritDoc} */
+        public String getType(String uri, String localName) {
+            return get(getIndex(uri, localName), TYPE);
+        }
+
+        /** {@inheritDoc} */
+        public String getType(String qName) {
+            return get(getIndex(qName), TYPE);
+        }
+
+        /** {@inheritDoc} */
+        public String getValue(String uri, String localName) {
+            return get(getIndex(uri, localName), VALUE);
+        }
+
+        /** {@inheritDoc} */
+        public String getValue(String qName) {
+            return get(getIndex(qName), VALUE);
+        }
+    }
+
+    /** Locator reporting the position of the event currently processed by the consumer. */
+    private static final class ReplayLocator implements Locator {
+
+        private Event event;
+
+        /** {@inheritDoc} */
+        public String getPublicId() {
+            return event != null ? event.publicId : null;
+        }
+
+        /** {@inheritDoc} */
+        public String getSystemId() {
+            return event != null ? event.systemId : null;
+        }
+
+        /** {@inheritDoc} */
+        public int getLineNumber() {
+            return event != null ? event.lineNumber : -1;
+        }
+
+        /** {@inheritDoc} */
+        public int getColumnNumber() {
+            return event != null ? event.columnNumber : -1;
+        }
+    }
+}
@@ -20,12 +20,17 @@
 package org.apache.fop;
 
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import org.apache.fop.apps.FormattingMetrics;
+import org.apache.fop.apps.FormattingMetrics.Counter;
+import org.apache.fop.fo.Constants;
 import org.apache.fop.layoutmgr.BlockKnuthSequence;
 import org.apache.fop.layoutmgr.BreakingAlgorithm;
 import org.apache.fop.layoutmgr.ElementListObserver;
@@ -81,6 +86,127 @@ public class KnuthAlgorithmTestCase {
         assertEquals(5000, parts[1].difference);
     }
 
+    private KnuthSequence getParagraph(int words) {
+        Random random = new Random(words);
+        KnuthSequence seq = new BlockKnuthSequence();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                seq.add(new KnuthGlue(2500, 1250, 800, null, false));
+            }
+            int syllables = 1 + random.nextInt(4);
+            for (int j = 0; j < syllables; j++) {
+                if (j > 0) {
+                    seq.add(new KnuthPenalty(3300, 50, true, null, false));
+                }
+                seq.add(new KnuthBox(8000 + random.nextInt(12000), null, false));
+            }
+        }
+        seq.add(new KnuthPenalty(0, KnuthPenalty.INFINITE, false, null, false));
+        seq.add(new KnuthGlue(0, Integer.MAX_VALUE, 0, null, false));
+        seq.add(new KnuthPenalty(0, -KnuthPenalty.INFINITE, false, null, false));
+        return seq;
+    }
+
+    private FormattingMetrics breakParagraph(ParagraphBreakingAlgorithm algo, KnuthSequence seq) {
+        algo.setConstantLineWidth(450000);
+        algo.findBreakingPoints(seq, 3, true, BreakingAlgorithm.ALL_BREAKS);
+        FormattingMetrics metrics = new FormattingMetrics();
+        algo.addCounts(metrics);
+        return metrics;
+    }
+
+    /**
+     * Tests that limiting the number of active nodes per line reduces the work done on a
+     * long paragraph while the result stays close to the optimum.
+     */
+    @Test
+    public void testActiveNodeLimit() {
+        KnuthSequence seq = getParagraph(2000);
+        ParagraphBreakingAlgorithm optimal = new ParagraphBreakingAlgorithm();
+        long optimalNodes = breakParagraph(optimal, seq).getCount(Counter.BREAKING_NODES);
+
+        for (int limit : new int[] {8, 16}) {
+            ParagraphBreakingAlgorithm limited = new ParagraphBreakingAlgorithm();
+            limited.setActiveNodeLimit(limit);
+            FormattingMetrics metrics = breakParagraph(limited, seq);
+            long limitedNodes = metrics.getCount(Counter.BREAKING_NODES);
+            assertTrue(limitedNodes + " vs. " + optimalNodes, limitedNodes * 5 < optimalNodes);
+            assertEquals(0, metrics.getCount(Counter.BREAKING_RESTARTS));
+            assertTrue(limited.demerits >= optimal.demerits);
+            assertTrue(limited.demerits + " vs. " + optimal.demerits,
+                    limited.demerits <= optimal.demerits * 1.01);
+            assertEquals(optimal.getParts().length, limited.getParts().length, 1);
+        }
+
+        //a limit above the number of active nodes per line changes nothing
+        ParagraphBreakingAlgorithm unconstrained = new ParagraphBreakingAlgorithm();
+        unconstrained.setActiveNodeLimit(100);
+        assertEquals(optimalNodes, breakParagraph(unconstrained, seq).getCount(Counter.BREAKING_NODES));
+        assertEquals(optimal.demerits, unconstrained.demerits, 0);
+    }
+
+    /**
+     * Tests that an instance reused for a second run, as done when retrying with a higher
+     * threshold, produces the same breaks as a new instance.
+     */
+    @Test
+    public void testReuse() {
+        KnuthSequence seq = getParagraph(500);
+        ParagraphBreakingAlgorithm algo = new ParagraphBreakingAlgorithm();
+        breakParagraph(algo, seq);
+        Part[] first = algo.getParts();
+        double demerits = algo.demerits;
+        algo.reset();
+        breakParagraph(algo, seq);
+        Part[] second = algo.getParts();
+        assertEquals(first.length, second.length);
+        for (int i = 0; i < first.length; i++) {
+            assertEquals(first[i].position, second[i].position);
+        }
+        assertEquals(demerits, algo.demerits, 0);
+    }
+
+    private KnuthSequence getKnuthSequence2() {
+        int[][] words = {{8}, {10, 6}, {3, 6}, {7}, {5}, {5, 2}, {8}, {9}, {9, 5}, {7, 5, 10},
+                {2, 7, 10}, {10, 4, 1}, {1}, {10, 10}};
+        KnuthSequence seq = new BlockKnuthSequence();
+        for (int i = 0; i < words.length; i++) {
+            if (i > 0) {
+                seq.add(new KnuthGlue(3000, 20000, 1000, null, false));
+            }
+            for (int j = 0; j < words[i].length; j++) {
+                if (j > 0) {
+                    seq.add(new KnuthPenalty(1000, 50, true, null, false));
+                }
+                seq.add(new KnuthBox(words[i][j] * 1000, null, false));
+            }
+        }
+        seq.add(new KnuthPenalty(0, KnuthPenalty.INFINITE, false, null, false));
+        seq.add(new KnuthGlue(0, Integer.MAX_VALUE, 0, null, false));
+        seq.add(new KnuthPenalty(0, -KnuthPenalty.INFINITE, false, null, false));
+        return seq;
+    }
+
+    /**
+     * Tests a paragraph where a line runs out of active nodes while a higher line still
+     * holds some, and the lower line is then refilled. The active nodes of the higher line
+     * must still be considered, otherwise the paragraph ends up with more demerits and one
+     * line less (breaking at 45 instead of at 43 and 47).
+     */
+    @Test
+    public void testRefilledLine() {
+        RefillingBreakingAlgorithm algo = new RefillingBreakingAlgorithm();
+        algo.setConstantLineWidth(30000);
+        algo.findBreakingPoints(getKnuthSequence2(), 10, true, BreakingAlgorithm.ALL_BREAKS);
+        assertTrue(algo.refilled);
+        int[] positions = {5, 13, 21, 27, 35, 43, 47, 51};
+        Part[] parts = algo.getParts();
+        assertEquals(positions.length, parts.length);
+        for (int i = 0; i < positions.length; i++) {
+            assertEquals(positions[i], parts[i].position);
+        }
+    }
+
     private class Part {
         private int difference;
         private double ratio;
@@ -100,6 +226,10 @@ public class KnuthAlgorithmTestCase {
             return parts.toArray(new Part[parts.size()]);
         }
 
+        public void reset() {
+            parts.clear();
+        }
+
         @Override
         public void updateData1(int total, double demerits) {
             //nop
@@ -147,4 +277,62 @@ public class KnuthAlgorithmTestCase {
 
     }
 
+    /** Keeps the active node with the fewest demerits and records its demerits. */
+    private class ParagraphBreakingAlgorithm extends MyBreakingAlgorithm {
+
+        private double demerits;
+
+        public ParagraphBreakingAlgorithm() {
+            super(Constants.EN_JUSTIFY, Constants.EN_START, true, true, 2);
+        }
+
+        @Override
+        public void updateData1(int total, double demerits) {
+            this.demerits = demerits;
+        }
+
+        @Override
+        protected int filterActiveNodes() {
+            KnuthNode bestActiveNode = null;
+            for (int i = startLine; i < endLine; i++) {
+                for (KnuthNode node = getNode(i); node != null; node = node.next) {
+                    if (bestActiveNode == null || node.totalDemerits < bestActiveNode.totalDemerits) {
+                        bestActiveNode = node;
+                    }
+                }
+            }
+            for (int i = startLine; i < endLine; i++) {
+                for (KnuthNode node = getNode(i); node != null; node = node.next) {
+                    if (node != bestActiveNode) {
+                        removeNode(i, node);
+                    }
+                }
+            }
+            return bestActiveNode.line;
+        }
+    }
+
+    /** Checks that refilling an empty line keeps the active nodes of higher lines. */
+    private class RefillingBreakingAlgorithm extends ParagraphBreakingAlgorithm {
+
+        private boolean refilled;
+
+        @Override
+        protected void addNode(int line, KnuthNode node) {
+            int highestLine = -1;
+            if (line < endLine && getNode(line) == null) {
+                for (int i = line + 1; i < endLine; i++) {
+                    if (getNode(i) != null) {
+                        highestLine = i;
+                    }
+                }
+            }
+            super.addNode(line, node);
+            if (highestLine >= 0) {
+                refilled = true;
+                assertTrue(endLine > highestLine);
+            }
+        }
+    }
+
 }
@@ -21,11 +21,24 @@ package org.apache.fop.afp.fonts;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -113,4 +126,73 @@ public class CharactersetEncoderTestCase {
         }
         assertEquals(testEngChars.length, engBytes.length);
     }
+
+    @Test
+    public void testEncodeMatchesCharsetEncoder() throws Exception {
+        String[] texts = {"", testEngText, testCJKText, "A" + testCJKText.substring(0, 3) + "B",
+                testCJKText.substring(0, 2) + " " + testCJKText.substring(2, 5),
+                "\u00BB" + testCJKText.substring(0, 2) + "\u00BB", "\uD83D\uDE00 " + testEngText};
+        String[][] encodings = {{"cp500", "SINGLE_BYTE"}, {"cp937", "DOUBLE_BYTE_LINE_DATA"},
+                {"cp930", "DOUBLE_BYTE_LINE_DATA"}, {"UTF-16BE", "DOUBLE_BYTE"}};
+        for (String[] encoding : encodings) {
+            CharactersetEncoder encoder = CharacterSetType.valueOf(encoding[1]).getEncoder(encoding[0]);
+            for (String text : texts) {
+                byte[] expected = encodeWithCharsetEncoder(text, encoding[0]);
+                if (encoding[1].equals("DOUBLE_BYTE_LINE_DATA") && expected.length > 1
+                        && expected[0] == 0x0E && expected[expected.length - 1] == 0x0F) {
+                    expected = Arrays.copyOfRange(expected, 1, expected.length - 1);
+                }
+                String msg = encoding[0] + ": " + text;
+                assertArrayEquals(msg, expected, toByteArray(encoder.encode(text)));
+                byte[] buffer = new byte[CharactersetEncoder.getBufferSize(text.length())];
+                assertArrayEquals(msg, expected, toByteArray(encoder.encode(text, buffer)));
+                assertArrayEquals(msg, expected, encoder.encode(text).getBytes());
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentEncode() throws Exception {
+        final CharactersetEncoder encoder = CharacterSetType.DOUBLE_BYTE_LINE_DATA.getEncoder("cp937");
+        final String text = testEngText + testCJKText + testEngText;
+        final byte[] expected = toByteArray(encoder.encode(text));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() throws Exception {
+                        byte[] buffer = new byte[CharactersetEncoder.getBufferSize(text.length())];
+                        for (int j = 0; j < 500; j++) {
+                            if (!Arrays.equals(expected, toByteArray(encoder.encode(text, buffer)))
+                                    || !encoder.canEncode(text.charAt(j % text.length()))) {
+                                return Boolean.FALSE;
+                            }
+                        }
+                        return Boolean.TRUE;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static byte[] encodeWithCharsetEncoder(String text, String encoding) throws Exception {
+        CharsetEncoder encoder = Charset.forName(encoding).newEncoder();
+        encoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bb = encoder.encode(CharBuffer.wrap(text));
+        byte[] bytes = new byte[bb.remaining()];
+        bb.get(bytes);
+        return bytes;
+    }
+
+    private static byte[] toByteArray(CharactersetEncoder.EncodedChars encChars) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encChars.writeTo(out, 0, encChars.getLength());
+        return out.toByteArray();
+    }
 }
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.apps;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.List;
+
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.io.output.NullOutputStream;
+
+import org.apache.fop.apps.FormattingMetrics.Counter;
+import org.apache.fop.apps.FormattingMetrics.Phase;
+
+/**
+ * Tests the formatting metrics reported through {@link FormattingResults}.
+ */
+public class FormattingMetricsTestCase {
+
+    private final FopFactory fopFactory = FopFactory.newInstance(new File(".").toURI());
+
+    private String createFO() {
+        StringBuilder sb = new StringBuilder("<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">"
+                + "<fo:layout-master-set><fo:simple-page-master master-name=\"p\""
+                + " page-width=\"10cm\" page-height=\"5cm\"><fo:region-body/>"
+                + "</fo:simple-page-master></fo:layout-master-set>");
+        for (int seq = 0; seq < 2; seq++) {
+            sb.append("<fo:page-sequence id=\"seq").append(seq).append("\" master-reference=\"p\">"
+                    + "<fo:flow flow-name=\"xsl-region-body\">");
+            for (int i = 0; i < 20; i++) {
+                sb.append("<fo:block font-size=\"12pt\">The quick brown fox jumps over the lazy dog,"
+                        + " paragraph ").append(i).append(".</fo:block>");
+            }
+            sb.append("</fo:flow></fo:page-sequence>");
+        }
+        return sb.append("</fo:root>").toString();
+    }
+
+    private FormattingResults render(FOUserAgent userAgent) throws Exception {
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_PDF, userAgent, NullOutputStream.NULL_OUTPUT_STREAM);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.transform(new StreamSource(new StringReader(createFO())),
+                new SAXResult(fop.getDefaultHandler()));
+        return fop.getResults();
+    }
+
+    @Test
+    public void testMetricsDisabledByDefault() throws Exception {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        assertNull(userAgent.getFormattingMetrics());
+        FormattingResults results = render(userAgent);
+        assertNull(results.getMetrics());
+        assertNull(((PageSequenceResults) results.getPageSequences().get(0)).getMetrics());
+    }
+
+    @Test
+    public void testMetricsRecorded() throws Exception {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        userAgent.setFormattingMetricsEnabled(true);
+        FormattingResults results = render(userAgent);
+        FormattingMetrics metrics = results.getMetrics();
+        assertNotNull(metrics);
+        for (Phase phase : new Phase[] {Phase.PARSING, Phase.FO_TREE, Phase.LAYOUT,
+                Phase.LINE_BREAKING, Phase.PAGE_BREAKING, Phase.RENDERING}) {
+            assertTrue(phase.toString(), metrics.getWallTime(phase) > 0);
+        }
+        assertTrue(metrics.getCount(Counter.KNUTH_ELEMENTS) > 0);
+        assertTrue(metrics.getCount(Counter.BREAKING_NODES) > 0);
+        assertTrue(metrics.getCount(Counter.PROPERTY_CACHE_HITS) > 0);
+
+        List pageSequences = results.getPageSequences();
+        assertEquals(2, pageSequences.size());
+        long elements = 0;
+        long wallTime = 0;
+        for (Object pageSequence : pageSequences) {
+            FormattingMetrics seqMetrics = ((PageSequenceResults) pageSequence).getMetrics();
+            assertNotNull(seqMetrics);
+            assertTrue(seqMetrics.getWallTime(Phase.LINE_BREAKING) > 0);
+            elements += seqMetrics.getCount(Counter.KNUTH_ELEMENTS);
+            wallTime += seqMetrics.getTotalWallTime();
+        }
+        assertEquals(metrics.getCount(Counter.KNUTH_ELEMENTS), elements);
+        assertTrue(wallTime <= metrics.getTotalWallTime());
+    }
+
+    /** Metrics measuring the wall time with a clock that is advanced by the test. */
+    private static final class ManualClockMetrics extends FormattingMetrics {
+
+        private long now;
+
+        void advance(long nanos) {
+            now += nanos;
+        }
+
+        @Override
+        long nanoTime() {
+            return now;
+        }
+    }
+
+    @Test
+    public void testNestedPhasesAreExclusive() {
+        ManualClockMetrics metrics = new ManualClockMetrics();
+        metrics.startPhase(Phase.LAYOUT);
+        metrics.advance(10);
+        metrics.startPhase(Phase.IMAGE_LOADING);
+        metrics.advance(100);
+        metrics.endPhase(Phase.IMAGE_LOADING);
+        metrics.advance(5);
+        metrics.endPhase(Phase.LAYOUT);
+        assertEquals(100, metrics.getWallTime(Phase.IMAGE_LOADING));
+        assertEquals(15, metrics.getWallTime(Phase.LAYOUT));
+        assertEquals(115, metrics.getTotalWallTime());
+    }
+
+    @Test
+    public void testUnbalancedPhasesAreClosed() {
+        ManualClockMetrics metrics = new ManualClockMetrics();
+        metrics.startPhase(Phase.PARSING);
+        metrics.startPhase(Phase.FO_TREE);
+        metrics.startPhase(Phase.LAYOUT);
+        metrics.advance(10);
+        metrics.endPhase(Phase.PARSING);
+        metrics.advance(20);
+        FormattingMetrics snapshot = metrics.snapshot();
+        assertEquals(10, snapshot.getWallTime(Phase.LAYOUT));
+        assertEquals(10, snapshot.getTotalWallTime());
+        //ending a phase which isn't active has no effect
+        metrics.endPhase(Phase.LAYOUT);
+        assertEquals(10, metrics.getWallTime(Phase.LAYOUT));
+        assertEquals(10, metrics.getTotalWallTime());
+    }
+}
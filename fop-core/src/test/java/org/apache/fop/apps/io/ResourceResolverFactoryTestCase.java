@@ -31,6 +31,8 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -93,6 +95,28 @@ public class ResourceResolverFactoryTestCase {
         }
     }
 
+    @Test
+    public void testMappedFilesArePruned() throws Exception {
+        InternalResourceResolver sut = ResourceResolverFactory.createDefaultInternalResourceResolver(
+                new File(".").toURI());
+        File file = File.createTempFile("prefix", "suffix");
+        try {
+            writeDataTo(file);
+            assertEquals(DATA.length, sut.getMappedResource(file.toURI()).remaining());
+            assertEquals(1, sut.getMappedFileCount());
+
+            //a changed file replaces the entry of the previous mapping
+            writeDataTo(new FileOutputStream(file, true));
+            assertTrue(file.setLastModified(file.lastModified() - 60000));
+            assertEquals(DATA.length * 2, sut.getMappedResource(file.toURI()).remaining());
+            assertEquals(1, sut.getMappedFileCount());
+        } finally {
+            file.delete();
+        }
+        assertNull(sut.getMappedResource(file.toURI()));
+        assertEquals(0, sut.getMappedFileCount());
+    }
+
     private static class TestCreateTempAwareResourceResolverHelper implements ResourceResolver {
 
         final TempResourceResolver tempResourceResolver = mock(TempResourceResolver.class);
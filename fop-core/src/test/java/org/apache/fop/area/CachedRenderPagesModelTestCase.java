@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.area;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringReader;
+
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.area.inline.InlineArea;
+import org.apache.fop.area.inline.SpaceArea;
+import org.apache.fop.area.inline.TextArea;
+import org.apache.fop.area.inline.WordArea;
+import org.apache.fop.fonts.FontTriplet;
+
+public class CachedRenderPagesModelTestCase {
+
+    private final FopFactory fopFactory = FopFactory.newInstance(new File(".").toURI());
+
+    private static String createDocument() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">"
+                + "<fo:layout-master-set><fo:simple-page-master master-name=\"p\" page-height=\"10cm\""
+                + " page-width=\"10cm\"><fo:region-body/></fo:simple-page-master></fo:layout-master-set>"
+                + "<fo:page-sequence master-reference=\"p\"><fo:flow flow-name=\"xsl-region-body\">");
+        for (int i = 0; i < 100; i++) {
+            sb.append("<fo:block>Paragraph ").append(i)
+                    .append(" refers to page <fo:page-number-citation ref-id=\"last\"/> of the document,")
+                    .append(" the same words appear again and again.</fo:block>");
+        }
+        sb.append("<fo:block id=\"last\">The end</fo:block></fo:flow></fo:page-sequence></fo:root>");
+        return sb.toString();
+    }
+
+    private String render(boolean conserveMemory, long bufferSize) throws Exception {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        userAgent.setConserveMemoryPolicy(conserveMemory);
+        userAgent.setConserveMemoryBufferSize(bufferSize);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_FOP_AREA_TREE, userAgent, out);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.transform(new StreamSource(new StringReader(createDocument())),
+                new SAXResult(fop.getDefaultHandler()));
+        return out.toString("UTF-8");
+    }
+
+    private static int count(String s, String pattern) {
+        int count = 0;
+        for (int i = s.indexOf(pattern); i >= 0; i = s.indexOf(pattern, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void testBufferedPagesMatchPagesInFiles() throws Exception {
+        String uncached = render(false, 0);
+        String expected = render(true, 0);
+        assertEquals(count(uncached, "<pageViewport "), count(expected, "<pageViewport "));
+        assertEquals(count(uncached, "<word>Paragraph</word>"), count(expected, "<word>Paragraph</word>"));
+        // every page is moved from the buffer to a temporary file
+        assertEquals(expected, render(true, 1));
+        // some pages are kept in memory
+        assertEquals(expected, render(true, 4096));
+        // all pages are kept in memory
+        assertEquals(expected, render(true, 64 * 1024 * 1024));
+    }
+
+    @Test
+    public void testWordAreaSerialization() throws Exception {
+        WordArea first = new WordArea(0, -1, "word", new int[] {1, -2, 300000}, new int[] {0, 1, 0, 1},
+                new int[][] {{1, 2, -3, 4}, null, {0, 0, 0, 0}, null}, false);
+        WordArea second = new WordArea(4, 2, "word", null, null, null, true);
+        WordArea third = new WordArea(9, -1, null, null, null, null, false);
+
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        ObjectOutputStream out = new PageObjectOutputStream(bout);
+        out.writeObject(first);
+        out.writeObject(second);
+        out.writeObject(third);
+        out.close();
+
+        ObjectInputStream in = new PageObjectInputStream(new ByteArrayInputStream(bout.toByteArray()));
+        assertSameWord(first, (WordArea) in.readObject());
+        assertSameWord(second, (WordArea) in.readObject());
+        WordArea copy = (WordArea) in.readObject();
+        assertSameWord(third, copy);
+        assertNull(copy.getWord());
+    }
+
+    private static TextArea createTextArea(FontTriplet font) {
+        TextArea text = new TextArea(100, -200, 3);
+        text.setIPD(72000);
+        text.setBPD(12000);
+        text.setBidiLevel(0);
+        text.setTextWordSpaceAdjust(-1500);
+        text.setBaselineOffset(9000);
+        text.addTrait(Trait.FONT, font);
+        text.addTrait(Trait.FONT_SIZE, 12000);
+        text.addTrait(Trait.COLOR, Color.RED);
+        text.addTrait(Trait.UNDERLINE, Boolean.TRUE);
+        text.addTrait(Trait.BLINK, Boolean.FALSE);
+        text.addTrait(Trait.PROD_ID, "text");
+        text.addWord("Hello", 30000, null, null, null, 0);
+        text.addSpace(' ', 3000, true, -5, 0);
+        text.addWord("world", 30000, null, null, null, 0);
+        return text;
+    }
+
+    private void testTextAreaSerialization(boolean pageStreams) throws Exception {
+        FontTriplet font = new FontTriplet("Helvetica", "italic", 700, 2);
+        TextArea first = createTextArea(font);
+        TextArea second = createTextArea(font);
+
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        ObjectOutputStream out = pageStreams ? new PageObjectOutputStream(bout) : new ObjectOutputStream(bout);
+        out.writeObject(first);
+        out.writeObject(second);
+        out.close();
+
+        ByteArrayInputStream bin = new ByteArrayInputStream(bout.toByteArray());
+        ObjectInputStream in = pageStreams ? new PageObjectInputStream(bin) : new ObjectInputStream(bin);
+        TextArea copy = (TextArea) in.readObject();
+        assertSameText(first, copy);
+        TextArea secondCopy = (TextArea) in.readObject();
+        assertSameText(second, secondCopy);
+        // the font triplet is only written once
+        assertSame(copy.getTrait(Trait.FONT), secondCopy.getTrait(Trait.FONT));
+        assertEquals(2, ((FontTriplet) copy.getTrait(Trait.FONT)).getPriority());
+    }
+
+    @Test
+    public void testTextAreaSerialization() throws Exception {
+        testTextAreaSerialization(true);
+        testTextAreaSerialization(false);
+    }
+
+    private static void assertSameText(TextArea expected, TextArea actual) {
+        assertEquals(expected.getIPD(), actual.getIPD());
+        assertEquals(expected.getBPD(), actual.getBPD());
+        assertEquals(expected.getBidiLevel(), actual.getBidiLevel());
+        assertEquals(expected.getTextWordSpaceAdjust(), actual.getTextWordSpaceAdjust());
+        assertEquals(expected.getBaselineOffset(), actual.getBaselineOffset());
+        assertEquals(expected.getTraits(), actual.getTraits());
+        assertEquals(expected.getChildAreas().size(), actual.getChildAreas().size());
+        for (int i = 0; i < expected.getChildAreas().size(); i++) {
+            InlineArea e = expected.getChildAreas().get(i);
+            InlineArea a = actual.getChildAreas().get(i);
+            assertEquals(e.getClass(), a.getClass());
+            assertEquals(e.getIPD(), a.getIPD());
+            assertEquals(e.getBlockProgressionOffset(), a.getBlockProgressionOffset());
+            assertSame(actual, a.getParentArea());
+            if (e instanceof SpaceArea) {
+                assertEquals(((SpaceArea) e).getSpace(), ((SpaceArea) a).getSpace());
+                assertEquals(((SpaceArea) e).isAdjustable(), ((SpaceArea) a).isAdjustable());
+            } else {
+                assertSameWord((WordArea) e, (WordArea) a);
+            }
+        }
+    }
+
+    private static void assertSameWord(WordArea expected, WordArea actual) {
+        assertEquals(expected.getWord(), actual.getWord());
+        assertEquals(expected.getBlockProgressionOffset(), actual.getBlockProgressionOffset());
+        assertEquals(expected.getBidiLevel(), actual.getBidiLevel());
+        assertEquals(expected.isReversed(), actual.isReversed());
+        assertArrayEquals(expected.getLetterAdjustArray(), actual.getLetterAdjustArray());
+        assertArrayEquals(expected.getBidiLevels(), actual.getBidiLevels());
+        assertArrayEquals(expected.getGlyphPositionAdjustments(), actual.getGlyphPositionAdjustments());
+    }
+}
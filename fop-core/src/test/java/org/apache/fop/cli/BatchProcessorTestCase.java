@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.io.StringReader;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.fop.apps.FOPException;
+
+public class BatchProcessorTestCase {
+
+    private static final String FO_FILE = "../fop/examples/embedding/xml/fo/helloworld.fo";
+    private static final String XML_FILE = "../fop/examples/embedding/xml/xml/projectteam.xml";
+    private static final String XSL_FILE = "../fop/examples/embedding/xml/xslt/projectteam2fo.xsl";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CommandLineOptions parse(String cmdLine) throws Exception {
+        CommandLineOptions clo = new CommandLineOptions();
+        assertTrue(clo.parse(cmdLine.split(" ")));
+        return clo;
+    }
+
+    @Test
+    public void testParseBatchOptions() throws Exception {
+        CommandLineOptions clo = parse("-batch - application/postscript -threads 3");
+        assertTrue(clo.isBatchMode());
+        assertNull(clo.getBatchFile());
+        assertEquals(3, clo.getBatchThreadCount());
+        assertEquals("application/postscript", clo.getOutputFormat());
+        assertNull(clo.getInputHandler());
+
+        clo = parse("-batch -");
+        assertEquals("application/pdf", clo.getOutputFormat());
+    }
+
+    @Test(expected = FOPException.class)
+    public void testBatchWithInputFile() throws Exception {
+        parse("-batch - -fo " + FO_FILE);
+    }
+
+    @Test
+    public void testParseJob() throws Exception {
+        BatchProcessor processor = new BatchProcessor(parse("-batch -"), System.out);
+        assertNull(processor.parseJob("   "));
+        assertNull(processor.parseJob("# a comment"));
+        BatchProcessor.Job job = processor.parseJob("in.fo  out.pdf");
+        assertEquals(new File("in.fo"), job.getInput());
+        assertNull(job.getStylesheet());
+        assertEquals(new File("out.pdf"), job.getOutput());
+        job = processor.parseJob("in.xml\tin.xsl out.pdf");
+        assertEquals(new File("in.xsl"), job.getStylesheet());
+        job = processor.parseJob("\"my docs/in.fo\"\t\"my docs/out.pdf\"");
+        assertEquals(new File("my docs/in.fo"), job.getInput());
+        assertEquals(new File("my docs/out.pdf"), job.getOutput());
+    }
+
+    @Test(expected = FOPException.class)
+    public void testParseUnclosedQuote() throws Exception {
+        BatchProcessor processor = new BatchProcessor(parse("-batch -"), System.out);
+        processor.parseJob("\"my docs/in.fo out.pdf");
+    }
+
+    @Test
+    public void testProcessPathWithSpace() throws Exception {
+        File dir = folder.newFolder("my docs");
+        File out = new File(dir, "hello world.pdf");
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        BatchProcessor processor = new BatchProcessor(parse("-batch -"), new PrintStream(bout, true));
+        int failed = processor.process(new StringReader(FO_FILE + " \"" + out.getPath() + "\"\n"));
+
+        assertEquals(0, failed);
+        assertTrue(out.length() > 0);
+    }
+
+    @Test(expected = FOPException.class)
+    public void testParseInvalidJob() throws Exception {
+        BatchProcessor processor = new BatchProcessor(parse("-batch -"), System.out);
+        processor.parseJob("in.fo");
+    }
+
+    @Test
+    public void testProcess() throws Exception {
+        File out1 = new File(folder.getRoot(), "out1.pdf");
+        File out2 = new File(folder.getRoot(), "out2.pdf");
+        File out3 = new File(folder.getRoot(), "out3.pdf");
+        File out4 = new File(folder.getRoot(), "out4.pdf");
+        String jobs = "# jobs\n"
+                + FO_FILE + " " + out1.getPath() + "\n"
+                + XML_FILE + " " + XSL_FILE + " " + out2.getPath() + "\n"
+                + XML_FILE + " " + XSL_FILE + " " + out3.getPath() + "\n"
+                + "missing.fo " + out4.getPath() + "\n"
+                + "malformed\n";
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        BatchProcessor processor = new BatchProcessor(parse("-batch - -threads 2"),
+                new PrintStream(bout, true));
+        int failed = processor.process(new StringReader(jobs));
+
+        assertEquals(2, failed);
+        assertTrue(out1.length() > 0);
+        assertTrue(out2.length() > 0);
+        assertTrue(out3.length() > 0);
+        assertFalse(out4.exists());
+        assertTrue(bout.toString().contains("Batch finished: 5 job(s), 3 succeeded, 2 failed"));
+    }
+}
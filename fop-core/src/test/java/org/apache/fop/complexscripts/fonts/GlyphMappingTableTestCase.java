@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.complexscripts.fonts;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.fop.complexscripts.fonts.GlyphMappingTable.MappingRange;
+
+/**
+ * Tests that coverage and class tables give the same answers whether or not they are
+ * compiled into direct index arrays.
+ */
+public class GlyphMappingTableTestCase {
+
+    @Test
+    public void testMappedCoverage() {
+        // dense: compiled to a direct index array
+        checkMappedCoverage(new int[] {3, 4, 5, 9, 10, 200, 255});
+        // sparse: binary search
+        checkMappedCoverage(new int[] {3, 1000, 20000, 65535});
+    }
+
+    @Test
+    public void testMappedCoverageIgnoresOutOfOrderGlyphs() {
+        List<Integer> entries = new ArrayList<Integer>();
+        entries.add(5);
+        entries.add(3);
+        entries.add(7);
+        GlyphCoverageTable ct = GlyphCoverageTable.createCoverageTable(entries);
+        assertEquals(2, ct.getCoverageSize());
+        assertEquals(0, ct.getCoverageIndex(5));
+        assertEquals(-1, ct.getCoverageIndex(3));
+        assertEquals(1, ct.getCoverageIndex(7));
+        assertEquals(-1, ct.getCoverageIndex(0));
+    }
+
+    @Test
+    public void testRangeCoverage() {
+        checkRangeCoverage(new int[][] {{10, 20}, {22, 30}, {100, 120}});
+        checkRangeCoverage(new int[][] {{10, 12}, {5000, 5001}, {60000, 60010}});
+    }
+
+    @Test
+    public void testRangeClass() {
+        checkRangeClass(new int[][] {{10, 20, 1}, {22, 30, 2}, {100, 120, 3}});
+        checkRangeClass(new int[][] {{10, 12, 1}, {5000, 5001, 2}, {60000, 60010, 1}});
+    }
+
+    private static void checkMappedCoverage(int[] gids) {
+        List<Integer> entries = new ArrayList<Integer>();
+        for (int gid : gids) {
+            entries.add(gid);
+        }
+        GlyphCoverageTable ct = GlyphCoverageTable.createCoverageTable(entries);
+        assertEquals(GlyphCoverageTable.GLYPH_COVERAGE_TYPE_MAPPED, ct.getType());
+        assertEquals(gids.length, ct.getCoverageSize());
+        for (int gid = 0; gid < 65536; gid++) {
+            int expected = -1;
+            for (int i = 0; i < gids.length; i++) {
+                if (gids[i] == gid) {
+                    expected = i;
+                }
+            }
+            assertEquals("gid " + gid, expected, ct.getCoverageIndex(gid));
+        }
+    }
+
+    private static void checkRangeCoverage(int[][] ranges) {
+        List<MappingRange> entries = new ArrayList<MappingRange>();
+        int index = 0;
+        for (int[] r : ranges) {
+            entries.add(new MappingRange(r[0], r[1], index));
+            index += r[1] - r[0] + 1;
+        }
+        GlyphCoverageTable ct = GlyphCoverageTable.createCoverageTable(entries);
+        assertEquals(GlyphCoverageTable.GLYPH_COVERAGE_TYPE_RANGE, ct.getType());
+        for (int gid = -1; gid < 65536; gid++) {
+            int expected = -1;
+            int m = 0;
+            for (int[] r : ranges) {
+                if ((gid >= r[0]) && (gid <= r[1])) {
+                    expected = m + gid - r[0];
+                }
+                m += r[1] - r[0] + 1;
+            }
+            assertEquals("gid " + gid, expected, ct.getCoverageIndex(gid));
+        }
+    }
+
+    private static void checkRangeClass(int[][] ranges) {
+        List<MappingRange> entries = new ArrayList<MappingRange>();
+        for (int[] r : ranges) {
+            entries.add(new MappingRange(r[0], r[1], r[2]));
+        }
+        GlyphClassTable ct = GlyphClassTable.createClassTable(entries);
+        assertEquals(GlyphClassTable.GLYPH_CLASS_TYPE_RANGE, ct.getType());
+        for (int gid = -1; gid < 65536; gid++) {
+            int expected = -1;
+            for (int[] r : ranges) {
+                if ((gid >= r[0]) && (gid <= r[1])) {
+                    expected = r[2];
+                }
+            }
+            assertEquals("gid " + gid, expected, ct.getClassIndex(gid, 0));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.complexscripts.scripts;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.io.FileUtils;
+
+import org.apache.fop.complexscripts.fonts.GlyphSubstitutionTable;
+import org.apache.fop.complexscripts.fonts.GlyphTable;
+import org.apache.fop.complexscripts.fonts.ttx.TTXFile;
+import org.apache.fop.complexscripts.util.CharAssociation;
+import org.apache.fop.complexscripts.util.GlyphSequence;
+
+public class ScriptProcessorTestCase {
+
+    private static final String WORDS = "test/resources/complexscripts/arab/data/arab-001.txt";
+    private static final String FONT = "test/resources/complexscripts/arab/ttx/arab-001.ttx";
+
+    @Test
+    public void testMatchedLookupsAreShared() {
+        GlyphSubstitutionTable gsub = TTXFile.getFromCache(FONT).getGSUB();
+        Map<GlyphTable.LookupSpec, List<GlyphTable.LookupTable>> lookups = gsub.matchLookups("arab", "dflt", "*");
+        assertTrue(lookups.size() > 0);
+        assertSame(lookups, gsub.matchLookups("arab", "dflt", "*"));
+        assertTrue(gsub.hasFeature("arab", "dflt", "init"));
+        assertTrue(!gsub.hasFeature("arab", "dflt", "zzzz"));
+    }
+
+    @Test
+    public void testCachedSubstitutions() throws IOException {
+        TTXFile tf = TTXFile.getFromCache(FONT);
+        GlyphSubstitutionTable gsub = tf.getGSUB();
+        Map<GlyphTable.LookupSpec, List<GlyphTable.LookupTable>> lookups = gsub.matchLookups("arab", "dflt", "*");
+        ScriptProcessor sp = new ArabicScriptProcessor("arab");
+        List<String> words = FileUtils.readLines(new File(WORDS), StandardCharsets.UTF_8);
+        for (String word : words.subList(0, Math.min(words.size(), 200))) {
+            // uncached reference result
+            GlyphSequence expected = sp.substitute(tf.mapCharsToGlyphs(word), "arab", "dflt",
+                sp.assembleLookups(gsub, sp.getSubstitutionFeatures(), lookups), sp.getSubstitutionContextTester());
+            GlyphSequence first = sp.substitute(gsub, tf.mapCharsToGlyphs(word), "arab", "dflt", lookups);
+            GlyphSequence second = sp.substitute(gsub, tf.mapCharsToGlyphs(word), "arab", "dflt", lookups);
+            assertSameSequence(word, expected, first);
+            assertSameSequence(word, expected, second);
+            assertNotSame(first.getGlyphs(), second.getGlyphs());
+            assertNotSame(first.getAssociation(0), second.getAssociation(0));
+        }
+    }
+
+    private static void assertSameSequence(String word, GlyphSequence expected, GlyphSequence actual) {
+        assertArrayEquals(word, expected.getGlyphArray(true), actual.getGlyphArray(true));
+        assertEquals(word, expected.getAssociations().size(), actual.getAssociations().size());
+        for (int i = 0, n = expected.getGlyphCount(); i < n; i++) {
+            CharAssociation ea = expected.getAssociation(i);
+            CharAssociation aa = actual.getAssociation(i);
+            assertEquals(word, ea.getOffset(), aa.getOffset());
+            assertEquals(word, ea.getCount(), aa.getCount());
+        }
+    }
+}
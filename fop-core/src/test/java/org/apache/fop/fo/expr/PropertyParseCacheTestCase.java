@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fo.expr;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.fo.Constants;
+import org.apache.fop.fo.properties.FixedLength;
+import org.apache.fop.fo.properties.Property;
+
+public class PropertyParseCacheTestCase {
+
+    private static String createFO() {
+        StringBuilder sb = new StringBuilder("<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">"
+                + "<fo:layout-master-set><fo:simple-page-master master-name=\"p\">"
+                + "<fo:region-body/></fo:simple-page-master></fo:layout-master-set>"
+                + "<fo:page-sequence master-reference=\"p\"><fo:flow flow-name=\"xsl-region-body\">");
+        for (int i = 0; i < 20; i++) {
+            //the same expressions in different contexts
+            sb.append("<fo:block font-size=\"").append(8 + i % 4).append("pt\" start-indent=\"2em\"")
+                    .append(" border=\"0.5pt solid black\" space-before=\"1.2em\" color=\"#336699\"")
+                    .append(" padding=\"2pt + 1pt\" width=\"50%\" end-indent=\"from-parent(font-size)\">")
+                    .append("<fo:block font-size=\"80%\" start-indent=\"2em\" border=\"0.5pt solid black\">")
+                    .append("Text ").append(i).append("</fo:block></fo:block>");
+        }
+        return sb.append("</fo:flow></fo:page-sequence></fo:root>").toString();
+    }
+
+    private static String render(FopFactory fopFactory, String fo) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_FOP_AREA_TREE, fopFactory.newFOUserAgent(), out);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.transform(new StreamSource(new StringReader(fo)),
+                new SAXResult(fop.getDefaultHandler()));
+        return out.toString("UTF-8");
+    }
+
+    @Test
+    public void testCachedResultsMatch() throws Exception {
+        String fo = createFO();
+        FopFactory uncached = FopFactory.newInstance(new File(".").toURI());
+        uncached.getPropertyParseCache().setMaximumEntries(0);
+        String expected = render(uncached, fo);
+        assertEquals(0, uncached.getPropertyParseCache().getEntryCount());
+        assertEquals(0, uncached.getPropertyParseCache().getHitCount());
+
+        FopFactory cached = FopFactory.newInstance(new File(".").toURI());
+        PropertyParseCache cache = cached.getPropertyParseCache();
+        assertEquals(expected, render(cached, fo));
+        assertTrue(cache.getEntryCount() > 0);
+        assertTrue(cache.getHitCount() > 0);
+        long hits = cache.getHitCount();
+        assertEquals(expected, render(cached, fo));
+        assertTrue(cache.getHitCount() > hits);
+    }
+
+    @Test
+    public void testCache() {
+        PropertyParseCache cache = new PropertyParseCache();
+        Property prop = FixedLength.getInstance(10, "pt");
+        assertNull(cache.get(Constants.PR_FONT_SIZE, "10pt"));
+        cache.put(Constants.PR_FONT_SIZE, "10pt", prop);
+        assertSame(prop, cache.get(Constants.PR_FONT_SIZE, "10pt"));
+        assertNull(cache.get(Constants.PR_WIDTH, "10pt"));
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+
+        cache.setMaximumEntries(1);
+        cache.put(Constants.PR_WIDTH, "10pt", prop);
+        assertNull(cache.get(Constants.PR_WIDTH, "10pt"));
+        cache.clear();
+        assertEquals(0, cache.getEntryCount());
+        assertNull(cache.get(Constants.PR_FONT_SIZE, "10pt"));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fo.properties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PropertyCacheTestCase {
+
+    /** A value whose hash code collides with all values of the same group. */
+    private static final class Value {
+
+        private final int group;
+        private final int id;
+
+        private Value(int group, int id) {
+            this.group = group;
+            this.id = id;
+        }
+
+        public int hashCode() {
+            return group;
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Value)) {
+                return false;
+            }
+            Value other = (Value) obj;
+            return group == other.group && id == other.id;
+        }
+    }
+
+    @Test
+    public void testFetch() {
+        PropertyCache<Value> cache = new PropertyCache<Value>();
+        assertNull(cache.fetch(null));
+        Value first = new Value(1, 1);
+        assertSame(first, cache.fetch(first));
+        assertSame(first, cache.fetch(new Value(1, 1)));
+        assertEquals(1, cache.getSize());
+        assertEquals(0, cache.getCollisionCount());
+    }
+
+    @Test
+    public void testCollisionsKeepEntries() {
+        PropertyCache<Value> cache = new PropertyCache<Value>();
+        List<Value> values = new ArrayList<Value>();
+        for (int i = 0; i < 100; i++) {
+            values.add(cache.fetch(new Value(7, i)));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertSame(values.get(i), cache.fetch(new Value(7, i)));
+        }
+        assertEquals(100, cache.getSize());
+        assertTrue(cache.getCollisionCount() > 0);
+    }
+
+    @Test
+    public void testReclaimedEntriesRemoved() throws Exception {
+        PropertyCache<Value> cache = new PropertyCache<Value>();
+        List<Value> kept = new ArrayList<Value>();
+        for (int i = 0; i < 10000; i++) {
+            Value value = cache.fetch(new Value(i, i));
+            if (i % 100 == 0) {
+                kept.add(value);
+            }
+        }
+        for (int i = 0; i < 50 && cache.getSize() > kept.size(); i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(kept.size(), cache.getSize());
+        for (Value value : kept) {
+            assertSame(value, cache.fetch(new Value(value.group, value.id)));
+        }
+        Value reclaimed = new Value(1, 1);
+        assertSame(reclaimed, cache.fetch(reclaimed));
+    }
+
+    @Test
+    public void testConcurrentFetch() throws Exception {
+        final PropertyCache<Value> cache = new PropertyCache<Value>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Value[]>> results = new ArrayList<Future<Value[]>>();
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(new Callable<Value[]>() {
+                    public Value[] call() {
+                        Value[] values = new Value[1000];
+                        for (int i = 0; i < values.length; i++) {
+                            values[i] = cache.fetch(new Value(i % 37, i));
+                        }
+                        return values;
+                    }
+                }));
+            }
+            Value[] first = results.get(0).get();
+            for (Future<Value[]> result : results) {
+                Value[] values = result.get();
+                for (int i = 0; i < values.length; i++) {
+                    assertSame(first[i], values[i]);
+                }
+            }
+            assertNotSame(first[0], first[37]);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
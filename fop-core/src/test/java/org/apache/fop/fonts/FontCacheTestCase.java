@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InterruptedIOException;
+import java.io.ObjectOutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.apps.io.ResourceResolverFactory;
+
+public class FontCacheTestCase {
+
+    private static final String[] FONTS = {"DejaVuLGCSerif.ttf", "DroidSansMono.ttf", "glb12.ttf",
+            "Aegean600.ttf", "AndroidEmoji.ttf"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private InternalResourceResolver resolver;
+
+    private List<URL> fontURLs;
+
+    @Before
+    public void setUp() throws Exception {
+        resolver = ResourceResolverFactory.createDefaultInternalResourceResolver(new File(".").toURI());
+        fontURLs = new ArrayList<URL>();
+        // every font twice so there are enough fonts to go parallel
+        for (int i = 0; i < 2; i++) {
+            for (String font : FONTS) {
+                fontURLs.add(new File("test/resources/fonts/ttf/" + font).toURI().toURL());
+            }
+        }
+    }
+
+    private List<EmbedFontInfo> detect(FontCache cache, int threads) throws Exception {
+        FontCacheManager cacheManager = FontCacheManagerFactory.createDisabled();
+        FontManager manager = new FontManager(resolver, FontDetectorFactory.createDisabled(), cacheManager) {
+            public FontCache getFontCache() {
+                return cache;
+            }
+        };
+        FontAdder adder = new FontAdder(manager, resolver, null);
+        adder.setThreadCount(threads);
+        List<EmbedFontInfo> fontInfos = new ArrayList<EmbedFontInfo>();
+        adder.add(fontURLs, fontInfos);
+        return fontInfos;
+    }
+
+    @Test
+    public void testParallelDetectionKeepsOrder() throws Exception {
+        List<EmbedFontInfo> sequential = detect(null, 1);
+        List<EmbedFontInfo> parallel = detect(new FontCache(), 4);
+        assertEquals(fontURLs.size(), sequential.size());
+        assertSameFontInfos(sequential, parallel);
+    }
+
+    @Test
+    public void testInterruptedDetection() throws Exception {
+        Thread.currentThread().interrupt();
+        try {
+            detect(new FontCache(), 4);
+            fail("Expected InterruptedIOException");
+        } catch (InterruptedIOException e) {
+            // the interrupt is propagated
+            assertTrue(Thread.interrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        FontCache cache = new FontCache();
+        List<EmbedFontInfo> detected = detect(cache, 4);
+        assertTrue(cache.hasChanged());
+        File cacheFile = new File(folder.getRoot(), "fonts.cache");
+        cache.saveTo(cacheFile);
+        assertFalse(cache.hasChanged());
+
+        FontCache loaded = FontCache.loadFrom(cacheFile);
+        assertNotNull(loaded);
+        assertFalse(loaded.hasChanged());
+        assertSameFontInfos(detected, detect(loaded, 4));
+        assertFalse(loaded.hasChanged());
+
+        // untouched entries are written back as read
+        FontCache partial = FontCache.loadFrom(cacheFile);
+        partial.removeFont(fontURLs.get(0).toURI().toASCIIString());
+        File partialFile = new File(folder.getRoot(), "partial.cache");
+        partial.saveTo(partialFile);
+        FontCache reloaded = FontCache.loadFrom(partialFile);
+        assertFalse(reloaded.containsFont(fontURLs.get(0).toURI().toASCIIString()));
+        assertSameFontInfos(detected, detect(reloaded, 1));
+    }
+
+    @Test
+    public void testLoadLegacyCache() throws Exception {
+        FontCache cache = new FontCache();
+        List<EmbedFontInfo> detected = detect(cache, 1);
+        File cacheFile = new File(folder.getRoot(), "legacy.cache");
+        ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(cacheFile));
+        try {
+            out.writeObject(cache);
+        } finally {
+            out.close();
+        }
+        FontCache loaded = FontCache.loadFrom(cacheFile);
+        assertNotNull(loaded);
+        assertTrue(loaded.hasChanged());
+        assertSameFontInfos(detected, detect(loaded, 1));
+    }
+
+    @Test
+    public void testUnsupportedVersion() throws Exception {
+        File cacheFile = new File(folder.getRoot(), "future.cache");
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(cacheFile));
+        try {
+            out.writeInt(0x464F5043);
+            out.writeInt(FontCache.FORMAT_VERSION + 1);
+        } finally {
+            out.close();
+        }
+        assertNull(FontCache.loadFrom(cacheFile));
+    }
+
+    private static void assertSameFontInfos(List<EmbedFontInfo> expected, List<EmbedFontInfo> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            EmbedFontInfo e = expected.get(i);
+            EmbedFontInfo a = actual.get(i);
+            assertEquals(e.getEmbedURI(), a.getEmbedURI());
+            assertEquals(e.getPostScriptName(), a.getPostScriptName());
+            assertEquals(e.getFontTriplets(), a.getFontTriplets());
+            assertEquals(e.getEncodingMode(), a.getEncodingMode());
+            assertEquals(e.getEmbeddingMode(), a.getEmbeddingMode());
+            assertEquals(e.getKerning(), a.getKerning());
+        }
+    }
+}
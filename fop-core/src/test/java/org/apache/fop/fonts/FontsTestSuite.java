@@ -31,7 +31,8 @@ import org.junit.runners.Suite.SuiteClasses;
         FontManagerConfiguratorTestCase.class,
         EmbedFontInfoTestCase.class,
         FontEventProcessingTestCase.class,
-        FontManagerConfiguratorTestCase.class
+        FontManagerConfiguratorTestCase.class,
+        FontCacheTestCase.class
 })
 public class FontsTestSuite {
 
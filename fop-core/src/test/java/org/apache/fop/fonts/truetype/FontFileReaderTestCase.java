@@ -21,17 +21,31 @@ package org.apache.fop.fonts.truetype;
 
 import java.io.ByteArrayInputStream;
 import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import org.apache.xmlgraphics.io.Resource;
+import org.apache.xmlgraphics.io.ResourceResolver;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.apps.io.ResourceResolverFactory;
+
 /**
  * A test class for org.apache.fop.truetype.FontFileReader
  */
@@ -301,4 +315,50 @@ public class FontFileReaderTestCase {
         byte[] retrievedBytes = fontReader.getBytes(0, 256);
         assertTrue(Arrays.equals(byteArray, retrievedBytes));
     }
+
+    @Test
+    public void testMappedFontFile() throws IOException {
+        File fontFile = new File("test/resources/fonts/ttf/DejaVuLGCSerif.ttf");
+        InternalResourceResolver resolver = ResourceResolverFactory.createDefaultInternalResourceResolver(
+                new File(".").toURI());
+        ByteBuffer mapped = resolver.getMappedResource(fontFile.toURI());
+        assertNotNull(mapped);
+        assertTrue(mapped.isReadOnly());
+
+        byte[] expected;
+        try (InputStream fontStream = new FileInputStream(fontFile)) {
+            expected = new FontFileReader(fontStream).getAllBytes();
+        }
+        FontFileReader first = FontFileReader.create(resolver, fontFile.toURI());
+        FontFileReader second = FontFileReader.create(resolver, fontFile.toURI());
+        assertEquals(expected.length, first.getFileSize());
+        assertArrayEquals(expected, first.getBytes(0, first.getFileSize()));
+        first.seekSet(12);
+        assertEquals(new FontFileReader(new ByteArrayInputStream(expected, 12, 4)).readTTFULong(),
+                first.readTTFULong());
+
+        //changes are private to the reader
+        first.writeTTFUShort(0, 0xabcd);
+        assertEquals(0xabcd, first.readTTFUShort(0));
+        assertEquals(((expected[0] & 0xff) << 8) | (expected[1] & 0xff), second.readTTFUShort(0));
+        assertArrayEquals(expected, second.getAllBytes());
+    }
+
+    @Test
+    public void testCustomResolverNotMapped() throws IOException {
+        final File fontFile = new File("test/resources/fonts/ttf/DejaVuLGCSerif.ttf");
+        ResourceResolver custom = new ResourceResolver() {
+            public Resource getResource(URI uri) throws IOException {
+                return new Resource(new FileInputStream(fontFile));
+            }
+
+            public OutputStream getOutputStream(URI uri) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        InternalResourceResolver resolver = ResourceResolverFactory.createInternalResourceResolver(
+                new File(".").toURI(), custom);
+        assertNull(resolver.getMappedResource(fontFile.toURI()));
+        assertEquals(fontFile.length(), FontFileReader.create(resolver, fontFile.toURI()).getFileSize());
+    }
 }
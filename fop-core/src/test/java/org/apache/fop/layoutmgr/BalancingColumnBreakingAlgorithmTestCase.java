@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.layoutmgr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.fop.fo.Constants;
+import org.apache.fop.traits.MinOptMax;
+
+public class BalancingColumnBreakingAlgorithmTestCase {
+
+    private static BalancingColumnBreakingAlgorithm createAlgorithm(KnuthSequence par, int columnCount) {
+        BalancingColumnBreakingAlgorithm alg = new BalancingColumnBreakingAlgorithm(null, null, null,
+                Constants.EN_START, Constants.EN_START, MinOptMax.ZERO, false, columnCount);
+        alg.par = par;
+        return alg;
+    }
+
+    private static KnuthBox box(int width) {
+        return new KnuthBox(width, null, false);
+    }
+
+    private static KnuthGlue glue(int width) {
+        return new KnuthGlue(width, 0, 0, null, false);
+    }
+
+    private static KnuthPenalty penalty(int width, int penalty) {
+        return new KnuthPenalty(width, penalty, false, null, false);
+    }
+
+    /**
+     * Creates a block list of boxes separated by glues and penalties. The penalties have
+     * widths, so the lengths at the breaks aren't monotonic, and some of them are not legal
+     * breaks.
+     */
+    private static KnuthSequence createSequence(Random random, int boxCount) {
+        KnuthSequence par = new BlockKnuthSequence();
+        for (int i = 0; i < boxCount; i++) {
+            par.add(box(random.nextInt(20000)));
+            switch (random.nextInt(4)) {
+            case 0:
+                par.add(glue(random.nextInt(5000)));
+                break;
+            case 1:
+                par.add(penalty(random.nextInt(30000), 0));
+                break;
+            case 2:
+                par.add(penalty(0, KnuthPenalty.INFINITE));
+                par.add(glue(random.nextInt(5000)));
+                break;
+            default:
+                par.add(penalty(random.nextInt(30000), KnuthPenalty.INFINITE));
+                break;
+            }
+        }
+        par.add(penalty(0, -KnuthPenalty.INFINITE));
+        return par;
+    }
+
+    private static int findBreakExceedingLinearly(BalancingColumnBreakingAlgorithm alg, int fromBreak,
+            int length) {
+        for (int i = fromBreak; i < alg.getBreakCount(); i++) {
+            if (alg.getBreakLength(i) > length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Tests that the search finds the first break exceeding a length even if an earlier break
+     * is longer than a later one because of the width of its penalty.
+     */
+    @Test
+    public void testFindBreakExceedingWithPenaltyWidths() {
+        KnuthSequence par = new BlockKnuthSequence();
+        par.add(box(100));
+        par.add(penalty(500, 0));
+        par.add(box(100));
+        par.add(penalty(0, 0));
+        par.add(box(100));
+        par.add(penalty(0, -KnuthPenalty.INFINITE));
+        BalancingColumnBreakingAlgorithm alg = createAlgorithm(par, 2);
+        alg.calculateLengths(0);
+        assertEquals(3, alg.getBreakCount());
+        assertEquals(600, alg.getBreakLength(0));
+        assertEquals(200, alg.getBreakLength(1));
+        assertEquals(300, alg.getBreakLength(2));
+
+        assertEquals(0, alg.findBreakExceeding(0, 250));
+        assertEquals(2, alg.findBreakExceeding(1, 250));
+        assertEquals(1, alg.findBreakExceeding(1, 100));
+        assertEquals(-1, alg.findBreakExceeding(0, 600));
+        assertEquals(-1, alg.findBreakExceeding(2, 300));
+        assertEquals(-1, alg.findBreakExceeding(3, 0));
+    }
+
+    /** Tests the search against a scan of the breaks, from every break and for many lengths. */
+    @Test
+    public void testFindBreakExceedingMatchesLinearScan() {
+        Random random = new Random(1234);
+        for (int run = 0; run < 20; run++) {
+            KnuthSequence par = createSequence(random, 1 + random.nextInt(100));
+            BalancingColumnBreakingAlgorithm alg = createAlgorithm(par, 3);
+            alg.calculateLengths(0);
+            int breakCount = alg.getBreakCount();
+            for (int from = 0; from <= breakCount; from++) {
+                for (int i = 0; i < breakCount; i++) {
+                    for (int delta = -1; delta <= 1; delta++) {
+                        int length = alg.getBreakLength(i) + delta;
+                        assertEquals("from " + from + ", length " + length,
+                                findBreakExceedingLinearly(alg, from, length),
+                                alg.findBreakExceeding(from, length));
+                    }
+                }
+                assertEquals(findBreakExceedingLinearly(alg, from, -1), alg.findBreakExceeding(from, -1));
+            }
+        }
+    }
+
+    /**
+     * Tests that the initial breaks are the same as those of the scan over the elements that
+     * was used before the breaks were searched in the cumulated lengths.
+     */
+    @Test
+    public void testInitialBreaksMatchLinearScan() {
+        Random random = new Random(5678);
+        for (int run = 0; run < 50; run++) {
+            KnuthSequence par = createSequence(random, 1 + random.nextInt(200));
+            int columnCount = 2 + random.nextInt(4);
+            List<Integer> startIndexes = new ArrayList<Integer>();
+            startIndexes.add(0);
+            for (int i = 1; i < par.size(); i++) {
+                if (par.get(i) instanceof KnuthBox && random.nextInt(20) == 0) {
+                    startIndexes.add(i);
+                }
+            }
+            for (int startIndex : startIndexes) {
+                BalancingColumnBreakingAlgorithm alg = createAlgorithm(par, columnCount);
+                alg.calculateLengths(startIndex);
+                int totalLength = ElementListUtils.calcContentLength(par, startIndex, par.size() - 1);
+                for (int divisor = columnCount; divisor <= columnCount + 2; divisor++) {
+                    int averageColLength = totalLength / divisor;
+                    List<String> expected = getInitialBreaksLinearly(par, columnCount, startIndex,
+                            averageColLength);
+                    List<String> actual;
+                    try {
+                        actual = new ArrayList<String>();
+                        for (BalancingColumnBreakingAlgorithm.ColumnContent column
+                                : alg.getInitialBreaks(startIndex, averageColLength)) {
+                            actual.add(column.toString());
+                        }
+                    } catch (AssertionError e) {
+                        // too few legal breaks for the columns
+                        actual = null;
+                    }
+                    assertEquals("start " + startIndex + ", average " + averageColLength, expected, actual);
+                }
+            }
+        }
+    }
+
+    /** The former implementation of the initial breaks, which scans the elements. */
+    private static List<String> getInitialBreaksLinearly(KnuthSequence par, int columnCount,
+            int startIndex, int averageColLength) {
+        List<String> initialColumns = new ArrayList<String>();
+        int colStartIndex = startIndex;
+        int totalLength = 0;
+        int idealBreakLength = averageColLength;
+        int previousBreakLength = 0;
+        int prevBreakIndex = startIndex;
+        boolean prevIsBox = false;
+        int colNumber = 1;
+        for (int i = startIndex; i < par.size(); i++) {
+            KnuthElement element = (KnuthElement) par.get(i);
+            if (element instanceof KnuthPenalty && element.getPenalty() < KnuthPenalty.INFINITE
+                    || prevIsBox && element instanceof KnuthGlue) {
+                int breakLength = totalLength
+                        + (element instanceof KnuthPenalty ? element.getWidth() : 0);
+                if (breakLength > idealBreakLength && colNumber < columnCount) {
+                    int breakIndex;
+                    if (breakLength - idealBreakLength > idealBreakLength - previousBreakLength) {
+                        breakIndex = prevBreakIndex;
+                        totalLength = previousBreakLength;
+                    } else {
+                        breakIndex = element instanceof KnuthPenalty ? i : i - 1;
+                        totalLength = breakLength;
+                    }
+                    initialColumns.add(colStartIndex + "-" + breakIndex);
+                    i = breakIndex;
+                    while (i < par.size() && !(par.get(i) instanceof KnuthBox)) {
+                        i++;
+                    }
+                    colStartIndex = i--;
+                    colNumber++;
+                    idealBreakLength += averageColLength;
+                } else {
+                    previousBreakLength = breakLength;
+                    prevBreakIndex = element instanceof KnuthPenalty ? i : i - 1;
+                    prevIsBox = false;
+                }
+            } else {
+                totalLength += element instanceof KnuthPenalty ? 0 : element.getWidth();
+                prevIsBox = element instanceof KnuthBox;
+            }
+        }
+        if (initialColumns.size() != columnCount - 1) {
+            return null;
+        }
+        initialColumns.add(colStartIndex + "-" + (par.size() - 1));
+        return initialColumns;
+    }
+}
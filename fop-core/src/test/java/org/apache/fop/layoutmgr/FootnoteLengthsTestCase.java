@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.layoutmgr;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FootnoteLengthsTestCase {
+
+    /**
+     * Tests that the lengths are cumulated, also beyond the initial capacity, and that
+     * removed footnotes are forgotten.
+     */
+    @Test
+    public void lengthsAreCumulated() {
+        FootnoteLengths lengths = new FootnoteLengths();
+        assertEquals(0, lengths.getLast());
+        for (int i = 0; i < 100; i++) {
+            lengths.add(10);
+        }
+        assertEquals(100, lengths.size());
+        assertEquals(10, lengths.get(0));
+        assertEquals(1000, lengths.getLast());
+        lengths.removeLast();
+        lengths.add(5);
+        assertEquals(995, lengths.get(99));
+    }
+
+    /**
+     * Tests that the binary search returns the same footnote as a scan from the start index.
+     */
+    @Test
+    public void lastIndexWithinMatchesLinearScan() {
+        FootnoteLengths lengths = new FootnoteLengths();
+        int[] notes = {10, 0, 25, 5, 0, 0, 40, 15};
+        for (int note : notes) {
+            lengths.add(note);
+        }
+        for (int from = 0; from < notes.length; from++) {
+            for (int max = 0; max <= lengths.getLast() + 1; max++) {
+                int expected = from;
+                while (expected < lengths.size() && lengths.get(expected) <= max) {
+                    expected++;
+                }
+                assertEquals(expected - 1, lengths.lastIndexWithin(from, max));
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.fop.pdf;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
@@ -564,6 +565,36 @@ public class PDFEncryptionJCETestCase {
         assertArrayEquals(data, decryptedData);
     }
 
+    @Test
+    public void testCipherReuse() throws IOException {
+        PDFEncryptionParams params = new PDFEncryptionParams();
+        params.setUserPassword("TestUserPassword");
+        params.setOwnerPassword("TestOwnerPassword");
+        params.setEncryptionLengthInBits(128);
+        byte[] data = "Test data to encrypt.".getBytes("UTF-8");
+        PDFEncryptionJCE reused = createEncryptionObject(params);
+        PDFStream stream = new PDFStream();
+        stream.setDocument(reused.getDocumentSafely());
+        stream.setObjectNumber(3);
+        ByteArrayOutputStream streamData = new ByteArrayOutputStream();
+        reused.applyFilter(stream);
+        OutputStream filtered = stream.getFilterList().getFilters().get(0).applyFilter(streamData);
+        filtered.write(data, 0, 10);
+        for (int i = 1; i <= 4; i++) {
+            //encrypted while the stream is still open
+            PDFText text = new PDFText();
+            text.setObjectNumber(i % 2 + 1);
+            PDFText expected = new PDFText();
+            expected.setObjectNumber(i % 2 + 1);
+            assertArrayEquals(createEncryptionObject(params).encrypt(data, expected), reused.encrypt(data, text));
+        }
+        filtered.write(data, 10, data.length - 10);
+        filtered.close();
+        PDFText third = new PDFText();
+        third.setObjectNumber(3);
+        assertArrayEquals(createEncryptionObject(params).encrypt(data, third), streamData.toByteArray());
+    }
+
     private byte[] parseHexStringEntries(String dictionary, String entry) throws UnsupportedEncodingException {
         String token = "/" + entry + " <";
         int start = dictionary.indexOf(token) + token.length();
@@ -21,6 +21,15 @@ package org.apache.fop.pdf;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Date;
 import java.util.StringTokenizer;
 
 import javax.xml.transform.Result;
@@ -30,6 +39,14 @@ import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.sax.SAXResult;
 import javax.xml.transform.stream.StreamSource;
 
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.cms.CMSProcessableByteArray;
+import org.bouncycastle.cms.CMSSignedData;
+import org.bouncycastle.cms.SignerInformation;
+import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoVerifierBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -37,6 +54,8 @@ import org.apache.fop.apps.FOUserAgent;
 import org.apache.fop.apps.Fop;
 import org.apache.fop.apps.FopFactory;
 import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.apps.io.ResourceResolverFactory;
 import org.apache.fop.fo.pagination.LayoutMasterSetTestCase;
 
 public class PDFSigningTestCase {
@@ -70,8 +89,115 @@ public class PDFSigningTestCase {
                 + "  /Rect [0 0 0 0]"));
     }
 
+    @Test
+    public void testSignatureVerifies() throws Exception {
+        File keystore = createKeystore("secret");
+        try {
+            FopFactory fopFactory = getFopFactory(keystore.toURI().toString(), "secret");
+            for (int i = 0; i < 2; i++) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                foToOutput(fopFactory, out, MimeConstants.MIME_PDF);
+                verifySignature(out.toByteArray());
+            }
+            Assert.assertEquals(1, fopFactory.getPDFSignCredentialsCache().getSize());
+        } finally {
+            keystore.delete();
+        }
+    }
+
+    @Test
+    public void testReplacedKeystore() throws Exception {
+        File keystore = createKeystore("secret");
+        try {
+            PDFSignCredentialsCache cache = new PDFSignCredentialsCache();
+            InternalResourceResolver resolver = ResourceResolverFactory.createDefaultInternalResourceResolver(
+                    new File(".").toURI());
+            PDFSignParams params = new PDFSignParams(keystore.toURI().toString(), null, null, null, "secret");
+            PDFSignCredentialsCache.Credentials first = cache.get(resolver, params);
+            Assert.assertSame(first, cache.get(resolver, params));
+
+            createKeystore("other", keystore);
+            Assert.assertTrue(keystore.setLastModified(keystore.lastModified() - 60000));
+            params = new PDFSignParams(keystore.toURI().toString(), null, null, null, "other");
+            PDFSignCredentialsCache.Credentials second = cache.get(resolver, params);
+            Assert.assertNotSame(first, second);
+            Assert.assertFalse(first.getCertificate().equals(second.getCertificate()));
+            // the entry of the replaced key store is replaced, not added
+            Assert.assertEquals(1, cache.getSize());
+            Assert.assertSame(second, cache.get(resolver, params));
+        } finally {
+            keystore.delete();
+        }
+    }
+
+    @Test
+    public void testSingleByteWrites() throws Exception {
+        byte[] data = "%PDF-1.4\n1 0 obj\n".getBytes("ISO-8859-1");
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        PDFSignature.SigningOutputStream out = new PDFSignature.SigningOutputStream(target);
+        out.write(data, 0, 4);
+        for (int i = 4; i < data.length; i++) {
+            out.write(data[i]);
+        }
+        out.close();
+        Assert.assertArrayEquals(data, target.toByteArray());
+    }
+
+    private void verifySignature(byte[] pdf) throws Exception {
+        String pdfString = new String(pdf, "ISO-8859-1");
+        StringTokenizer byteRange = new StringTokenizer(pdfString.split("/ByteRange \\[")[1]);
+        Assert.assertEquals(0, Integer.parseInt(byteRange.nextToken()));
+        int startOfContents = Integer.parseInt(byteRange.nextToken());
+        int endOfContents = Integer.parseInt(byteRange.nextToken());
+        int sizeOfEnd = Integer.parseInt(byteRange.nextToken().replace("]", ""));
+        Assert.assertEquals(pdf.length, endOfContents + sizeOfEnd);
+        Assert.assertTrue(pdfString.indexOf("/Contents <") < startOfContents);
+
+        ByteArrayOutputStream signedContent = new ByteArrayOutputStream();
+        signedContent.write(pdf, 0, startOfContents);
+        signedContent.write(pdf, endOfContents, sizeOfEnd);
+        String hex = pdfString.substring(startOfContents + 1, endOfContents - 1);
+        byte[] signature = new byte[hex.length() / 2];
+        for (int i = 0; i < signature.length; i++) {
+            signature[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        CMSSignedData signedData = new CMSSignedData(
+                new CMSProcessableByteArray(signedContent.toByteArray()), signature);
+        SignerInformation signer = signedData.getSignerInfos().getSigners().iterator().next();
+        X509Certificate cert = new JcaX509CertificateConverter().getCertificate(
+                signedData.getCertificates().getMatches(null).iterator().next());
+        Assert.assertTrue(signer.verify(new JcaSimpleSignerInfoVerifierBuilder().build(cert)));
+    }
+
+    private File createKeystore(String password) throws Exception {
+        return createKeystore(password, File.createTempFile("fop", ".p12"));
+    }
+
+    private File createKeystore(String password, File file) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        X500Name name = new X500Name("CN=FOP Test");
+        long now = System.currentTimeMillis();
+        X509Certificate cert = new JcaX509CertificateConverter().getCertificate(
+                new JcaX509v3CertificateBuilder(name, BigInteger.ONE, new Date(now - 3600000L),
+                        new Date(now + 3600000L), name, keyPair.getPublic())
+                        .build(new JcaContentSignerBuilder("SHA256WithRSA").build(keyPair.getPrivate())));
+        KeyStore keystore = KeyStore.getInstance("PKCS12");
+        keystore.load(null, null);
+        keystore.setKeyEntry("fop", keyPair.getPrivate(), password.toCharArray(), new Certificate[] {cert});
+        try (OutputStream out = new FileOutputStream(file)) {
+            keystore.store(out, password.toCharArray());
+        }
+        return file;
+    }
+
     private void foToOutput(ByteArrayOutputStream out, String mimeFopIf) throws Exception {
-        FopFactory fopFactory = getFopFactory();
+        foToOutput(getFopFactory(), out, mimeFopIf);
+    }
+
+    private void foToOutput(FopFactory fopFactory, ByteArrayOutputStream out, String mimeFopIf)
+            throws Exception {
         FOUserAgent userAgent = fopFactory.newFOUserAgent();
         Fop fop = fopFactory.newFop(mimeFopIf, userAgent, out);
         Transformer transformer = TransformerFactory.newInstance().newTransformer();
@@ -81,12 +207,16 @@ public class PDFSigningTestCase {
     }
 
     private FopFactory getFopFactory() throws Exception {
-        String pkcs = PDFSigningTestCase.class.getResource("keystore.pkcs12").toString();
+        return getFopFactory(PDFSigningTestCase.class.getResource("keystore.pkcs12").toString(), null);
+    }
+
+    private FopFactory getFopFactory(String pkcs, String password) throws Exception {
         String fopxconf = "<fop version=\"1.0\">\n"
                 + "  <renderers>\n"
                 + "    <renderer mime=\"application/pdf\">\n"
                 + "    <sign-params>\n"
                 + "      <keystore>" + pkcs + "</keystore>\n"
+                + (password != null ? "      <password>" + password + "</password>\n" : "")
                 + "    </sign-params>\n"
                 + "    </renderer>\n"
                 + "  </renderers>\n"
@@ -78,11 +78,57 @@ public class PDFStructureTreeTestCase {
         Assert.assertEquals(pdf.split("/S /").length, 11);
     }
 
+    private static String createPageSequences(int count, int blocks) {
+        StringBuilder fo = new StringBuilder("<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">\n"
+                + "  <fo:layout-master-set>\n"
+                + "    <fo:simple-page-master page-width=\"8.5in\" page-height=\"11in\" master-name=\"page\">\n"
+                + "      <fo:region-body/>\n"
+                + "    </fo:simple-page-master>\n"
+                + "  </fo:layout-master-set>\n");
+        for (int i = 0; i < count; i++) {
+            fo.append("  <fo:page-sequence master-reference=\"page\">\n"
+                    + "    <fo:flow flow-name=\"xsl-region-body\">\n");
+            for (int j = 0; j < blocks; j++) {
+                fo.append("      <fo:block>sequence ").append(i).append(" block ").append(j).append("</fo:block>\n");
+            }
+            fo.append("    </fo:flow>\n  </fo:page-sequence>\n");
+        }
+        return fo.append("</fo:root>").toString();
+    }
+
+    @Test
+    public void testStructureElementsWrittenPerPageSequence() throws Exception {
+        String pdf = foToOutput(createPageSequences(3, 2), "1.4").toString("ISO-8859-1");
+        Assert.assertEquals(4, pdf.split("/S /Part").length);
+        Assert.assertEquals(7, pdf.split("/S /P\\b").length);
+        // the first page-sequence is written before the pages of the last one
+        Assert.assertTrue(pdf.indexOf("/S /Part") < pdf.lastIndexOf("/Type /Page\n"));
+        Assert.assertTrue(pdf.lastIndexOf("/S /Part") > pdf.lastIndexOf("/Type /Page\n"));
+    }
+
+    @Test
+    public void testCompressedStructureElementsWrittenPerPageSequence() throws Exception {
+        String pdf = foToOutput(createPageSequences(3, 150), "1.5").toString("ISO-8859-1");
+        int firstObjectStream = pdf.indexOf("/Type /ObjStm");
+        Assert.assertTrue(firstObjectStream > 0);
+        // a full object stream of the first page-sequence is written before the pages of the last one
+        Assert.assertTrue(firstObjectStream < pdf.lastIndexOf("/Type /Page\n"));
+        Assert.assertTrue(pdf.lastIndexOf("/Type /ObjStm") > pdf.lastIndexOf("/Type /Page\n"));
+    }
+
     private ByteArrayOutputStream foToOutput(String fo)
             throws IOException, SAXException, TransformerException {
+        return foToOutput(fo, null);
+    }
+
+    private ByteArrayOutputStream foToOutput(String fo, String version)
+            throws IOException, SAXException, TransformerException {
         FopFactory fopFactory = FopFactory.newInstance(new File(".").toURI());
         FOUserAgent userAgent = fopFactory.newFOUserAgent();
         userAgent.setAccessibility(true);
+        if (version != null) {
+            userAgent.getRendererOptions().put("version", version);
+        }
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         Fop fop = fopFactory.newFop(MimeConstants.MIME_PDF, userAgent, bos);
         Transformer transformer = TransformerFactory.newInstance().newTransformer();
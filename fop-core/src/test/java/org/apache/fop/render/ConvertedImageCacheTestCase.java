@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+package org.apache.fop.render;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.xmlgraphics.image.loader.ImageInfo;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.FopFactory;
+
+public class ConvertedImageCacheTestCase {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testGetAndPut() {
+        ConvertedImageCache cache = new ConvertedImageCache();
+        Object value = new Object();
+        assertNull(cache.get("a"));
+        cache.put("a", value, 10);
+        assertSame(value, cache.get("a"));
+        cache.put("a", value, 20);
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(20, cache.getSize());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testEviction() {
+        ConvertedImageCache cache = new ConvertedImageCache();
+        cache.setMaximumSize(100);
+        cache.put("a", "a", 40);
+        cache.put("b", "b", 40);
+        cache.get("a");
+        cache.put("c", "c", 40);
+        //"b" is the least recently used entry
+        assertNull(cache.get("b"));
+        assertSame("a", cache.get("a"));
+        assertSame("c", cache.get("c"));
+        assertEquals(80, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+
+        cache.put("d", "d", 101);
+        assertNull(cache.get("d"));
+
+        cache.setMaximumSize(0);
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSize());
+        cache.put("e", "e", 1);
+        assertNull(cache.get("e"));
+    }
+
+    @Test
+    public void testImageSource() throws Exception {
+        File dir1 = folder.newFolder("a");
+        File dir2 = folder.newFolder("b");
+        File image = new File(dir1, "logo.png");
+        assertTrue(image.createNewFile());
+        assertTrue(new File(dir2, "logo.png").createNewFile());
+        ImageInfo info = new ImageInfo("logo.png", "image/png");
+        FOUserAgent userAgent1 = FopFactory.newInstance(dir1.toURI()).newFOUserAgent();
+        FOUserAgent userAgent2 = FopFactory.newInstance(dir2.toURI()).newFOUserAgent();
+
+        Object source = ConvertedImageCache.getImageSource(info, userAgent1);
+        assertEquals(source, ConvertedImageCache.getImageSource(info, userAgent1));
+        //same relative URI, different base URI
+        assertFalse(source.equals(ConvertedImageCache.getImageSource(info, userAgent2)));
+        //replaced file
+        assertTrue(image.setLastModified(image.lastModified() - 60000));
+        assertFalse(source.equals(ConvertedImageCache.getImageSource(info, userAgent1)));
+
+        assertNull(ConvertedImageCache.getImageSource(new ImageInfo(null, "image/png"), userAgent1));
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.StringReader;
+
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import org.apache.xmlgraphics.image.loader.ImageFlavor;
+import org.apache.xmlgraphics.image.loader.ImageInfo;
+import org.apache.xmlgraphics.image.loader.ImageManager;
+import org.apache.xmlgraphics.image.loader.impl.ImageRawJPEG;
+import org.apache.xmlgraphics.image.loader.impl.ImageRawPNG;
+import org.apache.xmlgraphics.image.loader.impl.ImageRawStream;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.render.pdf.ImageRawJPEGAdapter;
+
+public class ImageFileSourceTestCase {
+
+    private static final String JPEG = "test/resources/images/bgimg72dpi.jpg";
+    private static final String CMYK_JPEG = "test/resources/images/cmyk.jpg";
+    private static final String PNG = "test/resources/images/fop-logo-color-24bit.png";
+
+    private FopFactory fopFactory;
+    private FOUserAgent userAgent;
+
+    @Before
+    public void setUp() {
+        fopFactory = FopFactory.newInstance(new File(".").toURI());
+        userAgent = fopFactory.newFOUserAgent();
+    }
+
+    private ImageRawStream load(String uri, ImageFlavor flavor) throws Exception {
+        ImageManager manager = fopFactory.getImageManager();
+        ImageInfo info = manager.getImageInfo(uri, userAgent.getImageSessionContext());
+        return (ImageRawStream) manager.getImage(info, flavor, userAgent.getImageSessionContext());
+    }
+
+    private static byte[] toByteArray(ImageRawStream image) throws Exception {
+        InputStream in = image.createInputStream();
+        try {
+            return IOUtils.toByteArray(in);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    @Test
+    public void testRawJPEG() throws Exception {
+        ImageRawJPEG jpeg = (ImageRawJPEG) load(JPEG, ImageFlavor.RAW_JPEG);
+        ImageFileSource source = ImageFileSource.forRawJPEG(jpeg, userAgent, false);
+        assertNotNull(source);
+        byte[] expected = toByteArray((ImageRawJPEG) load(JPEG, ImageFlavor.RAW_JPEG));
+        assertEquals(expected.length, source.getLength());
+        assertArrayEquals(expected, source.toByteArray());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        source.writeTo(out);
+        assertArrayEquals(expected, out.toByteArray());
+    }
+
+    @Test
+    public void testRawJPEGWithoutICCProfile() throws Exception {
+        ImageRawJPEG jpeg = (ImageRawJPEG) load(CMYK_JPEG, ImageFlavor.RAW_JPEG);
+        ImageFileSource source = ImageFileSource.forRawJPEG(jpeg, userAgent, true);
+        assertNotNull(source);
+
+        //The PDF adapter's stream based output is the reference
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new ImageRawJPEGAdapter((ImageRawJPEG) load(CMYK_JPEG, ImageFlavor.RAW_JPEG), "expected")
+                .outputContents(expected);
+        ImageRawJPEGAdapter adapter = new ImageRawJPEGAdapter(jpeg, "actual");
+        adapter.setFileSource(source);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        adapter.outputContents(actual);
+        assertEquals(expected.size(), adapter.getContentLength());
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    public void testRawPNG() throws Exception {
+        ImageRawPNG png = (ImageRawPNG) load(PNG, ImageFlavor.RAW_PNG);
+        ImageFileSource source = ImageFileSource.forRawPNG(png, userAgent);
+        assertNotNull(source);
+        byte[] expected = toByteArray(load(PNG, ImageFlavor.RAW_PNG));
+        assertArrayEquals(expected, source.toByteArray());
+    }
+
+    @Test
+    public void testNoFileSource() throws Exception {
+        File copy = File.createTempFile("fop", ".jpg");
+        try {
+            FileUtils.copyFile(new File(JPEG), copy);
+            ImageRawJPEG jpeg = (ImageRawJPEG) load(copy.toURI().toString(), ImageFlavor.RAW_JPEG);
+            // the image no longer matches the file it was loaded from
+            FileUtils.copyFile(new File(CMYK_JPEG), copy);
+            assertNull(ImageFileSource.forRawJPEG(jpeg, userAgent, false));
+        } finally {
+            copy.delete();
+        }
+    }
+
+    @Test
+    public void testPDFEmbedsJPEGFile() throws Exception {
+        String fo = "<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">"
+                + "<fo:layout-master-set><fo:simple-page-master master-name=\"p\">"
+                + "<fo:region-body/></fo:simple-page-master></fo:layout-master-set>"
+                + "<fo:page-sequence master-reference=\"p\"><fo:flow flow-name=\"xsl-region-body\">"
+                + "<fo:block><fo:external-graphic src=\"" + JPEG + "\"/></fo:block>"
+                + "</fo:flow></fo:page-sequence></fo:root>";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_PDF, fopFactory.newFOUserAgent(), out);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.transform(new StreamSource(new StringReader(fo)),
+                new SAXResult(fop.getDefaultHandler()));
+        byte[] jpeg = FileUtils.readFileToByteArray(new File(JPEG));
+        assertTrue(indexOf(out.toByteArray(), jpeg) > 0);
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern) {
+        outer:
+        for (int i = 0; i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
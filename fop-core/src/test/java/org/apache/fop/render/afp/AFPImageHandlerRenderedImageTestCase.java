@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+package org.apache.fop.render.afp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.render.ConvertedImageCache;
+
+public class AFPImageHandlerRenderedImageTestCase {
+
+    private static final String FO = "<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">"
+            + "<fo:layout-master-set><fo:simple-page-master master-name=\"p\">"
+            + "<fo:region-body/></fo:simple-page-master></fo:layout-master-set>"
+            + "<fo:page-sequence master-reference=\"p\"><fo:flow flow-name=\"xsl-region-body\">"
+            + "<fo:block><fo:external-graphic src=\"test/resources/images/bgimg72dpi.gif\"/>"
+            + "<fo:external-graphic src=\"test/resources/images/fop-logo-gray-8bit.png\"/></fo:block>"
+            + "</fo:flow></fo:page-sequence></fo:root>";
+
+    private byte[] render(FopFactory fopFactory) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_AFP, fopFactory.newFOUserAgent(), out);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.transform(new StreamSource(new StringReader(FO)),
+                new SAXResult(fop.getDefaultHandler()));
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testConvertedImagesAreReused() throws Exception {
+        FopFactory fopFactory = FopFactory.newInstance(new File(".").toURI());
+        ConvertedImageCache cache = fopFactory.getConvertedImageCache();
+        byte[] first = render(fopFactory);
+        assertEquals(0, cache.getHitCount());
+        assertTrue(cache.getEntryCount() > 0);
+        long entries = cache.getEntryCount();
+
+        byte[] second = render(fopFactory);
+        assertEquals(entries, cache.getHitCount());
+        assertArrayEquals(first, second);
+
+        //same result without the cache
+        FopFactory uncached = FopFactory.newInstance(new File(".").toURI());
+        uncached.getConvertedImageCache().setMaximumSize(0);
+        assertArrayEquals(first, render(uncached));
+        assertEquals(0, uncached.getConvertedImageCache().getMissCount());
+        assertEquals(0, uncached.getConvertedImageCache().getEntryCount());
+    }
+}
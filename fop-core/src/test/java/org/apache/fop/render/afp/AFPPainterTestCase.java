@@ -255,7 +255,7 @@ public class AFPPainterTestCase {
         RasterFont rf = new RasterFont("", true);
         CharacterSet cs = mock(CharacterSet.class);
         CharactersetEncoder.EncodedChars encoder = mock(CharactersetEncoder.EncodedChars.class);
-        when(cs.encodeChars(any(CharSequence.class))).thenReturn(encoder);
+        when(cs.encodeChars(any(CharSequence.class), any(byte[].class))).thenReturn(encoder);
         when(encoder.getLength()).thenReturn(text.get(0).length());
         rf.addCharacterSet(12000, cs);
         fi.addMetrics("", rf);
@@ -316,7 +316,7 @@ public class AFPPainterTestCase {
         setFont(documentHandler, afpPainter);
         drawBorder(afpPainter, ua);
         StringBuilder text = new StringBuilder();
-        for (int i = 0; i < 4770; i++) {
+        for (int i = 0; i < 5247; i++) {
             text.append("a");
         }
         afpPainter.drawText(0, 0, 0, 0, null, text.toString());
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.pdf;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.util.Date;
+
+import javax.imageio.ImageIO;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.render.ConvertedImageCache;
+
+/**
+ * Tests that encoded images shared between documents through the
+ * {@link ConvertedImageCache} produce the same PDF as encoding them for every document.
+ */
+public class PDFImageCacheTestCase {
+
+    private static final String PNG_WITH_ALPHA = "test/resources/images/list-item.png";
+    private static final String GIF = "test/resources/images/bgimg72dpi.gif";
+    private static final String SVG = "test/resources/images/circles.svg";
+
+    private File translucentImage;
+
+    @Before
+    public void setUp() throws Exception {
+        BufferedImage image = new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, ((x * 6) << 24) | (y * 8 << 16) | 0x3366);
+            }
+        }
+        translucentImage = File.createTempFile("fop", ".tif");
+        ImageIO.write(image, "tiff", translucentImage);
+    }
+
+    @After
+    public void tearDown() {
+        translucentImage.delete();
+    }
+
+    private String createFO() {
+        return createFO("", PNG_WITH_ALPHA, GIF, translucentImage.toURI().toString());
+    }
+
+    private String createFO(String attributes, String... images) {
+        StringBuilder sb = new StringBuilder("<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\""
+                + " xmlns:fox=\"http://xmlgraphics.apache.org/fop/extensions\">"
+                + "<fo:layout-master-set><fo:simple-page-master master-name=\"p\">"
+                + "<fo:region-body/></fo:simple-page-master></fo:layout-master-set>"
+                + "<fo:page-sequence master-reference=\"p\"><fo:flow flow-name=\"xsl-region-body\">");
+        for (String image : images) {
+            sb.append("<fo:block><fo:external-graphic src=\"").append(image).append("\"")
+                    .append(attributes).append("/></fo:block>");
+        }
+        return sb.append("</fo:flow></fo:page-sequence></fo:root>").toString();
+    }
+
+    private String render(FopFactory fopFactory, String fo) throws Exception {
+        return render(fopFactory, fo, fopFactory.getTargetResolution());
+    }
+
+    /** Renders to PDF and masks the parts that depend on the time of rendering. */
+    private String render(FopFactory fopFactory, String fo, float targetResolution)
+            throws Exception {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        userAgent.setCreationDate(new Date(0));
+        userAgent.setTargetResolution(targetResolution);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_PDF, userAgent, out);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.transform(new StreamSource(new StringReader(fo)),
+                new SAXResult(fop.getDefaultHandler()));
+        return out.toString("ISO-8859-1")
+                .replaceAll("<xmp:MetadataDate>[^<]*</xmp:MetadataDate>", "")
+                .replaceAll("/ID \\[[^\\]]*\\]", "");
+    }
+
+    @Test
+    public void testCachedImagesMatch() throws Exception {
+        String fo = createFO();
+        FopFactory uncached = FopFactory.newInstance(new File(".").toURI());
+        uncached.getConvertedImageCache().setMaximumSize(0);
+        String expected = render(uncached, fo);
+        assertEquals(0, uncached.getConvertedImageCache().getEntryCount());
+
+        FopFactory cached = FopFactory.newInstance(new File(".").toURI());
+        ConvertedImageCache cache = cached.getConvertedImageCache();
+        assertEquals(expected, render(cached, fo));
+        assertEquals(3, cache.getEntryCount());
+        assertEquals(0, cache.getHitCount());
+
+        assertEquals(expected, render(cached, fo));
+        assertEquals(3, cache.getEntryCount());
+        assertEquals(3, cache.getHitCount());
+    }
+
+    @Test
+    public void testModifiedImageNotReused() throws Exception {
+        String fo = createFO();
+        FopFactory cached = FopFactory.newInstance(new File(".").toURI());
+        render(cached, fo);
+        BufferedImage image = new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB);
+        ImageIO.write(image, "tiff", translucentImage);
+        assertTrue(translucentImage.setLastModified(translucentImage.lastModified() + 5000));
+        cached.getImageManager().getCache().clearCache();
+        render(cached, fo);
+        assertEquals(4, cached.getConvertedImageCache().getEntryCount());
+        assertEquals(2, cached.getConvertedImageCache().getHitCount());
+    }
+
+    @Test
+    public void testBitmapResolution() throws Exception {
+        String fo = createFO(" fox:conversion-mode=\"bitmap\"", SVG);
+        FopFactory uncached = FopFactory.newInstance(new File(".").toURI());
+        uncached.getConvertedImageCache().setMaximumSize(0);
+        String expected = render(uncached, fo, 300);
+
+        //the SVG image is converted to a bitmap of a different size for each resolution once
+        //the image loading cache has dropped the first bitmap
+        FopFactory cached = FopFactory.newInstance(new File(".").toURI());
+        ConvertedImageCache cache = cached.getConvertedImageCache();
+        render(cached, fo, 72);
+        cached.getImageManager().getCache().clearCache();
+        assertEquals(expected, render(cached, fo, 300));
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(0, cache.getHitCount());
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.render.intermediate.IFContext;
+import org.apache.fop.render.intermediate.IFException;
+
+/**
+ * Tests rendering pages with forward page number citations right away, using placeholders
+ * that are filled in at the end of the document.
+ */
+public class PageNumberPlaceholderTestCase {
+
+    private static final int PAGES = 3;
+
+    private final FopFactory fopFactory = FopFactory.newInstance(new File(".").toURI());
+
+    private RecordingDocumentHandler handler;
+
+    /** Counts the pages written before the second page sequence is started. */
+    private static class RecordingDocumentHandler extends PDFDocumentHandler {
+
+        private int pages;
+        private int pageSequences;
+        private int pagesBeforeSecondSequence = -1;
+
+        RecordingDocumentHandler(IFContext context) {
+            super(context);
+        }
+
+        @Override
+        public void startPageSequence(String id) throws IFException {
+            if (++pageSequences == 2) {
+                pagesBeforeSecondSequence = pages;
+            }
+            super.startPageSequence(id);
+        }
+
+        @Override
+        public void endPage() throws IFException {
+            super.endPage();
+            pages++;
+        }
+    }
+
+    private String createFO() {
+        StringBuilder sb = new StringBuilder("<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">"
+                + "<fo:layout-master-set><fo:simple-page-master master-name=\"p\""
+                + " page-width=\"10cm\" page-height=\"5cm\">"
+                + "<fo:region-body margin-bottom=\"2cm\"/><fo:region-after extent=\"2cm\"/>"
+                + "</fo:simple-page-master></fo:layout-master-set>");
+        for (int seq = 0; seq < 2; seq++) {
+            sb.append("<fo:page-sequence master-reference=\"p\">"
+                    + "<fo:static-content flow-name=\"xsl-region-after\">"
+                    + "<fo:block text-align=\"end\">Page <fo:page-number/> of "
+                    + "<fo:page-number-citation-last ref-id=\"last\"/> end</fo:block></fo:static-content>"
+                    + "<fo:flow flow-name=\"xsl-region-body\">");
+            for (int i = 0; i < PAGES; i++) {
+                sb.append("<fo:block break-before=\"page\">Section ").append(seq).append('.').append(i)
+                        .append("</fo:block>");
+            }
+            if (seq == 1) {
+                sb.append("<fo:block id=\"last\">The end</fo:block>");
+            }
+            sb.append("</fo:flow></fo:page-sequence>");
+        }
+        return sb.append("</fo:root>").toString();
+    }
+
+    private byte[] render(int digits) throws Exception {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        userAgent.setPageNumberPlaceholderDigits(digits);
+        handler = new RecordingDocumentHandler(new IFContext(userAgent));
+        userAgent.setDocumentHandlerOverride(handler);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_PDF, userAgent, out);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.transform(new StreamSource(new StringReader(createFO())),
+                new SAXResult(fop.getDefaultHandler()));
+        return out.toByteArray();
+    }
+
+    private String extractText(byte[] pdfContent) throws Exception {
+        PDDocument pdf = PDDocument.load(pdfContent);
+        try {
+            return new PDFTextStripper().getText(pdf);
+        } finally {
+            pdf.close();
+        }
+    }
+
+    @Test
+    public void testPagesHeldWithoutPlaceholders() throws Exception {
+        String text = extractText(render(0));
+        assertEquals(0, handler.pagesBeforeSecondSequence);
+        assertEquals(2 * PAGES, handler.pages);
+        for (int page = 1; page <= 2 * PAGES; page++) {
+            assertTrue(text, text.contains("Page " + page + " of " + 2 * PAGES + " end"));
+        }
+    }
+
+    @Test
+    public void testPagesRenderedWithPlaceholders() throws Exception {
+        byte[] pdf = render(3);
+        String text = extractText(pdf);
+        assertEquals(PAGES, handler.pagesBeforeSecondSequence);
+        //all citations share a single Form XObject
+        assertEquals(1, new String(pdf, "ISO-8859-1").split("/Subtype /Form").length - 1);
+        assertEquals(2 * PAGES, handler.pages);
+        for (int page = 1; page <= 2 * PAGES; page++) {
+            assertTrue(text, text.contains("Page " + page + " of " + 2 * PAGES));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.tools.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.io.FileUtils;
+
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+
+/**
+ * Tests the multi-threaded load test.
+ */
+public class LoadTestTestCase {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File createFO() throws Exception {
+        StringBuilder sb = new StringBuilder("<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">"
+                + "<fo:layout-master-set><fo:simple-page-master master-name=\"p\""
+                + " page-width=\"10cm\" page-height=\"5cm\"><fo:region-body/>"
+                + "</fo:simple-page-master></fo:layout-master-set>"
+                + "<fo:page-sequence master-reference=\"p\"><fo:flow flow-name=\"xsl-region-body\">");
+        for (int i = 0; i < 10; i++) {
+            sb.append("<fo:block>The quick brown fox jumps over the lazy dog ").append(i).append(".</fo:block>");
+        }
+        sb.append("</fo:flow></fo:page-sequence></fo:root>");
+        File fo = folder.newFile("test.fo");
+        FileUtils.writeStringToFile(fo, sb.toString(), "UTF-8");
+        return fo;
+    }
+
+    @Test
+    public void testParseTask() {
+        assertEquals("test.fo -> application/pdf", LoadTestTask.parse("test.fo").toString());
+        assertEquals("test.xml,test.xsl -> application/postscript",
+                LoadTestTask.parse("test.xml,test.xsl=ps").toString());
+        assertEquals(MimeConstants.MIME_AFP, LoadTestTask.getOutputFormat("application/x-afp"));
+        assertEquals(".if.xml", LoadTestTask.parse("test.fo=if").getTargetFileExtension());
+    }
+
+    @Test
+    public void testLoadTest() throws Exception {
+        File fo = createFO();
+        LoadTest loadTest = new LoadTest(FopFactory.newInstance(new File(".").toURI()),
+                Arrays.asList(LoadTestTask.parse(fo.getPath()),
+                        LoadTestTask.parse(fo.getPath() + "=ps")));
+        loadTest.setThreads(2);
+        loadTest.setWarmUpPasses(1);
+        loadTest.setPasses(2);
+        loadTest.setRecordMetrics(true);
+        loadTest.setOutputDir(folder.getRoot());
+        LoadTestReport report = loadTest.run();
+
+        assertEquals(8, report.getDocumentCount());
+        assertEquals(0, report.getFailureCount());
+        assertEquals(0, report.getDifferenceCount());
+        assertTrue(report.getThroughput() > 0);
+        assertTrue(report.getLatencyPercentile(50) <= report.getLatencyPercentile(100));
+        assertTrue(new File(folder.getRoot(), "000.pdf").length() > 0);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        report.print(new PrintStream(out, true, "UTF-8"));
+        String text = out.toString("UTF-8");
+        assertTrue(text, text.contains("LINE_BREAKING"));
+        //the PDF output is identical apart from its file ID
+        assertFalse(text, text.contains("isn't deterministic"));
+    }
+}
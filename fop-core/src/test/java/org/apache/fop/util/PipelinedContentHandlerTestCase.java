@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.cli.InputHandler;
+
+public class PipelinedContentHandlerTestCase {
+
+    private static final String XML_FILE = "../fop/examples/embedding/xml/xml/projectteam.xml";
+    private static final String XSL_FILE = "../fop/examples/embedding/xml/xslt/projectteam2fo.xsl";
+
+    private static String createDocument() {
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\"?>\n<root xmlns=\"urn:test\""
+                + " xmlns:p=\"urn:prefixed\">\n");
+        for (int i = 0; i < 2000; i++) {
+            sb.append("<p:item id=\"i").append(i).append("\" p:value=\"").append(i * 7)
+                    .append("\">text &amp; more text ").append(i).append("<?pi data?></p:item>\n");
+        }
+        return sb.append("</root>").toString();
+    }
+
+    private static String serialize(String xml, int capacity) throws Exception {
+        SAXTransformerFactory factory = (SAXTransformerFactory) TransformerFactory.newInstance();
+        TransformerHandler serializer = factory.newTransformerHandler();
+        StringWriter writer = new StringWriter();
+        serializer.setResult(new StreamResult(writer));
+        ContentHandler handler = capacity > 0
+                ? new PipelinedContentHandler(serializer, capacity) : serializer;
+        factory.newTransformer().transform(new StreamSource(new StringReader(xml)),
+                new SAXResult(handler));
+        return writer.toString();
+    }
+
+    @Test
+    public void testEventsPassedOn() throws Exception {
+        String xml = createDocument();
+        String expected = serialize(xml, 0);
+        assertEquals(expected, serialize(xml, 64));
+        assertEquals(expected, serialize(xml, PipelinedContentHandler.DEFAULT_CAPACITY));
+    }
+
+    @Test
+    public void testLocator() throws Exception {
+        String xml = createDocument();
+        LocatorRecorder expected = new LocatorRecorder();
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.transform(new StreamSource(new StringReader(xml), "urn:doc"),
+                new SAXResult(expected));
+        LocatorRecorder actual = new LocatorRecorder();
+        PipelinedContentHandler.transform(transformer,
+                new StreamSource(new StringReader(xml), "urn:doc"), actual);
+        assertEquals(2001, expected.positions.size());
+        assertEquals(expected.positions, actual.positions);
+        assertTrue(actual.thread != Thread.currentThread());
+    }
+
+    @Test(timeout = 60000)
+    public void testConsumerFailure() throws Exception {
+        final SAXException failure = new SAXException("expected");
+        ContentHandler failing = new DefaultHandler() {
+            private int count;
+            public void startElement(String uri, String localName, String qName, Attributes atts)
+                    throws SAXException {
+                if (++count == 100) {
+                    throw failure;
+                }
+            }
+        };
+        try {
+            PipelinedContentHandler.transform(TransformerFactory.newInstance().newTransformer(),
+                    new StreamSource(new StringReader(createDocument())), failing);
+            fail("The consumer's exception must be passed on");
+        } catch (TransformerException te) {
+            Throwable cause = te;
+            while (cause != null && cause != failure) {
+                cause = cause.getCause() != null ? cause.getCause() : ((TransformerException) cause)
+                        .getException();
+            }
+            assertSame(failure, cause);
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testProducerFailure() throws Exception {
+        String xml = createDocument();
+        xml = xml.substring(0, xml.length() / 2) + "<unclosed";
+        CountingHandler counter = new CountingHandler();
+        try {
+            PipelinedContentHandler.transform(TransformerFactory.newInstance().newTransformer(),
+                    new StreamSource(new StringReader(xml)), counter);
+            fail("The parse error must be reported");
+        } catch (TransformerException te) {
+            // expected
+        }
+        assertEquals(0, counter.endDocuments);
+    }
+
+    @Test(timeout = 60000)
+    public void testCancelWaitsForConsumer() throws Exception {
+        String xml = createDocument();
+        xml = xml.substring(0, xml.length() / 2) + "<unclosed";
+        SlowHandler slow = new SlowHandler();
+        try {
+            PipelinedContentHandler.transform(TransformerFactory.newInstance().newTransformer(),
+                    new StreamSource(new StringReader(xml)), slow);
+            fail("The parse error must be reported");
+        } catch (TransformerException te) {
+            // expected
+        }
+        // the consumer thread has stopped when the transformation returns
+        assertFalse(slow.thread.isAlive());
+        int elements = slow.elements;
+        Thread.sleep(50);
+        assertEquals(elements, slow.elements);
+    }
+
+    @Test
+    public void testPipelinedInputHandler() throws Exception {
+        FopFactory fopFactory = FopFactory.newInstance(new File(".").toURI());
+        InputHandler handler = new InputHandler(new File(XML_FILE), new File(XSL_FILE), null);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        handler.renderTo(fopFactory.newFOUserAgent(), MimeConstants.MIME_FOP_AREA_TREE, expected);
+
+        handler.setPipelined(true);
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        handler.renderTo(userAgent, MimeConstants.MIME_FOP_AREA_TREE, actual);
+        assertEquals(expected.toString("UTF-8"), actual.toString("UTF-8"));
+    }
+
+    private static class LocatorRecorder extends DefaultHandler {
+
+        private final List<String> positions = new ArrayList<String>();
+        private Locator locator;
+        private Thread thread;
+
+        public void setDocumentLocator(Locator locator) {
+            this.locator = locator;
+        }
+
+        public void startElement(String uri, String localName, String qName, Attributes atts) {
+            thread = Thread.currentThread();
+            positions.add(locator.getSystemId() + ":" + locator.getLineNumber() + ":"
+                    + locator.getColumnNumber());
+        }
+    }
+
+    private static class SlowHandler extends DefaultHandler {
+
+        private volatile Thread thread;
+        private volatile int elements;
+
+        public void startElement(String uri, String localName, String qName, Attributes atts)
+                throws SAXException {
+            thread = Thread.currentThread();
+            elements++;
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException ie) {
+                throw new SAXException(ie);
+            }
+        }
+    }
+
+    private static class CountingHandler extends DefaultHandler {
+
+        private volatile int endDocuments;
+
+        public void endDocument() {
+            endDocuments++;
+        }
+    }
+}
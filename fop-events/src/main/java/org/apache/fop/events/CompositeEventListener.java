@@ -22,10 +22,12 @@ package org.apache.fop.events;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.fop.events.model.EventSeverity;
+
 /**
  * EventListener implementation forwards events to possibly multiple other EventListeners.
  */
-public class CompositeEventListener implements EventListener {
+public class CompositeEventListener implements EventListener, EventFilter {
 
     private List<EventListener> listeners = new ArrayList<EventListener>();
 
@@ -55,6 +57,21 @@ public class CompositeEventListener implements EventListener {
         return !listeners.isEmpty();
     }
 
+    /**
+     * {@inheritDoc}
+     * An event is of interest if at least one of the listeners doesn't implement
+     * {@link EventFilter} or is interested in it.
+     */
+    public synchronized boolean isEventOfInterest(String eventID, EventSeverity severity) {
+        for (EventListener listener : listeners) {
+            if (!(listener instanceof EventFilter)
+                    || ((EventFilter) listener).isEventOfInterest(eventID, severity)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /** {@inheritDoc } */
     public synchronized void processEvent(Event event) {
         for (EventListener listener : listeners) {
@@ -26,6 +26,8 @@ import java.lang.reflect.Proxy;
 import java.util.List;
 import java.util.Map;
 import java.util.MissingResourceException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.stream.StreamSource;
@@ -41,8 +43,13 @@ import org.apache.fop.events.model.EventSeverity;
 /**
  * Default implementation of the EventBroadcaster interface. It holds a list of event listeners
  * and can provide {@link EventProducer} instances for type-safe event production.
+ * <p>
+ * The event model information needed by the event producers is looked up once per producer
+ * interface and shared by all broadcasters. Before an event producer builds an {@link Event},
+ * it asks {@link #isEventOfInterest(String, EventSeverity)} whether any listener cares about it.
+ * </p>
  */
-public class DefaultEventBroadcaster implements EventBroadcaster {
+public class DefaultEventBroadcaster implements EventBroadcaster, EventFilter {
 
     /** Holds all registered event listeners */
     protected CompositeEventListener listeners = new CompositeEventListener();
@@ -67,8 +74,32 @@ public class DefaultEventBroadcaster implements EventBroadcaster {
         this.listeners.processEvent(event);
     }
 
+    /**
+     * {@inheritDoc}
+     * The default implementation asks the registered listeners.
+     * @see CompositeEventListener#isEventOfInterest(String, EventSeverity)
+     */
+    public boolean isEventOfInterest(String eventID, EventSeverity severity) {
+        return this.listeners.isEventOfInterest(eventID, severity);
+    }
+
     private static List<EventModel> eventModels = new java.util.ArrayList();
-    private Map proxies = new java.util.HashMap();
+    /**
+     * The producer information of each event producer interface. It is stored with the interface
+     * (not in a static map), so it doesn't prevent the class loader of the interface from being
+     * garbage collected.
+     */
+    private static final ClassValue<ProducerInfo> PRODUCER_INFOS = new ClassValue<ProducerInfo>() {
+        protected ProducerInfo computeValue(Class<?> clazz) {
+            EventProducerModel producerModel = getEventProducerModel(clazz);
+            if (producerModel == null) {
+                throw new IllegalStateException("Event model doesn't contain the definition for "
+                        + clazz.getName());
+            }
+            return new ProducerInfo(producerModel);
+        }
+    };
+    private Map proxies = new ConcurrentHashMap();
 
     /**
      * Loads an event model and returns its instance.
@@ -115,6 +146,10 @@ public class DefaultEventBroadcaster implements EventBroadcaster {
         return model.getProducer(clazz);
     }
 
+    private static ProducerInfo getProducerInfo(Class clazz) {
+        return PRODUCER_INFOS.get(clazz);
+    }
+
     /** {@inheritDoc} */
     public EventProducer getEventProducerFor(Class clazz) {
         if (!EventProducer.class.isAssignableFrom(clazz)) {
@@ -138,44 +173,82 @@ public class DefaultEventBroadcaster implements EventBroadcaster {
      * @return the EventProducer instance
      */
     protected EventProducer createProxyFor(Class clazz) {
-        final EventProducerModel producerModel = getEventProducerModel(clazz);
-        if (producerModel == null) {
-            throw new IllegalStateException("Event model doesn't contain the definition for "
-                    + clazz.getName());
-        }
+        final ProducerInfo producerInfo = getProducerInfo(clazz);
         return (EventProducer)Proxy.newProxyInstance(clazz.getClassLoader(),
                 new Class[] {clazz},
                 new InvocationHandler() {
                     public Object invoke(Object proxy, Method method, Object[] args)
                             throws Throwable {
-                        String methodName = method.getName();
-                        EventMethodModel methodModel = producerModel.getMethod(methodName);
-                        String eventID = producerModel.getInterfaceName() + "." + methodName;
-                        if (methodModel == null) {
-                            throw new IllegalStateException(
-                                    "Event model isn't consistent"
-                                    + " with the EventProducer interface. Please rebuild FOP!"
-                                    + " Affected method: "
-                                    + eventID);
+                        EventMethodInfo methodInfo = producerInfo.getMethodInfo(method);
+                        if (methodInfo.severity != EventSeverity.FATAL
+                                && !isEventOfInterest(methodInfo.eventID, methodInfo.severity)) {
+                            return null;
                         }
-                        Map params = new java.util.HashMap();
-                        int i = 1;
-                        for (Object o : methodModel.getParameters()) {
-                            EventMethodModel.Parameter param
-                                    = (EventMethodModel.Parameter) o;
-                            params.put(param.getName(), args[i]);
-                            i++;
+                        String[] paramNames = methodInfo.paramNames;
+                        Map params = new java.util.HashMap(paramNames.length * 2);
+                        for (int i = 0; i < paramNames.length; i++) {
+                            params.put(paramNames[i], args[i + 1]);
                         }
-                        Event ev = new Event(args[0], eventID, methodModel.getSeverity(), params);
+                        Event ev = new Event(args[0], methodInfo.eventID, methodInfo.severity, params);
                         broadcastEvent(ev);
 
                         if (ev.getSeverity() == EventSeverity.FATAL) {
-                            EventExceptionManager.throwException(ev,
-                                    methodModel.getExceptionClass());
+                            EventExceptionManager.throwException(ev, methodInfo.exceptionClass);
                         }
                         return null;
                     }
                 });
     }
 
+    /** The event model information of an event producer interface. */
+    private static final class ProducerInfo {
+
+        private final EventProducerModel producerModel;
+        private final ConcurrentMap<Method, EventMethodInfo> methods
+                = new ConcurrentHashMap<Method, EventMethodInfo>();
+
+        ProducerInfo(EventProducerModel producerModel) {
+            this.producerModel = producerModel;
+        }
+
+        EventMethodInfo getMethodInfo(Method method) {
+            EventMethodInfo info = methods.get(method);
+            if (info == null) {
+                String methodName = method.getName();
+                String eventID = producerModel.getInterfaceName() + "." + methodName;
+                EventMethodModel methodModel = producerModel.getMethod(methodName);
+                if (methodModel == null) {
+                    throw new IllegalStateException(
+                            "Event model isn't consistent"
+                            + " with the EventProducer interface. Please rebuild FOP!"
+                            + " Affected method: "
+                            + eventID);
+                }
+                info = new EventMethodInfo(eventID, methodModel);
+                methods.put(method, info);
+            }
+            return info;
+        }
+    }
+
+    /** The event model information of an event producer method, prepared for fast access. */
+    private static final class EventMethodInfo {
+
+        private final String eventID;
+        private final EventSeverity severity;
+        private final String[] paramNames;
+        private final String exceptionClass;
+
+        EventMethodInfo(String eventID, EventMethodModel methodModel) {
+            this.eventID = eventID;
+            this.severity = methodModel.getSeverity();
+            List params = methodModel.getParameters();
+            this.paramNames = new String[params.size()];
+            for (int i = 0; i < paramNames.length; i++) {
+                paramNames[i] = ((EventMethodModel.Parameter) params.get(i)).getName();
+            }
+            this.exceptionClass = methodModel.getExceptionClass();
+        }
+    }
+
 }
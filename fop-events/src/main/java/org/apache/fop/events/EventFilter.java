@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+package org.apache.fop.events;
+
+import org.apache.fop.events.model.EventSeverity;
+
+/**
+ * Optional interface for {@link EventListener}s that are only interested in some of the events.
+ * The {@link DefaultEventBroadcaster} consults it before an event producer builds the
+ * {@link Event} instance, so events no listener is interested in cost next to nothing.
+ * <p>
+ * Implementations must be cheap and free of side effects. If they cannot decide from the event
+ * ID and the event's default severity alone, they must return true. Events with severity
+ * {@link EventSeverity#FATAL} are always produced.</p>
+ */
+public interface EventFilter {
+
+    /**
+     * Indicates whether an event with the given ID and severity shall be produced.
+     * @param eventID the event ID (event group ID + "." + event key)
+     * @param severity the default severity of the event as defined by the event model
+     * @return true if the event could be of interest, false if it can be skipped
+     */
+    boolean isEventOfInterest(String eventID, EventSeverity severity);
+
+}
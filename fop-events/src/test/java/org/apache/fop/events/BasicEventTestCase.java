@@ -24,6 +24,8 @@ import org.junit.Test;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -88,6 +90,47 @@ public class BasicEventTestCase {
         broadcaster.broadcastEvent(ev);
     }
 
+    @Test
+    public void testEventFilter() throws Exception {
+        MyEventListener listener = new MyFilteringEventListener();
+
+        DefaultEventBroadcaster broadcaster = new DefaultEventBroadcaster();
+        broadcaster.addEventListener(listener);
+        assertFalse(broadcaster.isEventOfInterest(
+                "org.apache.fop.events.TestEventProducer.enjoy", EventSeverity.INFO));
+
+        TestEventProducer producer = TestEventProducer.Provider.get(broadcaster);
+        assertSame(producer, TestEventProducer.Provider.get(broadcaster));
+        producer.enjoy(this, "Sunshine");
+        assertNull(listener.event);
+        producer.complain(this, "I'm tired", 23);
+        assertNotNull(listener.event);
+        assertEquals("I'm tired", listener.event.getParam("reason"));
+
+        //Listeners without a filter receive all events
+        MyEventListener other = new MyEventListener();
+        broadcaster.addEventListener(other);
+        listener.event = null;
+        producer.enjoy(this, "Sunshine");
+        assertNotNull(other.event);
+        assertEquals("Sunshine", other.event.getParam("what"));
+        assertNull(listener.event);
+    }
+
+    private class MyFilteringEventListener extends MyEventListener implements EventFilter {
+
+        public boolean isEventOfInterest(String eventID, EventSeverity severity) {
+            return severity != EventSeverity.INFO;
+        }
+
+        public void processEvent(Event event) {
+            if (event.getSeverity() == EventSeverity.INFO) {
+                return;
+            }
+            super.processEvent(event);
+        }
+    }
+
     private class MyEventListener implements EventListener {
 
         private Event event;